@@ -0,0 +1,132 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import VASSAL.build.module.documentation.HelpFile;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for looking up components in the build tree of a large
+ * module, by scanning the tree and through the indexed lookups of
+ * {@link AbstractBuildable}. Each lookup finds the zone and a global
+ * property of a piece, as a Global Key Command does.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class AbstractBuildableBenchmark {
+  public static final int MAPS = 20;
+  public static final int BOARDS = 5;
+  public static final int ZONES = 100;
+  public static final int PROPERTIES = 500;
+
+  private static class Node extends AbstractConfigurable {
+    Node(String name) {
+      setConfigureName(name);
+    }
+
+    public String[] getAttributeDescriptions() { return new String[0]; }
+    public Class<?>[] getAttributeTypes() { return new Class<?>[0]; }
+    public String[] getAttributeNames() { return new String[0]; }
+    public void setAttribute(String key, Object value) { }
+    public String getAttributeValueString(String key) { return null; }
+    public Class<?>[] getAllowableConfigureComponents() { return new Class<?>[0]; }
+    public HelpFile getHelpFile() { return null; }
+    public void addTo(Buildable parent) { }
+    public void removeFrom(Buildable parent) { }
+  }
+
+  private static class Leaf extends Node {
+    Leaf(String name) {
+      super(name);
+    }
+  }
+
+  private Node module;
+  private int next = 0;
+
+  @Setup
+  public void setUp() {
+    module = buildModule();
+  }
+
+  @Benchmark
+  public Node buildModule() {
+    final Node module = new Node("module"); //$NON-NLS-1$
+    for (int p = 0; p < PROPERTIES; ++p) {
+      module.add(new Node("prop" + p)); //$NON-NLS-1$
+    }
+    for (int m = 0; m < MAPS; ++m) {
+      final Node map = new Node("map" + m); //$NON-NLS-1$
+      module.add(map);
+      for (int b = 0; b < BOARDS; ++b) {
+        final Node board = new Node("board" + b); //$NON-NLS-1$
+        map.add(board);
+        final Node grid = new Node("grid"); //$NON-NLS-1$
+        board.add(grid);
+        for (int z = 0; z < ZONES; ++z) {
+          grid.add(new Leaf("zone" + m + "." + b + "." + z)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+      }
+    }
+    return module;
+  }
+
+  @Benchmark
+  public int lookupByScan() {
+    final int i = next++;
+    final String prop = "prop" + (i % PROPERTIES); //$NON-NLS-1$
+    int found = scanDescendants(module, Leaf.class, zone(i)).size();
+    for (Node n : module.getComponentsOf(Node.class)) {
+      if (n.getConfigureName().equals(prop)) ++found;
+    }
+    return found;
+  }
+
+  @Benchmark
+  public int lookupByIndex() {
+    final int i = next++;
+    return
+      module.getAllDescendantComponentsOf(Leaf.class, zone(i)).size() +
+      module.getComponentsOf(Node.class, "prop" + (i % PROPERTIES)).size(); //$NON-NLS-1$
+  }
+
+  private static String zone(int i) {
+    return "zone" + (i % MAPS) + ".0." + (i % ZONES); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static <T> List<T> scanDescendants(AbstractBuildable parent,
+                                             Class<T> target, String name) {
+    final List<T> l = new ArrayList<T>();
+    for (Buildable b : parent.buildComponents) {
+      if (target.isInstance(b) &&
+          name.equals(((Configurable) b).getConfigureName())) {
+        l.add(target.cast(b));
+      }
+      else if (b instanceof AbstractBuildable) {
+        l.addAll(scanDescendants((AbstractBuildable) b, target, name));
+      }
+    }
+    return l;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.io.IOException;
+
+import VASSAL.command.AddPiece;
+import VASSAL.command.ChangePiece;
+import VASSAL.command.Command;
+import VASSAL.counters.GamePiece;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.BenchmarkModule;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for encoding and decoding the commands which add and
+ * change pieces, as sent for every move and saved for every piece.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class BasicCommandEncoderBenchmark {
+  private final BasicCommandEncoder encoder = new BasicCommandEncoder();
+
+  private AddPiece add;
+  private ChangePiece change;
+  private String addEncoded;
+  private String changeEncoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    BenchmarkModule.init();
+
+    final GamePiece p = BenchmarkModule.createPiece("1234567890", 4); //$NON-NLS-1$
+    add = new AddPiece(p);
+    change = new ChangePiece(p.getId(), p.getState(), p.getState());
+
+    addEncoded = encoder.encode(add);
+    changeEncoded = encoder.encode(change);
+  }
+
+  @Benchmark
+  public String encodeAddPiece() {
+    return encoder.encode(add);
+  }
+
+  @Benchmark
+  public Command decodeAddPiece() {
+    return encoder.decode(addEncoded);
+  }
+
+  @Benchmark
+  public String encodeChangePiece() {
+    return encoder.encode(change);
+  }
+
+  @Benchmark
+  public Command decodeChangePiece() {
+    return encoder.decode(changeEncoded);
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.Command;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.BenchmarkModule;
+import VASSAL.tools.benchmark.Setup;
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.io.ObfuscatingOutputStream;
+
+/**
+ * Benchmarks for saving and loading a game of {@link #PIECES} pieces.
+ *
+ * <p>Saving encodes the game's restore command and writes it to an
+ * in-memory save file as {@link GameState#saveGame(java.io.File)} does.
+ * Loading decodes the save file with {@link GameState#decodeSavedGame}
+ * and executes the resulting command.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class GameStateBenchmark {
+  public static final int PIECES = 10000;
+
+  private GameState state;
+  private byte[] saved;
+
+  @Setup
+  public void setUp() throws IOException {
+    state = BenchmarkModule.init().getGameState();
+    for (int i = 0; i < PIECES; ++i) {
+      state.addPiece(BenchmarkModule.createPiece(String.valueOf(i), i));
+    }
+
+    saved = save();
+  }
+
+  @Benchmark
+  public byte[] save() throws IOException {
+    final String save =
+      GameModule.getGameModule().encode(state.getRestorePiecesCommand());
+
+    final ByteArrayOutputStream ba = new ByteArrayOutputStream();
+    OutputStream out = null;
+    try {
+      final ZipOutputStream zout = new ZipOutputStream(ba);
+      zout.putNextEntry(new ZipEntry(GameState.SAVEFILE_ZIP_ENTRY));
+      out = new ObfuscatingOutputStream(zout);
+      out.write(save.getBytes("UTF-8")); //$NON-NLS-1$
+      out.close();
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+
+    return ba.toByteArray();
+  }
+
+  @Benchmark
+  public Command load() throws IOException {
+    final Command c = state.decodeSavedGame(new ByteArrayInputStream(saved));
+    c.execute();
+    return c;
+  }
+}
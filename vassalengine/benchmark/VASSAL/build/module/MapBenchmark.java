@@ -0,0 +1,109 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.PieceFinder;
+import VASSAL.counters.Stack;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.BenchmarkModule;
+import VASSAL.tools.benchmark.Setup;
+import VASSAL.tools.benchmark.TearDown;
+
+/**
+ * Benchmarks for finding and drawing pieces on a {@link Map} holding
+ * {@link #PIECES} pieces, in stacks of up to three, scattered over a
+ * 4000x3000 area.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class MapBenchmark {
+  public static final int PIECES = 10000;
+  public static final int WIDTH = 4000;
+  public static final int HEIGHT = 3000;
+
+  private Map map;
+  private final Point[] points = new Point[1024];
+  private final Rectangle[] regions = new Rectangle[64];
+  private int next = 0;
+
+  private BufferedImage img;
+  private Graphics2D g;
+
+  @Setup
+  public void setUp() throws IOException {
+    BenchmarkModule.init();
+    map = new Map();
+
+    // the same layout every run
+    final Random r = new Random(42);
+
+    Stack s = null;
+    for (int i = 0; i < PIECES; ++i) {
+      final GamePiece p = BenchmarkModule.createPiece("map" + i, i); //$NON-NLS-1$
+      if (s == null || r.nextInt(3) == 0) {
+        s = new Stack();
+        s.setPosition(new Point(r.nextInt(WIDTH), r.nextInt(HEIGHT)));
+        map.addPiece(s);
+      }
+      s.add(p);
+    }
+
+    for (int i = 0; i < points.length; ++i) {
+      points[i] = new Point(r.nextInt(WIDTH), r.nextInt(HEIGHT));
+    }
+
+    for (int i = 0; i < regions.length; ++i) {
+      regions[i] = new Rectangle(r.nextInt(WIDTH - 1024),
+                                 r.nextInt(HEIGHT - 768), 1024, 768);
+    }
+
+    img = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_ARGB_PRE);
+    g = img.createGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    g.dispose();
+  }
+
+  @Benchmark
+  public GamePiece findPiece() {
+    final Point p = points[next++ % points.length];
+    return map.findPiece(p, PieceFinder.MOVABLE);
+  }
+
+  @Benchmark
+  public BufferedImage drawPiecesInRegion() {
+    final Rectangle region = regions[next++ % regions.length];
+    g.setClip(0, 0, region.width, region.height);
+    g.translate(-region.x, -region.y);
+    map.drawPiecesInRegion(g, region);
+    g.translate(region.x, region.y);
+    return img;
+  }
+}
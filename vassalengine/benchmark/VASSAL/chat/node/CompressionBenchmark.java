@@ -0,0 +1,157 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+
+import VASSAL.chat.Compressor;
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * Compares the bytes on the wire and the CPU time of compressing each
+ * large message with {@link Compressor} and Base64, as
+ * {@link NodeClient#forward} does on an uncompressed connection, with
+ * compressing the whole connection with a {@link LineCompressor}.
+ *
+ * <p>Usage: <code>CompressionBenchmark [-limit n] session...</code>
+ * where each session is a file of the lines sent over a connection, one
+ * per line, such as those recorded by setting the
+ * {@link SocketNodeClient#RECORD_PROPERTY} system property, and
+ * <code>-limit</code> sets the length above which messages are compressed
+ * individually (default 1000). The results are printed to standard output
+ * as <code>key=value</code> lines.</p>
+ *
+ * <p>This lives in the benchmark tree rather than with the tests, but as
+ * it reads recorded sessions it is not a {@link
+ * VASSAL.tools.benchmark.BenchmarkRunner} benchmark and is not run by
+ * <code>make benchmark</code>. Once that has compiled the benchmark tree
+ * into <code>bin</code>, run it with the same classpath:
+ * <code>java -classpath bin:lib/*:lib-nondist/*
+ * VASSAL.chat.node.CompressionBenchmark session...</code></p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class CompressionBenchmark {
+  public static void main(String[] args) throws IOException {
+    int limit = 1000;
+    final List<String> files = new ArrayList<String>();
+
+    for (int i = 0; i < args.length; ++i) {
+      if ("-limit".equals(args[i]) && i+1 < args.length) {
+        limit = Integer.parseInt(args[++i]);
+      }
+      else {
+        files.add(args[i]);
+      }
+    }
+
+    if (files.isEmpty()) {
+      System.err.println("Usage: CompressionBenchmark [-limit n] session...");
+      System.exit(1);
+    }
+
+    final List<String> lines = new ArrayList<String>();
+    for (String f : files) {
+      BufferedReader in = null;
+      try {
+        in = new BufferedReader(
+          new InputStreamReader(new FileInputStream(f), "UTF-8"));
+        String l;
+        while ((l = in.readLine()) != null) lines.add(l);
+        in.close();
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+
+    long plain = 0;
+    for (String l : lines) plain += l.getBytes("UTF-8").length + 1;
+
+    // per-message ZIP and Base64
+    long zipBytes = 0;
+    long zipCount = 0;
+    long zipEncode = 0;
+    long zipDecode = 0;
+    for (String l : lines) {
+      if (l.length() > limit) {
+        final long t0 = System.nanoTime();
+        final String z = NodeClient.ZIP_HEADER + Base64.encodeBase64String(
+          Compressor.compress(l.getBytes("UTF-8")));
+        final long t1 = System.nanoTime();
+        final String u = new String(Compressor.decompress(
+          Base64.decodeBase64(z.substring(NodeClient.ZIP_HEADER.length()))),
+          "UTF-8");
+        final long t2 = System.nanoTime();
+
+        if (!u.equals(l)) throw new IllegalStateException("ZIP round trip");
+
+        zipEncode += t1 - t0;
+        zipDecode += t2 - t1;
+        zipBytes += z.length() + 1;
+        ++zipCount;
+      }
+      else {
+        zipBytes += l.getBytes("UTF-8").length + 1;
+      }
+    }
+
+    // connection-level compression
+    final LineCompressor.Encoder enc = new LineCompressor.Encoder();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    long t0 = System.nanoTime();
+    for (String l : lines) enc.write(l, out);
+    final long streamEncode = System.nanoTime() - t0;
+    enc.end();
+
+    final LineCompressor.Decoder dec = new LineCompressor.Decoder();
+    final ByteArrayInputStream in =
+      new ByteArrayInputStream(out.toByteArray());
+    t0 = System.nanoTime();
+    for (String l : lines) {
+      if (!l.equals(dec.read(in))) {
+        throw new IllegalStateException("Stream round trip");
+      }
+    }
+    final long streamDecode = System.nanoTime() - t0;
+    dec.end();
+
+    System.out.println("lines=" + lines.size());
+    System.out.println("plain.bytes=" + plain);
+    System.out.println("zip.messages=" + zipCount);
+    System.out.println("zip.bytes=" + zipBytes);
+    System.out.println("zip.encode.ms=" + zipEncode / 1000000.0);
+    System.out.println("zip.decode.ms=" + zipDecode / 1000000.0);
+    System.out.println("stream.bytes=" + out.size());
+    System.out.println("stream.encode.ms=" + streamEncode / 1000000.0);
+    System.out.println("stream.decode.ms=" + streamDecode / 1000000.0);
+    System.out.println("stream.ratio=" +
+      (zipBytes == 0 ? 0 : (double) out.size() / zipBytes));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.counters;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.Comparator;
+
+import javax.swing.KeyStroke;
+
+import VASSAL.build.module.map.PieceIndex;
+import VASSAL.command.Command;
+import VASSAL.command.NullCommand;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for selecting by lasso {@link #SELECTED} of {@link #PIECES}
+ * pieces laid out in a grid, first by testing every piece and then by
+ * querying a {@link PieceIndex}, and for sending a key command to the
+ * selection.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class KeyBufferBenchmark {
+  public static final int PIECES = 10000;
+  public static final int SELECTED = 1000;
+
+  private final GamePiece[] all = new GamePiece[PIECES];
+  private final PieceIndex index = new PieceIndex();
+  private final Rectangle lasso = new Rectangle(0, 0, 1000, 2500);
+  private final KeyStroke stroke = KeyStroke.getKeyStroke('l');
+
+  private KeyBuffer lassoed;
+  private KeyBuffer selection;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < PIECES; ++i) {
+      all[i] = new BasicPiece(BasicPiece.ID + ";;;") { //$NON-NLS-1$
+        @Override
+        public Command keyEvent(KeyStroke stroke) {
+          setProperty(Properties.MOVED, Boolean.TRUE);
+          return new NullCommand();
+        }
+      };
+      all[i].setPosition(new Point((i % 100) * 50, (i / 100) * 50));
+      index.add(all[i]);
+    }
+
+    lassoed = createKeyBuffer();
+    selection = createKeyBuffer();
+    for (GamePiece p : all) {
+      if (lasso.contains(p.getPosition())) selection.add(p);
+    }
+  }
+
+  private static KeyBuffer createKeyBuffer() {
+    final IBoundsTracker bounds = new IBoundsTracker() {
+      public void clear() { }
+      public void addPiece(GamePiece p) { }
+      public void repaint() { }
+    };
+    final PieceClonerRetriever cloner = new PieceClonerRetriever() {
+      public IPieceCloner getPieceCloner() {
+        return new IPieceCloner() {
+          public GamePiece clonePiece(GamePiece piece) {
+            return piece;
+          }
+        };
+      }
+    };
+    final PieceSorterRetriever sorter = new PieceSorterRetriever() {
+      public Comparator<GamePiece> getPieceSorter() {
+        return new PieceSorter();
+      }
+    };
+    return new KeyBuffer(bounds, cloner, sorter);
+  }
+
+  @Benchmark
+  public KeyBuffer lassoByScan() {
+    lassoed.clear();
+    for (GamePiece p : all) {
+      if (lasso.contains(p.getPosition())) lassoed.add(p);
+    }
+    return lassoed;
+  }
+
+  @Benchmark
+  public KeyBuffer lassoByIndex() {
+    lassoed.clear();
+    for (GamePiece p : index.getPiecesIn(lasso)) {
+      if (lasso.contains(p.getPosition())) lassoed.add(p);
+    }
+    return lassoed;
+  }
+
+  @Benchmark
+  public Command keyCommand() {
+    return selection.keyCommand(stroke);
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.counters;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+
+import javax.swing.KeyStroke;
+
+import VASSAL.build.module.documentation.HelpFile;
+import VASSAL.command.Command;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.Setup;
+import VASSAL.tools.benchmark.TearDown;
+import VASSAL.tools.image.ImageUtils;
+
+/**
+ * Benchmarks for drawing a frame of {@link #PIECES} pieces, each with a
+ * trait which is costly to draw, directly and through the
+ * {@link PieceSpriteCache}.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class PieceSpriteCacheBenchmark {
+  public static final int PIECES = 1000;
+
+  /** A trait which draws antialiased shapes and text, as a deep stack of
+      traits would. */
+  private static class Swatch extends Decorator {
+    public Swatch(GamePiece inner) {
+      setInner(inner);
+    }
+
+    public void mySetState(String newState) { }
+
+    public String myGetState() {
+      return ""; //$NON-NLS-1$
+    }
+
+    public String myGetType() {
+      return "swatch;"; //$NON-NLS-1$
+    }
+
+    protected KeyCommand[] myGetKeyCommands() {
+      return new KeyCommand[0];
+    }
+
+    public Command myKeyEvent(KeyStroke stroke) {
+      return null;
+    }
+
+    public void draw(Graphics g, int x, int y, Component obs, double zoom) {
+      final Graphics2D g2d = (Graphics2D) g;
+      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                           RenderingHints.VALUE_ANTIALIAS_ON);
+      g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                           RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      final int s = (int) (40 * zoom);
+      for (int i = 0; i < 5; ++i) {
+        g2d.setColor(new Color(i * 50, 0, 255 - i * 50, 128));
+        g2d.fillOval(x - s/2 + i, y - s/2 + i, s - 2*i, s - 2*i);
+      }
+      g2d.setColor(Color.BLACK);
+      g2d.setFont(g2d.getFont().deriveFont((float) (10 * zoom)));
+      g2d.drawString("4-4-6", x - s/2 + 2, y + s/4); //$NON-NLS-1$
+    }
+
+    public Rectangle boundingBox() {
+      return new Rectangle(-20, -20, 40, 40);
+    }
+
+    public Shape getShape() {
+      return boundingBox();
+    }
+
+    public String getName() {
+      return "swatch"; //$NON-NLS-1$
+    }
+
+    public String getDescription() {
+      return "Swatch"; //$NON-NLS-1$
+    }
+
+    public HelpFile getHelpFile() {
+      return null;
+    }
+  }
+
+  private final GamePiece[] pieces = new GamePiece[PIECES];
+  private BufferedImage img;
+  private Graphics2D g;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < PIECES; ++i) {
+      pieces[i] = new Swatch(new BasicPiece(BasicPiece.ID + ";;;")); //$NON-NLS-1$
+    }
+
+    img = ImageUtils.createCompatibleTranslucentImage(1000, 1000);
+    g = img.createGraphics();
+  }
+
+  @TearDown
+  public void tearDown() {
+    g.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage drawDirect() {
+    for (int i = 0; i < PIECES; ++i) {
+      pieces[i].draw(g, 20 + (i * 37) % 960, 20 + (i * 53) % 960, null, 1.0);
+    }
+    return img;
+  }
+
+  @Benchmark
+  public BufferedImage drawCached() {
+    for (int i = 0; i < PIECES; ++i) {
+      PieceSpriteCache.draw(
+        pieces[i], g, 20 + (i * 37) % 960, 20 + (i * 53) % 960, null, 1.0);
+    }
+    return img;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.script;
+
+import java.io.IOException;
+
+import VASSAL.counters.GamePiece;
+import VASSAL.script.expression.ExpressionException;
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.BenchmarkModule;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for evaluating BeanShell expressions against the
+ * properties of a piece, as Calculated Properties, Global Key Commands
+ * and the like do.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ExpressionInterpreterBenchmark {
+  private GamePiece piece;
+  private ExpressionInterpreter arithmetic;
+  private ExpressionInterpreter logical;
+  private ExpressionInterpreter string;
+
+  @Setup
+  public void setUp() throws IOException, ExpressionException {
+    BenchmarkModule.init();
+    piece = BenchmarkModule.createPiece("expr", 4); //$NON-NLS-1$
+
+    arithmetic = ExpressionInterpreter.createInterpreter(
+      "{Strength * 2 + 1}"); //$NON-NLS-1$
+    logical = ExpressionInterpreter.createInterpreter(
+      "{Nation == \"Allied\" && Strength > 3}"); //$NON-NLS-1$
+    string = ExpressionInterpreter.createInterpreter(
+      "{Nation + \"-\" + BasicName}"); //$NON-NLS-1$
+  }
+
+  @Benchmark
+  public String evaluateArithmetic() throws ExpressionException {
+    return arithmetic.evaluate(piece);
+  }
+
+  @Benchmark
+  public String evaluateLogical() throws ExpressionException {
+    return logical.evaluate(piece);
+  }
+
+  @Benchmark
+  public String evaluateString() throws ExpressionException {
+    return string.evaluate(piece);
+  }
+}
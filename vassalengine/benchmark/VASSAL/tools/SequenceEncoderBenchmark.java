@@ -0,0 +1,60 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools;
+
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for {@link SequenceEncoder}, using tokens like those of a
+ * piece's type and state, including ones which must be escaped.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class SequenceEncoderBenchmark {
+  private String[] tokens;
+  private String encoded;
+
+  @Setup
+  public void setUp() {
+    tokens = new String[] {
+      "emb2", "Flip", "70", "", "", "Flipped", "true", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+      "inf-front.png,inf-back.png", ",Reduced", "0", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      "a\\b;c", "\\", "'quoted'", "12345" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    };
+    encoded = encode();
+  }
+
+  @Benchmark
+  public String encode() {
+    final SequenceEncoder se = new SequenceEncoder(';');
+    for (String t : tokens) se.append(t);
+    return se.getValue();
+  }
+
+  @Benchmark
+  public String decode() {
+    final SequenceEncoder.Decoder sd =
+      new SequenceEncoder.Decoder(encoded, ';');
+    String t = null;
+    while (sd.hasMoreTokens()) t = sd.nextToken();
+    return t;
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.benchmark;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.MethodProxy;
+
+import org.objenesis.ObjenesisStd;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.BasicCommandEncoder;
+import VASSAL.build.module.GameState;
+import VASSAL.command.Command;
+import VASSAL.command.CommandEncoder;
+import VASSAL.configure.Configurer;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.Decorator;
+import VASSAL.counters.Embellishment;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Immobilized;
+import VASSAL.counters.Labeler;
+import VASSAL.counters.Marker;
+import VASSAL.counters.ReportState;
+import VASSAL.preferences.Prefs;
+import VASSAL.tools.DataArchive;
+import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * A stand-in {@link GameModule} for benchmarks which need one.
+ *
+ * <p>A real module cannot be built without a display, since it opens
+ * the controls window as it is constructed. This one is a proxy with a
+ * real {@link GameState}, an archive holding a single counter image,
+ * preferences which all have their default values, and the command
+ * encoding of <code>BasicModule</code> over a
+ * {@link BasicCommandEncoder}. Every other method does nothing and
+ * returns <code>null</code>, zero, <code>false</code> or an empty list.
+ * Mock objects are no use here, as they record every call made to
+ * them, which costs more than most of the calls being timed.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class BenchmarkModule {
+  /** The name of the counter image in the module's archive. */
+  public static final String COUNTER_IMAGE = "counter.png"; //$NON-NLS-1$
+
+  private static final char COMMAND_SEPARATOR = 27;
+
+  private static final CommandEncoder[] encoders = new CommandEncoder[] {
+    new BasicCommandEncoder()
+  };
+
+  private BenchmarkModule() {}
+
+  /**
+   * Installs the stand-in module, unless some module is installed
+   * already.
+   *
+   * @return the module
+   * @throws IOException if the module's archive cannot be created
+   */
+  public static synchronized GameModule init() throws IOException {
+    GameModule module = GameModule.getGameModule();
+    if (module != null) return module;
+
+    final GameState state = new GameState();
+    final DataArchive archive = new DataArchive(createArchive().getPath());
+    final Prefs prefs = createPrefs();
+
+    module = create(GameModule.class, new Handler() {
+      public Object invoke(String name, Object[] args) {
+        if ("getGameState".equals(name)) return state; //$NON-NLS-1$
+        if ("getDataArchive".equals(name)) return archive; //$NON-NLS-1$
+        if ("getPrefs".equals(name)) return prefs; //$NON-NLS-1$
+        if ("encode".equals(name)) return encode((Command) args[0]); //$NON-NLS-1$
+        if ("decode".equals(name)) return decode((String) args[0]); //$NON-NLS-1$
+        return NONE;
+      }
+    });
+
+    GameModule.init(module);
+    return module;
+  }
+
+  /**
+   * Creates preferences which keep the options added to them, with
+   * their default values, and do nothing else.
+   */
+  private static Prefs createPrefs() {
+    final Map<String,Configurer> options = new HashMap<String,Configurer>();
+
+    return create(Prefs.class, new Handler() {
+      public Object invoke(String name, Object[] args) {
+        if ("addOption".equals(name)) { //$NON-NLS-1$
+          for (Object arg : args) {
+            if (arg instanceof Configurer) {
+              final Configurer c = (Configurer) arg;
+              if (!options.containsKey(c.getKey())) {
+                options.put(c.getKey(), c);
+              }
+            }
+          }
+          return null;
+        }
+        else if ("getOption".equals(name)) { //$NON-NLS-1$
+          return options.get(args[0]);
+        }
+        else if ("getValue".equals(name)) { //$NON-NLS-1$
+          final Configurer c = options.get(args[0]);
+          return c == null ? null : c.getValue();
+        }
+        return NONE;
+      }
+    });
+  }
+
+  /** Returned by a {@link Handler} for methods it does not handle. */
+  private static final Object NONE = new Object();
+
+  private static interface Handler {
+    Object invoke(String name, Object[] args);
+  }
+
+  /**
+   * Creates an instance of a subclass of the given class, without
+   * running any of its constructors, whose methods are handled by the
+   * given handler.
+   */
+  private static <T> T create(Class<T> c, final Handler h) {
+    final Enhancer e = new Enhancer();
+    e.setSuperclass(c);
+    e.setCallbackType(MethodInterceptor.class);
+    e.setUseCache(false);
+    final Class<?> sub = e.createClass();
+
+    Enhancer.registerStaticCallbacks(sub, new Callback[] {
+      new MethodInterceptor() {
+        public Object intercept(Object obj, Method m, Object[] args,
+                                MethodProxy proxy) {
+          final Object ret = h.invoke(m.getName(), args);
+          return ret == NONE ? defaultValue(m.getReturnType()) : ret;
+        }
+      }
+    });
+
+    return c.cast(new ObjenesisStd().newInstance(sub));
+  }
+
+  private static Object defaultValue(Class<?> c) {
+    if (!c.isPrimitive()) {
+      return List.class.isAssignableFrom(c) ? Collections.emptyList() : null;
+    }
+    if (c == Boolean.TYPE) return Boolean.FALSE;
+    if (c == Character.TYPE) return Character.valueOf('\0');
+    if (c == Byte.TYPE) return Byte.valueOf((byte) 0);
+    if (c == Short.TYPE) return Short.valueOf((short) 0);
+    if (c == Integer.TYPE) return Integer.valueOf(0);
+    if (c == Long.TYPE) return Long.valueOf(0L);
+    if (c == Float.TYPE) return Float.valueOf(0.0f);
+    if (c == Double.TYPE) return Double.valueOf(0.0);
+    return null;
+  }
+
+  /**
+   * Creates a counter with a few of the usual traits.
+   *
+   * @param id the id of the counter
+   * @param n a number to vary the counter's state
+   * @return the counter
+   */
+  public static GamePiece createPiece(String id, int n) {
+    GamePiece p =
+      new BasicPiece(BasicPiece.ID + ";;" + COUNTER_IMAGE + ";Infantry"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    final Marker m = new Marker(Marker.ID + "Nation,Strength", p); //$NON-NLS-1$
+    m.mySetState("Allied," + (n % 10)); //$NON-NLS-1$
+    p = m;
+
+    final Decorator[] traits = new Decorator[] {
+      new Embellishment(), new Labeler(), new Immobilized(), new ReportState()
+    };
+    for (Decorator d : traits) {
+      d.setInner(p);
+      p = d;
+    }
+
+    p.setId(id);
+    return p;
+  }
+
+  private static File createArchive() throws IOException {
+    final BufferedImage img =
+      new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+    final Graphics2D g = img.createGraphics();
+    g.setColor(Color.RED);
+    g.fillRect(2, 2, 60, 60);
+    g.setColor(Color.BLACK);
+    g.drawString("1-1", 24, 36); //$NON-NLS-1$
+    g.dispose();
+
+    final File f = File.createTempFile("benchmark", ".vmod"); //$NON-NLS-1$ //$NON-NLS-2$
+    f.deleteOnExit();
+
+    ZipOutputStream out = null;
+    try {
+      out = new ZipOutputStream(new FileOutputStream(f));
+      out.putNextEntry(new ZipEntry(DataArchive.IMAGE_DIR + COUNTER_IMAGE));
+      ImageIO.write(img, "png", out); //$NON-NLS-1$
+      out.closeEntry();
+      out.close();
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+
+    return f;
+  }
+
+  /**
+   * Encodes a command as <code>BasicModule</code> does.
+   *
+   * @param c the command
+   * @return the encoded command
+   */
+  public static String encode(Command c) {
+    if (c == null) return null;
+
+    String s = null;
+    for (int i = 0; i < encoders.length && s == null; ++i) {
+      s = encoders[i].encode(c);
+    }
+
+    final Command[] sub = c.getSubCommands();
+    if (sub.length > 0) {
+      final SequenceEncoder se = new SequenceEncoder(s, COMMAND_SEPARATOR);
+      for (Command subc : sub) {
+        final String s2 = encode(subc);
+        if (s2 != null) se.append(s2);
+      }
+      s = se.getValue();
+    }
+    return s;
+  }
+
+  /**
+   * Decodes a command as <code>BasicModule</code> does.
+   *
+   * @param command the encoded command
+   * @return the command
+   */
+  public static Command decode(String command) {
+    if (command == null) return null;
+
+    final SequenceEncoder.Decoder st =
+      new SequenceEncoder.Decoder(command, COMMAND_SEPARATOR);
+    final String first = st.nextToken();
+
+    Command c = null;
+    if (command.equals(first)) {
+      for (int i = 0; i < encoders.length && c == null; ++i) {
+        c = encoders[i].decode(first);
+      }
+    }
+    else {
+      c = decode(first);
+      while (st.hasMoreTokens()) {
+        final Command next = decode(st.nextToken());
+        c = c == null ? next : c.append(next);
+      }
+    }
+    return c;
+  }
+}
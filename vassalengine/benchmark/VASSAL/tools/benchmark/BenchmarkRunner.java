@@ -0,0 +1,273 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.benchmark;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs the {@link Benchmark} methods of the given classes and prints the
+ * results as comma-separated values.
+ *
+ * <p>Usage: <code>BenchmarkRunner [-warmup n] [-iterations n] [-time ms]
+ * [-filter text] [-out file] class...</code></p>
+ *
+ * <p>Each benchmark method is called repeatedly for <code>-warmup</code>
+ * untimed iterations (default 3) and then <code>-iterations</code> timed
+ * ones (default 5), each lasting about <code>-time</code> milliseconds
+ * (default 1000). The score is the mean time per call over the timed
+ * iterations. Only benchmarks whose full names contain the
+ * <code>-filter</code> text are run. Results are written to standard
+ * output, or to the <code>-out</code> file, one line per benchmark:</p>
+ *
+ * <pre>
+ * Benchmark,Mode,Samples,Score,StdDev,Unit
+ * VASSAL.tools.SequenceEncoderBenchmark.decode,avgt,5,412.118,3.027,ns/op
+ * </pre>
+ *
+ * <p>Progress is reported on standard error. The exit status is nonzero
+ * if any benchmark failed.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class BenchmarkRunner {
+  public static final String HEADER =
+    "Benchmark,Mode,Samples,Score,StdDev,Unit"; //$NON-NLS-1$
+
+  protected int warmup = 3;
+  protected int iterations = 5;
+  protected long time = 1000;
+  protected String filter = ""; //$NON-NLS-1$
+
+  // results are folded in here so that the JIT cannot discard them
+  private int sink;
+
+  public static void main(String[] args) throws IOException {
+    // Oh we have no heads, we have no HEADS!
+    System.setProperty("java.awt.headless", "true"); //$NON-NLS-1$ //$NON-NLS-2$
+
+    final BenchmarkRunner runner = new BenchmarkRunner();
+    String out = null;
+    final List<String> classes = new ArrayList<String>();
+
+    for (int i = 0; i < args.length; ++i) {
+      if ("-warmup".equals(args[i]) && i+1 < args.length) { //$NON-NLS-1$
+        runner.warmup = Integer.parseInt(args[++i]);
+      }
+      else if ("-iterations".equals(args[i]) && i+1 < args.length) { //$NON-NLS-1$
+        runner.iterations = Integer.parseInt(args[++i]);
+      }
+      else if ("-time".equals(args[i]) && i+1 < args.length) { //$NON-NLS-1$
+        runner.time = Long.parseLong(args[++i]);
+      }
+      else if ("-filter".equals(args[i]) && i+1 < args.length) { //$NON-NLS-1$
+        runner.filter = args[++i];
+      }
+      else if ("-out".equals(args[i]) && i+1 < args.length) { //$NON-NLS-1$
+        out = args[++i];
+      }
+      else {
+        classes.add(args[i]);
+      }
+    }
+
+    if (classes.isEmpty() || runner.iterations < 1) {
+      System.err.println(
+        "Usage: BenchmarkRunner [-warmup n] [-iterations n] [-time ms] [-filter text] [-out file] class..." //$NON-NLS-1$
+      );
+      System.exit(1);
+    }
+
+    final PrintWriter pw = new PrintWriter(new OutputStreamWriter(
+      out == null ? System.out : new FileOutputStream(out), "UTF-8")); //$NON-NLS-1$
+
+    boolean ok = true;
+    try {
+      pw.println(HEADER);
+      for (String name : classes) {
+        try {
+          ok &= runner.run(Class.forName(name), pw);
+        }
+        catch (ClassNotFoundException e) {
+          System.err.println(name + ": " + e); //$NON-NLS-1$
+          ok = false;
+        }
+      }
+    }
+    finally {
+      pw.close();
+    }
+
+    // the benchmarks may have left non-daemon threads behind
+    System.exit(ok ? 0 : 2);
+  }
+
+  /**
+   * Runs all the benchmarks of one class, and writes their results.
+   *
+   * @param c the class
+   * @param out the writer for the results
+   * @return <code>true</code> if no benchmark failed
+   */
+  public boolean run(Class<?> c, PrintWriter out) {
+    final List<Method> benchmarks = new ArrayList<Method>();
+    final List<Method> setups = new ArrayList<Method>();
+    final List<Method> teardowns = new ArrayList<Method>();
+
+    for (Method m : c.getMethods()) {
+      if (m.isAnnotationPresent(Benchmark.class)) {
+        if (getName(m).contains(filter)) benchmarks.add(m);
+      }
+      else if (m.isAnnotationPresent(Setup.class)) {
+        setups.add(m);
+      }
+      else if (m.isAnnotationPresent(TearDown.class)) {
+        teardowns.add(m);
+      }
+    }
+
+    if (benchmarks.isEmpty()) return true;
+
+    // getMethods() returns methods in no particular order
+    final Comparator<Method> byName = new Comparator<Method>() {
+      public int compare(Method a, Method b) {
+        return a.getName().compareTo(b.getName());
+      }
+    };
+    Collections.sort(benchmarks, byName);
+
+    boolean ok = true;
+    final Object obj;
+    try {
+      obj = c.newInstance();
+      for (Method m : setups) m.invoke(obj);
+    }
+    catch (Exception e) {
+      report(c.getName(), e);
+      return false;
+    }
+
+    try {
+      for (Method m : benchmarks) {
+        final String name = getName(m);
+        System.err.println(name);
+
+        try {
+          final double[] samples = measure(obj, m);
+          out.println(format(name, samples));
+          out.flush();
+        }
+        catch (Exception e) {
+          report(name, e);
+          ok = false;
+        }
+      }
+    }
+    finally {
+      for (Method m : teardowns) {
+        try {
+          m.invoke(obj);
+        }
+        catch (Exception e) {
+          report(c.getName(), e);
+          ok = false;
+        }
+      }
+    }
+
+    return ok;
+  }
+
+  /**
+   * Times one benchmark.
+   *
+   * @param obj the object on which to call the benchmark
+   * @param m the benchmark method
+   * @return the mean time per call, in nanoseconds, of each timed
+   * iteration
+   */
+  protected double[] measure(Object obj, Method m)
+                    throws IllegalAccessException, InvocationTargetException {
+    for (int i = 0; i < warmup; ++i) iterate(obj, m);
+
+    final double[] samples = new double[iterations];
+    for (int i = 0; i < iterations; ++i) samples[i] = iterate(obj, m);
+    return samples;
+  }
+
+  private double iterate(Object obj, Method m)
+                    throws IllegalAccessException, InvocationTargetException {
+    final long start = System.nanoTime();
+    final long end = start + time*1000000L;
+
+    long ops = 0;
+    long now;
+    do {
+      consume(m.invoke(obj));
+      ++ops;
+      now = System.nanoTime();
+    } while (now < end);
+
+    return (double) (now - start) / ops;
+  }
+
+  private void consume(Object o) {
+    if (o != null) sink ^= System.identityHashCode(o);
+  }
+
+  /**
+   * @param name the full name of the benchmark
+   * @param samples the timed iterations
+   * @return the result line for the benchmark
+   */
+  public static String format(String name, double[] samples) {
+    double sum = 0.0;
+    for (double s : samples) sum += s;
+    final double mean = sum / samples.length;
+
+    double sq = 0.0;
+    for (double s : samples) sq += (s - mean)*(s - mean);
+    final double sd = samples.length > 1 ?
+      Math.sqrt(sq / (samples.length - 1)) : 0.0;
+
+    return String.format(Locale.US, "%s,avgt,%d,%.3f,%.3f,ns/op", //$NON-NLS-1$
+                         name, samples.length, mean, sd);
+  }
+
+  private static String getName(Method m) {
+    return m.getDeclaringClass().getName() + '.' + m.getName();
+  }
+
+  private static void report(String name, Exception e) {
+    final Throwable t = e instanceof InvocationTargetException ?
+      e.getCause() : e;
+    System.err.println(name + ": failed"); //$NON-NLS-1$
+    t.printStackTrace();
+  }
+}
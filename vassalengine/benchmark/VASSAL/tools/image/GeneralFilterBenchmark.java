@@ -0,0 +1,74 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for {@link GeneralFilter#zoom}, halving a map-sized tile
+ * as the tile cache does for each zoom level.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class GeneralFilterBenchmark {
+  private BufferedImage opaque;
+  private BufferedImage transparent;
+  private final GeneralFilter.Filter filter =
+    new GeneralFilter.Lanczos3Filter();
+
+  @Setup
+  public void setUp() {
+    opaque = createImage(BufferedImage.TYPE_INT_RGB);
+    transparent = createImage(BufferedImage.TYPE_INT_ARGB_PRE);
+  }
+
+  private static BufferedImage createImage(int type) {
+    final BufferedImage img = new BufferedImage(1024, 1024, type);
+    final Graphics2D g = img.createGraphics();
+    g.setPaint(new GradientPaint(0, 0, Color.GREEN, 1024, 1024,
+                                 new Color(0, 0, 255, 128)));
+    g.fillRect(0, 0, 1024, 1024);
+    g.setColor(Color.BLACK);
+    for (int i = 0; i < 1024; i += 32) {
+      g.drawLine(i, 0, i, 1023);
+      g.drawLine(0, i, 1023, i);
+    }
+    g.dispose();
+    return img;
+  }
+
+  @Benchmark
+  public BufferedImage zoomOpaque() {
+    return GeneralFilter.zoom(new Rectangle(0, 0, 512, 512), opaque, filter);
+  }
+
+  @Benchmark
+  public BufferedImage zoomTransparent() {
+    return GeneralFilter.zoom(
+      new Rectangle(0, 0, 512, 512), transparent, filter);
+  }
+}
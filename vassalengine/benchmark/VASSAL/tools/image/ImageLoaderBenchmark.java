@@ -0,0 +1,170 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import VASSAL.tools.io.FileArchive;
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.io.TemporaryFileFactory;
+import VASSAL.tools.io.ZipArchive;
+
+/**
+ * Loads all the images in a module with both an {@link ImageIOImageLoader}
+ * and a {@link DirectImageLoader}, and prints the time each took.
+ *
+ * <p>Usage: <code>ImageLoaderBenchmark [-repeat n] module</code>, where
+ * <code>-repeat</code> sets the number of times each loader loads every
+ * image (default 3). The loaders take turns, so that each sees a similarly
+ * warm JIT and file cache. The results are printed to standard output as
+ * <code>key=value</code> lines.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ImageLoaderBenchmark {
+  public static void main(String[] args) throws IOException {
+    System.setProperty("java.awt.headless", "true");
+
+    int repeat = 3;
+    String zpath = null;
+
+    for (int i = 0; i < args.length; ++i) {
+      if ("-repeat".equals(args[i]) && i+1 < args.length) {
+        repeat = Integer.parseInt(args[++i]);
+      }
+      else {
+        zpath = args[i];
+      }
+    }
+
+    if (zpath == null) {
+      System.err.println("Usage: ImageLoaderBenchmark [-repeat n] module");
+      System.exit(1);
+    }
+
+    final TemporaryFileFactory tfac = new TemporaryFileFactory() {
+      public File create() throws IOException {
+        return File.createTempFile("img", null);
+      }
+    };
+
+    final ImageLoader imageio =
+      new ImageIOImageLoader(new FallbackImageTypeConverter(tfac));
+    final ImageLoader direct = new DirectImageLoader(imageio);
+
+    FileArchive fa = null;
+    try {
+      fa = new ZipArchive(zpath);
+
+      final List<String> images = new ArrayList<String>();
+      for (String ipath : fa.getFiles("images")) {
+        final String lc = ipath.toLowerCase();
+        if (lc.endsWith(".png") || lc.endsWith(".jpg") ||
+            lc.endsWith(".jpeg") || lc.endsWith(".gif")) {
+          images.add(ipath);
+        }
+      }
+
+      long pixels = 0;
+      long imageioNanos = 0;
+      long directNanos = 0;
+      int failures = 0;
+
+      // per format: imageio time, direct time
+      final Map<String,long[]> byFormat = new TreeMap<String,long[]>();
+
+      for (int r = 0; r < repeat; ++r) {
+        for (String ipath : images) {
+          try {
+            final long t0 = System.nanoTime();
+            final BufferedImage a = load(fa, ipath, imageio);
+            final long t1 = System.nanoTime();
+            final BufferedImage b = load(fa, ipath, direct);
+            final long t2 = System.nanoTime();
+
+            imageioNanos += t1 - t0;
+            directNanos += t2 - t1;
+
+            final String fmt =
+              ipath.substring(ipath.lastIndexOf('.') + 1).toLowerCase();
+            long[] f = byFormat.get(fmt);
+            if (f == null) byFormat.put(fmt, f = new long[2]);
+            f[0] += t1 - t0;
+            f[1] += t2 - t1;
+            if (r == 0) pixels += (long) b.getWidth() * b.getHeight();
+
+            if (a.getType() != b.getType() ||
+                a.getWidth() != b.getWidth() ||
+                a.getHeight() != b.getHeight()) {
+              System.err.println(ipath + ": images differ");
+            }
+          }
+          catch (ImageIOException e) {
+            if (r == 0) {
+              System.err.println(ipath + ": " + e.getMessage());
+              ++failures;
+            }
+          }
+        }
+      }
+
+      fa.close();
+
+      System.out.println("images=" + images.size());
+      System.out.println("failures=" + failures);
+      System.out.println("pixels=" + pixels);
+      System.out.println("repeat=" + repeat);
+      System.out.println("imageio.ms=" + imageioNanos / 1000000.0);
+      System.out.println("direct.ms=" + directNanos / 1000000.0);
+      System.out.println("speedup=" +
+        (directNanos == 0 ? 0 : (double) imageioNanos / directNanos));
+
+      for (Map.Entry<String,long[]> e : byFormat.entrySet()) {
+        System.out.println(e.getKey() + ".imageio.ms=" + e.getValue()[0] / 1000000.0);
+        System.out.println(e.getKey() + ".direct.ms=" + e.getValue()[1] / 1000000.0);
+      }
+    }
+    finally {
+      IOUtils.closeQuietly(fa);
+    }
+  }
+
+  private static BufferedImage load(FileArchive fa, String ipath,
+                                    ImageLoader loader) throws IOException {
+    InputStream in = null;
+    try {
+      in = fa.getInputStream(ipath);
+      final BufferedImage img = loader.load(ipath, in,
+        BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB_PRE, true);
+      in.close();
+      return img;
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+}
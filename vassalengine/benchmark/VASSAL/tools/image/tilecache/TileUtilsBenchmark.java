@@ -0,0 +1,65 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image.tilecache;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import VASSAL.tools.benchmark.Benchmark;
+import VASSAL.tools.benchmark.Setup;
+
+/**
+ * Benchmarks for reading and writing tiles with {@link TileUtils}.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class TileUtilsBenchmark {
+  private BufferedImage tile;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() throws IOException {
+    tile = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB_PRE);
+    final Graphics2D g = tile.createGraphics();
+    g.setPaint(new GradientPaint(0, 0, Color.ORANGE, 256, 256,
+                                 new Color(0, 128, 0, 64)));
+    g.fillRect(0, 0, 256, 256);
+    g.dispose();
+
+    encoded = write();
+  }
+
+  @Benchmark
+  public byte[] write() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(512*1024);
+    TileUtils.write(tile, out);
+    return out.toByteArray();
+  }
+
+  @Benchmark
+  public BufferedImage read() throws IOException {
+    return TileUtils.read(new ByteArrayInputStream(encoded));
+  }
+}
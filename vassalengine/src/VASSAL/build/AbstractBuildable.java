@@ -40,8 +40,14 @@ import VASSAL.i18n.Translatable;
  * handled automatically.
  */
 public abstract class AbstractBuildable implements Buildable, ValidityChecker, PropertyNameSource {
+  /**
+   * The children of this component. Subclasses which modify this list
+   * other than through {@link #add} must call {@link #componentsChanged}.
+   */
   protected List<Buildable> buildComponents = new ArrayList<Buildable>();
 
+  private final ComponentIndex index = new ComponentIndex(this);
+
   // Sub-classes can set this reference to perform validity checking
   protected ValidityChecker validator;
 
@@ -112,16 +118,20 @@ public abstract class AbstractBuildable implements Buildable, ValidityChecker, P
   }
 
   /**
-   * @return all build components that are an instance of the given class
+   * @return an immutable list of all build components that are an
+   * instance of the given class
    */
   public <T> List<T> getComponentsOf(Class<T> target) {
-    final ArrayList<T> l = new ArrayList<T>();
-    for (Buildable b : buildComponents) {
-      if (target.isInstance(b)) {
-        l.add(target.cast(b));
-      }
-    }
-    return l;
+    return index.getChildren(target);
+  }
+
+  /**
+   * @return an immutable list of all build components that are an
+   * instance of the given class and have the given configure name
+   * @since 3.2.3
+   */
+  public <T> List<T> getComponentsOf(Class<T> target, String name) {
+    return index.getChildren(target, name);
   }
 
   /**
@@ -138,30 +148,42 @@ public abstract class AbstractBuildable implements Buildable, ValidityChecker, P
   }
 
   /**
-   * Recursively descend the build tree and return a {@link List} of all
-   * components that are instances of the given class
+   * Recursively descend the build tree and return an immutable
+   * {@link List} of all components that are instances of the given class
    *
    * @param target
    * @return
    */
   public <T> List<T> getAllDescendantComponentsOf(Class<T> target) {
-    ArrayList<T> l = new ArrayList<T>();
-    addComponents(target, l);
-    return l;
+    return index.getDescendants(target);
   }
 
-  private <T> void addComponents(Class<T> target, List<T> l) {
-    if (target.isInstance(this)) {
-      l.add(target.cast(this));
-    }
-    for (Buildable b : buildComponents) {
-      if (target.isInstance(b)) {
-        l.add(target.cast(b));
-      }
-      else if (b instanceof AbstractBuildable) {
-        ((AbstractBuildable) b).addComponents(target, l);
-      }
-    }
+  /**
+   * Recursively descend the build tree and return an immutable
+   * {@link List} of all components that are instances of the given class
+   * and have the given configure name
+   *
+   * @param target
+   * @param name
+   * @return
+   * @since 3.2.3
+   */
+  public <T> List<T> getAllDescendantComponentsOf(Class<T> target,
+                                                  String name) {
+    return index.getDescendants(target, name);
+  }
+
+  /**
+   * Discards the cached results of {@link #getComponentsOf} and
+   * {@link #getAllDescendantComponentsOf}. Must be called when a
+   * component is added, removed or renamed other than through
+   * {@link #add}, {@link AbstractConfigurable#remove} or
+   * {@link AbstractConfigurable#setConfigureName}.
+   *
+   * @since 3.2.3
+   */
+  protected static void componentsChanged() {
+    ComponentIndex.invalidateAll();
   }
 
   public org.w3c.dom.Element getBuildElement(org.w3c.dom.Document doc) {
@@ -185,6 +207,7 @@ public abstract class AbstractBuildable implements Buildable, ValidityChecker, P
    */
   public void add(Buildable b) {
     buildComponents.add(b);
+    componentsChanged();
   }
 
   /**
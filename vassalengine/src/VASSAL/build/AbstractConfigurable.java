@@ -44,6 +44,7 @@ public abstract class AbstractConfigurable extends AbstractBuildable implements
    */
   public void remove(Buildable b) {
     buildComponents.remove(b);
+    componentsChanged();
   }
 
   public String getConfigureName() {
@@ -72,6 +73,7 @@ public abstract class AbstractConfigurable extends AbstractBuildable implements
       name = s;
       localizedName = s;
     }
+    componentsChanged();
   }
 
   /**
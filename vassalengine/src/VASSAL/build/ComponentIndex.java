@@ -0,0 +1,188 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indexes the build components of an {@link AbstractBuildable} by class
+ * and by configure name.
+ *
+ * <p>Lookups are answered from lists built on first use, which are kept
+ * until a component is added to or removed from any buildable, or any
+ * component is renamed. The lists are immutable, so they may be handed
+ * out to callers, and remain valid even if the tree changes while a
+ * caller is iterating over one.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+class ComponentIndex {
+  private static volatile int version = 0;
+
+  /**
+   * Discards every index. Called whenever the build tree or the name of
+   * a component in it changes.
+   */
+  static void invalidateAll() {
+    ++version;
+  }
+
+  private final AbstractBuildable owner;
+  private int builtVersion = -1;
+
+  private final Map<Class<?>,List<?>> children =
+    new HashMap<Class<?>,List<?>>();
+  private final Map<Class<?>,List<?>> descendants =
+    new HashMap<Class<?>,List<?>>();
+  private final Map<Class<?>,Map<String,List<?>>> childNames =
+    new HashMap<Class<?>,Map<String,List<?>>>();
+  private final Map<Class<?>,Map<String,List<?>>> descendantNames =
+    new HashMap<Class<?>,Map<String,List<?>>>();
+
+  ComponentIndex(AbstractBuildable owner) {
+    this.owner = owner;
+  }
+
+  private void check() {
+    final int v = version;
+    if (v != builtVersion) {
+      children.clear();
+      descendants.clear();
+      childNames.clear();
+      descendantNames.clear();
+      builtVersion = v;
+    }
+  }
+
+  /**
+   * @return the build components of the owner which are instances of
+   * the given class
+   */
+  @SuppressWarnings("unchecked")
+  synchronized <T> List<T> getChildren(Class<T> target) {
+    check();
+    List<T> l = (List<T>) children.get(target);
+    if (l == null) {
+      final ArrayList<T> a = new ArrayList<T>();
+      for (Buildable b : owner.buildComponents) {
+        if (target.isInstance(b)) {
+          a.add(target.cast(b));
+        }
+      }
+      l = freeze(a);
+      children.put(target, l);
+    }
+    return l;
+  }
+
+  /**
+   * @return the owner and its descendants which are instances of the
+   * given class, not descending into those which are
+   */
+  @SuppressWarnings("unchecked")
+  synchronized <T> List<T> getDescendants(Class<T> target) {
+    check();
+    List<T> l = (List<T>) descendants.get(target);
+    if (l == null) {
+      final ArrayList<T> a = new ArrayList<T>();
+      addDescendants(owner, target, a);
+      l = freeze(a);
+      descendants.put(target, l);
+    }
+    return l;
+  }
+
+  private static <T> void addDescendants(AbstractBuildable parent,
+                                         Class<T> target, List<T> l) {
+    if (target.isInstance(parent)) {
+      l.add(target.cast(parent));
+    }
+    for (Buildable b : parent.buildComponents) {
+      if (target.isInstance(b)) {
+        l.add(target.cast(b));
+      }
+      else if (b instanceof AbstractBuildable) {
+        addDescendants((AbstractBuildable) b, target, l);
+      }
+    }
+  }
+
+  /**
+   * @return the build components of the owner which are instances of
+   * the given class and have the given configure name
+   */
+  synchronized <T> List<T> getChildren(Class<T> target, String name) {
+    return named(childNames, getChildren(target), target, name);
+  }
+
+  /**
+   * @return the owner and its descendants which are instances of the
+   * given class and have the given configure name
+   */
+  synchronized <T> List<T> getDescendants(Class<T> target, String name) {
+    return named(descendantNames, getDescendants(target), target, name);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> named(Map<Class<?>,Map<String,List<?>>> index,
+                                   List<T> all, Class<T> target,
+                                   String name) {
+    Map<String,List<?>> byName = index.get(target);
+    if (byName == null) {
+      final Map<String,List<T>> m = new HashMap<String,List<T>>();
+      for (T t : all) {
+        if (t instanceof Configurable) {
+          final String n = ((Configurable) t).getConfigureName();
+          if (n != null) {
+            List<T> l = m.get(n);
+            if (l == null) {
+              l = new ArrayList<T>(1);
+              m.put(n, l);
+            }
+            l.add(t);
+          }
+        }
+      }
+
+      byName = new HashMap<String,List<?>>(m.size());
+      for (Map.Entry<String,List<T>> e : m.entrySet()) {
+        byName.put(e.getKey(), freeze(e.getValue()));
+      }
+      index.put(target, byName);
+    }
+
+    final List<T> l = (List<T>) byName.get(name);
+    return l == null ? Collections.<T>emptyList() : l;
+  }
+
+  private static <T> List<T> freeze(List<T> l) {
+    if (l.isEmpty()) {
+      return Collections.emptyList();
+    }
+    if (l instanceof ArrayList) {
+      ((ArrayList<T>) l).trimToSize();
+    }
+    return Collections.unmodifiableList(l);
+  }
+}
@@ -85,6 +85,8 @@ import VASSAL.command.NullCommand;
 import VASSAL.configure.CompoundValidityChecker;
 import VASSAL.configure.MandatoryComponent;
 import VASSAL.counters.GamePiece;
+import VASSAL.counters.PieceSpriteCache;
+import VASSAL.counters.PropertyResolutionCache;
 import VASSAL.i18n.ComponentI18nData;
 import VASSAL.i18n.Localization;
 import VASSAL.i18n.Resources;
@@ -828,6 +830,8 @@ public abstract class GameModule extends AbstractConfigurable implements Command
    */
   public static void setUserId(String newId) {
     userId = newId;
+    PieceSpriteCache.invalidateAll();
+    PropertyResolutionCache.invalidate();
   }
 
   /**
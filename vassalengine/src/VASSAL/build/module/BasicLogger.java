@@ -24,11 +24,17 @@ import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import javax.swing.AbstractAction;
@@ -50,14 +56,17 @@ import VASSAL.build.module.metadata.SaveMetaData;
 import VASSAL.command.Command;
 import VASSAL.command.CommandEncoder;
 import VASSAL.command.Logger;
+import VASSAL.command.NullCommand;
 import VASSAL.configure.BooleanConfigurer;
 import VASSAL.configure.IconConfigurer;
+import VASSAL.configure.IntConfigurer;
 import VASSAL.configure.NamedHotKeyConfigurer;
 import VASSAL.i18n.Resources;
 import VASSAL.launch.Launcher;
 import VASSAL.tools.KeyStrokeListener;
 import VASSAL.tools.NamedKeyStroke;
 import VASSAL.tools.NamedKeyStrokeListener;
+import VASSAL.tools.ReadErrorDialog;
 import VASSAL.tools.WriteErrorDialog;
 import VASSAL.tools.filechooser.FileChooser;
 import VASSAL.tools.filechooser.LogFileFilter;
@@ -65,6 +74,7 @@ import VASSAL.tools.io.FastByteArrayOutputStream;
 import VASSAL.tools.io.FileArchive;
 import VASSAL.tools.io.IOUtils;
 import VASSAL.tools.io.ObfuscatingOutputStream;
+import VASSAL.tools.io.TempFileManager;
 import VASSAL.tools.io.ZipArchive;
 import VASSAL.tools.menu.MenuManager;
 import VASSAL.tools.swing.Dialogs;
@@ -77,6 +87,8 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
   public static final String PROMPT_NEW_LOG_START = "PromptNewLogStart";  //$NON-NLS-1$
   public static final String PROMPT_NEW_LOG_END = "PromptNewLogEnd";  //$NON-NLS-1$
   public static final String PROMPT_LOG_COMMENT = "promptLogComment";  //$NON-NLS-1$
+  public static final String KEYFRAME_INTERVAL = "logKeyframeInterval";  //$NON-NLS-1$
+  public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
   protected static final String STEP_ICON = "/images/StepForward16.gif";  //$NON-NLS-1$
   protected static final String UNDO_ICON = "/images/Undo16.gif";  //$NON-NLS-1$
   protected List<Command> logInput;
@@ -88,14 +100,39 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
   protected Action stepAction = new StepAction();
   protected SaveMetaData metadata;
 
+  /** The encoded log, written to disk as commands are logged */
+  protected File spoolFile;
+  protected Writer spool;
+
+  /** The encoded log, if it could not be written to disk */
+  protected FastByteArrayOutputStream spoolBuffer;
+
+  /** Keyframes taken while logging, by step number */
+  protected java.util.Map<Integer,File> keyframes =
+    new LinkedHashMap<Integer,File>();
+
+  /** The keyframes of the logfile being replayed */
+  protected ReplayIndex replayIndex;
+  protected boolean seeking = false;
+
   public BasicLogger() {
     super();
     stepAction.setEnabled(false);
+    seekAction.setEnabled(false);
     undoAction.setEnabled(false);
     endLogAction.setEnabled(false);
     newLogAction.setEnabled(false);
     logInput = new ArrayList<Command>();
     logOutput = new ArrayList<Command>();
+
+    // seeking is possible whenever there is a logfile being replayed
+    stepAction.addPropertyChangeListener(new PropertyChangeListener() {
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("enabled".equals(evt.getPropertyName())) {  //$NON-NLS-1$
+          seekAction.setEnabled(!logInput.isEmpty());
+        }
+      }
+    });
   }
 
   public void build(Element e) { }
@@ -121,6 +158,7 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
     // some languages
     endLogAction.putValue(Action.MNEMONIC_KEY,(int)Resources.getString("BasicLogger.end_logfile.shortcut").charAt(0));
     mm.addAction("BasicLogger.end_logfile", endLogAction);
+    mm.addAction("BasicLogger.seek", seekAction);
 
     JButton button = mod.getToolBar().add(undoAction);
     button.setToolTipText(Resources.getString("BasicLogger.undo_last_move"));  //$NON-NLS-1$
@@ -174,6 +212,9 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
 
     BooleanConfigurer logOptionComment = new BooleanConfigurer(PROMPT_LOG_COMMENT, Resources.getString("BasicLogger.enable_comments"), Boolean.TRUE);  //$NON-NLS-1$
     mod.getPrefs().addOption(Resources.getString("Prefs.general_tab"), logOptionComment); //$NON-NLS-1$
+
+    IntConfigurer keyframeInterval = new IntConfigurer(KEYFRAME_INTERVAL, Resources.getString("BasicLogger.keyframe_interval"), DEFAULT_KEYFRAME_INTERVAL);  //$NON-NLS-1$
+    mod.getPrefs().addOption(Resources.getString("Prefs.general_tab"), keyframeInterval); //$NON-NLS-1$
   }
 
   public Element getBuildElement(Document doc) {
@@ -187,6 +228,9 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
   }
 
   public void setup(boolean show) {
+    // restoring a keyframe tears down and sets up the game again
+    if (seeking) return;
+
     newLogAction.setEnabled(show);
     if (show) {
       logOutput.clear();
@@ -214,10 +258,13 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
 
       logInput.clear();
       beginningState = null;
+      replayIndex = null;
       undoAction.setEnabled(false);
       endLogAction.setEnabled(false);
       stepAction.setEnabled(false);
+      seekAction.setEnabled(false);
       outputFile = null;
+      discardSpool();
     }
   }
 
@@ -233,15 +280,110 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
   }
 
   protected void step() {
+    replayStep();
+    if (!(nextInput < logInput.size())) {
+      queryNewLogFile(false);
+    }
+  }
+
+  private void replayStep() {
     final Command c = logInput.get(nextInput++);
     c.execute();
     GameModule.getGameModule().sendAndLog(c);
     stepAction.setEnabled(nextInput < logInput.size());
+  }
+
+  /**
+   * Sets the keyframe index of the logfile being replayed. Must be called
+   * after the logfile has been loaded.
+   *
+   * @param index the index, or <code>null</code> if the logfile has none
+   */
+  public void setReplayIndex(ReplayIndex index) {
+    replayIndex = index;
+  }
+
+  /**
+   * @return the number of input steps which have been replayed
+   */
+  public int getReplayPosition() {
+    return nextInput;
+  }
+
+  /**
+   * @return the number of input steps in the logfile being replayed
+   */
+  public int getReplayLength() {
+    return logInput.size();
+  }
+
+  /**
+   * Replays the logfile up to the given step. If the logfile has
+   * keyframes, the nearest keyframe at or before the step is restored
+   * first, and only the remaining steps are replayed. This also permits
+   * seeking backwards.
+   *
+   * <p>Keyframes are not used while logging or connected to a server,
+   * since restoring one is neither logged nor sent to other players;
+   * instead the steps in between are replayed one by one.</p>
+   *
+   * @param step the number of input steps which should have been
+   * replayed afterwards
+   */
+  public void seek(int step) {
+    step = Math.max(0, Math.min(step, logInput.size()));
+
+    final ServerConnection server = GameModule.getGameModule().getServer();
+    if (replayIndex != null && !isLogging() &&
+        (server == null || !server.isConnected())) {
+      final int key = replayIndex.getKeyframeBefore(step);
+      if (key >= 0 && (step < nextInput || key > nextInput)) {
+        try {
+          restoreKeyframe(key);
+        }
+        catch (IOException e) {
+          ReadErrorDialog.error(e, replayIndex.getFile());
+          return;
+        }
+      }
+    }
+
+    while (nextInput < step) {
+      replayStep();
+    }
+
+    stepAction.setEnabled(nextInput < logInput.size());
     if (!(nextInput < logInput.size())) {
       queryNewLogFile(false);
     }
   }
 
+  protected void restoreKeyframe(int step) throws IOException {
+    final Command c = replayIndex.getKeyframe(step);
+    if (c == null) {
+      throw new IOException("Invalid keyframe for step " + step);  //$NON-NLS-1$
+    }
+
+    final List<Command> input = new ArrayList<Command>(logInput);
+
+    // Replaying a logfile marks the game as modified, but there is nothing
+    // to save here which the logfile does not already hold, so don't let
+    // the restore prompt to save the game before it tears it down.
+    GameModule.getGameModule().getGameState().setModified(false);
+
+    seeking = true;
+    try {
+      c.execute();
+    }
+    finally {
+      seeking = false;
+    }
+
+    logInput.clear();
+    logInput.addAll(input);
+    nextInput = step;
+  }
+
   /*
    * Check if user would like to create a new logfile
    */
@@ -296,28 +438,37 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
    */
   public void write() throws IOException {
     if (!logOutput.isEmpty()) {
-      final Command log = beginningState;
-      for (Command c : logOutput) {
-        log.append(new LogCommand(c, logInput, stepAction));
-      }
+      if (spool == null) spoolToMemory();
 
-// FIXME: Extremely inefficient! Make encode write to an OutputStream
-      final String s = GameModule.getGameModule().encode(log);
-      final FastByteArrayOutputStream ba = new FastByteArrayOutputStream();
-      OutputStream out = null;
-      try {
-        out = new ObfuscatingOutputStream(ba);
-        out.write(s.getBytes("UTF-8"));
-        out.close();
-      }
-      finally {
-        IOUtils.closeQuietly(out);
-      }
+      spool.close();
+      spool = null;
 
       FileArchive archive = null;
       try {
         archive = new ZipArchive(outputFile);
-        archive.add(GameState.SAVEFILE_ZIP_ENTRY, ba.toInputStream());
+        if (spoolBuffer != null) {
+          archive.add(GameState.SAVEFILE_ZIP_ENTRY,
+                      spoolBuffer.toInputStream());
+        }
+        else {
+          archive.add(GameState.SAVEFILE_ZIP_ENTRY, spoolFile);
+        }
+
+        // remove any keyframes left from a previous log in the same file
+        for (String name : archive.getFiles()) {
+          if (name.startsWith(ReplayIndex.KEYFRAME_ZIP_ENTRY)) {
+            archive.remove(name);
+          }
+        }
+
+        for (java.util.Map.Entry<Integer,File> e : keyframes.entrySet()) {
+          archive.add(
+            ReplayIndex.getKeyframeEntryName(e.getKey()), e.getValue());
+        }
+
+        archive.add(ReplayIndex.INDEX_ZIP_ENTRY, ReplayIndex.encodeIndex(
+          new ArrayList<Integer>(keyframes.keySet())).getBytes("UTF-8"));  //$NON-NLS-1$
+
         metadata.save(archive);
         archive.close();
       }
@@ -331,9 +482,209 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
       undoAction.setEnabled(false);
     }
 
+    discardSpool();
     endLogAction.setEnabled(false);
   }
 
+  /**
+   * Starts writing the encoded log to disk. The log is the beginning
+   * state followed by one {@link LogCommand} per logged command, exactly
+   * as it will be stored in the logfile, so writing the logfile later
+   * only needs to copy the spool.
+   */
+  protected void beginSpool() throws IOException {
+    discardSpool();
+
+    spoolFile = TempFileManager.getInstance().createTempFile("log", ".tmp");  //$NON-NLS-1$ //$NON-NLS-2$
+    spool = new OutputStreamWriter(new ObfuscatingOutputStream(
+      new BufferedOutputStream(new FileOutputStream(spoolFile))), "UTF-8");  //$NON-NLS-1$
+
+    final String s = encodeBeginningState();
+    if (s != null) spool.write(s);
+
+    // The beginning state is the keyframe for step 0. It is encoded the
+    // same way on its own unless it has no subcommands, when it is small.
+    writeKeyframe(0, beginningState != null &&
+      beginningState.getSubCommands().length == 0 ?
+      GameModule.getGameModule().encode(beginningState) : s);
+  }
+
+  /**
+   * Reports a failure to write the spool. If the spool file could not be
+   * created there is no file to name, so the temporary directory it was
+   * to be created in is reported instead.
+   */
+  protected void spoolError(IOException e) {
+    WriteErrorDialog.error(e, spoolFile != null ? spoolFile : Info.getTempDir());
+  }
+
+  /**
+   * Holds the spool in memory instead, for when it cannot be written to
+   * disk. The log is encoded again from {@link #logOutput}, since what
+   * was written to disk may be incomplete. No more keyframes are taken,
+   * but those already taken are kept.
+   */
+  protected void spoolToMemory() {
+    IOUtils.closeQuietly(spool);
+    if (spoolFile != null) {
+      if (!spoolFile.delete()) spoolFile.deleteOnExit();
+      spoolFile = null;
+    }
+
+    spoolBuffer = new FastByteArrayOutputStream();
+    try {
+      spool = new OutputStreamWriter(
+        new ObfuscatingOutputStream(spoolBuffer), "UTF-8");  //$NON-NLS-1$
+
+      final String s = encodeBeginningState();
+      if (s != null) spool.write(s);
+
+      for (Command c : logOutput) {
+        final String l = encodeLogged(c);
+        if (l != null) spool.write(l);
+      }
+    }
+    catch (IOException e) {
+      // cannot happen, we are writing to memory
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Encodes the beginning state exactly as it begins the encoded log.
+   * The text of a command is escaped only when the command has
+   * subcommands, so the beginning state is encoded with a marker command
+   * appended, which is then cut off again.
+   */
+  protected String encodeBeginningState() {
+    if (beginningState == null) return null;
+
+    final GameModule gm = GameModule.getGameModule();
+    final Command marker =
+      new LogCommand(new NullCommand(), logInput, stepAction);
+
+    final Command[] subs = beginningState.getSubCommands();
+    beginningState.append(marker);
+    final String s = gm.encode(beginningState);
+    beginningState.stripSubCommands();
+    for (Command c : subs) beginningState.append(c);
+
+    final Command wrapper = new NullCommand();
+    wrapper.append(marker);
+    final String m = gm.encode(wrapper);
+
+    return s == null || m == null ? null :
+      s.substring(0, s.length() - m.length());
+  }
+
+  /**
+   * Encodes a logged command exactly as it is appended to the encoded
+   * log.
+   */
+  protected String encodeLogged(Command c) {
+    // A NullCommand encodes to the empty string, so encoding one with the
+    // LogCommand appended yields the separator and the escaped LogCommand,
+    // which is precisely what appending it to the beginning state would add.
+    // LogCommand strips the subcommands from the commands it wraps, but
+    // these commands are still live, so put the subcommands back after.
+    final java.util.Map<Command,Command[]> subs =
+      new IdentityHashMap<Command,Command[]>();
+    collectSubCommands(c, subs);
+
+    final Command wrapper = new NullCommand();
+    wrapper.append(new LogCommand(c, logInput, stepAction));
+
+    final String s = GameModule.getGameModule().encode(wrapper);
+
+    for (java.util.Map.Entry<Command,Command[]> e : subs.entrySet()) {
+      for (Command sub : e.getValue()) e.getKey().append(sub);
+    }
+
+    return s;
+  }
+
+  /**
+   * Appends a logged command to the spool, and takes a keyframe if one
+   * is due.
+   *
+   * <p>Taking a keyframe encodes the whole game state, on the EDT, while
+   * the command is being logged. This is as costly as saving the game,
+   * so how often it is done is set by the {@link #KEYFRAME_INTERVAL}
+   * preference, and 0 turns it off. It cannot be put off until later,
+   * since the keyframe must hold the state just after this command.</p>
+   */
+  protected void spool(Command c) {
+    if (spool == null) return;
+
+    final String s = encodeLogged(c);
+
+    try {
+      if (s != null) spool.write(s);
+
+      final int interval = getKeyframeInterval();
+      if (spoolBuffer == null && interval > 0 &&
+          logOutput.size() % interval == 0) {
+        final GameModule gm = GameModule.getGameModule();
+        writeKeyframe(logOutput.size(),
+                      gm.encode(gm.getGameState().getRestoreCommand()));
+      }
+    }
+    catch (IOException e) {
+      spoolError(e);
+      spoolToMemory();
+    }
+  }
+
+  private static void collectSubCommands(Command c,
+                                         java.util.Map<Command,Command[]> subs) {
+    final Command[] sub = c.getSubCommands();
+    if (sub.length > 0) {
+      subs.put(c, sub);
+      for (Command cmd : sub) collectSubCommands(cmd, subs);
+    }
+  }
+
+  protected int getKeyframeInterval() {
+    final Object interval =
+      GameModule.getGameModule().getPrefs().getValue(KEYFRAME_INTERVAL);
+    return interval instanceof Integer ?
+      ((Integer) interval).intValue() : DEFAULT_KEYFRAME_INTERVAL;
+  }
+
+  protected void writeKeyframe(int step, String state) throws IOException {
+    if (state == null) return;
+
+    final File f = TempFileManager.getInstance().createTempFile("key", ".tmp");  //$NON-NLS-1$ //$NON-NLS-2$
+    OutputStream out = null;
+    try {
+      out = new ObfuscatingOutputStream(
+        new BufferedOutputStream(new FileOutputStream(f)));
+      out.write(state.getBytes("UTF-8"));  //$NON-NLS-1$
+      out.close();
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+
+    keyframes.put(step, f);
+  }
+
+  protected void discardSpool() {
+    IOUtils.closeQuietly(spool);
+    spool = null;
+    spoolBuffer = null;
+
+    if (spoolFile != null) {
+      if (!spoolFile.delete()) spoolFile.deleteOnExit();
+      spoolFile = null;
+    }
+
+    for (File f : keyframes.values()) {
+      if (!f.delete()) f.deleteOnExit();
+    }
+    keyframes.clear();
+  }
+
   private File getSaveFile() {
     final GameModule g = GameModule.getGameModule();
 
@@ -392,6 +743,14 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
     logOutput.clear();
     beginningState = gm.getGameState().getRestoreCommand();
 
+    try {
+      beginSpool();
+    }
+    catch (IOException e) {
+      spoolError(e);
+      spoolToMemory();
+    }
+
     undoAction.setEnabled(false);
     endLogAction.setEnabled(true);
     gm.appendToTitle(Resources.getString("BasicLogger.logging_to",
@@ -422,6 +781,7 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
     undo.execute();
     GameModule.getGameModule().getServer().sendToOthers(undo);
     logOutput.add(undo);
+    spool(undo);
   }
 
   public void log(Command c) {
@@ -430,6 +790,7 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
       if (c.getUndoCommand() != null && !c.getUndoCommand().isNull()) {
         nextUndo = logOutput.size() - 1;
       }
+      spool(c);
     }
     undoAction.setEnabled(nextUndo >= 0);
   }
@@ -491,6 +852,31 @@ public class BasicLogger implements Logger, Buildable, GameComponent, CommandEnc
     }
   };
 
+  protected Action seekAction = new AbstractAction(Resources.getString("BasicLogger.seek")) {  //$NON-NLS-1$
+    private static final long serialVersionUID = 1L;
+
+    public void actionPerformed(ActionEvent e) {
+      final String s = (String) JOptionPane.showInputDialog(
+        GameModule.getGameModule().getFrame(),
+        Resources.getString("BasicLogger.seek_prompt", logInput.size()),  //$NON-NLS-1$
+        Resources.getString("BasicLogger.seek"),  //$NON-NLS-1$
+        JOptionPane.QUESTION_MESSAGE,
+        null,
+        null,
+        String.valueOf(nextInput)
+      );
+
+      if (s == null) return;
+
+      try {
+        seek(Integer.parseInt(s.trim()));
+      }
+      catch (NumberFormatException ex) {
+        // not a step number, ignore it
+      }
+    }
+  };
+
   public static class LogCommand extends Command {
     protected Command logged;
     protected List<Command> logInput;
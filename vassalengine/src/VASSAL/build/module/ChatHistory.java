@@ -0,0 +1,273 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.io.TempFileManager;
+
+/**
+ * The message history of a {@link Chatter}. The most recent lines are
+ * kept in a fixed-size ring buffer; lines which fall out of the buffer
+ * are appended to a temporary spill file, so that the whole history
+ * remains available for searching and exporting without being held
+ * in memory.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ChatHistory {
+  private static final Logger logger =
+    LoggerFactory.getLogger(ChatHistory.class);
+
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  private String[] lines;
+  private int head = 0;
+  private int count = 0;
+
+  private File spillFile;
+  private Writer spill;
+  private int spilled = 0;
+
+  /**
+   * @param retention the number of lines to keep in memory
+   */
+  public ChatHistory(int retention) {
+    lines = new String[Math.max(1, retention)];
+  }
+
+  /**
+   * @return the number of lines kept in memory
+   */
+  public synchronized int getRetention() {
+    return lines.length;
+  }
+
+  /**
+   * Changes the number of lines kept in memory. If the new retention is
+   * smaller than the number of lines currently held, the oldest lines
+   * are moved to the spill file.
+   *
+   * @param retention the number of lines to keep in memory
+   */
+  public synchronized void setRetention(int retention) {
+    retention = Math.max(1, retention);
+    if (retention == lines.length) return;
+
+    while (count > retention) evict();
+
+    final String[] nl = new String[retention];
+    for (int i = 0; i < count; ++i) nl[i] = get(i);
+    lines = nl;
+    head = 0;
+  }
+
+  /**
+   * Appends a line to the history.
+   *
+   * @param line the line to append
+   */
+  public synchronized void add(String line) {
+    if (count == lines.length) evict();
+    lines[(head + count) % lines.length] = line;
+    ++count;
+  }
+
+  /**
+   * @return the number of lines held in memory
+   */
+  public synchronized int size() {
+    return count;
+  }
+
+  /**
+   * @return the number of lines which have been moved to the spill file
+   */
+  public synchronized int getSpilledCount() {
+    return spilled;
+  }
+
+  /**
+   * @return the file holding lines no longer kept in memory, or
+   * <code>null</code> if no lines have been spilled
+   */
+  public synchronized File getSpillFile() {
+    return spillFile;
+  }
+
+  /**
+   * @param i the index of the line, where 0 is the oldest line in memory
+   * @return the line
+   */
+  public synchronized String get(int i) {
+    if (i < 0 || i >= count) throw new IndexOutOfBoundsException();
+    return lines[(head + i) % lines.length];
+  }
+
+  private void evict() {
+    final String line = lines[head];
+    lines[head] = null;
+    head = (head + 1) % lines.length;
+    --count;
+
+    try {
+      if (spill == null) {
+        spillFile = TempFileManager.getInstance().createTempFile("chat", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+        spill = new BufferedWriter(new OutputStreamWriter(
+          new FileOutputStream(spillFile), ENCODING));
+      }
+      spill.write(line);
+      spill.write('\n');
+      ++spilled;
+    }
+    catch (IOException e) {
+      // the history is a convenience, so losing old lines is not fatal
+      logger.error("", e);
+    }
+  }
+
+  /**
+   * Finds all lines in the history, including those which have been
+   * spilled to disk, which contain the given text. The comparison is
+   * case-insensitive.
+   *
+   * @param text the text to search for
+   * @return the matching lines, oldest first
+   * @throws IOException if the spill file cannot be read
+   */
+  public synchronized List<String> search(String text) throws IOException {
+    final String needle = text.toLowerCase();
+    final List<String> matches = new ArrayList<String>();
+
+    if (spill != null) {
+      spill.flush();
+
+      BufferedReader in = null;
+      try {
+        in = new BufferedReader(new InputStreamReader(
+          new FileInputStream(spillFile), ENCODING));
+
+        String line;
+        while ((line = in.readLine()) != null) {
+          if (line.toLowerCase().contains(needle)) matches.add(line);
+        }
+
+        in.close();
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+
+    for (int i = 0; i < count; ++i) {
+      final String line = get(i);
+      if (line.toLowerCase().contains(needle)) matches.add(line);
+    }
+
+    return matches;
+  }
+
+  /**
+   * Writes the whole history, including those lines which have been
+   * spilled to disk, to the given file.
+   *
+   * @param file the file to write
+   * @throws IOException if the history cannot be written
+   */
+  public synchronized void export(File file) throws IOException {
+    Writer out = null;
+    try {
+      out = new BufferedWriter(new OutputStreamWriter(
+        new FileOutputStream(file), ENCODING));
+      export(out);
+      out.close();
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Writes the whole history, including those lines which have been
+   * spilled to disk, to the given <code>Writer</code>. The writer is
+   * not closed.
+   *
+   * @param out the writer
+   * @throws IOException if the history cannot be written
+   */
+  public synchronized void export(Writer out) throws IOException {
+    if (spill != null) {
+      spill.flush();
+
+      BufferedReader in = null;
+      try {
+        in = new BufferedReader(new InputStreamReader(
+          new FileInputStream(spillFile), ENCODING));
+
+        final char[] buf = new char[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+          out.write(buf, 0, n);
+        }
+
+        in.close();
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+
+    for (int i = 0; i < count; ++i) {
+      out.write(get(i));
+      out.write('\n');
+    }
+
+    out.flush();
+  }
+
+  /**
+   * Discards the whole history and deletes the spill file.
+   */
+  public synchronized void clear() {
+    for (int i = 0; i < lines.length; ++i) lines[i] = null;
+    head = count = spilled = 0;
+
+    if (spill != null) {
+      IOUtils.closeQuietly(spill);
+      spill = null;
+      if (!spillFile.delete()) spillFile.deleteOnExit();
+      spillFile = null;
+    }
+  }
+}
@@ -30,10 +30,16 @@ import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 
 import javax.swing.BoxLayout;
+import javax.swing.AbstractAction;
 import javax.swing.JFrame;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
@@ -56,11 +62,15 @@ import VASSAL.command.Command;
 import VASSAL.command.CommandEncoder;
 import VASSAL.configure.ColorConfigurer;
 import VASSAL.configure.FontConfigurer;
+import VASSAL.configure.IntConfigurer;
 import VASSAL.i18n.Resources;
 import VASSAL.preferences.Prefs;
 import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.KeyStrokeSource;
+import VASSAL.tools.ReadErrorDialog;
 import VASSAL.tools.ScrollPane;
+import VASSAL.tools.WriteErrorDialog;
+import VASSAL.tools.filechooser.FileChooser;
 
 /**
  * The chat window component.  Displays text messages and
@@ -79,6 +89,10 @@ public class Chatter extends JPanel implements CommandEncoder, Buildable {
   protected static final String OTHER_CHAT_COLOR = "otherChatColor"; //$NON-NLS-1$
   protected static final String GAME_MSG_COLOR = "gameMessageColor"; //$NON-NLS-1$
   protected static final String SYS_MSG_COLOR = "systemMessageColor"; //$NON-NLS-1$
+  protected static final String HISTORY_LINES = "chatHistoryLines"; //$NON-NLS-1$
+  protected static final int DEFAULT_HISTORY_LINES = 1000;
+
+  protected ChatHistory history = new ChatHistory(DEFAULT_HISTORY_LINES);
 
   public static final String getAnonymousUserName() {
     return Resources.getString("Chat.anonymous"); //$NON-NLS-1$
@@ -99,6 +113,24 @@ public class Chatter extends JPanel implements CommandEncoder, Buildable {
         scroll.getVerticalScrollBar().setValue(scroll.getVerticalScrollBar().getMaximum());
       }
     });
+
+    final JPopupMenu popup = new JPopupMenu();
+    popup.add(new AbstractAction(Resources.getString("Chatter.search_history")) { //$NON-NLS-1$
+      private static final long serialVersionUID = 1L;
+
+      public void actionPerformed(ActionEvent e) {
+        searchHistory();
+      }
+    });
+    popup.add(new AbstractAction(Resources.getString("Chatter.save_history")) { //$NON-NLS-1$
+      private static final long serialVersionUID = 1L;
+
+      public void actionPerformed(ActionEvent e) {
+        saveHistory();
+      }
+    });
+    conversation.setComponentPopupMenu(popup);
+
     input = new JTextField(60);
     input.setFocusTraversalKeysEnabled(false);
     input.addActionListener(new ActionListener() {
@@ -128,7 +160,77 @@ public class Chatter extends JPanel implements CommandEncoder, Buildable {
    * Display a message in the text area
    */
   public void show(String s) {
+    history.add(s);
     conversation.append("\n" + s); //$NON-NLS-1$
+    trimConversation();
+  }
+
+  /**
+   * Removes lines from the top of the text area so that it holds no more
+   * lines than are retained in memory by the {@link ChatHistory}. Older
+   * lines remain available through the history.
+   */
+  protected void trimConversation() {
+    final Element root = conversation.getDocument().getDefaultRootElement();
+    final int excess = root.getElementCount() - history.getRetention();
+    if (excess > 0) {
+      conversation.replaceRange(null, 0,
+        root.getElement(excess - 1).getEndOffset());
+    }
+  }
+
+  /**
+   * @return the history of messages displayed by this Chatter
+   */
+  public ChatHistory getHistory() {
+    return history;
+  }
+
+  /**
+   * Prompts for some text and displays every line of the history
+   * which contains it.
+   */
+  protected void searchHistory() {
+    final String text = JOptionPane.showInputDialog(this,
+      Resources.getString("Chatter.search_prompt")); //$NON-NLS-1$
+    if (text == null || text.length() == 0) return;
+
+    final List<String> matches;
+    try {
+      matches = history.search(text);
+    }
+    catch (IOException e) {
+      ReadErrorDialog.error(e, history.getSpillFile());
+      return;
+    }
+
+    final JTextArea results = new JTextArea(15, 60);
+    results.setEditable(false);
+    for (String line : matches) {
+      results.append(line);
+      results.append("\n"); //$NON-NLS-1$
+    }
+    results.setCaretPosition(0);
+
+    JOptionPane.showMessageDialog(this, new ScrollPane(results),
+      Resources.getString("Chatter.search_results", text), //$NON-NLS-1$
+      JOptionPane.PLAIN_MESSAGE);
+  }
+
+  /**
+   * Prompts for a file and writes the whole history to it.
+   */
+  protected void saveHistory() {
+    final FileChooser fc = GameModule.getGameModule().getFileChooser();
+    if (fc.showSaveDialog(this) != FileChooser.APPROVE_OPTION) return;
+
+    final File file = fc.getSelectedFile();
+    try {
+      history.export(file);
+    }
+    catch (IOException e) {
+      WriteErrorDialog.error(e, file);
+    }
   }
 
   /** @deprecated use GlobalOptions.getPlayerId() */
@@ -195,6 +297,18 @@ public class Chatter extends JPanel implements CommandEncoder, Buildable {
     Prefs.getGlobalPrefs().addOption(Resources.getString("Chatter.chat_window"), myChatColor); //$NON-NLS-1$
     ColorConfigurer otherChatColor = new ColorConfigurer(OTHER_CHAT_COLOR, Resources.getString("Chatter.other_text_preference"), Color.black); //$NON-NLS-1$
     Prefs.getGlobalPrefs().addOption(Resources.getString("Chatter.chat_window"), otherChatColor); //$NON-NLS-1$
+
+    final IntConfigurer historyLines = new IntConfigurer(HISTORY_LINES, Resources.getString("Chatter.history_lines_preference"), DEFAULT_HISTORY_LINES); //$NON-NLS-1$
+    historyLines.addPropertyChangeListener(new PropertyChangeListener() {
+      public void propertyChange(PropertyChangeEvent evt) {
+        if (evt.getNewValue() instanceof Integer) {
+          history.setRetention((Integer) evt.getNewValue());
+          trimConversation();
+        }
+      }
+    });
+    Prefs.getGlobalPrefs().addOption(Resources.getString("Chatter.chat_window"), historyLines); //$NON-NLS-1$
+    historyLines.fireUpdate();
   }
 
   public void add(Buildable b) {
@@ -22,9 +22,16 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipException;
 
 import org.slf4j.Logger;
@@ -37,6 +44,8 @@ import VASSAL.configure.DirectoryConfigurer;
 import VASSAL.i18n.Resources;
 import VASSAL.tools.DataArchive;
 import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.concurrent.DaemonThreadFactory;
+import VASSAL.tools.io.IOUtils;
 
 public class ExtensionsLoader implements CommandEncoder {
   private static final Logger logger =
@@ -47,6 +56,9 @@ public class ExtensionsLoader implements CommandEncoder {
   public static final String SPECIFY_DIR_IN_PREFS = "specifyExtensionDirInPrefs"; //$NON-NLS-1$
   public static final String EXTENSION_DIR = "extensionDIR"; //$NON-NLS-1$
 
+  // Extensions are mostly read from disk, so this is not tied to the CPUs
+  protected static final int MAX_THREADS = 4;
+
   protected Set<String> loadedExtensions = new HashSet<String>();
   protected HashMap<String,String> loadedIds = new HashMap<String,String>();
 
@@ -76,26 +88,103 @@ public class ExtensionsLoader implements CommandEncoder {
   }
 
   protected void addExtensions() {
-    for (File ext : globalExtMgr.getActiveExtensions()) {
-      if (!addExtension(ext)) {
-        globalExtMgr.setActive(ext, false);
+    final List<File> global = globalExtMgr.getActiveExtensions();
+    final List<File> local = extMgr.getActiveExtensions();
+
+    final List<File> all = new ArrayList<File>(global);
+    all.addAll(local);
+    final boolean[] added = addExtensions(all);
+
+    for (int i = 0; i < global.size(); ++i) {
+      if (!added[i]) {
+        globalExtMgr.setActive(global.get(i), false);
       }
     }
-    for (File ext : extMgr.getActiveExtensions()) {
-      if (!addExtension(ext)) {
-        GameModule.getGameModule().warn(Resources.getString("ExtensionsLoader.deactivating_extension",ext.getName()));
+    for (int i = 0; i < local.size(); ++i) {
+      if (!added[global.size() + i]) {
+        final File ext = local.get(i);
+        warn(Resources.getString("ExtensionsLoader.deactivating_extension",ext.getName()));
         extMgr.setActive(ext, false);
       }
     }
   }
 
+  /**
+   * Loads a number of extensions. The archives are opened and their
+   * buildFiles parsed in parallel, while the extensions are built into
+   * the module one at a time, in the order given, on the calling thread.
+   *
+   * @param extensions the extensions to load
+   * @return whether each extension was loaded
+   */
+  protected boolean[] addExtensions(List<File> extensions) {
+    final List<Future<ModuleExtension>> reading =
+      new ArrayList<Future<ModuleExtension>>(extensions.size());
+    final Set<String> names = new HashSet<String>();
+
+    ExecutorService exec = null;
+    for (File extension : extensions) {
+      final String extname = extension.getPath();
+      if (loadedExtensions.contains(extname) || !names.add(extname)) {
+        // built already, or by an earlier entry in the list
+        reading.add(null);
+        continue;
+      }
+
+      if (exec == null) {
+        exec = Executors.newFixedThreadPool(
+          Math.min(MAX_THREADS, extensions.size()),
+          new DaemonThreadFactory(ExtensionsLoader.class.getSimpleName())
+        );
+      }
+
+      reading.add(exec.submit(new Callable<ModuleExtension>() {
+        public ModuleExtension call() throws IOException {
+          return readExtension(extname);
+        }
+      }));
+    }
+
+    int i = 0;
+    try {
+      final boolean[] added = new boolean[extensions.size()];
+      for ( ; i < added.length; ++i) {
+        added[i] = addExtension(extensions.get(i), reading.get(i));
+      }
+      return added;
+    }
+    finally {
+      if (exec != null) {
+        // if a build threw, close the archives which will not be built
+        for (int j = i + 1; j < reading.size(); ++j) {
+          final Future<ModuleExtension> f = reading.get(j);
+          if (f == null || f.cancel(true)) continue;
+          try {
+            IOUtils.closeQuietly(f.get().getDataArchive());
+          }
+          catch (Exception e) {
+            // this one failed to open anyway
+          }
+        }
+
+        exec.shutdownNow();
+      }
+    }
+  }
+
   protected boolean addExtension(File extension) {
+    return addExtension(extension, null);
+  }
+
+  private boolean addExtension(File extension,
+                               Future<ModuleExtension> reading) {
     logger.info("Loading extension " + extension);
     String extname = extension.getPath();
     boolean success = loadedExtensions.contains(extname);
     if (!success) {
       try {
-        final ModuleExtension ext = createExtension(extname);
+        final ModuleExtension ext =
+          reading == null ? readExtension(extname) : get(reading);
         ext.build();
 
         final String id = ext.getExtensionId();
@@ -111,11 +200,11 @@ public class ExtensionsLoader implements CommandEncoder {
 
         final String msg = getLoadedMessage(ext.getName(), ext.getVersion());
         loadedExtensions.add(extname);
-        GameModule.getGameModule().warn(msg);
+        warn(msg);
         System.err.println("-- "+msg);
 
         if (idMsg.length() > 0) {
-          GameModule.getGameModule().warn(idMsg);
+          warn(idMsg);
           System.err.println(idMsg);
         }
         success = true;
@@ -133,6 +222,41 @@ public class ExtensionsLoader implements CommandEncoder {
     return success;
   }
 
+  /**
+   * Opens an extension and parses its buildFile, without building it.
+   */
+  protected ModuleExtension readExtension(String extname)
+                                          throws ZipException, IOException {
+    final ModuleExtension ext = createExtension(extname);
+    try {
+      ext.readBuildFile();
+    }
+    // FIXME: review error message
+    catch (IOException e) {
+      // the extension will not be built, so nothing else will close it
+      IOUtils.closeQuietly(ext.getDataArchive());
+      throw new LoadExtensionException(e);
+    }
+    return ext;
+  }
+
+  private static ModuleExtension get(Future<ModuleExtension> reading)
+                                                      throws IOException {
+    try {
+      return reading.get();
+    }
+    catch (InterruptedException e) {
+      throw (IOException) new IOException().initCause(e);
+    }
+    catch (ExecutionException e) {
+      final Throwable c = e.getCause();
+      if (c instanceof IOException) throw (IOException) c;
+      else if (c instanceof RuntimeException) throw (RuntimeException) c;
+      else if (c instanceof Error) throw (Error) c;
+      else throw (IOException) new IOException().initCause(c);
+    }
+  }
+
   protected ModuleExtension createExtension(String extname)
                                             throws ZipException, IOException {
     return new ModuleExtension(new DataArchive(extname));
@@ -148,7 +272,11 @@ public class ExtensionsLoader implements CommandEncoder {
       msg = e.getClass().getName();
       msg = msg.substring(msg.lastIndexOf('.'));
     }
-    GameModule.getGameModule().warn(getErrorMessage(name , msg)); //$NON-NLS-1$
+    warn(getErrorMessage(name , msg)); //$NON-NLS-1$
+  }
+
+  protected void warn(String msg) {
+    GameModule.getGameModule().warn(msg);
   }
 
   protected String getErrorMessage(String name, String msg) {
@@ -674,7 +674,8 @@ public class GameState implements CommandEncoder {
   public void loadGameInBackground(final File f) {
     try {
       loadGameInBackground(f.getName(),
-                           new BufferedInputStream(new FileInputStream(f)));
+                           new BufferedInputStream(new FileInputStream(f)),
+                           f);
     }
     catch (IOException e) {
       ReadErrorDialog.error(e, f);
@@ -683,6 +684,12 @@ public class GameState implements CommandEncoder {
 
   public void loadGameInBackground(final String shortName,
                                    final InputStream in)  {
+    loadGameInBackground(shortName, in, null);
+  }
+
+  private void loadGameInBackground(final String shortName,
+                                    final InputStream in,
+                                    final File f)  {
     GameModule.getGameModule().warn(
       Resources.getString("GameState.loading", shortName));  //$NON-NLS-1$
 
@@ -744,6 +751,15 @@ public class GameState implements CommandEncoder {
           GameModule.getGameModule().warn(msg);
           Logger logger = GameModule.getGameModule().getLogger();
           if (logger instanceof BasicLogger) {
+            if (loadCommand != null && f != null) {
+              try {
+                ((BasicLogger)logger).setReplayIndex(ReplayIndex.read(f));
+              }
+              catch (IOException e) {
+                // the logfile is still usable, just without seeking
+                log.error("", e);
+              }
+            }
             ((BasicLogger)logger).queryNewLogFile(true);
           }
         }
@@ -36,10 +36,12 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -91,9 +93,9 @@ import VASSAL.counters.GamePiece;
 import VASSAL.counters.IBoundsTracker;
 import VASSAL.counters.PieceCloner;
 import VASSAL.counters.PieceFilter;
-import VASSAL.counters.PieceIterator;
 import VASSAL.counters.Properties;
 import VASSAL.counters.PropertiesPieceFilter;
+import VASSAL.counters.PropertyResolutionCache;
 import VASSAL.counters.Stack;
 import VASSAL.i18n.Resources;
 import VASSAL.i18n.TranslatableConfigurerFactory;
@@ -195,6 +197,26 @@ public class Inventory extends AbstractConfigurable
 
   protected JDialog frame;
 
+  /*
+   * Every piece in the game which may appear in the inventory, with its
+   * counter if it passed the filter and the state version of the piece
+   * when it was evaluated. Only pieces whose version has changed since
+   * are evaluated again when the inventory is refreshed.
+   */
+  private final Map<GamePiece,PieceEntry> entries =
+    new IdentityHashMap<GamePiece,PieceEntry>();
+  private boolean stale = true;
+  private int entriesGeneration;
+  private int entriesGlobalVersion;
+  private int entriesPieceCount;
+  private int pass;
+
+  private static class PieceEntry {
+    private Counter counter;
+    private int version;
+    private int pass;
+  }
+
   public Inventory() {
     ActionListener al = new ActionListener() {
       public void actionPerformed(ActionEvent e) {
@@ -338,6 +360,8 @@ public class Inventory extends AbstractConfigurable
     JButton refreshButton = new JButton(Resources.getString(Resources.REFRESH));
     refreshButton.addActionListener(new ActionListener() {
       public void actionPerformed(ActionEvent e) {
+        // Rebuild from scratch, in case a piece depends on another
+        stale = true;
         refresh();
       }
     });
@@ -428,45 +452,148 @@ public class Inventory extends AbstractConfigurable
     frame.setVisible(true);
   }
 
-  private void buildTreeModel() {
-    // Initialize all pieces with CurrentBoard correctly.
-    for (VASSAL.build.module.Map m : VASSAL.build.module.Map.getMapList()) {
-      m.getPieces();
-    }
-
-    final ArrayList<String> path = new ArrayList<String>();
-    for (int i = 0; i < groupBy.length; i++)
-      path.add(groupBy[i]);
-    results = new CounterInventory(
-      new Counter(this.getConfigureName()), path, sortPieces);
-
-    final PieceIterator pi = new PieceIterator(
-      GameModule.getGameModule().getGameState().getAllPieces().iterator(),
-      piecePropertiesFilter
-    );
-
-    while (pi.hasMoreElements()) {
-      final ArrayList<String> groups = new ArrayList<String>();
-      final GamePiece p = pi.nextPiece();
-
-      if (p instanceof Decorator || p instanceof BasicPiece) {
-        for (int i = 0; i < groupBy.length; i++) {
-          if (groupBy[i].length() > 0) {
-            String prop = (String) p.getProperty(groupBy[i]);
-            if (prop != null)
-              groups.add(prop);
-          }
+  protected void buildTreeModel() {
+    PropertyResolutionCache.begin();
+    try {
+      // Initialize all pieces with CurrentBoard correctly.
+      for (VASSAL.build.module.Map m : VASSAL.build.module.Map.getMapList()) {
+        m.getPieces();
+      }
+
+      final ArrayList<String> path = new ArrayList<String>();
+      for (int i = 0; i < groupBy.length; i++)
+        path.add(groupBy[i]);
+      results = new CounterInventory(
+        new Counter(this.getConfigureName()), path, sortPieces);
+
+      final Collection<GamePiece> pieces =
+        GameModule.getGameModule().getGameState().getAllPieces();
+
+      entries.clear();
+      entriesGeneration = PropertyResolutionCache.getGeneration();
+      entriesGlobalVersion = BasicPiece.getGlobalStateVersion();
+      entriesPieceCount = pieces.size();
+      stale = false;
+
+      for (GamePiece p : pieces) {
+        if (p instanceof Decorator || p instanceof BasicPiece) {
+          final PieceEntry e = new PieceEntry();
+          e.version = getStateVersion(p);
+          e.counter = createCounter(p);
+          if (e.counter != null)
+            results.insert(e.counter);
+          entries.put(p, e);
         }
+      }
+    }
+    finally {
+      PropertyResolutionCache.end();
+    }
+  }
+
+  /**
+   * Brings the tree up to date with the pieces in the game. Only the pieces
+   * which have been added, removed or changed since the last update are
+   * evaluated and moved in the tree. The whole tree is rebuilt if the
+   * configuration or any global, map or zone property has changed.
+   *
+   * @return <code>true</code> if the tree has changed
+   */
+  protected boolean updateTreeModel() {
+    if (stale || results == null ||
+        entriesGeneration != PropertyResolutionCache.getGeneration()) {
+      buildTreeModel();
+      return true;
+    }
+
+    final Collection<GamePiece> pieces =
+      GameModule.getGameModule().getGameState().getAllPieces();
+    final int globalVersion = BasicPiece.getGlobalStateVersion();
+
+    // no piece has changed at all
+    if (globalVersion == entriesGlobalVersion &&
+        pieces.size() == entriesPieceCount) return false;
 
-        int count = 1;
-        if (nonLeafFormat.length() > 0)
-        count = getTotalValue(p);
+    entriesGlobalVersion = globalVersion;
+    entriesPieceCount = pieces.size();
 
-        final Counter c = new Counter(p, groups, count, pieceFormat, sortFormat);
-        // Store
-        results.insert(c);
+    boolean changed = false;
+    ++pass;
+
+    PropertyResolutionCache.begin();
+    try {
+      for (GamePiece p : pieces) {
+        if (!(p instanceof Decorator || p instanceof BasicPiece)) continue;
+
+        final int version = getStateVersion(p);
+        PieceEntry e = entries.get(p);
+        if (e == null) {
+          e = new PieceEntry();
+          entries.put(p, e);
+        }
+        else if (e.version == version) {
+          e.pass = pass;
+          continue;
+        }
+
+        if (e.counter != null)
+          results.remove(e.counter);
+
+        e.version = version;
+        e.pass = pass;
+        e.counter = createCounter(p);
+        if (e.counter != null)
+          results.insert(e.counter);
+
+        changed = true;
+      }
+
+      // remove the pieces which have left the game
+      for (Iterator<PieceEntry> i = entries.values().iterator(); i.hasNext(); ) {
+        final PieceEntry e = i.next();
+        if (e.pass != pass) {
+          if (e.counter != null)
+            results.remove(e.counter);
+          i.remove();
+          changed = true;
+        }
       }
     }
+    finally {
+      PropertyResolutionCache.end();
+    }
+
+    return changed;
+  }
+
+  /**
+   * @return the counter for the piece, or <code>null</code> if the piece
+   * does not pass the filter
+   */
+  private Counter createCounter(GamePiece p) {
+    if (!piecePropertiesFilter.accept(p))
+      return null;
+
+    final ArrayList<String> groups = new ArrayList<String>();
+    for (int i = 0; i < groupBy.length; i++) {
+      if (groupBy[i].length() > 0) {
+        String prop = (String) p.getProperty(groupBy[i]);
+        if (prop != null)
+          groups.add(prop);
+      }
+    }
+
+    int count = 1;
+    if (nonLeafFormat.length() > 0)
+    count = getTotalValue(p);
+
+    return new Counter(p, groups, count, pieceFormat, sortFormat);
+  }
+
+  private static int getStateVersion(GamePiece p) {
+    final GamePiece inner = Decorator.getInnermost(p);
+    return inner instanceof BasicPiece ?
+      ((BasicPiece) inner).getStateVersion() : 0;
   }
 
   protected int getTotalValue(GamePiece p) {
@@ -590,6 +717,8 @@ public class Inventory extends AbstractConfigurable
   }
 
   public void setAttribute(String key, Object o) {
+    stale = true;
+
     if (NAME.equals(key)) {
       setConfigureName((String) o);
     }
@@ -775,6 +904,9 @@ public class Inventory extends AbstractConfigurable
   }
 
   public void setup(boolean gameStarting) {
+    entries.clear();
+    stale = true;
+
     launch.setEnabled(gameStarting && enabledForPlayersSide());
     if (gameStarting)
       setupLaunch();
@@ -789,6 +921,7 @@ public class Inventory extends AbstractConfigurable
    * Update inventory according to change of side.
    */
   public void sideChanged(String oldSide, String newSide) {
+    stale = true;
     setupLaunch();
   }
 
@@ -874,8 +1007,13 @@ public class Inventory extends AbstractConfigurable
         expanded.add(tree.getPathForRow(i).getLastPathComponent().toString());
       }
     }
-    buildTreeModel();
-    tree.setModel(results);
+    final CounterInventory previous = results;
+    if (!updateTreeModel()) return;
+
+    if (results == previous)
+      results.fireTreeStructureChanged();
+    else
+      tree.setModel(results);
 
     for (int i = 0; i < tree.getRowCount(); ++i) {
       if (expanded.contains(
@@ -1129,6 +1267,8 @@ public class Inventory extends AbstractConfigurable
     protected final String entry;
     protected final Counter counter;
     protected List<CounterNode> children;
+    // The children left once the tree is cut, see updateVisibleChildren()
+    protected List<CounterNode> visibleChildren;
     protected int level;
 
     // protected int depth;
@@ -1147,6 +1287,7 @@ public class Inventory extends AbstractConfigurable
       this.counter = counter;
       counter.setNode(this);
       children = new ArrayList<CounterNode>();
+      visibleChildren = children;
     }
 
     public String toString() {
@@ -1180,7 +1321,7 @@ public class Inventory extends AbstractConfigurable
       else
         name.append(getEntry());
 
-      for (CounterNode child : children) {
+      for (CounterNode child : visibleChildren) {
         name.append(child.toResultString());
       }
       return name.toString();
@@ -1223,19 +1364,19 @@ public class Inventory extends AbstractConfigurable
     }
 
     public int getChildCount() {
-      return children.size();
+      return visibleChildren.size();
     }
 
     public boolean isLeaf() {
-      return children.isEmpty();
+      return visibleChildren.isEmpty();
     }
 
     public Object getChild(final int index) {
-      return children.get(index);
+      return visibleChildren.get(index);
     }
 
     public int getIndexOfChild(final Object child) {
-      return children.indexOf(child);
+      return visibleChildren.indexOf(child);
     }
 
     public int getLevel() {
@@ -1247,8 +1388,9 @@ public class Inventory extends AbstractConfigurable
     }
 
     public int updateValues() {
+      // only pieces have a value of their own, groups sum their children
       int value = 0;
-      if (counter != null)
+      if (counter != null && children.isEmpty())
         value = counter.getValue();
 
       // inform children about update
@@ -1262,7 +1404,55 @@ public class Inventory extends AbstractConfigurable
     }
 
     public Iterator<CounterNode> iterator() {
-      return children.iterator();
+      return visibleChildren.iterator();
+    }
+
+    /**
+     * Works out which children are shown once the tree is cut below the
+     * root and above the leaves. Unlike {@link #cutLevel} and
+     * {@link #cutLeaves}, this leaves the tree itself intact, so that it
+     * can still be updated.
+     *
+     * @return the height of this node in the tree cut below the root
+     */
+    protected int updateVisibleChildren() {
+      if (cutBelowRoot > 0 && level >= cutBelowRoot) {
+        visibleChildren = Collections.emptyList();
+        return 0;
+      }
+
+      visibleChildren = cutAboveLeaves > 0 ?
+        new ArrayList<CounterNode>() : children;
+
+      int height = 0;
+      for (CounterNode child : children) {
+        final int h = child.updateVisibleChildren();
+        if (cutAboveLeaves > 0 && h >= cutAboveLeaves)
+          visibleChildren.add(child);
+        height = Math.max(height, h + 1);
+      }
+      return height;
+    }
+
+    /**
+     * Sorts the tree below this node, and makes each group take its other
+     * properties from its first piece, so that the tree is the same
+     * whatever order the pieces were inserted and removed in.
+     */
+    protected void sortTree(boolean sort) {
+      for (CounterNode child : children) {
+        child.sortTree(sort);
+
+        if (!child.children.isEmpty()) {
+          CounterNode leaf = child.children.get(0);
+          while (!leaf.children.isEmpty())
+            leaf = leaf.children.get(0);
+          child.getCounter().source = leaf.getCounter().getPiece();
+        }
+      }
+
+      if (sort)
+        sortChildren();
     }
 
     public void cutLevel(int cut) {
@@ -1502,6 +1692,43 @@ public class Inventory extends AbstractConfigurable
       changed = true;
     }
 
+    /**
+     * Remove a counter from the tree, together with any groups left empty.
+     *
+     * @param counter
+     */
+    public void remove(Counter counter) {
+      final String[] path = counter.getPath();
+      final List<CounterNode> nodes = new ArrayList<CounterNode>();
+      final List<String> keys = new ArrayList<String>();
+      final StringBuilder hash = new StringBuilder();
+
+      nodes.add(root);
+      keys.add(null);
+      for (int j = 0; path != null && j < path.length; j++) {
+        hash.append(path[j]);
+        final CounterNode node = inventory.get(hash.toString());
+        if (node == null)
+          return;
+        nodes.add(node);
+        keys.add(hash.toString());
+      }
+
+      CounterNode child = counter.node;
+      for (int j = nodes.size() - 1; j >= 0; j--) {
+        final CounterNode parent = nodes.get(j);
+        if (child != null) {
+          parent.removeChild(child);
+          child = null;
+          if (j > 0 && parent.children.isEmpty()) {
+            inventory.remove(keys.get(j));
+            child = parent;
+          }
+        }
+      }
+      changed = true;
+    }
+
     private void updateEntries() {
       root.updateValues();
     }
@@ -1535,10 +1762,10 @@ public class Inventory extends AbstractConfigurable
 
     private void updateTree() {
       updateEntries();
-      if (cutBelowRoot > 0)
-        root.cutLevel(cutBelowRoot);
-      for (int i = cutAboveLeaves; i > 0; i--)
-        root.cutLeaves();
+      // groups may be sorted by sums over their visible children
+      root.updateVisibleChildren();
+      root.sortTree(sort);
+      root.updateVisibleChildren();
       changed = false;
     }
 
@@ -1568,6 +1795,13 @@ public class Inventory extends AbstractConfigurable
       }
     }
 
+    public void fireTreeStructureChanged() {
+      TreeModelEvent e = new TreeModelEvent(this, new Object[] {getRoot()});
+      for (TreeModelListener l : treeModelListeners) {
+        l.treeStructureChanged(e);
+      }
+    }
+
     public Object getChild(Object parent, int index) {
       CounterNode counter = (CounterNode) parent;
       return counter.getChild(index);
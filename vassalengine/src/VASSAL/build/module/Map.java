@@ -84,6 +84,7 @@ import VASSAL.build.GameModule;
 import VASSAL.build.IllegalBuildException;
 import VASSAL.build.module.documentation.HelpFile;
 import VASSAL.build.module.map.BoardPicker;
+import VASSAL.build.module.map.CompoundPieceCollection;
 import VASSAL.build.module.map.CounterDetailViewer;
 import VASSAL.build.module.map.DefaultPieceCollection;
 import VASSAL.build.module.map.DrawPile;
@@ -102,6 +103,7 @@ import VASSAL.build.module.map.MapShader;
 import VASSAL.build.module.map.MassKeyCommand;
 import VASSAL.build.module.map.MenuDisplayer;
 import VASSAL.build.module.map.PieceCollection;
+import VASSAL.build.module.map.PieceIndex;
 import VASSAL.build.module.map.PieceMover;
 import VASSAL.build.module.map.PieceRecenterer;
 import VASSAL.build.module.map.Scroller;
@@ -145,7 +147,9 @@ import VASSAL.counters.GamePiece;
 import VASSAL.counters.Highlighter;
 import VASSAL.counters.KeyBuffer;
 import VASSAL.counters.PieceFinder;
+import VASSAL.counters.PieceSpriteCache;
 import VASSAL.counters.PieceVisitorDispatcher;
+import VASSAL.counters.PropertyResolutionCache;
 import VASSAL.counters.Properties;
 import VASSAL.counters.ReportState;
 import VASSAL.counters.Stack;
@@ -207,6 +211,7 @@ public class Map extends AbstractConfigurable implements  IMap
   protected int[][] boardWidths; // Cache of board widths by row/column
   protected int[][] boardHeights; // Cache of board heights by row/column
   protected PieceCollection pieces = new DefaultPieceCollection();
+  protected PieceIndex pieceIndex = new PieceIndex();
   protected Highlighter highlighter = new ColoredBorder();
   protected ArrayList<Highlighter> highlighters = new ArrayList<Highlighter>();
   protected boolean clearFirst = false; // Whether to clear the display before
@@ -255,6 +260,58 @@ public class Map extends AbstractConfigurable implements  IMap
     return changeReportingEnabled;
   }
 
+  // Global repaint deferral
+  protected static int repaintsDeferred = 0;
+  protected static final List<Map> deferredRepaints = new ArrayList<Map>();
+  protected boolean repaintDeferred = false;
+
+  /**
+   * Defers repainting of all maps until the matching call to
+   * {@link #resumeRepaints}, so that many changes to the game state
+   * result in a single repaint of each affected map. Calls may be nested.
+   *
+   * @since 3.2.3
+   */
+  public static void deferRepaints() {
+    synchronized (deferredRepaints) {
+      ++repaintsDeferred;
+    }
+  }
+
+  /**
+   * Ends a period begun by {@link #deferRepaints}, repainting any maps
+   * which requested it in the meantime.
+   *
+   * @since 3.2.3
+   */
+  public static void resumeRepaints() {
+    final Map[] maps;
+    synchronized (deferredRepaints) {
+      if (repaintsDeferred == 0 || --repaintsDeferred > 0) return;
+
+      maps = deferredRepaints.toArray(new Map[deferredRepaints.size()]);
+      deferredRepaints.clear();
+      for (Map m : maps) m.repaintDeferred = false;
+    }
+
+    for (Map m : maps) m.theMap.repaint();
+  }
+
+  /**
+   * @return <code>true</code> if the repaint should not happen now
+   */
+  private boolean deferRepaint() {
+    synchronized (deferredRepaints) {
+      if (repaintsDeferred == 0) return false;
+
+      if (!repaintDeferred) {
+        repaintDeferred = true;
+        deferredRepaints.add(this);
+      }
+      return true;
+    }
+  }
+
   public static final String NAME = "mapName"; //$NON-NLS-1$
   public static final String MARK_MOVED = "markMoved"; //$NON-NLS-1$
   public static final String MARK_UNMOVED_ICON = "markUnmovedIcon"; //$NON-NLS-1$
@@ -278,6 +335,7 @@ public class Map extends AbstractConfigurable implements  IMap
   public static final String CHANGE_FORMAT = "changeFormat"; //$NON-NLS-1$
   public static final String MOVE_KEY = "moveKey"; //$NON-NLS-1$
   public static final String MOVING_STACKS_PICKUP_UNITS = "movingStacksPickupUnits"; //$NON-NLS-1$
+  public static final String CACHE_PIECE_IMAGES = "cachePieceImages"; //$NON-NLS-1$
 
 
   public void setAttribute(String key, Object value) {
@@ -720,6 +778,15 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
         Boolean.FALSE
       )
     );
+
+    g.getPrefs().addOption(
+      Resources.getString("Prefs.general_tab"), //$NON-NLS-1$
+      new BooleanConfigurer(
+        CACHE_PIECE_IMAGES,
+        Resources.getString("Map.cache_piece_images_preference"), //$NON-NLS-1$
+        Boolean.FALSE
+      )
+    );
   }
 
   public void setPieceMover(PieceMover mover) {
@@ -742,6 +809,8 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
   }
 
   public void sideChanged(String oldSide, String newSide) {
+    PieceSpriteCache.invalidateAll();
+    PropertyResolutionCache.invalidate();
     repaint();
   }
 
@@ -807,11 +876,9 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
    */
   public Zone findZone(String name) {
     for (Board b : boards) {
-      for (ZonedGrid zg : b.getAllDescendantComponentsOf(ZonedGrid.class)) {
-        Zone z = zg.findZone(name);
-        if (z != null) {
-          return z;
-        }
+      final List<Zone> l = b.getAllDescendantComponentsOf(Zone.class, name);
+      if (!l.isEmpty()) {
+        return l.get(0);
       }
     }
     return null;
@@ -1448,6 +1515,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
 
   public void repaint(boolean cf) {
     clearFirst = cf;
+    if (deferRepaint()) return;
     theMap.repaint();
   }
 
@@ -1469,11 +1537,17 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
   }
 
   public void paintRegion(Graphics g, Rectangle visibleRect, Component c) {
-    clearMapBorder(g); // To avoid ghost pieces around the edge
-    drawBoardsInRegion(g, visibleRect, c);
-    drawDrawable(g, false);
-    drawPiecesInRegion(g, visibleRect, c);
-    drawDrawable(g, true);
+    PropertyResolutionCache.begin();
+    try {
+      clearMapBorder(g); // To avoid ghost pieces around the edge
+      drawBoardsInRegion(g, visibleRect, c);
+      drawDrawable(g, false);
+      drawPiecesInRegion(g, visibleRect, c);
+      drawDrawable(g, true);
+    }
+    finally {
+      PropertyResolutionCache.end();
+    }
   }
 
   public void drawBoardsInRegion(Graphics g,
@@ -1489,6 +1563,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
   }
 
   public void repaint() {
+    if (deferRepaint()) return;
     theMap.repaint();
   }
 
@@ -1500,6 +1575,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
       Composite oldComposite = g2d.getComposite();
       g2d.setComposite(
         AlphaComposite.getInstance(AlphaComposite.SRC_OVER, pieceOpacity));
+      final boolean cacheImages = isCachingPieceImages();
       GamePiece[] stack = pieces.getPieces();
       for (int i = 0; i < stack.length; ++i) {
         Point pt = componentCoordinates(stack[i].getPosition());
@@ -1508,7 +1584,12 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
             (Stack) stack[i], pt, g, this, getZoom(), visibleRect);
         }
         else {
-          stack[i].draw(g, pt.x, pt.y, c, getZoom());
+          if (cacheImages) {
+            PieceSpriteCache.draw(stack[i], g, pt.x, pt.y, c, getZoom());
+          }
+          else {
+            stack[i].draw(g, pt.x, pt.y, c, getZoom());
+          }
           if (Boolean.TRUE.equals(stack[i].getProperty(Properties.SELECTED))) {
             highlighter.draw(stack[i], g, pt.x, pt.y, c, getZoom());
           }
@@ -1518,6 +1599,15 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
     }
   }
 
+  /**
+   * @return true if unchanged pieces should be drawn from cached images
+   * @see PieceSpriteCache
+   */
+  public boolean isCachingPieceImages() {
+    return Boolean.TRUE.equals(
+      GameModule.getGameModule().getPrefs().getValue(CACHE_PIECE_IMAGES));
+  }
+
   public void drawPiecesInRegion(Graphics g, Rectangle visibleRect) {
     drawPiecesInRegion(g, visibleRect, theMap);
   }
@@ -1682,6 +1772,13 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
     return pieces;
   }
 
+  /**
+   * @return the spatial index of the pieces on this map
+   */
+  public PieceIndex getPieceIndex() {
+    return pieceIndex;
+  }
+
   protected void clearMapBorder(Graphics g) {
     if (clearFirst || boards.isEmpty()) {
       g.setColor(bgColor);
@@ -1733,6 +1830,14 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
     theMap.revalidate();
   }
 
+  /**
+   * @return where {@link #drawBoards} draws the given board at the given
+   * zoom factor, before any offset is applied
+   */
+  public Point getBoardLocation(Board b, double zoom) {
+    return getLocation(b, zoom);
+  }
+
   protected Point getLocation(Board b, double zoom) {
     Point p;
     if (zoom == 1.0) {
@@ -1773,6 +1878,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
    * Repaint the given area, specified in map coordinates
    */
   public void repaint(Rectangle r) {
+    if (deferRepaint()) return;
     r.setLocation(componentCoordinates(new Point(r.x, r.y)));
     r.setSize((int) (r.width * getZoom()), (int) (r.height * getZoom()));
     theMap.repaint(r.x, r.y, r.width, r.height);
@@ -1917,6 +2023,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
     }
     else {
       pieces.clear();
+      pieceIndex.clear();
       boards.clear();
       if (mainWindowDock != null) {
         if (mainWindowDock.getHideableComponent().isShowing()) {
@@ -2027,6 +2134,36 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
     return c;
   }
 
+  /**
+   * Apply the provided {@link PieceVisitorDispatcher} to the
+   * currently-visible pieces which may lie within the given region, as
+   * found by the {@link PieceIndex}, until it returns a
+   * non-<code>null</code> {@link Command}. The visitor must test for
+   * itself whether each piece actually lies within the region.
+   *
+   * @param commandFactory the visitor
+   * @param region the region, in map coordinates
+   * @return the first non-<code>null</code> {@link Command} returned by
+   * <code>commandFactory</code>
+   */
+  public Command apply(PieceVisitorDispatcher commandFactory,
+                       Rectangle region) {
+    final CompoundPieceCollection layers =
+      pieces instanceof CompoundPieceCollection ?
+        (CompoundPieceCollection) pieces : null;
+
+    Command c = null;
+    for (GamePiece p : pieceIndex.getPiecesIn(region)) {
+      if (layers != null &&
+          !layers.isLayerEnabled(layers.getLayerForPiece(p))) {
+        continue;
+      }
+      c = (Command) commandFactory.accept(p);
+      if (c != null) break;
+    }
+    return c;
+  }
+
   /**
    * Move a piece to the destination point. If a piece is at the point (i.e. has a location exactly equal to it), merge
    * with the piece by forwarding to {@link StackMetrics#merge}. Otherwise, place by forwarding to placeAt()
@@ -2064,6 +2201,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
         p.getMap().removePiece(p);
       }
       pieces.add(p);
+      pieceIndex.add(p);
       p.setMap(this);
       theMap.repaint();
     }
@@ -2090,6 +2228,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
    */
   public void removePiece(GamePiece p) {
     pieces.remove(p);
+    pieceIndex.remove(p);
     theMap.repaint();
   }
 
@@ -2388,7 +2527,7 @@ mainWindowDock = splitter.splitBottom(splitter.getSplitAncestor(GameModule.getGa
   public static List<Map> getMapList() {
     final GameModule g = GameModule.getGameModule();
 
-    final List<Map> l = g.getComponentsOf(Map.class);
+    final List<Map> l = new ArrayList<Map>(g.getComponentsOf(Map.class));
     for (ChartWindow cw : g.getComponentsOf(ChartWindow.class)) {
       for (MapWidget mw : cw.getAllDescendantComponentsOf(MapWidget.class)) {
         l.add(mw.getMap());
@@ -94,6 +94,10 @@ public class ModuleExtension extends AbstractBuildable implements GameComponent,
   protected JTextField idDisplay;
   protected String description = "";
 
+  // The parsed buildFile, once it has been read
+  private Document buildFile;
+  private boolean buildFileRead = false;
+
   public ModuleExtension(DataArchive archive) {
     this.archive = archive;
   }
@@ -114,40 +118,57 @@ public class ModuleExtension extends AbstractBuildable implements GameComponent,
     return universal;
   }
 
-  public void build() {
-    final String fileName = GameModule.BUILDFILE; //$NON-NLS-1$
-
-    GameModule.getGameModule().getDataArchive().addExtension(archive);
-
-    // Record that we are currently building this Extension
-    GameModule.getGameModule().setGpIdSupport(this);
-
+  /**
+   * Reads and parses the buildFile of this extension without building
+   * it. This touches nothing but the archive of the extension, so
+   * several extensions may be read at once on other threads. If it has
+   * not been called, {@link #build()} reads the buildFile itself.
+   *
+   * @throws IOException if the buildFile cannot be parsed
+   */
+  public void readBuildFile() throws IOException {
     BufferedInputStream in = null;
     try {
-      in = new BufferedInputStream(archive.getInputStream(fileName));
+      in = new BufferedInputStream(
+        archive.getInputStream(GameModule.BUILDFILE));
     }
 // FIXME: should this be a FileNotFoundException?
     catch (IOException e) {
     }
 
-    if (in == null) {
-      build(null);
-    }
-    else {
+    if (in != null) {
       try {
-        final Document doc = Builder.createDocument(in);
-        build(doc.getDocumentElement());
+        buildFile = Builder.createDocument(in);
         in.close();
       }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+
+    buildFileRead = true;
+  }
+
+  public void build() {
+    if (!buildFileRead) {
+      try {
+        readBuildFile();
+      }
       // FIXME: review error message
       catch (IOException e) {
         throw new ExtensionsLoader.LoadExtensionException(e);
       }
-      finally {
-        IOUtils.closeQuietly(in);
-      }
     }
 
+    GameModule.getGameModule().getDataArchive().addExtension(archive);
+
+    // Record that we are currently building this Extension
+    GameModule.getGameModule().setGpIdSupport(this);
+
+    final Document doc = buildFile;
+    buildFile = null;
+    build(doc == null ? null : doc.getDocumentElement());
+
     GameModule.getGameModule().add(this);
     GameModule.getGameModule().getGameState().addGameComponent(this);
 
@@ -424,6 +445,7 @@ public class ModuleExtension extends AbstractBuildable implements GameComponent,
 
   public void remove(ExtensionElement el) {
     buildComponents.remove(el);
+    componentsChanged();
   }
 
   public Action getEditAction(final JDialog d) {
@@ -18,7 +18,6 @@
  */
 package VASSAL.build.module;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.zip.ZipException;
 
@@ -41,9 +40,7 @@ public class PluginsLoader extends ExtensionsLoader {
 
   public void addTo(GameModule mod) {
     mod.addCommandEncoder(this);
-    for (File ext : extMgr.getActiveExtensions()) {
-      addExtension(ext);
-    }
+    addExtensions(extMgr.getActiveExtensions());
   }
 
   @Override
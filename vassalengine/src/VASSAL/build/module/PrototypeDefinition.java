@@ -83,6 +83,7 @@ public class PrototypeDefinition extends AbstractConfigurable
   public void setConfigureName(String s) {
     String oldName = name;
     this.name = s;
+    componentsChanged();
     propSupport.firePropertyChange(NAME_PROPERTY, oldName, name);
   }
 
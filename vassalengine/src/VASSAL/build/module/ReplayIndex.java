@@ -0,0 +1,205 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.Command;
+import VASSAL.tools.ArrayUtils;
+import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.io.DeobfuscatingInputStream;
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * The keyframe index of a logfile written by {@link BasicLogger}.
+ *
+ * <p>Alongside the {@link GameState#SAVEFILE_ZIP_ENTRY} entry, a logfile
+ * may contain a number of keyframes, each of which is the full
+ * {@link GameState#getRestoreCommand restore command} of the game as it
+ * stood after a given number of logged steps. The keyframes are stored
+ * in their own entries, and the {@link #INDEX_ZIP_ENTRY} entry lists the
+ * step number of each keyframe. Seeking to a step restores the nearest
+ * preceding keyframe, so only the steps after it need to be replayed.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ReplayIndex {
+  public static final String INDEX_ZIP_ENTRY = "replayIndex";  //$NON-NLS-1$
+  public static final String KEYFRAME_ZIP_ENTRY = "replayKeyframe";  //$NON-NLS-1$
+
+  private final File file;
+  private final int[] steps;
+
+  protected ReplayIndex(File file, int[] steps) {
+    this.file = file;
+    this.steps = steps;
+  }
+
+  /**
+   * Reads the keyframe index of a logfile.
+   *
+   * @param file the logfile
+   * @return the index, or <code>null</code> if the file has no keyframes
+   * @throws IOException if the file cannot be read
+   */
+  public static ReplayIndex read(File file) throws IOException {
+    ZipFile zip = null;
+    try {
+      zip = new ZipFile(file);
+
+      final ZipEntry entry = zip.getEntry(INDEX_ZIP_ENTRY);
+      if (entry == null) return null;
+
+      InputStream in = null;
+      final String index;
+      try {
+        in = zip.getInputStream(entry);
+        index = IOUtils.toString(in, "UTF-8");  //$NON-NLS-1$
+        in.close();
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+
+      zip.close();
+      return new ReplayIndex(file, decodeIndex(index));
+    }
+    finally {
+      IOUtils.closeQuietly(zip);
+    }
+  }
+
+  /**
+   * @param steps the step numbers of the keyframes
+   * @return the contents of the {@link #INDEX_ZIP_ENTRY} entry
+   */
+  public static String encodeIndex(List<Integer> steps) {
+    final SequenceEncoder se = new SequenceEncoder(',');
+    for (Integer step : steps) se.append(step.intValue());
+    return se.getValue() == null ? "" : se.getValue();  //$NON-NLS-1$
+  }
+
+  /**
+   * @param index the contents of the {@link #INDEX_ZIP_ENTRY} entry
+   * @return the step numbers of the keyframes, in ascending order
+   * @throws IOException if the index is malformed
+   */
+  public static int[] decodeIndex(String index) throws IOException {
+    index = index.trim();
+    if (index.length() == 0) return new int[0];
+
+    final SequenceEncoder.Decoder sd = new SequenceEncoder.Decoder(index, ',');
+    int[] steps = new int[8];
+    int n = 0;
+    try {
+      while (sd.hasMoreTokens()) {
+        if (n == steps.length) steps = ArrayUtils.copyOf(steps, 2*n);
+        steps[n++] = Integer.parseInt(sd.nextToken().trim());
+      }
+    }
+    catch (NumberFormatException e) {
+      throw new IOException("Invalid replay index");  //$NON-NLS-1$
+    }
+
+    steps = ArrayUtils.copyOf(steps, n);
+    Arrays.sort(steps);
+    return steps;
+  }
+
+  /**
+   * @param step the step number of the keyframe
+   * @return the name of the entry holding the keyframe
+   */
+  public static String getKeyframeEntryName(int step) {
+    return KEYFRAME_ZIP_ENTRY + step;
+  }
+
+  /**
+   * @return the logfile
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return the number of keyframes
+   */
+  public int getKeyframeCount() {
+    return steps.length;
+  }
+
+  /**
+   * Finds the nearest keyframe at or before the given step.
+   *
+   * @param step the step to seek to
+   * @return the step number of the keyframe, or -1 if there is none
+   */
+  public int getKeyframeBefore(int step) {
+    final int i = Arrays.binarySearch(steps, step);
+    if (i >= 0) return steps[i];
+
+    final int ins = -i - 1;
+    return ins == 0 ? -1 : steps[ins-1];
+  }
+
+  /**
+   * Reads and decodes a keyframe.
+   *
+   * @param step the step number of the keyframe
+   * @return the command which restores the game to the state after
+   * the given step
+   * @throws IOException if the keyframe cannot be read
+   */
+  public Command getKeyframe(int step) throws IOException {
+    ZipFile zip = null;
+    try {
+      zip = new ZipFile(file);
+
+      final ZipEntry entry = zip.getEntry(getKeyframeEntryName(step));
+      if (entry == null) {
+        throw new IOException("No keyframe for step " + step);  //$NON-NLS-1$
+      }
+
+      InputStream in = null;
+      final String s;
+      try {
+        in = new DeobfuscatingInputStream(zip.getInputStream(entry));
+        s = IOUtils.toString(in, "UTF-8");  //$NON-NLS-1$
+        in.close();
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+
+      zip.close();
+      return GameModule.getGameModule().decode(s);
+    }
+    finally {
+      IOUtils.closeQuietly(zip);
+    }
+  }
+}
@@ -297,6 +297,7 @@ public class BoardPicker extends AbstractBuildable implements ActionListener, Ga
    */
   public void remove(Buildable b) {
     buildComponents.remove(b);  // PG-2011-09-24
+    componentsChanged();
     if (b instanceof Board) {
       possibleBoards.remove(b);
     }
@@ -244,6 +244,10 @@ public abstract class CompoundPieceCollection implements PieceCollection {
     }
   }
 
+  public boolean isLayerEnabled(int layer) {
+    return layer < 0 || layer >= layers.length || enabled[layer];
+  }
+
   public void setLayerEnabled(String layer, boolean b) {
     setLayerEnabled(getLayerForName(layer), b);
   }
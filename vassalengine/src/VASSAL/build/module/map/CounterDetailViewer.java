@@ -39,12 +39,19 @@ import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.JComponent;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import VASSAL.build.AbstractConfigurable;
@@ -82,6 +89,7 @@ import VASSAL.counters.Properties;
 import VASSAL.counters.Stack;
 import VASSAL.i18n.Resources;
 import VASSAL.tools.FormattedString;
+import VASSAL.tools.image.ImageUtils;
 
 /**
  * This is a {@link Drawable} class that draws the counters horizontally when
@@ -171,6 +179,27 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
   protected boolean mouseInView = true;
   protected List<GamePiece> displayablePieces = null;
 
+  /** the longest time a lookup runs on the EDT at a stretch, in ms */
+  protected static final long SLICE_BUDGET = 8;
+  /**
+   * the number of times a lookup starts over because pieces changed,
+   * before it finishes without yielding
+   */
+  protected static final int MAX_RESTARTS = 3;
+
+  /** the lookup in progress for the current mouse position, if any */
+  protected DetailsTask detailsTask;
+  /** the enlarged image of {@link #detailImagePieces}, or null */
+  protected BufferedImage detailImage;
+  protected List<GamePiece> detailImagePieces;
+  /**
+   * the furthest any piece's shape extends from its position, or -1 if
+   * not yet known
+   */
+  protected int pieceExtent = -1;
+  /** the {@link PieceIndex#getModCount} at which the extent was found */
+  protected int pieceExtentModCount;
+
   /** the JComponent which is repainted when the detail viewer changes */
   protected JComponent view;
 
@@ -269,6 +298,15 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
         g.drawRect(bounds.x - 1, bounds.y - 1, bounds.width + 1, bounds.height + 1);
         g.drawRect(bounds.x - 2, bounds.y - 2, bounds.width + 3, bounds.height + 3);
       }
+      // use the image rendered in the background, if it fits
+      final boolean prerendered = detailImage != null &&
+        pieces == detailImagePieces &&
+        detailImage.getWidth() == bounds.width + 5 &&
+        detailImage.getHeight() == bounds.height + 5;
+      if (prerendered) {
+        g.drawImage(detailImage, bounds.x - 3, bounds.y - 3, comp);
+      }
+
       Shape oldClip = g.getClip();
 
       int borderOffset = borderWidth;
@@ -278,12 +316,14 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
         // pt is the location of the left edge of the piece
         GamePiece piece = pieces.get(i);
         Rectangle pieceBounds = getBounds(piece);
-        if (unrotatePieces) piece.setProperty(Properties.USE_UNROTATED_SHAPE, Boolean.TRUE);
-        g.setClip(bounds.x - 3, bounds.y - 3, bounds.width + 5, bounds.height + 5);
-        piece.draw(g, bounds.x - (int) (pieceBounds.x * graphicsZoom) + borderOffset, bounds.y - (int) (pieceBounds.y * graphicsZoom) + borderWidth, comp,
-            graphicsZoom);
-        if (unrotatePieces) piece.setProperty(Properties.USE_UNROTATED_SHAPE, Boolean.FALSE);
-        g.setClip(oldClip);
+        if (!prerendered) {
+          if (unrotatePieces) piece.setProperty(Properties.USE_UNROTATED_SHAPE, Boolean.TRUE);
+          g.setClip(bounds.x - 3, bounds.y - 3, bounds.width + 5, bounds.height + 5);
+          piece.draw(g, bounds.x - (int) (pieceBounds.x * graphicsZoom) + borderOffset, bounds.y - (int) (pieceBounds.y * graphicsZoom) + borderWidth, comp,
+              graphicsZoom);
+          if (unrotatePieces) piece.setProperty(Properties.USE_UNROTATED_SHAPE, Boolean.FALSE);
+          g.setClip(oldClip);
+        }
 
         if (isTextUnderCounters()) {
           String text = counterReportFormat.getLocalizedText(piece);
@@ -346,7 +386,7 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
     String offboard = Resources.getString("Map.offboard");  //$NON-NLS-1$
 
     if (displayablePieces.isEmpty()) {
-      Point mapPt = map.mapCoordinates(currentMousePosition.getPoint());
+      Point mapPt = getMapPosition();
       Point snapPt = map.snapTo(mapPt);
       String locationName = map.localizedLocationName(snapPt);
       emptyHexReportFormat.setProperty(BasicPiece.LOCATION_NAME, locationName.equals(offboard) ? "" : locationName);
@@ -389,9 +429,25 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
     }
   }
 
+  /**
+   * Starts looking up the pieces under the mouse, a slice at a time on
+   * the EDT. The details are shown once the lookup is done, unless the
+   * mouse has moved on by then.
+   */
   protected void showDetails() {
+    if (detailsTask != null) detailsTask.cancel();
+    detailsTask = new DetailsTask(currentMousePosition, getMapPosition(), 0);
+    SwingUtilities.invokeLater(detailsTask);
+  }
 
-    displayablePieces = getDisplayablePieces();
+  /**
+   * Shows the details of the given pieces.
+   *
+   * @param pieces the pieces to display, from the bottom up
+   */
+  protected void showDetails(List<GamePiece> pieces) {
+
+    displayablePieces = pieces;
 
     /*
      * Visibility Rules: Stack - Depends on setting of showGraphics/showText
@@ -400,50 +456,366 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
      * space - Depends on setting of
      */
 
+    graphicsVisible = isGraphicsVisible(displayablePieces);
+
     double zoom = getZoom();
     if (displayablePieces.size() < minimumDisplayablePieces) {
       if (displayablePieces.size() > 0) {
-        graphicsVisible = zoom < zoomLevel;
         textVisible = zoom < zoomLevel && (summaryReportFormat.getFormat().length() > 0 || counterReportFormat.getFormat().length() > 0);
       }
       else {
         textVisible = (minimumDisplayablePieces==0 && emptyHexReportFormat.getFormat().length() > 0);
-        graphicsVisible = false;
       }
     }
     else {
-      graphicsVisible = drawPieces;
       textVisible = showText && (summaryReportFormat.getFormat().length() > 0 || counterReportFormat.getFormat().length() > 0);
     }
     map.repaint();
   }
 
+  /**
+   * @return whether the enlarged images of the given pieces are shown
+   */
+  protected boolean isGraphicsVisible(List<GamePiece> pieces) {
+    if (pieces.size() < minimumDisplayablePieces) {
+      return pieces.size() > 0 && getZoom() < zoomLevel;
+    }
+    else {
+      return drawPieces;
+    }
+  }
+
   protected double getZoom() {
     return map.getZoom();
   }
 
+  /**
+   * @return the position of the mouse, in map coordinates
+   */
+  protected Point getMapPosition() {
+    return map.mapCoordinates(currentMousePosition.getPoint());
+  }
+
   /**
    * Build an ArrayList of pieces to be displayed in order from bottom up, based
    * on selection criteria setup in config.
    */
   protected List<GamePiece> getDisplayablePieces() {
-    GamePiece[] allPieces = map.getPieces(); // All pieces from bottom up
+    return getDisplayablePieces(getMapPosition(),
+                                Arrays.asList(map.getPieces()));
+  }
 
-    Visitor visitor = new Visitor(new Filter(), map,
-      map.mapCoordinates(currentMousePosition.getPoint()));
+  /**
+   * Build an ArrayList of pieces to be displayed in order from bottom up, based
+   * on selection criteria setup in config.
+   *
+   * @param pt the position of the mouse, in map coordinates
+   * @param allPieces the pieces to consider, from the bottom up
+   */
+  protected List<GamePiece> getDisplayablePieces(Point pt,
+                                                 List<GamePiece> allPieces) {
+    Visitor visitor = new Visitor(new Filter(), map, pt);
     DeckVisitorDispatcher dispatcher = new DeckVisitorDispatcher(visitor);
 
     /*
      * Process pieces from the top down to make it easier to check for top layer
      * only.
      */
-    for (int i = allPieces.length - 1; i >= 0; i--) {
-      dispatcher.accept(allPieces[i]);
+    for (int i = allPieces.size() - 1; i >= 0; i--) {
+      dispatcher.accept(allPieces.get(i));
     }
 
     return visitor.getPieces();
   }
 
+  /**
+   * Looks up the pieces under the mouse, and renders their enlarged
+   * images, in slices of at most {@link #SLICE_BUDGET} ms on the EDT, so
+   * that a crowded map does not stall painting and input.
+   *
+   * <p>Pieces may only be evaluated and drawn on the EDT, so all of the
+   * work is done there. The pieces near the mouse are found through the
+   * map's {@link PieceIndex}, using the largest extent of any piece
+   * found so far, and sorted into drawing order. The extent is found
+   * again whenever pieces have been added to or removed from the map
+   * since; if it has grown, the candidates are instead chosen from a
+   * snapshot of all of the map's pieces. If any piece changes between two slices, the lookup starts
+   * over, since the snapshot may no longer be accurate.</p>
+   */
+  protected class DetailsTask implements Runnable {
+    protected final MouseEvent position;
+    protected final Point pt;
+    protected final int restarts;
+    protected GamePiece[] allPieces;
+    protected final int modCount;
+    protected final int stateVersion;
+    protected final int searchExtent;
+    protected final List<GamePiece> candidates;
+
+    protected boolean cancelled = false;
+
+    // the progress of the lookup
+    protected int phase = EXTENT;
+    protected int next = 0;
+    protected int extent;
+    protected boolean useIndex;
+    protected List<GamePiece> near;
+    protected Visitor visitor;
+    protected DeckVisitorDispatcher dispatcher;
+    protected List<GamePiece> pieces;
+    protected Rectangle[] pieceBounds;
+    protected BufferedImage image;
+    protected int x;
+    protected int borderOffset;
+
+    protected static final int EXTENT = 0;
+    protected static final int NEAR = 1;
+    protected static final int FILTER = 2;
+    protected static final int RENDER = 3;
+
+    public DetailsTask(MouseEvent position, Point pt, int restarts) {
+      this.position = position;
+      this.pt = pt;
+      this.restarts = restarts;
+
+      modCount = map.getPieceIndex().getModCount();
+      stateVersion = BasicPiece.getGlobalStateVersion();
+      searchExtent = pieceExtent;
+
+      extent = searchExtent;
+      useIndex = searchExtent >= 0;
+      if (searchExtent >= 0 && modCount == pieceExtentModCount) {
+        phase = NEAR;
+      }
+
+      if (useIndex) {
+        candidates = map.getPieceIndex().getPiecesIn(
+          new Rectangle(pt.x - searchExtent, pt.y - searchExtent,
+                        2 * searchExtent + 1, 2 * searchExtent + 1));
+      }
+      else {
+        candidates = null;
+      }
+    }
+
+    public void cancel() {
+      cancelled = true;
+    }
+
+    @SuppressWarnings("fallthrough")
+    public void run() {
+      if (cancelled || detailsTask != this) return;
+
+      // start over if the pieces have changed since the last slice,
+      // unless they keep changing
+      if (restarts < MAX_RESTARTS &&
+          (modCount != map.getPieceIndex().getModCount() ||
+           stateVersion != BasicPiece.getGlobalStateVersion())) {
+        detailsTask =
+          new DetailsTask(position, getMapPosition(), restarts + 1);
+        detailsTask.run();
+        return;
+      }
+
+      final long deadline = System.nanoTime() +
+        (restarts < MAX_RESTARTS ?
+          TimeUnit.MILLISECONDS.toNanos(SLICE_BUDGET) : Long.MAX_VALUE / 2);
+
+      boolean finished = false;
+      switch (phase) {
+      case EXTENT:
+        if (!findExtent(deadline)) break;
+        phase = NEAR;
+        next = 0;
+      case NEAR:
+        if (!findNear(deadline)) break;
+        phase = FILTER;
+        next = near.size() - 1;
+      case FILTER:
+        if (!filter(deadline)) break;
+        phase = RENDER;
+        next = 0;
+      case RENDER:
+        finished = render(deadline);
+      }
+
+      if (finished) {
+        done();
+      }
+      else {
+        SwingUtilities.invokeLater(this);
+      }
+    }
+
+    /**
+     * @return a snapshot of all of the map's visible pieces, taken when
+     * first needed
+     */
+    protected GamePiece[] getAllPieces() {
+      if (allPieces == null) allPieces = map.getPieces();
+      return allPieces;
+    }
+
+    protected boolean findExtent(long deadline) {
+      if (next == 0) extent = 0;
+
+      final GamePiece[] allPieces = getAllPieces();
+      for ( ; next < allPieces.length; ++next) {
+        if (System.nanoTime() > deadline) return false;
+
+        final GamePiece p = allPieces[next];
+        if (p instanceof Stack && ((Stack) p).isExpanded()) continue;
+
+        final Rectangle r = p.getShape().getBounds();
+        extent = Math.max(extent, Math.max(
+          Math.max(Math.abs(r.x), Math.abs(r.x + r.width)),
+          Math.max(Math.abs(r.y), Math.abs(r.y + r.height))));
+      }
+
+      if (extent > searchExtent) useIndex = false;
+      return true;
+    }
+
+    protected boolean findNear(long deadline) {
+      if (useIndex) {
+        near = sortByDrawingOrder(candidates);
+        return true;
+      }
+
+      if (near == null) near = new ArrayList<GamePiece>();
+
+      final GamePiece[] allPieces = getAllPieces();
+      for ( ; next < allPieces.length; ++next) {
+        if (System.nanoTime() > deadline) return false;
+
+        final GamePiece p = allPieces[next];
+        if (isNear(p)) near.add(p);
+      }
+      return true;
+    }
+
+    /**
+     * Sorts pieces into the order in which the map draws them, from the
+     * bottom up, leaving out those in disabled layers and those no longer
+     * on the map.
+     */
+    protected List<GamePiece> sortByDrawingOrder(List<GamePiece> l) {
+      final PieceCollection pc = map.getPieceCollection();
+      final CompoundPieceCollection layers =
+        pc instanceof CompoundPieceCollection ?
+          (CompoundPieceCollection) pc : null;
+
+      // order by the layer, counting up from the bottom one, and then by
+      // the index, which only orders the pieces within a layer
+      final java.util.Map<GamePiece,Long> order =
+        new IdentityHashMap<GamePiece,Long>();
+      for (GamePiece p : l) {
+        int layer = 0;
+        if (layers != null) {
+          layer = layers.getLayerForPiece(p);
+          if (!layers.isLayerEnabled(layer)) continue;
+          layer = (layer - layers.getBottomLayer() + layers.getLayerCount()) %
+                  layers.getLayerCount();
+        }
+
+        final int index = pc.indexOf(p);
+        if (index >= 0) order.put(p, ((long) layer << 32) | index);
+      }
+
+      final List<GamePiece> sorted = new ArrayList<GamePiece>(order.keySet());
+      Collections.sort(sorted, new Comparator<GamePiece>() {
+        public int compare(GamePiece a, GamePiece b) {
+          return order.get(a).compareTo(order.get(b));
+        }
+      });
+      return sorted;
+    }
+
+    protected boolean isNear(GamePiece p) {
+      if (p instanceof Stack && ((Stack) p).isExpanded()) return true;
+
+      final Point pos = p.getPosition();
+      return Math.abs(pos.x - pt.x) <= extent &&
+             Math.abs(pos.y - pt.y) <= extent;
+    }
+
+    protected boolean filter(long deadline) {
+      if (visitor == null) {
+        visitor = new Visitor(new Filter(), map, pt);
+        dispatcher = new DeckVisitorDispatcher(visitor);
+      }
+
+      // from the top down, as getDisplayablePieces does
+      for ( ; next >= 0; --next) {
+        if (System.nanoTime() > deadline) return false;
+        dispatcher.accept(near.get(next));
+      }
+
+      pieces = visitor.getPieces();
+      return true;
+    }
+
+    /**
+     * Draws the enlarged images of the pieces side by side, as
+     * {@link #drawGraphics} would draw them, into an image which includes
+     * the 3 pixel margin around them.
+     */
+    protected boolean render(long deadline) {
+      // unrotating pieces changes how they are drawn on the map, too,
+      // so leave those to be drawn when painting
+      if (unrotatePieces || !isGraphicsVisible(pieces)) return true;
+
+      if (pieceBounds == null) {
+        pieceBounds = new Rectangle[pieces.size()];
+        int w = 0;
+        int h = 0;
+        for (int i = 0; i < pieceBounds.length; i++) {
+          pieceBounds[i] = pieces.get(i).getShape().getBounds();
+          w += (int) Math.round(pieceBounds[i].width * graphicsZoomLevel) + borderWidth;
+          h = Math.max(h, (int) Math.round(pieceBounds[i].height * graphicsZoomLevel) + borderWidth * 2);
+        }
+        w += borderWidth;
+
+        if (w <= 0 || h <= 0) return true;
+
+        image = ImageUtils.createCompatibleTranslucentImage(w + 5, h + 5);
+        x = 3;
+        borderOffset = borderWidth;
+      }
+
+      final Graphics g = image.createGraphics();
+      try {
+        for ( ; next < pieceBounds.length; ++next) {
+          if (System.nanoTime() > deadline) return false;
+
+          final Rectangle pb = pieceBounds[next];
+          pieces.get(next).draw(g, x - (int) (pb.x * graphicsZoomLevel) + borderOffset, 3 - (int) (pb.y * graphicsZoomLevel) + borderWidth, view,
+              graphicsZoomLevel);
+          x += (int) (pb.width * graphicsZoomLevel);
+          borderOffset += borderWidth;
+        }
+      }
+      finally {
+        g.dispose();
+      }
+      return true;
+    }
+
+    protected void done() {
+      detailsTask = null;
+
+      pieceExtent = extent;
+      pieceExtentModCount = modCount;
+
+      // discard the details if the mouse has moved on
+      if (position != currentMousePosition) return;
+
+      detailImage = image;
+      detailImagePieces = pieces;
+      showDetails(pieces);
+    }
+  }
+
   /**
    * Utility class to select the pieces we wish to view.
    */
@@ -688,6 +1060,12 @@ public class CounterDetailViewer extends AbstractConfigurable implements Drawabl
   }
 
   protected void hideDetails() {
+    if (detailsTask != null) {
+      detailsTask.cancel();
+      detailsTask = null;
+    }
+    detailImage = null;
+    detailImagePieces = null;
     graphicsVisible = false;
     textVisible = false;
     map.repaint();
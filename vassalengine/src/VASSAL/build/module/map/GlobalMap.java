@@ -31,7 +31,10 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JComponent;
@@ -39,6 +42,7 @@ import javax.swing.JLayeredPane;
 import javax.swing.JPanel;
 import javax.swing.border.EtchedBorder;
 
+import org.jdesktop.swingworker.SwingWorker;
 import org.w3c.dom.Element;
 
 import VASSAL.build.AutoConfigurable;
@@ -48,6 +52,7 @@ import VASSAL.build.GameModule;
 import VASSAL.build.module.GameComponent;
 import VASSAL.build.module.Map;
 import VASSAL.build.module.documentation.HelpFile;
+import VASSAL.build.module.map.boardPicker.Board;
 import VASSAL.command.Command;
 import VASSAL.configure.AutoConfigurer;
 import VASSAL.configure.ColorConfigurer;
@@ -59,10 +64,14 @@ import VASSAL.counters.GamePiece;
 import VASSAL.i18n.ComponentI18nData;
 import VASSAL.i18n.Resources;
 import VASSAL.i18n.Translatable;
+import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.KeyStrokeSource;
 import VASSAL.tools.LaunchButton;
 import VASSAL.tools.NamedKeyStroke;
 import VASSAL.tools.ScrollPane;
+import VASSAL.tools.image.ImageUtils;
+import VASSAL.tools.imageop.ImageOp;
+import VASSAL.tools.imageop.Op;
 
 /**
  * This is scaled version of a {@link Map} that gives an overview.
@@ -85,6 +94,18 @@ public class GlobalMap implements AutoConfigurable,
   protected final View view;
   protected ComponentI18nData myI18nData;
 
+  /**
+   * The largest board image, in pixels, which will be cached. Overviews
+   * larger than this draw the boards directly on each repaint.
+   */
+  protected static final long MAX_BOARD_IMAGE_PIXELS = 1L << 22;
+
+  /** The boards drawn at the overview scale, or null if not yet drawn */
+  protected BufferedImage boardImage;
+  /** The state of the boards from which {@link #boardImage} is drawn */
+  protected List<Object> boardImageKey;
+  protected SwingWorker<BufferedImage,Void> boardImageWorker;
+
   public GlobalMap() {
     view = new View();
     view.addMouseListener(view);
@@ -180,6 +201,7 @@ public class GlobalMap implements AutoConfigurable,
         value = Double.valueOf((String) value);
       }
       scale = ((Double) value).doubleValue();
+      clearBoardImage();
     }
     else if (COLOR.equals(key)) {
       if (value instanceof String) {
@@ -280,6 +302,7 @@ public class GlobalMap implements AutoConfigurable,
     }
     else {
       scroll.setVisible(false);
+      clearBoardImage();
     }
 
     if (show && !map.getComponentsOf(CounterDetailViewer.class).isEmpty()) {
@@ -294,6 +317,153 @@ public class GlobalMap implements AutoConfigurable,
     }
   }
 
+  /**
+   * @return the state of the map's boards which determines how they look
+   * in the overview: the scale, and the identity, position, size and
+   * orientation of each board
+   */
+  protected List<Object> getBoardImageKey() {
+    final List<Object> key = new ArrayList<Object>();
+    key.add(scale);
+    key.add(view.getPreferredSize());
+    for (Board b : map.getBoards()) {
+      key.add(b);
+      key.add(b.bounds());
+      key.add(b.isReversed());
+    }
+    return key;
+  }
+
+  /**
+   * Draws the boards from the cached board image. If the boards have
+   * changed since the image was drawn, a new image is drawn in the
+   * background, and the view is repainted once it is ready.
+   *
+   * @return <code>true</code> if the boards were drawn, <code>false</code>
+   * if there is no board image available yet
+   */
+  protected boolean drawBoardImage(Graphics g) {
+    final List<Object> key = getBoardImageKey();
+    if (!key.equals(boardImageKey)) {
+      clearBoardImage();
+      boardImageKey = key;
+
+      final Dimension d = view.getPreferredSize();
+      if (d.width > 0 && d.height > 0 &&
+          (long) d.width * d.height <= MAX_BOARD_IMAGE_PIXELS) {
+        boardImageWorker = new BoardImageWorker(key, d.width, d.height);
+        boardImageWorker.execute();
+      }
+    }
+
+    if (boardImage == null) return false;
+
+    g.drawImage(boardImage, 0, 0, view);
+    return true;
+  }
+
+  /**
+   * Discards the cached board image, so that it will be redrawn on the
+   * next repaint.
+   */
+  protected void clearBoardImage() {
+    if (boardImageWorker != null) {
+      boardImageWorker.cancel(false);
+      boardImageWorker = null;
+    }
+    boardImage = null;
+    boardImageKey = null;
+  }
+
+  /**
+   * Draws the boards into an image at the overview scale.
+   *
+   * <p>The boards, their locations and the ops for their images are
+   * taken when the worker is created, on the EDT. The board images are
+   * drawn in the background, and the board colors and grids are drawn
+   * over them on the EDT once they are done.</p>
+   */
+  protected class BoardImageWorker extends SwingWorker<BufferedImage,Void> {
+    protected final List<Object> key;
+    protected final int width;
+    protected final int height;
+    protected final List<Board> boards = new ArrayList<Board>();
+    protected final List<Point> locations = new ArrayList<Point>();
+    protected final List<ImageOp> ops = new ArrayList<ImageOp>();
+
+    public BoardImageWorker(List<Object> key, int width, int height) {
+      this.key = key;
+      this.width = width;
+      this.height = height;
+
+      final int dx = -Math.round((float) scale * map.getEdgeBuffer().width);
+      final int dy = -Math.round((float) scale * map.getEdgeBuffer().height);
+      for (Board b : map.getBoards()) {
+        final Point p = map.getBoardLocation(b, scale);
+        p.translate(dx, dy);
+        boards.add(b);
+        locations.add(p);
+        ops.add(b.getImageOp(scale));
+      }
+    }
+
+    @Override
+    protected BufferedImage doInBackground() throws Exception {
+      final BufferedImage img =
+        ImageUtils.createCompatibleTranslucentImage(width, height);
+      final Graphics g = img.createGraphics();
+      try {
+        for (int i = 0; i < ops.size(); ++i) {
+          final ImageOp op = ops.get(i);
+          if (op == null) continue;
+
+          final Point p = locations.get(i);
+          final int ow = op.getTileWidth();
+          final int oh = op.getTileHeight();
+          for (Point t : op.getTileIndices(new Rectangle(op.getSize()))) {
+            if (isCancelled()) return null;
+            g.drawImage(op.getTile(t, null),
+                        p.x + t.x * ow, p.y + t.y * oh, null);
+          }
+        }
+      }
+      finally {
+        g.dispose();
+      }
+      return img;
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled() || boardImageWorker != this) return;
+      boardImageWorker = null;
+
+      try {
+        final BufferedImage img = get();
+        final Graphics g = img.createGraphics();
+        try {
+          for (int i = 0; i < boards.size(); ++i) {
+            boards.get(i).drawOverlay(g, locations.get(i), scale);
+          }
+        }
+        finally {
+          g.dispose();
+        }
+
+        boardImage = img;
+        view.repaint();
+      }
+      catch (InterruptedException e) {
+        ErrorDialog.bug(e);
+      }
+      catch (ExecutionException e) {
+        // leave the key in place, so that the boards are drawn directly
+        // rather than failing repeatedly
+        if (!Op.handleException(e)) ErrorDialog.bug(e);
+      }
+    }
+  }
+
   public static String getConfigureTypeName() {
     return Resources.getString("Editor.GlobalMap.component_type"); //$NON-NLS-1$
   }
@@ -331,17 +501,8 @@ public class GlobalMap implements AutoConfigurable,
       this.view = GlobalMap.this.view;
     }
 
-    protected List<GamePiece> getDisplayablePieces() {
-      final Point oldPoint = currentMousePosition.getPoint();
-      final Point mapPoint =
-        GlobalMap.this.map.componentCoordinates(mapCoordinates(oldPoint));
-
-      currentMousePosition.translatePoint(mapPoint.x - oldPoint.x,
-                                          mapPoint.y - oldPoint.y);
-      final List<GamePiece> l = super.getDisplayablePieces();
-      currentMousePosition.translatePoint(oldPoint.x - mapPoint.x,
-                                          oldPoint.y - mapPoint.y);
-      return l;
+    protected Point getMapPosition() {
+      return mapCoordinates(currentMousePosition.getPoint());
     }
 
     protected double getZoom() {
@@ -447,10 +608,12 @@ public class GlobalMap implements AutoConfigurable,
 
     @Override
     protected void paintComponent(Graphics g) {
-      map.drawBoards(g,
-                     -Math.round((float) scale * map.getEdgeBuffer().width),
-                     -Math.round((float) scale * map.getEdgeBuffer().height),
-                     scale, this);
+      if (!drawBoardImage(g)) {
+        map.drawBoards(g,
+                       -Math.round((float) scale * map.getEdgeBuffer().width),
+                       -Math.round((float) scale * map.getEdgeBuffer().height),
+                       scale, this);
+      }
 
       for (GamePiece gp : map.getPieces()) {
         Point p = componentCoordinates(gp.getPosition());
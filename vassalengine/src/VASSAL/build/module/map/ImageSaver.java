@@ -31,18 +31,23 @@ import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.imageio.ImageIO;
-import javax.imageio.ImageWriter;
-import javax.imageio.event.IIOWriteProgressListener;
-import javax.imageio.stream.ImageOutputStream;
 import javax.swing.SwingUtilities;
 
 import org.jdesktop.swingworker.SwingWorker;
@@ -64,13 +69,13 @@ import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.LaunchButton;
 import VASSAL.tools.NamedKeyStroke;
 import VASSAL.tools.WriteErrorDialog;
+import VASSAL.tools.concurrent.DaemonThreadFactory;
 import VASSAL.tools.filechooser.FileChooser;
 import VASSAL.tools.filechooser.PNGFileFilter;
+import VASSAL.tools.image.PNGScanlineWriter;
 import VASSAL.tools.io.IOUtils;
 import VASSAL.tools.swing.ProgressDialog;
 
-// FIXME: Replace this in 3.2 with tiling code.
-
 /**
  * This allows the user to capture a snapshot of the entire map into
  * a PNG file.
@@ -87,6 +92,11 @@ public class ImageSaver extends AbstractConfigurable {
 
   protected static ProgressDialog dialog;
 
+  /** The largest number of pixels in each band of the map painted */
+  protected static final int BAND_PIXELS = 1 << 21;
+  /** The largest number of bands filtered at once */
+  protected static final int MAX_THREADS = 4;
+
   public ImageSaver() {
     final ActionListener al = new ActionListener() {
       public void actionPerformed(ActionEvent e) {
@@ -268,14 +278,14 @@ public class ImageSaver extends AbstractConfigurable {
     task.execute();
   }
 
+  /**
+   * Renders the map in horizontal bands, filtering several at once, and
+   * writes them in order into a single PNG file. Only a few bands are held
+   * in memory at any time, so maps of any size can be written.
+   */
   private class SnapshotTask extends SwingWorker<Void,Void> {
-    private int tiles;
-    private int tilesDone = 0;
-
     private final File file;
-    @SuppressWarnings("unused")
     private final int x;
-    @SuppressWarnings("unused")
     private final int y;
     private final int w;
     private final int h;
@@ -283,9 +293,6 @@ public class ImageSaver extends AbstractConfigurable {
     private final Color bg = ColorConfigurer.stringToColor(
       map.getAttributeValueString(Map.BACKGROUND_COLOR));
 
-    private final List<File> files = new ArrayList<File>();
-
-// FIXME: SnapshotTask ignores x,y!
     public SnapshotTask(File file, int x, int y, int w, int h) {
       this.file = file;
       this.x = x;
@@ -294,11 +301,7 @@ public class ImageSaver extends AbstractConfigurable {
       this.h = h;
     }
 
-    private void writeImage(final File f, BufferedImage img, Rectangle r)
-                                                          throws IOException {
-
-      files.add(f);
-
+    private void checkWritable(File f) throws IOException {
       // make sure that we can write the file before proceeding
       if (f.exists()) {
         if (!f.canWrite()) {
@@ -315,16 +318,12 @@ public class ImageSaver extends AbstractConfigurable {
           );
         }
       }
+    }
 
-      // update the dialog on the EDT
-      SwingUtilities.invokeLater(new Runnable() {
-        public void run() {
-          dialog.setLabel("Saving map image as " + f.getName() + ":");
-          dialog.setIndeterminate(true);
-        }
-      });
-
-      // FIXME: do something to estimate how long painting will take
+    /**
+     * Paints one band of the map.
+     */
+    private void paintBand(BufferedImage img, Rectangle r) {
       final Graphics2D g = img.createGraphics();
 
       final Color oc = g.getColor();
@@ -335,130 +334,133 @@ public class ImageSaver extends AbstractConfigurable {
       g.translate(-r.x, -r.y);
       map.paintRegion(g, r, null);
       g.dispose();
+    }
 
-      // update the dialog on the EDT
-      SwingUtilities.invokeLater(new Runnable() {
-        public void run() {
-          dialog.setIndeterminate(false);
-        }
-      });
-
-      final ImageWriter iw = ImageIO.getImageWritersByFormatName("png").next();
-      iw.addIIOWriteProgressListener(new IIOWriteProgressListener() {
-        public void imageComplete(ImageWriter source) { }
+    /**
+     * Filters one painted band for the PNG writer. This touches only the
+     * pixels of the band, so several bands may be filtered at once.
+     */
+    private class FilterTask implements Callable<byte[]> {
+      private final BlockingQueue<BufferedImage> images;
+      private final BufferedImage img;
+      private final int rows;
+      private final byte[] above;
+
+      public FilterTask(BlockingQueue<BufferedImage> images,
+                        BufferedImage img, int rows, byte[] above) {
+        this.images = images;
+        this.img = img;
+        this.rows = rows;
+        this.above = above;
+      }
 
-        public void imageProgress(ImageWriter source, float percentageDone) {
-          setProgress(Math.round((100*tilesDone + percentageDone)/tiles));
+      public byte[] call() {
+        try {
+          return PNGScanlineWriter.filterRows(img, 0, rows, above);
         }
-
-        public void imageStarted(ImageWriter source, int imageIndex) { }
-
-        public void thumbnailComplete(ImageWriter source) { }
-
-        public void thumbnailProgress(ImageWriter source,
-                                      float percentageDone) { }
-
-        public void thumbnailStarted(ImageWriter source,
-                                     int imageIndex, int thumbnailIndex) { }
-
-        public void writeAborted(ImageWriter source) { }
-      });
-
-      ImageOutputStream os = null;
-      try {
-        os = ImageIO.createImageOutputStream(f);
-
-        if (os == null) {
-          throw new IOException("Failed to write file " + f.getAbsolutePath());
+        finally {
+          // the band image may be painted again
+          images.add(img);
         }
+      }
+    }
 
-        iw.setOutput(os);
-        iw.write(img);
-        os.close();
+    private void writeBand(PNGScanlineWriter out, Future<byte[]> f)
+                                                          throws Exception {
+      try {
+        out.writeFilteredRows(f.get());
       }
-      finally {
-        iw.dispose();
-        IOUtils.closeQuietly(os);
+      catch (ExecutionException e) {
+        final Throwable c = e.getCause();
+        if (c instanceof Error) throw (Error) c;
+        else if (c instanceof Exception) throw (Exception) c;
+        else throw e;
       }
     }
 
     @Override
-    public Void doInBackground() throws IOException {
+    public Void doInBackground() throws Exception {
       setProgress(0);
 
-      int tw = w;
-      int th = h;
-      BufferedImage img = null;
+      checkWritable(file);
 
-      // ensure that the size of the image data array (4 bytes per pixel)
-      // does not exceed the maximum array size, 2^31-1 elements;
-      // otherwise we'll overflow an int and have a negavive array size
-      while ((long)tw * (long)th > Integer.MAX_VALUE/4) {
-        if (tw > th) {
-          tw = (int) Math.ceil(tw/2.0);
-        }
-        else {
-          th = (int) Math.ceil(th/2.0);
+      // update the dialog on the EDT
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          dialog.setLabel("Saving map image as " + file.getName() + ":");
+          dialog.setIndeterminate(false);
         }
-      }
+      });
 
-      // find a size of BufferedImage we can allocate successfully
-      while (img == null) {
-        try {
-          img = new BufferedImage(tw, th, BufferedImage.TYPE_INT_ARGB);
-        }
-        catch (OutOfMemoryError e) {
-          if (tw > th) {
-            tw = (int) Math.ceil(tw/2.0);
-          }
-          else {
-            th = (int) Math.ceil(th/2.0);
-          }
+      // each band holds at most BAND_PIXELS pixels
+      final int bh = Math.max(1, Math.min(h, BAND_PIXELS / w));
+      final int bands = (h + bh - 1) / bh;
+
+      final int threads = Math.min(bands,
+        Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+
+      // allocate one band image per filtering thread, plus one for the
+      // band being painted, or as many as will fit
+      final BlockingQueue<BufferedImage> images =
+        new LinkedBlockingQueue<BufferedImage>();
+      try {
+        for (int i = 0; i <= threads && i < bands; ++i) {
+          images.add(new BufferedImage(w, bh, BufferedImage.TYPE_INT_ARGB));
         }
       }
-
-      if (tw == w && th == h) {
-        // write the whole map as one image
-        tiles = 1;
-        writeImage(file, img, new Rectangle(0, 0, w, h));
+      catch (OutOfMemoryError e) {
+        if (images.isEmpty()) throw e;
       }
-      else {
-        // get the base name of the files to write
-        final String base;
-        final String suffix;
-        final String s = file.getName();
-        if (s.endsWith(".png")) {
-          base = s.substring(0, s.lastIndexOf('.'));
-          suffix = ".png";
-        }
-        else {
-          base = s;
-          suffix = "";
-        }
 
-        // calculate total tiles
-        final int tcols = (int) Math.ceil((double) w / tw);
-        final int trows = (int) Math.ceil((double) h / th);
+      final ExecutorService exec = Executors.newFixedThreadPool(
+        Math.max(1, threads),
+        new DaemonThreadFactory(ImageSaver.class.getSimpleName())
+      );
 
-        tiles = tcols * trows;
+      PNGScanlineWriter out = null;
+      try {
+        out = new PNGScanlineWriter(
+          new BufferedOutputStream(new FileOutputStream(file)), w, h);
+
+        final Queue<Future<byte[]>> pending =
+          new LinkedList<Future<byte[]>>();
+        byte[] above = null;
+        int written = 0;
+
+        for (int band = 0; band < bands; ++band) {
+          final int rows = Math.min(bh, h - band*bh);
+
+          // Painting reads the pieces and the caches used to draw them,
+          // none of which are thread-safe, so the bands are painted one
+          // at a time on this thread. Only the filtering of the painted
+          // pixels is done in parallel.
+          final BufferedImage img = images.take();
+          paintBand(img, new Rectangle(x, y + band*bh, w, rows));
+
+          final byte[] a = above;
+          above = PNGScanlineWriter.getRow(img, rows-1);
+          pending.add(exec.submit(new FilterTask(images, img, rows, a)));
+
+          // compress the filtered bands in order
+          while (pending.size() > threads ||
+                 (!pending.isEmpty() && pending.peek().isDone())) {
+            writeBand(out, pending.remove());
+            setProgress(100*(++written)/bands);
+          }
+        }
 
-        // tile across the map with images of size tw by th.
-        for (int tx = 0; tx < tcols; ++tx) {
-          for (int ty = 0; ty < trows; ++ty) {
-            final File f = new File(file.getParent(),
-              base + "." + tx + "." + ty + suffix);
+        while (!pending.isEmpty()) {
+          writeBand(out, pending.remove());
+          setProgress(100*(++written)/bands);
+        }
 
-            final Rectangle r = new Rectangle(
-              tw*tx,
-              th*ty,
-              Math.min(tw, w - tw*tx),
-              Math.min(th, h - th*ty)
-            );
+        out.close();
+      }
+      finally {
+        exec.shutdownNow();
+        IOUtils.closeQuietly(out);
 
-            writeImage(f, img, r);
-            ++tilesDone;
-          }
-        }
+        if (isCancelled()) file.delete();
       }
 
       return null;
@@ -470,8 +472,8 @@ public class ImageSaver extends AbstractConfigurable {
         get();
       }
       catch (CancellationException e) {
-        // on cancellation, remove all files we created
-        for (File f : files) f.delete();
+        // on cancellation, remove the file we created
+        file.delete();
       }
       catch (InterruptedException e) {
         ErrorDialog.bug(e);
@@ -479,7 +481,7 @@ public class ImageSaver extends AbstractConfigurable {
       catch (ExecutionException e) {
         final Throwable c = e.getCause();
         if (c instanceof IOException) {
-          WriteErrorDialog.error(e, (IOException) c, files.get(files.size()-1));
+          WriteErrorDialog.error(e, (IOException) c, file);
         }
         else {
           ErrorDialog.bug(e);
@@ -165,7 +165,7 @@ public class KeyBufferer extends MouseAdapter implements Buildable, MouseMotionL
       if (!evt.isShiftDown() && !evt.isControlDown()) {
         KeyBuffer.getBuffer().clear();
       }
-      map.apply(d);
+      map.apply(d, selection);
       repaintSelectionRect();
     }
     selection = null;
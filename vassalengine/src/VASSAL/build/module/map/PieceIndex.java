@@ -0,0 +1,212 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module.map;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Stack;
+
+/**
+ * A spatial index of the top-level pieces on a {@link VASSAL.build.module.Map},
+ * used to find the pieces within a region without testing every piece on
+ * the map.
+ *
+ * <p>Pieces are filed in a uniform grid of square cells according to
+ * their positions. The map files a piece when it is added and removes it
+ * when it is removed, and pieces report their own moves through
+ * {@link #update}. Expanded {@link Stack}s are not filed by position,
+ * since their contents are spread out from it, but are instead returned
+ * by every query.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class PieceIndex {
+  public static final int DEFAULT_CELL_SIZE = 128;
+
+  protected final int cellSize;
+
+  private final java.util.Map<Long,List<GamePiece>> cells =
+    new HashMap<Long,List<GamePiece>>();
+  private final java.util.Map<GamePiece,Long> cellOf =
+    new IdentityHashMap<GamePiece,Long>();
+  private final java.util.Map<GamePiece,Boolean> expanded =
+    new IdentityHashMap<GamePiece,Boolean>();
+
+  private int modCount = 0;
+
+  public PieceIndex() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  public PieceIndex(int cellSize) {
+    if (cellSize < 1) throw new IllegalArgumentException();
+    this.cellSize = cellSize;
+  }
+
+  private static Long key(int cx, int cy) {
+    return Long.valueOf(((long) cx << 32) | (cy & 0xffffffffL));
+  }
+
+  private int cell(int v) {
+    return v >= 0 ? v / cellSize : -((-v - 1) / cellSize) - 1;
+  }
+
+  private boolean isExpanded(GamePiece p) {
+    return p instanceof Stack && ((Stack) p).isExpanded();
+  }
+
+  /**
+   * Files a piece in the index.
+   */
+  public void add(GamePiece p) {
+    if (cellOf.containsKey(p) || expanded.containsKey(p)) {
+      update(p);
+      return;
+    }
+
+    file(p);
+    ++modCount;
+  }
+
+  private void file(GamePiece p) {
+    if (isExpanded(p)) {
+      expanded.put(p, Boolean.TRUE);
+    }
+    else {
+      final Point pos = p.getPosition();
+      final Long k = key(cell(pos.x), cell(pos.y));
+      List<GamePiece> l = cells.get(k);
+      if (l == null) {
+        l = new ArrayList<GamePiece>(4);
+        cells.put(k, l);
+      }
+      l.add(p);
+      cellOf.put(p, k);
+    }
+  }
+
+  /**
+   * Removes a piece from the index.
+   */
+  public void remove(GamePiece p) {
+    if (unfile(p)) ++modCount;
+  }
+
+  private boolean unfile(GamePiece p) {
+    if (expanded.remove(p) != null) return true;
+
+    final Long k = cellOf.remove(p);
+    if (k == null) return false;
+
+    final List<GamePiece> l = cells.get(k);
+    l.remove(p);
+    if (l.isEmpty()) cells.remove(k);
+    return true;
+  }
+
+  /**
+   * Refiles a piece which has moved, or a {@link Stack} which has been
+   * expanded or collapsed. Pieces not in the index are ignored.
+   */
+  public void update(GamePiece p) {
+    if (!cellOf.containsKey(p) && !expanded.containsKey(p)) return;
+
+    if (!isExpanded(p) && cellOf.containsKey(p)) {
+      final Point pos = p.getPosition();
+      if (cellOf.get(p).equals(key(cell(pos.x), cell(pos.y)))) return;
+    }
+
+    unfile(p);
+    file(p);
+  }
+
+  /**
+   * Removes all pieces from the index.
+   */
+  public void clear() {
+    cells.clear();
+    cellOf.clear();
+    expanded.clear();
+    ++modCount;
+  }
+
+  /**
+   * @return a count which changes whenever a piece is added to or removed
+   * from the index, but not when a piece in the index moves
+   */
+  public int getModCount() {
+    return modCount;
+  }
+
+  /**
+   * @return the number of pieces in the index
+   */
+  public int size() {
+    return cellOf.size() + expanded.size();
+  }
+
+  /**
+   * Finds the pieces which may lie within a region. Every piece whose
+   * position is within the region is returned, together with some pieces
+   * near it and all expanded stacks, so callers should test the pieces
+   * returned themselves.
+   *
+   * @param region the region, in map coordinates
+   * @return the candidate pieces
+   */
+  public List<GamePiece> getPiecesIn(Rectangle region) {
+    final List<GamePiece> found =
+      new ArrayList<GamePiece>(expanded.keySet());
+
+    final int cx0 = cell(region.x);
+    final int cy0 = cell(region.y);
+    final int cx1 = cell(region.x + region.width);
+    final int cy1 = cell(region.y + region.height);
+
+    // when the region covers more cells than are occupied, it is cheaper
+    // to visit the occupied cells
+    if ((long) (cx1 - cx0 + 1) * (cy1 - cy0 + 1) > cells.size()) {
+      for (java.util.Map.Entry<Long,List<GamePiece>> e : cells.entrySet()) {
+        final long k = e.getKey().longValue();
+        final int cx = (int) (k >> 32);
+        final int cy = (int) k;
+        if (cx >= cx0 && cx <= cx1 && cy >= cy0 && cy <= cy1) {
+          found.addAll(e.getValue());
+        }
+      }
+    }
+    else {
+      for (int cx = cx0; cx <= cx1; ++cx) {
+        for (int cy = cy0; cy <= cy1; ++cy) {
+          final List<GamePiece> l = cells.get(key(cx, cy));
+          if (l != null) found.addAll(l);
+        }
+      }
+    }
+
+    return found;
+  }
+}
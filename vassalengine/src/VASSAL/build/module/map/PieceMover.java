@@ -27,7 +27,6 @@ import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
-import java.awt.RenderingHints;
 import java.awt.datatransfer.StringSelection;
 import java.awt.dnd.DragGestureEvent;
 import java.awt.dnd.DragGestureListener;
@@ -49,9 +48,11 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 import javax.swing.ImageIcon;
@@ -813,6 +814,22 @@ public class PieceMover extends AbstractBuildable
 
     final static int CURSOR_ALPHA = 127; // psuedo cursor is 50% transparent
     final static int EXTRA_BORDER = 4; // psuedo cursor is includes a 4 pixel border
+    final static int DRAG_IMAGE_CACHE_SIZE = 4;
+
+    /** Drag images already drawn, most recently used last */
+    private final java.util.Map<DragImageKey,DragImage> dragImageCache =
+      new LinkedHashMap<DragImageKey,DragImage>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                        java.util.Map.Entry<DragImageKey,DragImage> eldest) {
+          return size() > DRAG_IMAGE_CACHE_SIZE;
+        }
+      };
+
+    /** Incremented to discard pending drag cursor images */
+    private int dragCursorGeneration = 0;
 
 
     protected JLabel dragCursor; // An image label. Lives on current DropTarget's
@@ -938,22 +955,75 @@ public class PieceMover extends AbstractBuildable
      */
     BufferedImage makeDragImageCursorCommon(double zoom, boolean doOffset,
       Component target, boolean setSize) {
+      return makeDragImageCursorCommon(
+        new DragImageKey(zoom), doOffset, target, setSize);
+    }
+
+    private BufferedImage makeDragImageCursorCommon(DragImageKey key,
+      boolean doOffset, Component target, boolean setSize) {
        // FIXME: Should be an ImageOp.
+        final double zoom = key.zoom;
         dragCursorZoom = zoom;
+        calcCurrentPieceOffset(zoom);
+
+        DragImage di = dragImageCache.get(key);
+        if (di == null) {
+          di = renderDragImage(zoom, target);
+          dragImageCache.put(key, di);
+        }
+        else {
+          boundingBox = new Rectangle(di.bounds);
+        }
 
-        final List<Point> relativePositions = buildBoundingBox(zoom, doOffset);
+        if (doOffset) calcDrawOffset();
+        if (setSize) {
+          dragCursor.setSize(di.image.getWidth(), di.image.getHeight());
+        }
 
-        final int w = boundingBox.width + EXTRA_BORDER * 2;
-        final int h = boundingBox.height + EXTRA_BORDER * 2;
+        return di.image;
+    }
 
-        BufferedImage image = ImageUtils.createCompatibleTranslucentImage(w, h);
+    /**
+     * Draws the pieces in the DragBuffer, feathered, into a new image,
+     * and sets the bounding box.
+     */
+    private DragImage renderDragImage(double zoom, Component target) {
+      final List<Point> relativePositions = buildBoundingBox(zoom);
 
-        drawDragImage(image, target, relativePositions, zoom);
+      final int w = boundingBox.width + EXTRA_BORDER * 2;
+      final int h = boundingBox.height + EXTRA_BORDER * 2;
 
-        if (setSize) dragCursor.setSize(w, h);
-        image = featherDragImage(image, w, h, EXTRA_BORDER);
+      final BufferedImage image =
+        ImageUtils.createCompatibleTranslucentImage(w, h);
+
+      drawDragImage(image, target, relativePositions, zoom);
+      featherDragImage(image, w, h, EXTRA_BORDER);
 
-        return image;
+      return new DragImage(image, boundingBox);
+    }
+
+    /**
+     * Creates a cheap stand-in for the drag image: the feathered outline
+     * of the bounding box. Used while the real image is pending.
+     */
+    private BufferedImage makePlaceholderImage(double zoom) {
+      calcCurrentPieceOffset(zoom);
+      buildBoundingBox(zoom);
+
+      final int w = boundingBox.width + EXTRA_BORDER * 2;
+      final int h = boundingBox.height + EXTRA_BORDER * 2;
+
+      final BufferedImage image =
+        ImageUtils.createCompatibleTranslucentImage(w, h);
+
+      final Graphics2D g = image.createGraphics();
+      g.setColor(Color.black);
+      g.drawRect(EXTRA_BORDER, EXTRA_BORDER,
+                 boundingBox.width - 1, boundingBox.height - 1);
+      g.dispose();
+
+      featherDragImage(image, w, h, EXTRA_BORDER);
+      return image;
     }
 
     /**
@@ -975,35 +1045,65 @@ public class PieceMover extends AbstractBuildable
      * @param zoom DragBuffer.getBuffer
      *
      */
-    protected void makeDragCursor(double zoom) {
+    protected void makeDragCursor(final double zoom) {
       // create the cursor if necessary
       if (dragCursor == null) {
         dragCursor = new JLabel();
         dragCursor.setVisible(false);
       }
-      dragCursor.setIcon(new ImageIcon(
-          makeDragImageCursorCommon(zoom, true, dragCursor, true)));
+
+      final int generation = ++dragCursorGeneration;
+
+      final DragImageKey key = new DragImageKey(zoom);
+      if (dragImageCache.containsKey(key)) {
+        dragCursor.setIcon(new ImageIcon(
+            makeDragImageCursorCommon(key, true, dragCursor, true)));
+        return;
+      }
+
+      // Drawing a large stack through all of its decorators takes a while,
+      // so show the outline of the pieces now and draw the real image once
+      // pending events have been handled, unless the drag has moved on.
+      dragCursorZoom = zoom;
+      final BufferedImage placeholder = makePlaceholderImage(zoom);
+      calcDrawOffset();
+      dragCursor.setSize(placeholder.getWidth(), placeholder.getHeight());
+      dragCursor.setIcon(new ImageIcon(placeholder));
+
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          if (generation != dragCursorGeneration ||
+              DragBuffer.getBuffer().isEmpty()) return;
+
+          dragCursor.setIcon(new ImageIcon(
+              makeDragImageCursorCommon(key, true, dragCursor, true)));
+        }
+      });
     }
 
-    private List<Point> buildBoundingBox(double zoom, boolean doOffset) {
-      final ArrayList<Point> relativePositions = new ArrayList<Point>();
-      final PieceIterator dragContents = DragBuffer.getBuffer().getIterator();
-      final GamePiece firstPiece = dragContents.nextPiece();
-      GamePiece lastPiece = firstPiece;
+    /** Discards any drag cursor image still pending. */
+    protected void cancelDragCursor() {
+      ++dragCursorGeneration;
+    }
 
+    private void calcCurrentPieceOffset(double zoom) {
       currentPieceOffsetX =
         (int) (originalPieceOffsetX / dragPieceOffCenterZoom * zoom + 0.5);
       currentPieceOffsetY =
         (int) (originalPieceOffsetY / dragPieceOffCenterZoom * zoom + 0.5);
+    }
+
+    private List<Point> buildBoundingBox(double zoom) {
+      final ArrayList<Point> relativePositions = new ArrayList<Point>();
+      final PieceIterator dragContents = DragBuffer.getBuffer().getIterator();
+      final GamePiece firstPiece = dragContents.nextPiece();
+      GamePiece lastPiece = firstPiece;
 
       boundingBox = firstPiece.getShape().getBounds();
       boundingBox.width *= zoom;
       boundingBox.height *= zoom;
       boundingBox.x *= zoom;
       boundingBox.y *= zoom;
-      if (doOffset) {
-        calcDrawOffset();
-      }
 
       relativePositions.add(new Point(0,0));
       int stackCount = 0;
@@ -1082,7 +1182,7 @@ public class PieceMover extends AbstractBuildable
       g.dispose();
     }
 
-    private StackMetrics getStackMetrics(GamePiece piece) {
+    private static StackMetrics getStackMetrics(GamePiece piece) {
       StackMetrics sm = null;
       final IMap map = piece.getMap();
       if (map != null) {
@@ -1094,37 +1194,110 @@ public class PieceMover extends AbstractBuildable
       return sm;
     }
 
-    private BufferedImage featherDragImage(BufferedImage src,
-                                           int w, int h, int b) {
-// FIXME: This should be redone so that we draw the feathering onto the
-// destination first, and then pass the Graphics2D on to draw the pieces
-// directly over it. Presently this doesn't work because some of the
-// pieces screw up the Graphics2D when passed it... The advantage to doing
-// it this way is that we create only one BufferedImage instead of two.
-      final BufferedImage dst =
-        ImageUtils.createCompatibleTranslucentImage(w, h);
-
-      final Graphics2D g = dst.createGraphics();
-      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                         RenderingHints.VALUE_ANTIALIAS_ON);
+    /**
+     * Feathers the drag image in place. Each pixel's alpha is scaled once,
+     * by the opacity which the feathering mask has at that pixel, so no
+     * second image is needed. We can't draw the mask first and the pieces
+     * over it instead, as some pieces screw up the Graphics2D passed to
+     * them.
+     */
+    private void featherDragImage(BufferedImage image, int w, int h, int b) {
+      final Graphics2D g = image.createGraphics();
 
-      // paint the rectangle occupied by the piece at specified alpha
-      g.setColor(new Color(0xff, 0xff, 0xff, CURSOR_ALPHA));
-      g.fillRect(0, 0, w, h);
+      // interior of the rectangle occupied by the pieces at specified alpha
+      g.setComposite(
+        AlphaComposite.getInstance(AlphaComposite.DST_IN, CURSOR_ALPHA/255f));
+      g.fillRect(b, b, w-2*b, h-2*b);
 
-      // feather outwards
+      // feather outwards; each ring is the feather over the interior alpha
       for (int f = 0; f < b; ++f) {
-        final int alpha = CURSOR_ALPHA * (f + 1) / b;
-        g.setColor(new Color(0xff, 0xff, 0xff, alpha));
-        g.drawRect(f, f, w-2*f, h-2*f);
+        final float fa = (float) (CURSOR_ALPHA * (f + 1) / b) / 255f;
+        final float ia = CURSOR_ALPHA / 255f;
+        g.setComposite(AlphaComposite.getInstance(
+          AlphaComposite.DST_IN, 1f - (1f - fa) * (1f - ia)));
+        g.drawRect(f, f, w-2*f-1, h-2*f-1);
       }
 
-      // paint in the source image
-      g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_IN));
-      g.drawImage(src, 0, 0, null);
       g.dispose();
+    }
+
+    /**
+     * Identifies the contents of the DragBuffer as drawn at a given zoom:
+     * the pieces, their state versions, maps and positions, and the stack
+     * metrics which offset the pieces stacked together. A piece whose
+     * state changes gets a new key, so images need not be discarded when
+     * a drag ends.
+     */
+    private static final class DragImageKey {
+      private final double zoom;
+      private final Object[] contents;
+      private final int hash;
+
+      public DragImageKey(double zoom) {
+        this.zoom = zoom;
+
+        final List<Object> l = new ArrayList<Object>();
+        for (PieceIterator i = DragBuffer.getBuffer().getIterator();
+             i.hasMoreElements(); ) {
+          final GamePiece p = i.nextPiece();
+          l.add(p);
+          l.add(getStateVersion(p));
+          l.add(p.getMap());
+          l.add(p.getPosition());
+
+          final StackMetrics sm = getStackMetrics(p);
+          l.add(sm.unexSepX);
+          l.add(sm.unexSepY);
+
+          if (p instanceof Stack) {
+            final Stack st = (Stack) p;
+            for (int j = 0; j < st.getPieceCount(); ++j) {
+              final GamePiece child = st.getPieceAt(j);
+              l.add(child);
+              l.add(getStateVersion(child));
+            }
+          }
+        }
 
-      return dst;
+        contents = l.toArray();
+        hash = 31 * Arrays.hashCode(contents) +
+               Double.valueOf(zoom).hashCode();
+      }
+
+      /**
+       * @return the state version of the piece, or its state if it has no
+       * {@link BasicPiece} to count versions
+       */
+      private static Object getStateVersion(GamePiece p) {
+        final GamePiece inner = Decorator.getInnermost(p);
+        return inner instanceof BasicPiece ?
+          (Object) ((BasicPiece) inner).getStateVersion() : p.getState();
+      }
+
+      @Override
+      public int hashCode() {
+        return hash;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof DragImageKey)) return false;
+        final DragImageKey k = (DragImageKey) o;
+        return zoom == k.zoom && hash == k.hash &&
+               Arrays.equals(contents, k.contents);
+      }
+    }
+
+    /** A drawn drag image and the bounding box it was drawn for. */
+    private static final class DragImage {
+      public final BufferedImage image;
+      public final Rectangle bounds;
+
+      public DragImage(BufferedImage image, Rectangle bounds) {
+        this.image = image;
+        this.bounds = new Rectangle(bounds);
+      }
     }
 
     ///////////////////////////////////////////////////////////////////////////
@@ -1326,6 +1499,7 @@ public class PieceMover extends AbstractBuildable
 
     @Override
     public void dragDropEnd(DragSourceDropEvent e) {
+      cancelDragCursor();
       removeDragCursor();
       super.dragDropEnd(e);
     }
@@ -1355,6 +1529,7 @@ public class PieceMover extends AbstractBuildable
     }
 
     public void drop(DropTargetDropEvent e) {
+      cancelDragCursor();
       removeDragCursor();
       super.drop(e);
     }
@@ -50,6 +50,7 @@ import VASSAL.counters.GamePiece;
 import VASSAL.counters.Highlighter;
 import VASSAL.counters.PieceFilter;
 import VASSAL.counters.PieceIterator;
+import VASSAL.counters.PieceSpriteCache;
 import VASSAL.counters.Properties;
 import VASSAL.counters.Stack;
 import VASSAL.i18n.Resources;
@@ -316,6 +317,7 @@ public class StackMetrics extends AbstractConfigurable {
    */
   public void draw(Stack stack, Point location, Graphics g, Map map, double zoom, Rectangle visibleRect) {
     Highlighter highlighter = map.getHighlighter();
+    boolean cacheImages = map.isCachingPieceImages();
     Point mapLocation = map.mapCoordinates(location);
     Rectangle region = visibleRect == null ? null : map.mapRectangle(visibleRect);
     Point[] positions = new Point[stack.getPieceCount()];
@@ -330,10 +332,7 @@ public class StackMetrics extends AbstractConfigurable {
       Point pt = map.componentCoordinates(positions[index]);
       if (bounds == null || isVisible(region, bounds[index])) {
         if (stack.isExpanded() || !e.hasMoreElements()) {
-          next.draw(g,
-                    pt.x,
-                    pt.y,
-                    map.getView(), zoom);
+          drawPiece(next, g, pt.x, pt.y, map.getView(), zoom, cacheImages);
         }
         else {
           drawUnexpanded(next, g, pt.x, pt.y, map.getView(), zoom);
@@ -348,10 +347,7 @@ public class StackMetrics extends AbstractConfigurable {
       int index = stack.indexOf(next);
       if (bounds == null || isVisible(region, bounds[index])) {
         Point pt = map.componentCoordinates(positions[index]);
-        next.draw(g,
-                  pt.x,
-                  pt.y,
-                  map.getView(), zoom);
+        drawPiece(next, g, pt.x, pt.y, map.getView(), zoom, cacheImages);
         highlighter.draw
             (next, g,
              pt.x,
@@ -361,6 +357,16 @@ public class StackMetrics extends AbstractConfigurable {
     }
   }
 
+  private void drawPiece(GamePiece p, Graphics g, int x, int y,
+                         Component obs, double zoom, boolean cacheImages) {
+    if (cacheImages) {
+      PieceSpriteCache.draw(p, g, x, y, obs, zoom);
+    }
+    else {
+      p.draw(g, x, y, obs, zoom);
+    }
+  }
+
   private boolean isVisible(Rectangle region, Rectangle bounds) {
     boolean visible = true;
     if (region != null) {
@@ -499,6 +499,49 @@ public class Board extends AbstractConfigurable implements GridContainer {
     }
   }
 
+  /**
+   * Returns the op which renders the board image at the given zoom. The
+   * op is not kept, so asking for a zoom other than the one the board is
+   * painted at does not discard the board's own scaled op.
+   *
+   * @param zoom the zoom, not including the board's magnification
+   * @return the op, or <code>null</code> if the board has no image
+   */
+  public ImageOp getImageOp(double zoom) {
+    if (boardImageOp == null) return null;
+
+    zoom *= magnification;
+    if (zoom == 1.0 && !reversed) return boardImageOp;
+
+    final ImageOp sop = Op.scale(boardImageOp, zoom);
+    return reversed ? Op.rotate(sop, 180) : sop;
+  }
+
+  /**
+   * Draws the parts of the board not covered by {@link #getImageOp}: the
+   * background color of a board without an image, and the grid.
+   *
+   * @param g the graphics to draw on
+   * @param location where to draw the top left corner of the board
+   * @param zoom the zoom, not including the board's magnification
+   */
+  public void drawOverlay(Graphics g, Point location, double zoom) {
+    zoom *= magnification;
+    final Rectangle bounds =
+      new Rectangle(location.x, location.y,
+                    Math.round(boundaries.width * (float) zoom),
+                    Math.round(boundaries.height * (float) zoom));
+
+    if (boardImageOp == null && color != null) {
+      g.setColor(color);
+      g.fillRect(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    if (grid != null) {
+      grid.draw(g, bounds, bounds, zoom, reversed);
+    }
+  }
+
   @Deprecated
   public synchronized Image getScaledImage(double zoom, Component obs) {
     try {
@@ -124,6 +124,7 @@ public class RegionGrid extends AbstractConfigurable implements MapGrid, Configu
   public void removeAllRegions() {
     regionList.clear();
     buildComponents.clear();
+    componentsChanged();
   }
 
   public GridNumbering getGridNumbering() {
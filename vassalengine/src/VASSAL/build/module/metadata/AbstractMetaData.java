@@ -21,6 +21,7 @@ import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -64,7 +65,8 @@ import VASSAL.tools.io.IOUtils;
  * @author Brent Easton
  * @since 3.1.0
  */
-public abstract class AbstractMetaData {
+public abstract class AbstractMetaData implements Serializable {
+  private static final long serialVersionUID = 1L;
 
   private static final Logger logger =
     LoggerFactory.getLogger(AbstractMetaData.class);
@@ -290,7 +292,9 @@ public abstract class AbstractMetaData {
    * Utility class representing a Configurable attribute and its translations
    *
    */
-  static class Attribute {
+  static class Attribute implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     protected String attributeName;
     protected String value;
     protected HashMap<String, String> translations =
@@ -377,17 +381,15 @@ public abstract class AbstractMetaData {
 
   /**
    * This is the shared parser for all subclasses of AbstractMetaData.
-   * We use a shared parser because the call to
-   * {@link XMLReaderFactory.createXMLReader()} is extremely expensive.
    * All uses of this parser <i>must</i> be wrapped in a block synchronized
    * on the parser itself.
+   *
+   * @deprecated Use {@link #getParser()}, which does not need to be
+   * synchronized.
    */
+  @Deprecated
   protected static XMLReader parser;
 
-// FIXME: Synchronizing on the parser will cause very bad performance if
-// multiple threads are trying to read metadata simultaneously. We should
-// build a mechanism by which we keep a pool of parsers, and allocate a
-// new one only when there is not an unused one available in the pool.
   static {
     try {
       parser = XMLReaderFactory.createXMLReader();
@@ -398,6 +400,35 @@ public abstract class AbstractMetaData {
     }
   }
 
+  /*
+   * The call to {@link XMLReaderFactory.createXMLReader()} is extremely
+   * expensive, so each thread keeps its own parser rather than creating
+   * one for every file, and threads reading metadata simultaneously do
+   * not wait for each other.
+   */
+  private static final ThreadLocal<XMLReader> parsers =
+    new ThreadLocal<XMLReader>() {
+      @Override
+      protected XMLReader initialValue() {
+        try {
+          return XMLReaderFactory.createXMLReader();
+        }
+        catch (SAXException e) {
+          // This should never happen.
+          ErrorDialog.bug(e);
+          return null;
+        }
+      }
+    };
+
+  /**
+   * @return the metadata parser belonging to the calling thread
+   * @since 3.2.3
+   */
+  protected static XMLReader getParser() {
+    return parsers.get();
+  }
+
   /*************************************************************************
    * Base XML Handler for all metadata classes
    *
@@ -29,6 +29,7 @@ import org.w3c.dom.Element;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 import VASSAL.build.GameModule;
@@ -37,6 +38,8 @@ import VASSAL.tools.ArchiveWriter;
 import VASSAL.tools.io.IOUtils;
 
 public class ExtensionMetaData extends AbstractMetaData {
+  private static final long serialVersionUID = 1L;
+
   private static final Logger logger =
     LoggerFactory.getLogger(ExtensionMetaData.class);
 
@@ -142,13 +145,12 @@ public class ExtensionMetaData extends AbstractMetaData {
       try {
         in = new BufferedInputStream(zip.getInputStream(data));
 
-        synchronized (parser) {
-          parser.setContentHandler(handler);
-          parser.setDTDHandler(handler);
-          parser.setEntityResolver(handler);
-          parser.setErrorHandler(handler);
-          parser.parse(new InputSource(in));
-        }
+        final XMLReader parser = getParser();
+        parser.setContentHandler(handler);
+        parser.setDTDHandler(handler);
+        parser.setEntityResolver(handler);
+        parser.setErrorHandler(handler);
+        parser.parse(new InputSource(in));
 
         in.close();
       }
@@ -27,6 +27,7 @@ import org.w3c.dom.Element;
  *
  */
 public class ImportMetaData extends AbstractMetaData {
+  private static final long serialVersionUID = 1L;
 
   public static final String DATA_VERSION = "1";
 
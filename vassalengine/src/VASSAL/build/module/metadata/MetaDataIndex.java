@@ -0,0 +1,386 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module.metadata;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.Info;
+import VASSAL.tools.concurrent.DaemonThreadFactory;
+import VASSAL.tools.concurrent.listener.EventListener;
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * A persistent cache of the metadata of modules, extensions and saved
+ * games.
+ *
+ * <p>Entries are keyed by path, and record the size and modification time
+ * of the file when its metadata was read. A file is read again only if
+ * either has changed since. The index is kept in a file in the
+ * configuration directory, so that a library of hundreds of modules and
+ * thousands of saved games need not be reopened every time the Module
+ * Manager starts.</p>
+ *
+ * <p>Files which need to be read are read on a small pool of background
+ * threads, each of which has its own metadata parser.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class MetaDataIndex {
+  private static final Logger logger =
+    LoggerFactory.getLogger(MetaDataIndex.class);
+
+  public static final String INDEX_FILE = "metadata.idx"; //$NON-NLS-1$
+
+  private static final int THREADS =
+    Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+  private static ExecutorService executor;
+
+  private static MetaDataIndex instance;
+
+  /**
+   * @return the index kept in the configuration directory
+   */
+  public static synchronized MetaDataIndex getInstance() {
+    if (instance == null) {
+      instance = new MetaDataIndex(new File(Info.getConfDir(), INDEX_FILE));
+      instance.load();
+    }
+    return instance;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      // The threads are daemons, so may sit idle until exit.
+      executor = Executors.newFixedThreadPool(
+        THREADS, new DaemonThreadFactory(MetaDataIndex.class.getSimpleName()));
+    }
+    return executor;
+  }
+
+  private static class Entry implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    final long length;
+    final long lastModified;
+    final AbstractMetaData data;
+
+    Entry(long length, long lastModified, AbstractMetaData data) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.data = data;
+    }
+
+    boolean isCurrent(File f) {
+      return length == f.length() && lastModified == f.lastModified();
+    }
+  }
+
+  private final File indexFile;
+  private final Map<String,Entry> entries =
+    new ConcurrentHashMap<String,Entry>();
+  private volatile boolean dirty = false;
+  private volatile int readCount = 0;
+
+  /**
+   * @param indexFile the file in which to keep the index
+   */
+  public MetaDataIndex(File indexFile) {
+    this.indexFile = indexFile;
+  }
+
+  /**
+   * Returns the metadata of a file, reading the file only if it has
+   * changed since it was last indexed. The returned metadata is shared,
+   * and must not be modified.
+   *
+   * @param f the file
+   * @return the metadata, or <code>null</code> if the file is not a
+   * module, extension, saved game or importable file
+   */
+  public AbstractMetaData getMetaData(File f) {
+    if (f == null || !f.isFile()) {
+      return null;
+    }
+
+    final String key = f.getAbsolutePath();
+    final Entry e = entries.get(key);
+    if (e != null && e.isCurrent(f)) {
+      return e.data;
+    }
+
+    // read the size and time first, so a change while reading the file
+    // leaves the entry stale rather than wrong
+    final long length = f.length();
+    final long lastModified = f.lastModified();
+    final AbstractMetaData data = MetaDataFactory.buildMetaData(f);
+    ++readCount;
+
+    entries.put(key, new Entry(length, lastModified, data));
+    dirty = true;
+    return data;
+  }
+
+  /**
+   * Brings the entries for the given files up to date, reading those
+   * which have changed in parallel. Returns once all have been read.
+   *
+   * @param files the files to check
+   * @return the files whose entries were read again
+   */
+  public List<File> update(Collection<File> files) {
+    final List<File> changed = new ArrayList<File>();
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+    for (final File f : files) {
+      if (isCurrent(f)) {
+        continue;
+      }
+
+      changed.add(f);
+      futures.add(getExecutor().submit(new Callable<AbstractMetaData>() {
+        public AbstractMetaData call() {
+          return getMetaData(f);
+        }
+      }));
+    }
+
+    for (Future<?> f : futures) {
+      try {
+        f.get();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      catch (ExecutionException e) {
+        logger.error("", e);
+      }
+    }
+
+    return changed;
+  }
+
+  /**
+   * Brings the entries for the given files up to date without waiting
+   * for those which have changed to be read. The listener is notified
+   * on the Event Dispatch Thread once for each file, as soon as its
+   * entry is current. Once all have been read, the index is saved.
+   *
+   * @param files the files to check
+   * @param listener notified of each file once its entry is current
+   */
+  public void update(Collection<File> files,
+                     final EventListener<? super File> listener) {
+    final List<File> changed = new ArrayList<File>();
+    for (File f : files) {
+      if (isCurrent(f)) {
+        fireUpdated(listener, f);
+      }
+      else {
+        changed.add(f);
+      }
+    }
+
+    final AtomicInteger remaining = new AtomicInteger(changed.size());
+    final Runnable saver = new Runnable() {
+      public void run() {
+        save();
+      }
+    };
+
+    if (changed.isEmpty()) {
+      getExecutor().execute(saver);
+      return;
+    }
+
+    for (final File f : changed) {
+      getExecutor().execute(new Runnable() {
+        public void run() {
+          try {
+            getMetaData(f);
+          }
+          catch (RuntimeException e) {
+            logger.error("", e);
+          }
+          finally {
+            fireUpdated(listener, f);
+            if (remaining.decrementAndGet() == 0) {
+              saver.run();
+            }
+          }
+        }
+      });
+    }
+  }
+
+  private void fireUpdated(final EventListener<? super File> listener,
+                           final File f) {
+    SwingUtilities.invokeLater(new Runnable() {
+      public void run() {
+        listener.receive(MetaDataIndex.this, f);
+      }
+    });
+  }
+
+  /**
+   * @return whether there is nothing to read for this file, either
+   * because it is not a file or because its entry is up to date
+   */
+  private boolean isCurrent(File f) {
+    if (f == null || !f.isFile()) {
+      return true;
+    }
+
+    final Entry e = entries.get(f.getAbsolutePath());
+    return e != null && e.isCurrent(f);
+  }
+
+  /**
+   * Discards the entry for a file, so that it will be read again.
+   *
+   * @param f the file
+   */
+  public void remove(File f) {
+    if (entries.remove(f.getAbsolutePath()) != null) {
+      dirty = true;
+    }
+  }
+
+  /**
+   * Discards the entries for files which no longer exist.
+   */
+  public void prune() {
+    for (String path : new ArrayList<String>(entries.keySet())) {
+      if (!new File(path).isFile()) {
+        entries.remove(path);
+        dirty = true;
+      }
+    }
+  }
+
+  /**
+   * @return the number of entries in the index
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of files which have been read, rather than
+   * found in the index
+   */
+  public int getReadCount() {
+    return readCount;
+  }
+
+  /**
+   * Reads the index from its file. A missing or unreadable index is
+   * not an error; the files it would have covered are simply read again.
+   */
+  @SuppressWarnings("unchecked")
+  public void load() {
+    if (!indexFile.exists()) {
+      return;
+    }
+
+    ObjectInput in = null;
+    try {
+      in = new ObjectInputStream(
+        new BufferedInputStream(new FileInputStream(indexFile)));
+      final Map<String,Entry> m = (Map<String,Entry>) in.readObject();
+      in.close();
+      entries.putAll(m);
+    }
+    catch (ClassNotFoundException e) {
+      logger.warn("Discarding metadata index " + indexFile, e); //$NON-NLS-1$
+    }
+    catch (ClassCastException e) {
+      logger.warn("Discarding metadata index " + indexFile, e); //$NON-NLS-1$
+    }
+    catch (IOException e) {
+      logger.warn("Discarding metadata index " + indexFile, e); //$NON-NLS-1$
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  /**
+   * Writes the index to its file, if it has changed since it was read.
+   */
+  public synchronized void save() {
+    if (!dirty) {
+      return;
+    }
+    dirty = false;
+
+    final File tmp = new File(indexFile.getPath() + ".tmp"); //$NON-NLS-1$
+    ObjectOutput out = null;
+    try {
+      out = new ObjectOutputStream(
+        new BufferedOutputStream(new FileOutputStream(tmp)));
+      out.writeObject(new HashMap<String,Entry>(entries));
+      out.close();
+
+      if (!tmp.renameTo(indexFile)) {
+        // Windows will not rename over an existing file
+        indexFile.delete();
+        if (!tmp.renameTo(indexFile)) {
+          throw new IOException("Unable to rename " + tmp); //$NON-NLS-1$
+        }
+      }
+    }
+    catch (IOException e) {
+      logger.error("", e);
+      dirty = true;
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+}
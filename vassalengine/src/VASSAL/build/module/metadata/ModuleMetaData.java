@@ -30,6 +30,7 @@ import org.w3c.dom.Element;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
 import VASSAL.build.GameModule;
@@ -46,6 +47,7 @@ import VASSAL.tools.io.IOUtils;
  *
  */
 public class ModuleMetaData extends AbstractMetaData {
+  private static final long serialVersionUID = 1L;
 
   private static final Logger logger =
     LoggerFactory.getLogger(ModuleMetaData.class);
@@ -129,13 +131,12 @@ public class ModuleMetaData extends AbstractMetaData {
       try {
         in = new BufferedInputStream(zip.getInputStream(data));
 
-        synchronized (parser) {
-          parser.setContentHandler(handler);
-          parser.setDTDHandler(handler);
-          parser.setEntityResolver(handler);
-          parser.setErrorHandler(handler);
-          parser.parse(new InputSource(in));
-        }
+        final XMLReader parser = getParser();
+        parser.setContentHandler(handler);
+        parser.setDTDHandler(handler);
+        parser.setEntityResolver(handler);
+        parser.setErrorHandler(handler);
+        parser.parse(new InputSource(in));
 
         in.close();
       }
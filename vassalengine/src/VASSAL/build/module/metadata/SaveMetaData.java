@@ -31,6 +31,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import VASSAL.build.GameModule;
 import VASSAL.i18n.Resources;
@@ -46,6 +47,7 @@ import VASSAL.tools.io.IOUtils;
  * @since 3.1.0
  */
 public class SaveMetaData extends AbstractMetaData {
+  private static final long serialVersionUID = 1L;
 
   private static final Logger logger =
     LoggerFactory.getLogger(SaveMetaData.class);
@@ -142,13 +144,12 @@ public class SaveMetaData extends AbstractMetaData {
       try {
         in = new BufferedInputStream(zip.getInputStream(data));
 
-        synchronized (parser) {
-          parser.setContentHandler(handler);
-          parser.setDTDHandler(handler);
-          parser.setEntityResolver(handler);
-          parser.setErrorHandler(handler);
-          parser.parse(new InputSource(in));
-        }
+        final XMLReader parser = getParser();
+        parser.setContentHandler(handler);
+        parser.setDTDHandler(handler);
+        parser.setEntityResolver(handler);
+        parser.setErrorHandler(handler);
+        parser.parse(new InputSource(in));
 
         in.close();
       }
@@ -128,13 +128,8 @@ public class GlobalProperties extends AbstractConfigurable implements MutablePro
   }
 
    public GlobalProperty getMutableProperty(String name) {
-   GlobalProperty property = null;
-    for (GlobalProperty prop : getComponentsOf(GlobalProperty.class)) {
-      if (prop.getConfigureName().equals(name)) {
-        property = prop;
-      }
-    }
-    return property;
+    final List<GlobalProperty> l = getComponentsOf(GlobalProperty.class, name);
+    return l.isEmpty() ? null : l.get(l.size()-1);
   }
 
   /*
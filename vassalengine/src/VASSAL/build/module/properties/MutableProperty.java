@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import VASSAL.command.Command;
+import VASSAL.counters.PieceSpriteCache;
+import VASSAL.counters.PropertyResolutionCache;
 
 /**
  * A container for a String property that can be updated
@@ -143,6 +145,10 @@ public interface MutableProperty {
       String oldValue = value;
       Command c = getChangeCommand(value, newValue);
       value = newValue;
+      if (oldValue == null ? newValue != null : !oldValue.equals(newValue)) {
+        PieceSpriteCache.invalidateAll();
+        PropertyResolutionCache.invalidate();
+      }
       propSupport.firePropertyChange(propertyName, oldValue, newValue);
       return c;
     }
@@ -0,0 +1,721 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.ServerConnection;
+import VASSAL.command.Command;
+import VASSAL.command.CommandEncoder;
+import VASSAL.i18n.Resources;
+import VASSAL.tools.ArrayUtils;
+import VASSAL.tools.SequenceEncoder;
+import VASSAL.tools.concurrent.DaemonThreadFactory;
+
+/**
+ * Sends the state of a running game to a joining player as a sequence of
+ * numbered chunks, rather than as a single message.
+ *
+ * <p>The {@link VASSAL.build.module.GameState#getRestoreCommand restore
+ * command} is flattened into its individual commands, which are packed
+ * into chunks of roughly {@link #DEFAULT_CHUNK_SIZE} characters. Each chunk is deflated using
+ * the tail of the previous chunk as a preset dictionary, so the chunks
+ * compress as well as one continuous stream would, while each can still
+ * be sent, resent and applied on its own.</p>
+ *
+ * <p>The receiver acknowledges each chunk once it has been applied, and
+ * no more than a window of chunks is ever unacknowledged. A chunk which
+ * arrives corrupt is asked for again, with the rest of the window; if it
+ * is still corrupt after {@link #MAX_RETRIES} tries, the transfer is
+ * abandoned and the game is asked for again as a single message.</p>
+ *
+ * <p>Incomplete transfers survive the connection being closed. When it
+ * is opened again, the receiver asks the sender to resume each of them
+ * from the first chunk it has not applied; the sender resends from there
+ * if it still has the transfer, or sends the whole game again if not.
+ * A transfer which has been idle for {@link #SESSION_TIMEOUT} is
+ * abandoned.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ChunkedSynch {
+  private static final Logger logger =
+    LoggerFactory.getLogger(ChunkedSynch.class);
+
+  /** The default number of characters of commands per chunk. */
+  public static final int DEFAULT_CHUNK_SIZE = 32768;
+
+  /** The default number of chunks which may be unacknowledged. */
+  public static final int DEFAULT_WINDOW = 4;
+
+  /** The time after which an idle transfer is abandoned, in ms. */
+  public static final long SESSION_TIMEOUT = 300000;
+
+  /** The number of times a corrupt chunk is asked for again. */
+  public static final int MAX_RETRIES = 3;
+
+  private static final char SEPARATOR = '\u001b';
+  private static final int DICTIONARY_SIZE = 32768;
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  // guarded by instances
+  private static final Map<ChatServerConnection,ChunkedSynch> instances =
+    new HashMap<ChatServerConnection,ChunkedSynch>();
+  private static final Map<ChatServerConnection,Boolean> watched =
+    new WeakHashMap<ChatServerConnection,Boolean>();
+
+  /**
+   * @param client the connection
+   * @return the chunked synchronizer for the given connection, which
+   * resumes its incoming transfers when the connection is reopened
+   */
+  public static ChunkedSynch getInstance(final ChatServerConnection client) {
+    synchronized (instances) {
+      ChunkedSynch cs = instances.get(client);
+      if (cs == null) {
+        cs = new ChunkedSynch(client, DEFAULT_CHUNK_SIZE, DEFAULT_WINDOW);
+        instances.put(client, cs);
+
+        // listeners cannot be removed from a connection, so add only one
+        if (!watched.containsKey(client)) {
+          watched.put(client, Boolean.TRUE);
+          client.addPropertyChangeListener(ServerConnection.CONNECTED,
+            new PropertyChangeListener() {
+              public void propertyChange(PropertyChangeEvent evt) {
+                if (!Boolean.TRUE.equals(evt.getNewValue())) return;
+
+                final ChunkedSynch cs;
+                synchronized (instances) {
+                  cs = instances.get(client);
+                }
+                if (cs != null) cs.reconnected();
+              }
+            }
+          );
+        }
+      }
+      return cs;
+    }
+  }
+
+  protected final ChatServerConnection client;
+  protected final int chunkSize;
+  protected final int window;
+
+  protected final ExecutorService packExec =
+    Executors.newSingleThreadExecutor(
+      new DaemonThreadFactory(ChunkedSynch.class.getSimpleName())
+    );
+
+  // guarded by this
+  protected final Map<String,Outgoing> outgoing =
+    new HashMap<String,Outgoing>();
+  protected final Map<String,Incoming> incoming =
+    new HashMap<String,Incoming>();
+  protected final Map<String,Incoming> failed =
+    new HashMap<String,Incoming>();
+  private int serial = 0;
+
+  /**
+   * @param client the connection
+   * @param chunkSize the number of characters of commands per chunk
+   * @param window the number of chunks which may be unacknowledged
+   */
+  public ChunkedSynch(ChatServerConnection client, int chunkSize, int window) {
+    this.client = client;
+    this.chunkSize = chunkSize;
+    this.window = window;
+  }
+
+  /** A transfer to a joining player. */
+  protected static class Outgoing {
+    protected final String id;
+    protected Player recipient;
+    protected List<byte[]> chunks;
+    protected int acked = 0;
+    protected int sent = 0;
+    protected long touched = System.currentTimeMillis();
+
+    public Outgoing(String id, Player recipient) {
+      this.id = id;
+      this.recipient = recipient;
+    }
+  }
+
+  /** A transfer from a player already in the game. */
+  protected static class Incoming {
+    protected final String id;
+    protected final Player sender;
+    protected final int total;
+    protected int next = 0;
+    protected byte[] dictionary;
+    protected int retries = 0;
+    protected boolean resend = false;
+    protected long touched = System.currentTimeMillis();
+
+    public Incoming(String id, Player sender, int total) {
+      this.id = id;
+      this.sender = sender;
+      this.total = total;
+    }
+  }
+
+  /**
+   * Starts sending a restore command to a player. The command is encoded
+   * immediately, so must be called on the EDT; it is packed into chunks
+   * in the background.
+   *
+   * @param recipient the joining player
+   * @param restore the command which restores the game
+   */
+  public void send(Player recipient, Command restore) {
+    final List<String> commands = flatten(restore, GameModule.getGameModule());
+
+    final Outgoing o;
+    synchronized (this) {
+      expire();
+      final String id = client.getUserInfo().getId() + "-" + //$NON-NLS-1$
+        Long.toString(System.currentTimeMillis(), 36) + "-" + (++serial); //$NON-NLS-1$
+      o = new Outgoing(id, recipient);
+      outgoing.put(id, o);
+    }
+
+    final Runnable packer = new Runnable() {
+      public void run() {
+        final List<byte[]> chunks;
+        try {
+          chunks = pack(commands, chunkSize);
+        }
+        catch (RuntimeException e) {
+          logger.error("", e);
+          return;
+        }
+
+        synchronized (ChunkedSynch.this) {
+          o.chunks = chunks;
+        }
+
+        logger.debug("Sending {} commands to {} in {} chunks",  //$NON-NLS-1$
+          new Object[]{ commands.size(), o.recipient.getName(), chunks.size() });
+
+        SwingUtilities.invokeLater(new Runnable() {
+          public void run() {
+            sendWindow(o);
+          }
+        });
+      }
+    };
+
+    try {
+      packExec.execute(packer);
+    }
+    catch (RejectedExecutionException e) {
+      // this synchronizer has been disposed of
+      synchronized (this) {
+        outgoing.remove(o.id);
+      }
+    }
+  }
+
+  /**
+   * Sends as many chunks as the window allows. Runs on the EDT.
+   */
+  protected void sendWindow(Outgoing o) {
+    final List<SynchChunkCommand> send = new ArrayList<SynchChunkCommand>();
+    synchronized (this) {
+      if (o.chunks == null) return;
+      final int total = o.chunks.size();
+      while (o.sent < total && o.sent < o.acked + window) {
+        send.add(new SynchChunkCommand(
+          client.getUserInfo(), o.id, o.sent, total, o.chunks.get(o.sent)));
+        ++o.sent;
+      }
+    }
+
+    for (SynchChunkCommand c : send) {
+      client.sendTo(o.recipient, c);
+    }
+  }
+
+  /**
+   * Handles an acknowledgement from a joining player. Runs on the EDT.
+   *
+   * @param id the transfer
+   * @param next the first chunk which the player has not yet applied
+   * @param resume <code>true</code> if chunks already sent may have been
+   * lost and must be sent again
+   */
+  public void acknowledged(String id, int next, boolean resume) {
+    final Outgoing o;
+    synchronized (this) {
+      o = outgoing.get(id);
+      if (o == null) return;
+
+      o.touched = System.currentTimeMillis();
+      if (o.chunks != null && next >= o.chunks.size()) {
+        outgoing.remove(id);
+        logger.debug("Finished sending {} to {}", id, o.recipient.getName()); //$NON-NLS-1$
+        return;
+      }
+
+      o.acked = Math.max(o.acked, next);
+      if (resume) {
+        o.acked = next;
+        o.sent = next;
+      }
+    }
+
+    sendWindow(o);
+  }
+
+  /**
+   * Handles a request from a joining player to resume a transfer after
+   * the connection was closed. Runs on the EDT.
+   *
+   * @param recipient the joining player
+   * @param id the transfer
+   * @param next the first chunk which the player has not yet applied
+   * @return <code>false</code> if the transfer is not known, in which
+   * case the game must be sent again
+   */
+  public boolean resume(Player recipient, String id, int next) {
+    synchronized (this) {
+      expire();
+      final Outgoing o = outgoing.get(id);
+      if (o == null) return false;
+      o.recipient = recipient;
+    }
+
+    logger.debug("Resuming {} to {} from chunk {}", //$NON-NLS-1$
+      new Object[]{ id, recipient.getName(), next });
+    acknowledged(id, next, true);
+    return true;
+  }
+
+  /**
+   * Asks the senders of incomplete incoming transfers to resume them.
+   * This is done when the connection is opened again, since any chunks
+   * and acknowledgements in flight when it was closed have been lost.
+   */
+  public void reconnected() {
+    final List<Player> senders = new ArrayList<Player>();
+    final List<Command> requests = new ArrayList<Command>();
+    synchronized (this) {
+      expire();
+      for (Incoming in : incoming.values()) {
+        senders.add(in.sender);
+        requests.add(
+          new SynchCommand(client.getUserInfo(), client, in.id, in.next));
+      }
+    }
+
+    for (int i = 0; i < senders.size(); ++i) {
+      client.sendTo(senders.get(i), requests.get(i));
+    }
+  }
+
+  /**
+   * Unpacks a chunk received from a player already in the game. Chunks
+   * must be received in order; a chunk which is not the next one expected
+   * yields no commands, but is still acknowledged so that the sender can
+   * resume from the right place. A corrupt chunk also yields no commands,
+   * and is either asked for again or, if it has been tried too often,
+   * fails the transfer (see {@link #hasFailed}).
+   *
+   * @param sender the player sending the game
+   * @param id the transfer
+   * @param index the number of the chunk
+   * @param total the number of chunks in the transfer
+   * @param data the deflated chunk
+   * @return the encoded commands in the chunk, or <code>null</code> if the
+   * chunk is not the next one expected
+   */
+  public synchronized List<String> receive(Player sender, String id,
+                                           int index, int total,
+                                           byte[] data) {
+    Incoming in = incoming.get(id);
+    if (in == null) {
+      if (index != 0) return null;
+      expire();
+      in = new Incoming(id, sender, total);
+      incoming.put(id, in);
+    }
+
+    in.touched = System.currentTimeMillis();
+    if (index != in.next) return null;
+
+    final byte[] text;
+    try {
+      text = inflate(data, in.dictionary);
+    }
+    catch (DataFormatException e) {
+      logger.error("Corrupt chunk " + index + " of " + id, e); //$NON-NLS-1$ //$NON-NLS-2$
+      if (++in.retries > MAX_RETRIES) {
+        incoming.remove(id);
+        failed.put(id, in);
+      }
+      else {
+        in.resend = true;
+      }
+      return null;
+    }
+
+    in.retries = 0;
+    in.dictionary = tail(text);
+    if (++in.next == in.total) incoming.remove(id);
+
+    return unpack(text);
+  }
+
+  /**
+   * @param id the transfer
+   * @return the first chunk of the transfer not yet received
+   */
+  public synchronized int getNext(String id) {
+    final Incoming in = incoming.get(id);
+    return in == null ? Integer.MAX_VALUE : in.next;
+  }
+
+  /**
+   * @param id the transfer
+   * @return <code>true</code> if the transfer has been abandoned because
+   * of a corrupt chunk
+   */
+  public synchronized boolean hasFailed(String id) {
+    return failed.containsKey(id);
+  }
+
+  /**
+   * Creates the command to be executed after the commands in a chunk.
+   * This acknowledges the chunk, asks for a corrupt chunk to be sent
+   * again, or, if the transfer has failed, asks for the game to be sent
+   * again as a single message.
+   *
+   * @param sender the player sending the game
+   * @param id the transfer
+   */
+  public synchronized Command createResponse(Player sender, String id) {
+    final Incoming f = failed.remove(id);
+    if (f != null) return createFallback(sender, id, f.total);
+
+    final Incoming in = incoming.get(id);
+    final boolean resend = in != null && in.resend;
+    if (resend) in.resend = false;
+
+    return createAcknowledgement(sender, id, getNext(id), resend);
+  }
+
+  /**
+   * Creates a command which, when executed after the commands in a chunk,
+   * tells the sender that the chunk has been applied.
+   *
+   * @param sender the player sending the game
+   * @param id the transfer
+   * @param next the first chunk not yet applied
+   */
+  public Command createAcknowledgement(Player sender, String id, int next) {
+    return createAcknowledgement(sender, id, next, false);
+  }
+
+  /**
+   * Creates a command which, when executed after the commands in a chunk,
+   * tells the sender which chunk to send next.
+   *
+   * @param sender the player sending the game
+   * @param id the transfer
+   * @param next the first chunk not yet applied
+   * @param resume <code>true</code> if the chunks from <code>next</code>
+   * must be sent again
+   */
+  public Command createAcknowledgement(final Player sender, final String id,
+                                       final int next, final boolean resume) {
+    return new Command() {
+      protected void executeCommand() {
+        client.sendTo(sender,
+          new SynchAckCommand(client.getUserInfo(), id, next, resume, client));
+      }
+
+      protected Command myUndoCommand() {
+        return null;
+      }
+
+      public boolean isLoggable() {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Creates a command which, when executed, tells the sender that a
+   * failed transfer is finished, tells the user, and asks for the game
+   * to be sent again as a single message.
+   */
+  protected Command createFallback(final Player sender, final String id,
+                                   final int total) {
+    return new Command() {
+      protected void executeCommand() {
+        client.sendTo(sender,
+          new SynchAckCommand(client.getUserInfo(), id, total, false, client));
+
+        final GameModule g = GameModule.getGameModule();
+        g.warn(Resources.getString("Chat.synchronize_failed")); //$NON-NLS-1$
+        g.getGameState().setup(false);
+        client.sendTo(sender, new SynchCommand(client.getUserInfo(), client));
+      }
+
+      protected Command myUndoCommand() {
+        return null;
+      }
+
+      public boolean isLoggable() {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Abandons every transfer and stops the packing thread.
+   */
+  public void dispose() {
+    packExec.shutdownNow();
+
+    synchronized (this) {
+      outgoing.clear();
+      incoming.clear();
+      failed.clear();
+    }
+  }
+
+  // must hold the lock
+  private void expire() {
+    final long old = System.currentTimeMillis() - SESSION_TIMEOUT;
+
+    for (Iterator<Outgoing> i = outgoing.values().iterator(); i.hasNext(); ) {
+      if (i.next().touched < old) i.remove();
+    }
+
+    for (Iterator<Incoming> i = incoming.values().iterator(); i.hasNext(); ) {
+      if (i.next().touched < old) i.remove();
+    }
+  }
+
+  /**
+   * Encodes each command in a tree separately, in the order in which
+   * {@link Command#execute} would execute them. Commands which cannot be
+   * executed a step at a time are encoded together with their subcommands.
+   *
+   * @param c the command
+   * @param encoder the encoder
+   * @return the encoded commands
+   */
+  public static List<String> flatten(Command c, CommandEncoder encoder) {
+    final List<String> commands = new ArrayList<String>();
+    flatten(c, encoder, commands);
+    return commands;
+  }
+
+  private static void flatten(Command c, CommandEncoder encoder,
+                              List<String> commands) {
+    if (c == null) return;
+
+    if (Command.overridesExecute(c)) {
+      final String s = encoder.encode(c);
+      if (s != null) commands.add(s);
+      return;
+    }
+
+    final Command[] sub = c.getSubCommands();
+    if (!c.isNull()) {
+      c.stripSubCommands();
+      try {
+        final String s = encoder.encode(c);
+        if (s != null) commands.add(s);
+      }
+      finally {
+        for (Command s : sub) c.append(s);
+      }
+    }
+
+    for (Command s : sub) flatten(s, encoder, commands);
+  }
+
+  /**
+   * Packs encoded commands into deflated chunks.
+   *
+   * @param commands the encoded commands
+   * @param chunkSize the number of characters of commands per chunk
+   * @return the chunks
+   */
+  public static List<byte[]> pack(List<String> commands, int chunkSize) {
+    final List<byte[]> chunks = new ArrayList<byte[]>();
+    byte[] dictionary = null;
+
+    SequenceEncoder se = null;
+    int size = 0;
+
+    for (String s : commands) {
+      if (se == null) se = new SequenceEncoder(SEPARATOR);
+      se.append(s);
+      size += s.length() + 1;
+
+      if (size >= chunkSize) {
+        final byte[] text = toBytes(se.getValue());
+        chunks.add(deflate(text, dictionary));
+        dictionary = tail(text);
+        se = null;
+        size = 0;
+      }
+    }
+
+    if (se != null || chunks.isEmpty()) {
+      final byte[] text = toBytes(se == null ? "" : se.getValue()); //$NON-NLS-1$
+      chunks.add(deflate(text, dictionary));
+    }
+
+    return chunks;
+  }
+
+  /**
+   * @param text the inflated contents of a chunk
+   * @return the encoded commands in the chunk
+   */
+  public static List<String> unpack(byte[] text) {
+    final List<String> commands = new ArrayList<String>();
+    final String s = toString(text);
+    if (s.length() == 0) return commands;
+
+    final SequenceEncoder.Decoder sd = new SequenceEncoder.Decoder(s, SEPARATOR);
+    while (sd.hasMoreTokens()) commands.add(sd.nextToken());
+    return commands;
+  }
+
+  /**
+   * Deflates a chunk.
+   *
+   * @param text the chunk
+   * @param dictionary the preset dictionary, or <code>null</code>
+   * @return the deflated chunk
+   */
+  public static byte[] deflate(byte[] text, byte[] dictionary) {
+    final Deflater def = new Deflater();
+    try {
+      if (dictionary != null) def.setDictionary(dictionary);
+      def.setInput(text);
+      def.finish();
+
+      final ByteArrayOutputStream out =
+        new ByteArrayOutputStream(text.length / 4 + 64);
+      final byte[] buf = new byte[8192];
+      while (!def.finished()) {
+        final int n = def.deflate(buf);
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    }
+    finally {
+      def.end();
+    }
+  }
+
+  /**
+   * Inflates a chunk.
+   *
+   * @param data the deflated chunk
+   * @param dictionary the preset dictionary, or <code>null</code>
+   * @return the chunk
+   * @throws DataFormatException if the chunk is corrupt
+   */
+  public static byte[] inflate(byte[] data, byte[] dictionary)
+                                                  throws DataFormatException {
+    final Inflater inf = new Inflater();
+    try {
+      inf.setInput(data);
+
+      final ByteArrayOutputStream out =
+        new ByteArrayOutputStream(data.length * 4);
+      final byte[] buf = new byte[8192];
+      while (!inf.finished()) {
+        final int n = inf.inflate(buf);
+        if (n > 0) {
+          out.write(buf, 0, n);
+        }
+        else if (inf.needsDictionary()) {
+          if (dictionary == null) {
+            throw new DataFormatException("Missing dictionary"); //$NON-NLS-1$
+          }
+          inf.setDictionary(dictionary);
+        }
+        else if (inf.needsInput()) {
+          throw new DataFormatException("Truncated chunk"); //$NON-NLS-1$
+        }
+      }
+      return out.toByteArray();
+    }
+    finally {
+      inf.end();
+    }
+  }
+
+  private static byte[] tail(byte[] text) {
+    return text.length <= DICTIONARY_SIZE ? text :
+      ArrayUtils.copyOfRange(text, text.length - DICTIONARY_SIZE, text.length);
+  }
+
+  private static byte[] toBytes(String s) {
+    try {
+      return s.getBytes(ENCODING);
+    }
+    catch (UnsupportedEncodingException e) {
+      // cannot happen, UTF-8 is always supported
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toString(byte[] b) {
+    try {
+      return new String(b, ENCODING);
+    }
+    catch (UnsupportedEncodingException e) {
+      // cannot happen, UTF-8 is always supported
+      throw new IllegalStateException(e);
+    }
+  }
+}
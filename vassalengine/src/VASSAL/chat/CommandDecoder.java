@@ -19,11 +19,6 @@ package VASSAL.chat;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 
-import javax.swing.SwingUtilities;
-
-import VASSAL.build.GameModule;
-import VASSAL.command.Command;
-
 /**
  * Listens for incoming messages (PropertyChangeEvents with name {@link ChatServerConnection.INCOMING_MSG}) and
  * interprets the message as a command to be executed
@@ -32,16 +27,17 @@ import VASSAL.command.Command;
  *
  */
 public class CommandDecoder implements PropertyChangeListener {
+  protected final CommandPipeline pipeline = new CommandPipeline();
+
   public void propertyChange(PropertyChangeEvent evt) {
-    final Command c = GameModule.getGameModule().decode((String) evt.getNewValue());
-    if (c != null) {
-      Runnable runnable = new Runnable() {
-        public void run() {
-          c.execute();
-          GameModule.getGameModule().getLogger().log(c);
-        }
-      };
-      SwingUtilities.invokeLater(runnable);
-    }
+    pipeline.submit((String) evt.getNewValue());
+  }
+
+  /**
+   * @return the pipeline which decodes and executes incoming commands
+   * @since 3.2.3
+   */
+  public CommandPipeline getPipeline() {
+    return pipeline;
   }
 }
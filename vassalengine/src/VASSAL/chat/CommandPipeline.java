@@ -0,0 +1,479 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat;
+
+import java.awt.AWTEvent;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.Map;
+import VASSAL.command.Command;
+import VASSAL.command.CommandEncoder;
+import VASSAL.tools.concurrent.DaemonThreadFactory;
+import VASSAL.tools.concurrent.listener.DefaultEventListenerSupport;
+import VASSAL.tools.concurrent.listener.EventListener;
+import VASSAL.tools.concurrent.listener.EventListenerSupport;
+
+/**
+ * Applies commands received from other players without freezing the UI.
+ *
+ * <p>Incoming text is decoded on a worker thread. The decoded commands
+ * are then executed on the EDT a step at a time (see
+ * {@link Command.Stepper}), in batches which stop once the frame budget
+ * is used up, so that input and painting are handled between batches
+ * even while a large command such as a synchronization is applied.
+ * Map repaints requested during a batch are coalesced into one repaint
+ * per map at the end of the batch. Commands are executed and logged in
+ * exactly the order in which their text was submitted.</p>
+ *
+ * <p>A command spread over several batches is still applied atomically
+ * with respect to the local player: should a mouse button or key be
+ * pressed before it is finished, the rest of it is executed before the
+ * input is dispatched, so that no local command can run, or be logged,
+ * between its steps.</p>
+ *
+ * <p>The decode and execute times of each command are reported to
+ * listeners as {@link Timing}s.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class CommandPipeline {
+  private static final Logger logger =
+    LoggerFactory.getLogger(CommandPipeline.class);
+
+  /** The default time to spend executing commands per batch, in ms. */
+  public static final long DEFAULT_FRAME_BUDGET = 16;
+
+  /**
+   * The time for which commands are held back while waiting for the next
+   * chunk of a game being synchronized, in ms.
+   */
+  public static final long HOLD_TIMEOUT = 60000;
+
+  protected final CommandEncoder decoder;
+  protected final long budget;
+
+  protected final ExecutorService decodeExec =
+    Executors.newSingleThreadExecutor(
+      new DaemonThreadFactory(CommandPipeline.class.getSimpleName())
+    );
+
+  protected final ConcurrentLinkedQueue<Entry> decoded =
+    new ConcurrentLinkedQueue<Entry>();
+  protected final AtomicBoolean scheduled = new AtomicBoolean();
+  protected final AtomicInteger outstanding = new AtomicInteger();
+
+  protected final EventListenerSupport<Timing> timingListeners =
+    new DefaultEventListenerSupport<Timing>(this);
+
+  // accessed only on the decoding thread
+  private final List<Entry> held = new ArrayList<Entry>();
+  private boolean holding = false;
+  private long lastChunk;
+
+  // accessed only on the EDT
+  private Entry current;
+  private boolean stepping = false;
+  private boolean listening = false;
+
+  private final Runnable applier = new Runnable() {
+    public void run() {
+      apply();
+    }
+  };
+
+  private final AWTEventListener inputListener = new AWTEventListener() {
+    public void eventDispatched(AWTEvent e) {
+      switch (e.getID()) {
+      case MouseEvent.MOUSE_PRESSED:
+      case MouseEvent.MOUSE_RELEASED:
+      case MouseEvent.MOUSE_CLICKED:
+      case KeyEvent.KEY_PRESSED:
+      case KeyEvent.KEY_RELEASED:
+      case KeyEvent.KEY_TYPED:
+        finishCurrent();
+      }
+    }
+  };
+
+  /**
+   * Creates a pipeline which decodes with the {@link GameModule} and
+   * uses the default frame budget.
+   */
+  public CommandPipeline() {
+    this(null, DEFAULT_FRAME_BUDGET);
+  }
+
+  /**
+   * @param decoder the decoder for incoming text, or <code>null</code>
+   * to use the {@link GameModule}
+   * @param budget the time to spend executing commands per batch, in ms
+   */
+  public CommandPipeline(CommandEncoder decoder, long budget) {
+    this.decoder = decoder;
+    this.budget = TimeUnit.MILLISECONDS.toNanos(budget);
+  }
+
+  /** The time taken to decode and execute one incoming command. */
+  public static class Timing {
+    /** The command. */
+    public final Command command;
+    /** The length of the encoded command. */
+    public final int length;
+    /** The time spent decoding, in nanoseconds. */
+    public final long decodeNanos;
+    /** The time spent executing, in nanoseconds. */
+    public final long executeNanos;
+    /** The number of steps in which the command was executed. */
+    public final int steps;
+    /** The number of batches over which the command was executed. */
+    public final int batches;
+    /** The time from submission to completion, in nanoseconds. */
+    public final long latencyNanos;
+
+    public Timing(Command command, int length, long decodeNanos,
+                  long executeNanos, int steps, int batches,
+                  long latencyNanos) {
+      this.command = command;
+      this.length = length;
+      this.decodeNanos = decodeNanos;
+      this.executeNanos = executeNanos;
+      this.steps = steps;
+      this.batches = batches;
+      this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public String toString() {
+      return command.getClass().getSimpleName() +
+        "[length=" + length +
+        ", decode=" + decodeNanos/1000 + "us" +
+        ", execute=" + executeNanos/1000 + "us" +
+        ", steps=" + steps +
+        ", batches=" + batches +
+        ", latency=" + latencyNanos/1000000 + "ms]";
+    }
+  }
+
+  protected static class Entry {
+    protected final Command command;
+    protected final Command.Stepper stepper;
+    protected final int length;
+    protected final long submitted;
+    protected final long decodeNanos;
+    protected long executeNanos = 0;
+    protected int batches = 0;
+
+    public Entry(Command command, int length,
+                 long submitted, long decodeNanos) {
+      this.command = command;
+      this.stepper = new Command.Stepper(command);
+      this.length = length;
+      this.submitted = submitted;
+      this.decodeNanos = decodeNanos;
+    }
+  }
+
+  /**
+   * Adds a listener which is notified on the EDT as each command
+   * finishes executing.
+   *
+   * @param l the listener
+   */
+  public void addTimingListener(EventListener<? super Timing> l) {
+    timingListeners.addEventListener(l);
+  }
+
+  /**
+   * @param l the listener
+   */
+  public void removeTimingListener(EventListener<? super Timing> l) {
+    timingListeners.removeEventListener(l);
+  }
+
+  /**
+   * Queues encoded text for decoding and execution.
+   *
+   * @param text the encoded command
+   */
+  public void submit(final String text) {
+    if (text == null) return;
+
+    final long submitted = System.nanoTime();
+    outstanding.incrementAndGet();
+
+    decodeExec.execute(new Runnable() {
+      public void run() {
+        decode(text, submitted);
+      }
+    });
+  }
+
+  /**
+   * @return <code>true</code> if every submitted command has been
+   * executed
+   */
+  public boolean isIdle() {
+    return outstanding.get() == 0;
+  }
+
+  protected Command decode(String text) {
+    return decoder == null ?
+      GameModule.getGameModule().decode(text) : decoder.decode(text);
+  }
+
+  private void decode(String text, long submitted) {
+    final long t0 = System.nanoTime();
+
+    Command c = null;
+    try {
+      c = decode(text);
+    }
+    catch (RuntimeException e) {
+      logger.error("", e);
+    }
+
+    if (c == null) {
+      outstanding.decrementAndGet();
+      return;
+    }
+
+    final long t1 = System.nanoTime();
+    enqueue(new Entry(c, text.length(), submitted, t1 - t0), t1);
+
+    if (scheduled.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(applier);
+    }
+  }
+
+  /**
+   * Queues a decoded command for execution. While a game is arriving in
+   * chunks from {@link ChunkedSynch}, other commands are held back until
+   * the last chunk, since they were sent after the game was encoded and
+   * so must not be applied to a partly restored game.
+   */
+  private void enqueue(Entry e, long now) {
+    if (e.command instanceof SynchChunkCommand) {
+      decoded.add(e);
+      if (((SynchChunkCommand) e.command).isLast()) {
+        release();
+      }
+      else {
+        holding = true;
+        lastChunk = now;
+      }
+    }
+    else if (holding &&
+             now - lastChunk < TimeUnit.MILLISECONDS.toNanos(HOLD_TIMEOUT)) {
+      held.add(e);
+    }
+    else {
+      release();
+      decoded.add(e);
+    }
+  }
+
+  private void release() {
+    decoded.addAll(held);
+    held.clear();
+    holding = false;
+  }
+
+  /**
+   * Executes commands until the queue is empty or the frame budget is
+   * used up. Runs on the EDT.
+   */
+  protected void apply() {
+    final long start = System.nanoTime();
+    boolean yielded = false;
+    Entry counted = null;
+
+    Map.deferRepaints();
+    try {
+      while (true) {
+        if (current == null) {
+          current = decoded.poll();
+          if (current == null) break;
+        }
+
+        if (counted != current) {
+          ++current.batches;
+          counted = current;
+        }
+
+        step(current);
+
+        if (!current.stepper.hasNext()) {
+          finish(current);
+          current = null;
+        }
+
+        if (System.nanoTime() - start >= budget) {
+          yielded = true;
+          break;
+        }
+      }
+    }
+    catch (RuntimeException e) {
+      // abandon the rest of the failed command, but not later ones
+      abandon();
+      throw e;
+    }
+    catch (Error e) {
+      abandon();
+      throw e;
+    }
+    finally {
+      Map.resumeRepaints();
+      reschedule(yielded);
+    }
+  }
+
+  private void step(Entry e) {
+    stepping = true;
+    final long t0 = System.nanoTime();
+    try {
+      e.stepper.step();
+    }
+    finally {
+      e.executeNanos += System.nanoTime() - t0;
+      stepping = false;
+    }
+  }
+
+  /**
+   * Executes the rest of the command in progress, if any, at once. Runs
+   * on the EDT.
+   */
+  public void finishCurrent() {
+    // a step may pump events, e.g. by showing a modal dialog
+    if (current == null || stepping) return;
+
+    ++current.batches;
+
+    Map.deferRepaints();
+    try {
+      while (current.stepper.hasNext()) {
+        step(current);
+      }
+      finish(current);
+      current = null;
+    }
+    catch (RuntimeException e) {
+      abandon();
+      throw e;
+    }
+    catch (Error e) {
+      abandon();
+      throw e;
+    }
+    finally {
+      Map.resumeRepaints();
+      listen(false);
+    }
+  }
+
+  private void abandon() {
+    if (current != null) {
+      current = null;
+      outstanding.decrementAndGet();
+    }
+  }
+
+  /**
+   * Watches for local input while a command is spread over batches.
+   */
+  private void listen(boolean on) {
+    if (on == listening) return;
+    listening = on;
+
+    final Toolkit tk = Toolkit.getDefaultToolkit();
+    if (on) {
+      tk.addAWTEventListener(inputListener,
+        AWTEvent.MOUSE_EVENT_MASK | AWTEvent.KEY_EVENT_MASK);
+    }
+    else {
+      tk.removeAWTEventListener(inputListener);
+    }
+  }
+
+  private void reschedule(boolean yielded) {
+    listen(current != null);
+
+    if (yielded || current != null) {
+      SwingUtilities.invokeLater(applier);
+      return;
+    }
+
+    scheduled.set(false);
+
+    // a command may have been decoded since the queue was last polled
+    if (!decoded.isEmpty() && scheduled.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(applier);
+    }
+  }
+
+  private void finish(Entry e) {
+    log(e.command);
+
+    final Timing t = new Timing(
+      e.command, e.length, e.decodeNanos, e.executeNanos,
+      e.stepper.getSteps(), e.batches, System.nanoTime() - e.submitted
+    );
+
+    if (e.batches > 1) logger.debug("Applied {}", t);
+    timingListeners.notify(t);
+
+    outstanding.decrementAndGet();
+  }
+
+  /**
+   * Logs an executed command.
+   *
+   * @param c the command
+   */
+  protected void log(Command c) {
+    GameModule.getGameModule().getLogger().log(c);
+  }
+
+  /**
+   * Stops the decoding thread. Commands already decoded are still
+   * executed.
+   */
+  public void shutdown() {
+    decodeExec.shutdown();
+  }
+}
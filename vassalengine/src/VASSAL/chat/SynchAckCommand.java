@@ -0,0 +1,83 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat;
+
+import VASSAL.command.Command;
+
+/**
+ * Tells the player sending a game with {@link ChunkedSynch} which chunk
+ * the receiver needs next.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class SynchAckCommand extends Command {
+  private final Player player;
+  private final String id;
+  private final int next;
+  private final boolean resume;
+  private final ChatServerConnection client;
+
+  /**
+   * @param player the player receiving the game
+   * @param id the transfer
+   * @param next the first chunk not yet applied
+   * @param resume <code>true</code> if chunks already sent may have been
+   * lost and must be sent again
+   * @param client the connection
+   */
+  public SynchAckCommand(Player player, String id, int next, boolean resume,
+                         ChatServerConnection client) {
+    this.player = player;
+    this.id = id;
+    this.next = next;
+    this.resume = resume;
+    this.client = client;
+  }
+
+  public Player getPlayer() {
+    return player;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public int getNext() {
+    return next;
+  }
+
+  public boolean isResume() {
+    return resume;
+  }
+
+  protected void executeCommand() {
+    ChunkedSynch.getInstance(client).acknowledged(id, next, resume);
+  }
+
+  protected Command myUndoCommand() {
+    return null;
+  }
+
+  /**
+   * Don't log synchronization requests */
+  public boolean isLoggable() {
+    return false;
+  }
+}
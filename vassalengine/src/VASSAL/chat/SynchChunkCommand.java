@@ -0,0 +1,115 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat;
+
+import VASSAL.command.Command;
+
+/**
+ * One chunk of a game sent by {@link ChunkedSynch}. When decoded, the
+ * commands in the chunk are attached as subcommands, followed by the
+ * acknowledgement to the sender.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class SynchChunkCommand extends Command {
+  private final Player sender;
+  private final String id;
+  private final int index;
+  private final int total;
+  private final byte[] data;
+  private boolean failed = false;
+
+  /**
+   * @param sender the player sending the game
+   * @param id the transfer
+   * @param index the number of this chunk
+   * @param total the number of chunks in the transfer
+   * @param data the deflated chunk
+   */
+  public SynchChunkCommand(Player sender, String id, int index, int total,
+                           byte[] data) {
+    this.sender = sender;
+    this.id = id;
+    this.index = index;
+    this.total = total;
+    this.data = data;
+  }
+
+  public Player getSender() {
+    return sender;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  /**
+   * @return <code>true</code> if this is the last chunk of the transfer,
+   * or if the transfer failed at this chunk
+   */
+  public boolean isLast() {
+    return index == total - 1 || failed;
+  }
+
+  /**
+   * @return <code>true</code> if the transfer failed at this chunk
+   */
+  public boolean isFailed() {
+    return failed;
+  }
+
+  /**
+   * Marks the transfer as having failed at this chunk, so that no more
+   * chunks of it are waited for.
+   */
+  public void setFailed(boolean failed) {
+    this.failed = failed;
+  }
+
+  protected void executeCommand() {
+  }
+
+  protected Command myUndoCommand() {
+    return null;
+  }
+
+  /**
+   * Don't log synchronization data */
+  public boolean isLoggable() {
+    return false;
+  }
+
+  @Override
+  public String getDetails() {
+    return id + " " + (index+1) + "/" + total; //$NON-NLS-1$ //$NON-NLS-2$
+  }
+}
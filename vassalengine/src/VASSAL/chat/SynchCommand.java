@@ -29,21 +29,117 @@ import VASSAL.i18n.Resources;
 public class SynchCommand extends Command {
   private Player recipient;
   private ChatServerConnection client;
+  private boolean chunked;
+  private String resumeId;
+  private int next;
 
   public SynchCommand(Player p, ChatServerConnection client) {
+    this(p, client, false);
+  }
+
+  /**
+   * @param p the player to receive the game
+   * @param client the connection
+   * @param chunked <code>true</code> if the game should be sent in chunks
+   * by {@link ChunkedSynch}
+   * @since 3.2.3
+   */
+  public SynchCommand(Player p, ChatServerConnection client, boolean chunked) {
     recipient = p;
     this.client = client;
+    this.chunked = chunked;
+  }
+
+  /**
+   * Creates a request to resume a chunked transfer which was interrupted
+   * by the connection being closed. If the player sending the game no
+   * longer has the transfer, the whole game is sent again.
+   *
+   * @param p the player to receive the game
+   * @param client the connection
+   * @param resumeId the transfer
+   * @param next the first chunk not yet applied
+   * @since 3.2.3
+   */
+  public SynchCommand(Player p, ChatServerConnection client,
+                      String resumeId, int next) {
+    this(p, client, true);
+    this.resumeId = resumeId;
+    this.next = next;
+  }
+
+  /**
+   * Creates a request for the game to be sent in chunks. The request
+   * carries an ordinary request as its subcommand, so that players whose
+   * clients cannot decode the chunked request still answer the ordinary
+   * one, while those which can answer only the chunked request.
+   *
+   * @param p the player to receive the game
+   * @param client the connection
+   * @since 3.2.3
+   */
+  public static Command createRequest(Player p, ChatServerConnection client) {
+    final Command c = new SynchCommand(p, client, true);
+    c.append(new SynchCommand(p, client, false));
+    return c;
   }
 
   public Player getPlayer() {
     return recipient;
   }
 
+  /**
+   * @since 3.2.3
+   */
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  /**
+   * @return the transfer to be resumed, or <code>null</code>
+   * @since 3.2.3
+   */
+  public String getResumeId() {
+    return resumeId;
+  }
+
+  /**
+   * @return the first chunk of the transfer to be resumed not yet applied
+   * @since 3.2.3
+   */
+  public int getNext() {
+    return next;
+  }
+
+  /**
+   * A chunked request does not execute its subcommand, which is the
+   * ordinary request for clients which do not support chunks.
+   */
+  @Override
+  public void execute() {
+    if (chunked) {
+      executeCommand();
+    }
+    else {
+      super.execute();
+    }
+  }
+
   protected void executeCommand() {
+    if (resumeId != null &&
+        ChunkedSynch.getInstance(client).resume(recipient, resumeId, next)) {
+      return;
+    }
+
     GameModule.getGameModule().warn(Resources.getString("Server.sending_game_info", recipient.getName())); //$NON-NLS-1$
     Command synch = GameModule.getGameModule().getGameState().getRestoreCommand();
     if (synch != null) {
-      client.sendTo(recipient, synch);
+      if (chunked) {
+        ChunkedSynch.getInstance(client).send(recipient, synch);
+      }
+      else {
+        client.sendTo(recipient, synch);
+      }
     }
   }
 
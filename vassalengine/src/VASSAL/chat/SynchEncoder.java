@@ -17,14 +17,25 @@
  */
 package VASSAL.chat;
 
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+
+import VASSAL.build.GameModule;
 import VASSAL.command.Command;
 import VASSAL.command.CommandEncoder;
+import VASSAL.tools.SequenceEncoder;
 
 /**
  * Date: Mar 16, 2003
  */
 public class SynchEncoder implements CommandEncoder {
   public static final String COMMAND_PREFIX = "SYNC"; //$NON-NLS-1$
+  // the chunked prefixes must not start with COMMAND_PREFIX, so that
+  // older clients do not mistake them for ordinary requests
+  public static final String CHUNKED_PREFIX = "ZSYNC"; //$NON-NLS-1$
+  public static final String CHUNK_PREFIX = "ZCHUNK"; //$NON-NLS-1$
+  public static final String ACK_PREFIX = "ZACK"; //$NON-NLS-1$
   private PlayerEncoder playerEncoder;
   private ChatServerConnection client;
 
@@ -38,15 +49,90 @@ public class SynchEncoder implements CommandEncoder {
       Player p = playerEncoder.stringToPlayer(s.substring(COMMAND_PREFIX.length()));
       return new SynchCommand(p,client);
     }
+    else if (s.startsWith(CHUNKED_PREFIX)) {
+      final SequenceEncoder.Decoder sd =
+        new SequenceEncoder.Decoder(s.substring(CHUNKED_PREFIX.length()), '\t');
+      final Player p = playerEncoder.stringToPlayer(sd.nextToken());
+      final String id = sd.nextToken(null);
+      return id == null ? new SynchCommand(p,client,true) :
+                          new SynchCommand(p,client,id,sd.nextInt(0));
+    }
+    else if (s.startsWith(CHUNK_PREFIX)) {
+      return decodeChunk(s.substring(CHUNK_PREFIX.length()));
+    }
+    else if (s.startsWith(ACK_PREFIX)) {
+      final SequenceEncoder.Decoder sd =
+        new SequenceEncoder.Decoder(s.substring(ACK_PREFIX.length()), '\t');
+      final Player p = playerEncoder.stringToPlayer(sd.nextToken());
+      final String id = sd.nextToken();
+      final int next = sd.nextInt(0);
+      final boolean resume = sd.nextBoolean(false);
+      return new SynchAckCommand(p, id, next, resume, client);
+    }
     else {
       return null;
     }
   }
 
+  /**
+   * Decodes a chunk and the commands in it. Chunks are decoded in the
+   * order in which they arrive, so the commands are unpacked here rather
+   * than when the chunk is executed.
+   */
+  protected Command decodeChunk(String s) {
+    final SequenceEncoder.Decoder sd = new SequenceEncoder.Decoder(s, '\t');
+    final Player sender = playerEncoder.stringToPlayer(sd.nextToken());
+    final String id = sd.nextToken();
+    final int index = sd.nextInt(0);
+    final int total = sd.nextInt(1);
+    final byte[] data = Base64.decodeBase64(sd.nextToken());
+
+    final ChunkedSynch cs = ChunkedSynch.getInstance(client);
+    final SynchChunkCommand c = new SynchChunkCommand(sender, id, index, total, data);
+
+    final List<String> commands = cs.receive(sender, id, index, total, data);
+    if (commands != null) {
+      final GameModule g = GameModule.getGameModule();
+      for (String cmd : commands) c.append(g.decode(cmd));
+    }
+
+    c.setFailed(cs.hasFailed(id));
+    c.append(cs.createResponse(sender, id));
+    return c;
+  }
+
   public String encode(Command c) {
     if (c instanceof SynchCommand) {
       SynchCommand cmd = (SynchCommand) c;
-      return COMMAND_PREFIX + playerEncoder.playerToString(cmd.getPlayer());
+      if (!cmd.isChunked()) {
+        return COMMAND_PREFIX + playerEncoder.playerToString(cmd.getPlayer());
+      }
+
+      final SequenceEncoder se =
+        new SequenceEncoder(playerEncoder.playerToString(cmd.getPlayer()), '\t');
+      if (cmd.getResumeId() != null) {
+        se.append(cmd.getResumeId()).append(cmd.getNext());
+      }
+      return CHUNKED_PREFIX + se.getValue();
+    }
+    else if (c instanceof SynchChunkCommand) {
+      final SynchChunkCommand cmd = (SynchChunkCommand) c;
+      final SequenceEncoder se = new SequenceEncoder('\t');
+      se.append(playerEncoder.playerToString(cmd.getSender()))
+        .append(cmd.getId())
+        .append(cmd.getIndex())
+        .append(cmd.getTotal())
+        .append(Base64.encodeBase64String(cmd.getData()));
+      return CHUNK_PREFIX + se.getValue();
+    }
+    else if (c instanceof SynchAckCommand) {
+      final SynchAckCommand cmd = (SynchAckCommand) c;
+      final SequenceEncoder se = new SequenceEncoder('\t');
+      se.append(playerEncoder.playerToString(cmd.getPlayer()))
+        .append(cmd.getId())
+        .append(cmd.getNext())
+        .append(cmd.isResume());
+      return ACK_PREFIX + se.getValue();
     }
     else {
       return null;
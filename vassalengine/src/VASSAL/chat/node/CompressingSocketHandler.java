@@ -0,0 +1,160 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * A {@link SocketHandler} which can switch to compressing the lines it
+ * sends and receives with a {@link LineCompressor}.
+ *
+ * <p>Until compression is negotiated, lines are sent as UTF-8 text, just
+ * as by {@link BufferedSocketHandler}. A client which supports compression
+ * sends {@link Protocol#encodeCompressRequest a request}; a server which
+ * supports it answers with the {@link Protocol#DEFLATE} line, and the
+ * client sends the same line back. Each side compresses everything it
+ * writes after it writes that line, and decompresses everything it reads
+ * after it reads that line. A server which does not support compression
+ * ignores the request, and the connection remains uncompressed.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class CompressingSocketHandler extends SocketHandler {
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  protected final InputStream in;
+  protected final OutputStream out;
+
+  // accessed only by the read thread
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  // set by the read and write threads, ended by whichever closes
+  private volatile LineCompressor.Decoder decoder;
+  private volatile LineCompressor.Encoder encoder;
+
+  private volatile boolean requested = false;
+  private volatile boolean deflating = false;
+  private volatile boolean inflating = false;
+
+  public CompressingSocketHandler(Socket sock, SocketWatcher handler) throws IOException {
+    super(sock, handler);
+    in = new BufferedInputStream(sock.getInputStream());
+    out = new BufferedOutputStream(sock.getOutputStream());
+  }
+
+  /**
+   * @return <code>true</code> if the lines sent are compressed
+   */
+  public boolean isDeflating() {
+    return deflating;
+  }
+
+  /**
+   * @return <code>true</code> if the lines received are compressed
+   */
+  public boolean isInflating() {
+    return inflating;
+  }
+
+  /**
+   * @return the number of bytes of lines written since compression began
+   */
+  public long getLineBytes() {
+    final LineCompressor.Encoder e = encoder;
+    return e == null ? 0 : e.getLineBytes();
+  }
+
+  /**
+   * @return the number of bytes written since compression began
+   */
+  public long getFrameBytes() {
+    final LineCompressor.Encoder e = encoder;
+    return e == null ? 0 : e.getFrameBytes();
+  }
+
+  protected void closeStreams() throws IOException {
+    try {
+      out.close();
+      in.close();
+    }
+    finally {
+      // The streams are closed first, so that the other thread is not
+      // left blocked in the encoder or decoder, holding its lock.
+      final LineCompressor.Encoder e = encoder;
+      if (e != null) e.end();
+
+      final LineCompressor.Decoder d = decoder;
+      if (d != null) d.end();
+    }
+  }
+
+  protected String readNext() throws IOException {
+    if (decoder != null) return decoder.read(in);
+
+    final String l = readLine();
+
+    // Accept the switch only in answer to our request, or in reply to
+    // our own switch, so that a forwarded message cannot trigger it.
+    if (Protocol.DEFLATE.equals(l) && (requested || deflating)) {
+      decoder = new LineCompressor.Decoder();
+      inflating = true;
+    }
+    requested = false;
+
+    return l;
+  }
+
+  private String readLine() throws IOException {
+    line.reset();
+
+    int b;
+    while ((b = in.read()) != -1 && b != '\n') line.write(b);
+
+    if (b == -1 && line.size() == 0) return null;
+
+    String l = line.toString(ENCODING);
+    if (l.endsWith("\r")) l = l.substring(0, l.length() - 1); //$NON-NLS-1$
+    return l;
+  }
+
+  protected void writeNext(String l) throws IOException {
+    if (encoder != null) {
+      encoder.write(l, out);
+    }
+    else {
+      out.write((l + '\n').getBytes(ENCODING));
+
+      if (Protocol.decodeCompressRequest(l) != null) {
+        requested = true;
+      }
+      else if (Protocol.DEFLATE.equals(l)) {
+        encoder = new LineCompressor.Encoder();
+        deflating = true;
+      }
+    }
+    out.flush();
+  }
+}
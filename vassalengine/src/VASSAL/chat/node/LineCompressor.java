@@ -0,0 +1,325 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.chat.node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses a stream of lines so that the dictionary carries across
+ * them. Each line is written as a frame holding either the line itself,
+ * if it is too short to be worth compressing, or the line deflated with
+ * the most recent {@link #DICTIONARY_SIZE} bytes of earlier lines as a
+ * preset dictionary. Repeated commands, player names and piece types
+ * therefore compress to a few bytes once they have been seen.
+ *
+ * <p>The {@link Encoder} and {@link Decoder} each keep a persistent
+ * <code>Deflater</code> or <code>Inflater</code> and the history of the
+ * lines which have passed through them, so one of each is needed for each
+ * direction of a connection. Since these hold native memory, each must be
+ * {@link Encoder#end ended} or {@link Decoder#end ended} once the
+ * connection is closed; this may be done from another thread.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class LineCompressor {
+  /** A frame holding an uncompressed line. */
+  public static final int STORED = 0;
+
+  /** A frame holding a deflated line. */
+  public static final int DEFLATED = 1;
+
+  /** The number of bytes of earlier lines used as the dictionary. */
+  public static final int DICTIONARY_SIZE = 8192;
+
+  /** Lines shorter than this, in bytes, are not compressed. */
+  public static final int MIN_DEFLATE = 48;
+
+  /** The longest frame accepted, in bytes. */
+  public static final int MAX_FRAME = 1 << 26;
+
+  /** The longest line accepted, in bytes, once inflated. */
+  public static final int MAX_LINE = MAX_FRAME;
+
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  private LineCompressor() {}
+
+  /** The most recent bytes passed through an encoder or decoder. */
+  private static class History {
+    private final byte[] bytes = new byte[DICTIONARY_SIZE];
+    private int length = 0;
+
+    public void add(byte[] b, int len) {
+      if (len >= bytes.length) {
+        System.arraycopy(b, len - bytes.length, bytes, 0, bytes.length);
+        length = bytes.length;
+        return;
+      }
+
+      final int drop = length + len - bytes.length;
+      if (drop > 0) {
+        System.arraycopy(bytes, drop, bytes, 0, length - drop);
+        length -= drop;
+      }
+
+      System.arraycopy(b, 0, bytes, length, len);
+      length += len;
+    }
+  }
+
+  /** Writes lines as frames. */
+  public static class Encoder {
+    private final Deflater deflater = new Deflater();
+    private final History history = new History();
+    private final byte[] buf = new byte[8192];
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream();
+
+    private long lineBytes = 0;
+    private long frameBytes = 0;
+    private boolean ended = false;
+
+    /**
+     * Writes a line as a frame. The stream is not flushed.
+     *
+     * @param line the line
+     * @param out the stream
+     * @throws IOException if the frame cannot be written
+     */
+    public synchronized void write(String line, OutputStream out)
+                                                          throws IOException {
+      if (ended) throw new IOException("Encoder is ended"); //$NON-NLS-1$
+
+      final byte[] text = toBytes(line);
+
+      frame.reset();
+      boolean deflated = false;
+      if (text.length >= MIN_DEFLATE) {
+        deflater.reset();
+        if (history.length > 0) {
+          deflater.setDictionary(history.bytes, 0, history.length);
+        }
+        deflater.setInput(text);
+        deflater.finish();
+        while (!deflater.finished()) {
+          frame.write(buf, 0, deflater.deflate(buf));
+        }
+
+        // don't deflate if it makes the line longer
+        deflated = frame.size() < text.length;
+      }
+
+      if (!deflated) {
+        frame.reset();
+        frame.write(text, 0, text.length);
+      }
+
+      final int header = writeHeader(out, deflated ? DEFLATED : STORED,
+                                     frame.size());
+      frame.writeTo(out);
+
+      history.add(text, text.length);
+      lineBytes += text.length;
+      frameBytes += header + frame.size();
+    }
+
+    /**
+     * @return the number of bytes of lines written
+     */
+    public long getLineBytes() {
+      return lineBytes;
+    }
+
+    /**
+     * @return the number of bytes of frames written
+     */
+    public long getFrameBytes() {
+      return frameBytes;
+    }
+
+    /**
+     * Releases the <code>Deflater</code>. Lines can no longer be written
+     * afterwards.
+     */
+    public synchronized void end() {
+      if (!ended) {
+        ended = true;
+        deflater.end();
+      }
+    }
+  }
+
+  /** Reads lines from frames. */
+  public static class Decoder {
+    private final Inflater inflater = new Inflater();
+    private final History history = new History();
+    private final byte[] buf = new byte[8192];
+    private final ByteArrayOutputStream text = new ByteArrayOutputStream();
+    private boolean ended = false;
+
+    /**
+     * Reads a line from a frame.
+     *
+     * @param in the stream
+     * @return the line, or <code>null</code> at the end of the stream
+     * @throws IOException if the frame cannot be read, is corrupt, or
+     * holds a line longer than {@link LineCompressor#MAX_LINE}
+     */
+    public synchronized String read(InputStream in) throws IOException {
+      if (ended) throw new IOException("Decoder is ended"); //$NON-NLS-1$
+
+      final int type = in.read();
+      if (type == -1) return null;
+
+      final int len = readLength(in);
+      final byte[] data = new byte[len];
+      readFully(in, data);
+
+      final byte[] line;
+      switch (type) {
+      case STORED:
+        line = data;
+        break;
+      case DEFLATED:
+        line = inflate(data);
+        break;
+      default:
+        throw new IOException("Unknown frame type " + type); //$NON-NLS-1$
+      }
+
+      history.add(line, line.length);
+      return LineCompressor.toString(line);
+    }
+
+    private byte[] inflate(byte[] data) throws IOException {
+      inflater.reset();
+      inflater.setInput(data);
+      text.reset();
+
+      try {
+        while (!inflater.finished()) {
+          final int n = inflater.inflate(buf);
+          if (n > 0) {
+            // a small frame may inflate to a huge line
+            if (text.size() + n > MAX_LINE) {
+              throw new IOException("Line too long"); //$NON-NLS-1$
+            }
+            text.write(buf, 0, n);
+          }
+          else if (inflater.needsDictionary()) {
+            inflater.setDictionary(history.bytes, 0, history.length);
+          }
+          else if (inflater.needsInput()) {
+            throw new IOException("Truncated frame"); //$NON-NLS-1$
+          }
+        }
+      }
+      catch (DataFormatException e) {
+        final IOException ioe = new IOException("Corrupt frame"); //$NON-NLS-1$
+        ioe.initCause(e);
+        throw ioe;
+      }
+
+      return text.toByteArray();
+    }
+
+    /**
+     * Releases the <code>Inflater</code>. Lines can no longer be read
+     * afterwards.
+     */
+    public synchronized void end() {
+      if (!ended) {
+        ended = true;
+        inflater.end();
+      }
+    }
+  }
+
+  /**
+   * Writes the frame type and length. The length is written seven bits
+   * at a time, least significant first.
+   *
+   * @return the number of bytes written
+   */
+  private static int writeHeader(OutputStream out, int type, int len)
+                                                          throws IOException {
+    out.write(type);
+    int n = 1;
+    while (len >= 0x80) {
+      out.write((len & 0x7f) | 0x80);
+      len >>>= 7;
+      ++n;
+    }
+    out.write(len);
+    return n + 1;
+  }
+
+  private static int readLength(InputStream in) throws IOException {
+    int len = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final int b = in.read();
+      if (b == -1) throw new EOFException();
+      len |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        if (len < 0 || len > MAX_FRAME) {
+          throw new IOException("Bad frame length " + len); //$NON-NLS-1$
+        }
+        return len;
+      }
+    }
+    throw new IOException("Bad frame length"); //$NON-NLS-1$
+  }
+
+  private static void readFully(InputStream in, byte[] b) throws IOException {
+    int off = 0;
+    while (off < b.length) {
+      final int n = in.read(b, off, b.length - off);
+      if (n == -1) throw new EOFException();
+      off += n;
+    }
+  }
+
+  private static byte[] toBytes(String s) {
+    try {
+      return s.getBytes(ENCODING);
+    }
+    catch (UnsupportedEncodingException e) {
+      // cannot happen, UTF-8 is always supported
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toString(byte[] b) {
+    try {
+      return new String(b, ENCODING);
+    }
+    catch (UnsupportedEncodingException e) {
+      // cannot happen, UTF-8 is always supported
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -232,7 +232,7 @@ public abstract class NodeClient implements LockableChatServerConnection,
   public void forward(String receipientPath, String msg) {
     if (isConnected() && currentRoom != null && msg != null) {
       msg = checker.filter(msg, defaultRoomName, currentRoom.getName());
-      if (msg.length() > compressionLimit) {
+      if (msg.length() > compressionLimit && !isCompressing()) {
         try {
           msg = ZIP_HEADER + Base64.encodeBase64String(
             Compressor.compress(msg.getBytes("UTF-8"))
@@ -247,6 +247,15 @@ public abstract class NodeClient implements LockableChatServerConnection,
     }
   }
 
+  /**
+   * @return <code>true</code> if the connection to the server compresses
+   * messages, so that they need not be compressed individually
+   * @since 3.2.3
+   */
+  protected boolean isCompressing() {
+    return false;
+  }
+
   public void sendToOthers(String msg) {
     if (currentRoom != null) {
       String path = new SequenceEncoder(moduleName, '/').append(
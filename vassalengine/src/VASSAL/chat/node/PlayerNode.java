@@ -23,6 +23,7 @@ package VASSAL.chat.node;
 
 import java.io.IOException;
 import java.net.Socket;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Properties;
 
@@ -44,7 +45,7 @@ public class PlayerNode extends Node implements SocketWatcher {
   public PlayerNode(Socket socket, AsynchronousServerNode server) throws IOException {
     super(null,null,null);
     this.server = server;
-    this.input = new BufferedSocketHandler(socket,this);
+    this.input = new CompressingSocketHandler(socket,this);
     input.start();
   }
 
@@ -133,6 +134,11 @@ public class PlayerNode extends Node implements SocketWatcher {
     else if ((cmd = Protocol.decodeLoginCommand(line)) != null) {
       connLimiter.register(cmd,input);
     }
+    else if ((info = Protocol.decodeCompressRequest(line)) != null) {
+      if (Arrays.asList(info).contains(Protocol.DEFLATE)) {
+        send(Protocol.DEFLATE);
+      }
+    }
   }
 
   public void socketClosed(SocketHandler handler) {
@@ -44,6 +44,13 @@ public class Protocol {
   public static final String ROOM_INFO = "ROOM_INFO\t"; //$NON-NLS-1$
   public static final String LOGIN = "LOGIN\t"; //$NON-NLS-1$
   public static final String KICK = "KICK\t"; //$NON-NLS-1$
+  public static final String COMPRESS = "COMPRESS\t"; //$NON-NLS-1$
+  /**
+   * Sent by each side of a connection before the lines which it
+   * compresses.
+   * @see CompressingSocketHandler
+   */
+  public static final String DEFLATE = "DEFLATE"; //$NON-NLS-1$
 
   /**
    * Contains registration information sent when a client initially connects to
@@ -330,4 +337,26 @@ public class Protocol {
    *         while (st.hasMoreTokens()) { String pathAndInfo = st.nextToken();
    *         Node.build(root, pathAndInfo); } node = root; } return node; }
    */
+
+  /**
+   * @return a request to compress the connection with any of the
+   * supported methods
+   * @since 3.2.3
+   */
+  public static String encodeCompressRequest() {
+    return COMPRESS + DEFLATE;
+  }
+
+  /**
+   * @return the compression methods offered, or <code>null</code> if
+   * the command is not a request to compress the connection
+   * @since 3.2.3
+   */
+  public static String[] decodeCompressRequest(String cmd) {
+    String[] methods = null;
+    if (cmd.startsWith(COMPRESS)) {
+      methods = cmd.substring(COMPRESS.length()).split("\\t"); //$NON-NLS-1$
+    }
+    return methods;
+  }
 }
@@ -17,7 +17,11 @@
  */
 package VASSAL.chat.node;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.Properties;
@@ -27,10 +31,23 @@ import VASSAL.chat.WelcomeMessageServer;
 import VASSAL.chat.messageboard.MessageBoard;
 import VASSAL.command.CommandEncoder;
 import VASSAL.i18n.Resources;
+import VASSAL.tools.io.IOUtils;
 
 public class SocketNodeClient extends NodeClient implements SocketWatcher {
-  private SocketHandler sender;
+  /**
+   * If this system property is set, the lines sent to and received from
+   * the server are appended to <code>&lt;value&gt;-sent.txt</code> and
+   * <code>&lt;value&gt;-received.txt</code>, for use with
+   * <code>VASSAL.chat.node.CompressionBenchmark</code> in the benchmark
+   * tree.
+   * @since 3.2.3
+   */
+  public static final String RECORD_PROPERTY = "VASSAL.chat.record"; //$NON-NLS-1$
+
+  private CompressingSocketHandler sender;
   protected NodeServerInfo serverInfo;
+  private Writer sentRecord;
+  private Writer receivedRecord;
 
   public SocketNodeClient(String moduleName, String playerId, CommandEncoder encoder, NodeServerInfo serverInfo, MessageBoard msgSvr, WelcomeMessageServer welcomer) {
     super(moduleName, playerId, encoder, msgSvr, welcomer);
@@ -54,18 +71,26 @@ public class SocketNodeClient extends NodeClient implements SocketWatcher {
   }
 
   public void send(String command) {
+    record(sentRecord, command);
     sender.writeLine(command);
   }
 
   protected void initializeConnection() throws UnknownHostException, IOException {
+    final String record = System.getProperty(RECORD_PROPERTY);
+    if (record != null && sentRecord == null) {
+      sentRecord = openRecord(record + "-sent.txt"); //$NON-NLS-1$
+      receivedRecord = openRecord(record + "-received.txt"); //$NON-NLS-1$
+    }
+
     Socket s = new Socket(serverInfo.getHostName(), serverInfo.getPort());
-    sender = new BufferedSocketHandler(s, this);
+    sender = new CompressingSocketHandler(s, this);
     sender.start();
+    sender.writeLine(Protocol.encodeCompressRequest());
 
   }
 
   protected void closeConnection() {
-    SocketHandler s = sender;
+    CompressingSocketHandler s = sender;
     sender = null;
     s.close();
   }
@@ -82,10 +107,42 @@ public class SocketNodeClient extends NodeClient implements SocketWatcher {
     }
   }
 
+  private static Writer openRecord(String name) throws IOException {
+    return new BufferedWriter(new OutputStreamWriter(
+      new FileOutputStream(name, true), "UTF-8")); //$NON-NLS-1$
+  }
+
+  private static void record(Writer w, String line) {
+    if (w == null) return;
+    synchronized (w) {
+      try {
+        w.write(line);
+        w.write('\n');
+        w.flush();
+      }
+      catch (IOException e) {
+        // the record is only for benchmarking
+        IOUtils.closeQuietly(w);
+      }
+    }
+  }
+
   public void handleMessage(String msg) {
+    record(receivedRecord, msg);
+    if (Protocol.DEFLATE.equals(msg) && sender != null && sender.isInflating()
+        && !sender.isDeflating()) {
+      // the server compresses, so we do too
+      sender.writeLine(Protocol.DEFLATE);
+      return;
+    }
     handleMessageFromServer(msg);
   }
 
+  protected boolean isCompressing() {
+    final CompressingSocketHandler s = sender;
+    return s != null && s.isDeflating();
+  }
+
   public void updateConfig(Properties params) {
     // No Configurable parameters
   }
@@ -87,7 +87,7 @@ public class SynchAction extends AbstractAction {
       final long now = System.currentTimeMillis();
       if ( ! targetRoom.equals(lastRoom) || (now - lastSync) > TOO_SOON) {
         GameModule.getGameModule().getGameState().setup(false);
-        client.sendTo(p, new SynchCommand(client.getUserInfo(),client));
+        client.sendTo(p, SynchCommand.createRequest(client.getUserInfo(),client));
         lastSync = now;
       }
       lastRoom = targetRoom;
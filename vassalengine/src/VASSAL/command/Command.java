@@ -18,8 +18,13 @@
  */
 package VASSAL.command;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.ThrowableUtils;
@@ -185,4 +190,113 @@ public abstract class Command {
     }
     return undo;
   }
+
+  private static final Map<Class<?>,Boolean> overridesExecute =
+    new ConcurrentHashMap<Class<?>,Boolean>();
+
+  /**
+   * @return <code>true</code> if the class of the given command replaces
+   * {@link #execute}, so that it cannot be broken into steps
+   * @since 3.2.3
+   */
+  public static boolean overridesExecute(Command c) {
+    final Class<?> cl = c.getClass();
+    Boolean b = overridesExecute.get(cl);
+    if (b == null) {
+      try {
+        b = cl.getMethod("execute").getDeclaringClass() != Command.class;
+      }
+      catch (NoSuchMethodException e) {
+        // cannot happen, execute() is public
+        throw new IllegalStateException(e);
+      }
+      overridesExecute.put(cl, b);
+    }
+    return b;
+  }
+
+  /**
+   * Executes a command a piece at a time. Each call to {@link #step}
+   * performs the {@link #executeCommand} of one command in the tree, in
+   * exactly the order that {@link #execute} would, so that a long
+   * compound command can be spread over several calls.
+   *
+   * @since 3.2.3
+   */
+  public static class Stepper {
+    private Command next;
+    private final LinkedList<Iterator<Command>> stack =
+      new LinkedList<Iterator<Command>>();
+    private int steps = 0;
+
+    public Stepper(Command c) {
+      next = c;
+    }
+
+    /**
+     * @return <code>true</code> if there are steps left to perform
+     */
+    public boolean hasNext() {
+      if (next != null) return true;
+
+      while (!stack.isEmpty()) {
+        if (stack.getFirst().hasNext()) return true;
+        stack.removeFirst();
+      }
+      return false;
+    }
+
+    /**
+     * @return the number of steps performed so far
+     */
+    public int getSteps() {
+      return steps;
+    }
+
+    /**
+     * Performs the next step.
+     *
+     * @throws NoSuchElementException if there are no steps left
+     */
+    public void step() {
+      final Command c;
+      if (next != null) {
+        c = next;
+        next = null;
+      }
+      else if (hasNext()) {
+        c = stack.getFirst().next();
+      }
+      else {
+        throw new NoSuchElementException();
+      }
+
+      ++steps;
+
+      if (overridesExecute(c)) {
+        try {
+          c.execute();
+        }
+        catch (Throwable t) {
+          c.handleFailure(t);
+        }
+        return;
+      }
+
+      try {
+        c.executeCommand();
+      }
+      catch (Throwable t) {
+        c.handleFailure(t);
+
+        final LinkedList<Command> oldSeq = c.seq;
+        c.stripSubCommands();
+        c.seq = oldSeq;
+      }
+
+      // Iterate over a copy, since commands may be appended to c while
+      // its subcommands are still being stepped through.
+      stack.addFirst(new ArrayList<Command>(c.seq).iterator());
+    }
+  }
 }
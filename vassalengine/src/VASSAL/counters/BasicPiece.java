@@ -100,6 +100,8 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
   private Point pos = new Point(0, 0);
   private String id;
   private java.util.Map<Object, Object> props;
+  private int stateVersion;
+  private static int globalStateVersion;
   /** @deprecated Moved into own traits, retained for backward compatibility */
   @Deprecated
   private char cloneKey;
@@ -143,6 +145,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
   }
 
   public void setMap(IMap map) {
+    stateChanged();
     if (map != this.map) {
       commands = null;
       this.map = map;
@@ -169,7 +172,8 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
       return getKeyCommands();
     }
     else if (LOCATION_NAME.equals(key)) {
-      return getMap() == null ? "" : getMap().locationName(getPosition());
+      return getMap() == null ? "" :
+        PropertyResolutionCache.locationName(getMap(), getPosition());
     }
     else if (PIECE_NAME.equals(key)) {
       return Decorator.getOutermost(this).getName();
@@ -193,7 +197,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
      }
     else if (CURRENT_BOARD.equals(key)) {
       if (getMap() != null) {
-        final Board b = getMap().findBoard(getPosition());
+        final Board b = PropertyResolutionCache.findBoard(getMap(), getPosition());
         if (b != null) {
           return b.getName();
         }
@@ -202,7 +206,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
     }
     else if (CURRENT_ZONE.equals(key)) {
       if (getMap() != null) {
-        final Zone z = getMap().findZone(getPosition());
+        final Zone z = PropertyResolutionCache.findZone(getMap(), getPosition());
         if (z != null) {
           return z.getName();
         }
@@ -221,15 +225,16 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
     Object prop = props == null ? null : props.get(key);
     if (prop == null) {
       final IMap map = getMap();
-      final Zone zone = (map == null ? null : map.findZone(getPosition()));
+      final Zone zone = (map == null ? null : PropertyResolutionCache.findZone(map, getPosition()));
       if (zone != null) {
-        prop = zone.getProperty(key);
+        prop = PropertyResolutionCache.getProperty(zone, key);
       }
       else if (map != null) {
-        prop = map.getProperty(key);
+        prop = PropertyResolutionCache.getProperty(map, key);
       }
       else {
-        prop = GameModule.getGameModule().getProperty(key);
+        prop = PropertyResolutionCache.getProperty(
+          GameModule.getGameModule(), key);
       }
     }
     return prop;
@@ -279,7 +284,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
     }
     else if (CURRENT_BOARD.equals(key)) {
       if (getMap() != null) {
-        final Board b = getMap().findBoard(getPosition());
+        final Board b = PropertyResolutionCache.findBoard(getMap(), getPosition());
         if (b != null) {
           return b.getLocalizedName();
         }
@@ -288,7 +293,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
     }
     else if (CURRENT_ZONE.equals(key)) {
       if (getMap() != null) {
-        final Zone z = getMap().findZone(getPosition());
+        final Zone z = PropertyResolutionCache.findZone(getMap(), getPosition());
         if (z != null) {
           return z.getLocalizedName();
         }
@@ -307,7 +312,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
     Object prop = props == null ? null : props.get(key);
     if (prop == null) {
       final IMap map = getMap();
-      final Zone zone = (map == null ? null : map.findZone(getPosition()));
+      final Zone zone = (map == null ? null : PropertyResolutionCache.findZone(map, getPosition()));
       if (zone != null) {
         prop = zone.getLocalizedProperty(key);
       }
@@ -322,6 +327,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
   }
 
   public void setProperty(Object key, Object val) {
+    stateChanged();
     if (props == null) {
       props = new HashMap<Object, Object>();
     }
@@ -392,12 +398,16 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
   }
 
   public void setPosition(Point p) {
+    stateChanged();
     if (getMap() != null && getParent() == null) {
       getMap().repaint(getMap().boundingBoxOf(Decorator.getOutermost(this)));
     }
     pos = p;
     if (getMap() != null && getParent() == null) {
       getMap().repaint(getMap().boundingBoxOf(Decorator.getOutermost(this)));
+      if (getMap() instanceof Map) {
+        ((Map) getMap()).getPieceIndex().update(Decorator.getOutermost(this));
+      }
     }
   }
 
@@ -439,6 +449,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
   }
 
   public Command keyEvent(KeyStroke stroke) {
+    stateChanged();
     getKeyCommands();
     if (!isEnabled(stroke)) {
       return null;
@@ -564,6 +575,7 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
   }
 
   public void setState(String s) {
+    stateChanged();
     final GamePiece outer = Decorator.getOutermost(this);
     final IMap oldMap = getMap();
     final SequenceEncoder.Decoder st = new SequenceEncoder.Decoder(s, ';');
@@ -600,6 +612,37 @@ public class BasicPiece implements TranslatablePiece, StateMergeable, PropertyNa
     }
   }
 
+  /**
+   * Every change to the state, properties or position of a piece
+   * passes through its innermost <code>BasicPiece</code>, so this counter
+   * is incremented whenever the appearance of the piece may have changed.
+   *
+   * @return a number which changes whenever the piece may have changed
+   * @see PieceSpriteCache
+   */
+  public int getStateVersion() {
+    return stateVersion;
+  }
+
+  /**
+   * @return a number which changes whenever any piece may have changed
+   */
+  public static int getGlobalStateVersion() {
+    return globalStateVersion;
+  }
+
+  /**
+   * Records that the appearance or properties of this piece may have
+   * changed. Traits whose state changes other than through
+   * {@link #setState} or {@link #keyEvent} should call this.
+   *
+   * @see Decorator#stateChanged
+   */
+  public void stateChanged() {
+    ++stateVersion;
+    ++globalStateVersion;
+  }
+
   public String getId() {
     return id;
   }
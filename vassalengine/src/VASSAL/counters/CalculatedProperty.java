@@ -24,12 +24,17 @@ import java.awt.Graphics;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.JPanel;
+import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 
+import bsh.BeanShellExpressionValidator;
+
 import VASSAL.build.BadDataReport;
 import VASSAL.build.module.documentation.HelpFile;
 import VASSAL.command.Command;
@@ -58,6 +63,31 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
   protected String name = "";
   protected Expression expression;
 
+  /*
+   * The value is cached, together with the versions of everything it was
+   * computed from: the piece itself, the properties of zones, maps and the
+   * module, and, for expressions which read other pieces, every piece.
+   * Expressions which call random are never cached.
+   */
+  protected List<String> inputs = Collections.emptyList();
+  protected boolean readsOtherPieces = false;
+  protected boolean random = false;
+  protected String cachedValue;
+  protected int cachedVersion;
+  protected int cachedGeneration;
+  protected int cachedGlobalVersion;
+  protected int readCount = 0;
+  protected int recomputeCount = 0;
+
+  // The CalculatedProperty being evaluated on this thread, if any.
+  // Properties read while it is evaluated pass on whether they read other
+  // pieces. Each thread has its own, so that a property evaluated off the
+  // EDT is never mistaken for one read by a property evaluated on it.
+  private static final ThreadLocal<CalculatedProperty> evaluating =
+    new ThreadLocal<CalculatedProperty>();
+  private boolean evaluatingReadsOtherPieces;
+  private boolean evaluatingRandom;
+
   public CalculatedProperty() {
     this(ID, null);
   }
@@ -122,6 +152,78 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
     st.nextToken();
     name = st.nextToken("");
     expression = BeanShellExpression.createExpression(st.nextToken(""));
+    findInputs();
+    cachedValue = null;
+  }
+
+  /**
+   * Finds the properties read by the expression, and whether it reads
+   * the properties of pieces other than this one.
+   */
+  protected void findInputs() {
+    inputs = Collections.emptyList();
+    readsOtherPieces = false;
+    random = false;
+
+    final String bsh = expression.toBeanShellString();
+    if (bsh.length() == 0) {
+      return;
+    }
+
+    final BeanShellExpressionValidator v =
+      new BeanShellExpressionValidator(bsh);
+    if (v.getVariables() != null) {
+      inputs = new ArrayList<String>(v.getVariables());
+    }
+    if (v.getMethods() != null) {
+      for (String m : v.getMethods()) {
+        if (m.contains("SumStack") || m.contains("SumLocation")) {
+          readsOtherPieces = true;
+        }
+        if (m.toLowerCase().contains("random")) {
+          random = true;
+        }
+      }
+    }
+    // The position of a piece in a Deck depends on the other pieces in it
+    if (inputs.contains(BasicPiece.DECK_POSITION)) {
+      readsOtherPieces = true;
+    }
+  }
+
+  /**
+   * @return the names of the properties read by the expression
+   */
+  public List<String> getInputs() {
+    return Collections.unmodifiableList(inputs);
+  }
+
+  /**
+   * @return true if the value may depend on pieces other than this one
+   */
+  public boolean readsOtherPieces() {
+    return readsOtherPieces;
+  }
+
+  /**
+   * @return true if the value may differ each time it is evaluated
+   */
+  public boolean isRandom() {
+    return random;
+  }
+
+  /**
+   * @return the number of times the value has been read
+   */
+  public int getReadCount() {
+    return readCount;
+  }
+
+  /**
+   * @return the number of times the expression has been evaluated
+   */
+  public int getRecomputeCount() {
+    return recomputeCount;
   }
 
   protected String getExpression() {
@@ -136,9 +238,48 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
   public Object getProperty(Object key) {
     Object result = "";
     if (name.length() > 0 && name.equals(key)) {
+      ++readCount;
+
+      final GamePiece inner = getInnermost(this);
+      final BasicPiece basic =
+        inner instanceof BasicPiece ? (BasicPiece) inner : null;
+
+      if (basic != null && !random && cachedValue != null &&
+          cachedVersion == basic.getStateVersion() &&
+          cachedGeneration == PropertyResolutionCache.getGeneration() &&
+          (!readsOtherPieces ||
+           cachedGlobalVersion == BasicPiece.getGlobalStateVersion())) {
+        if (readsOtherPieces) {
+          final CalculatedProperty outer = evaluating.get();
+          if (outer != null) {
+            outer.evaluatingReadsOtherPieces = true;
+          }
+        }
+        return cachedValue;
+      }
+
+      final int version = basic == null ? 0 : basic.getStateVersion();
+      final int generation = PropertyResolutionCache.getGeneration();
+      final int globalVersion = BasicPiece.getGlobalStateVersion();
+
+      final CalculatedProperty outer = evaluating.get();
+      evaluating.set(this);
+      evaluatingReadsOtherPieces = readsOtherPieces;
+      evaluatingRandom = random;
       try {
         RecursionLimiter.startExecution(this);
+        ++recomputeCount;
         result = evaluate();
+
+        if (basic != null) {
+          // this value depends on whatever the values it read depend on
+          readsOtherPieces = evaluatingReadsOtherPieces;
+          random = evaluatingRandom;
+          cachedValue = random ? null : (String) result;
+          cachedVersion = version;
+          cachedGeneration = generation;
+          cachedGlobalVersion = globalVersion;
+        }
         return result;
       }
       catch (RecursionLimitException e) {
@@ -146,8 +287,20 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
       }
       finally {
         RecursionLimiter.endExecution();
+        if (outer != null) {
+          evaluating.set(outer);
+          if (readsOtherPieces) {
+            outer.evaluatingReadsOtherPieces = true;
+          }
+          if (random) {
+            outer.evaluatingRandom = true;
+          }
+        }
+        else {
+          // don't hold on to this piece from a pooled thread
+          evaluating.remove();
+        }
       }
-
       return result;
     }
     return super.getProperty(key);
@@ -189,6 +342,7 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
     protected StringConfigurer nameConfig;
     protected BeanShellExpressionConfigurer expressionConfig;
     protected StringConfigurer defaultValueConfig;
+    protected JTextArea dependencies;
     protected JPanel box;
 
     public Ed(CalculatedProperty piece) {
@@ -202,6 +356,11 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
       expressionConfig = new BeanShellExpressionConfigurer(null, "Expression:  ", piece.getExpression(), Decorator.getOutermost(piece));
       box.add(expressionConfig.getControls());
 
+      dependencies = new JTextArea(
+        getDependencyReport(Decorator.getOutermost(piece)));
+      dependencies.setEditable(false);
+      dependencies.setBorder(BorderFactory.createTitledBorder("Dependencies"));
+      box.add(dependencies);
     }
 
     public Component getControls() {
@@ -230,6 +389,48 @@ public class CalculatedProperty extends Decorator implements EditablePiece, Loop
     return getDescription();
   }
 
+  /**
+   * Describes the calculated properties of a piece: the properties each
+   * one reads, marking those which are themselves calculated, and how
+   * often each has been read and recomputed.
+   *
+   * @param p the piece
+   * @return a description of the dependency graph, one line per edge
+   */
+  public static String getDependencyReport(GamePiece p) {
+    final List<CalculatedProperty> calcs = new ArrayList<CalculatedProperty>();
+    final List<String> names = new ArrayList<String>();
+    for (GamePiece g = getOutermost(p); g instanceof Decorator;
+         g = ((Decorator) g).getInner()) {
+      if (g instanceof CalculatedProperty) {
+        calcs.add((CalculatedProperty) g);
+        names.add(((CalculatedProperty) g).name);
+      }
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    for (CalculatedProperty c : calcs) {
+      sb.append(c.name).append(" = ").append(c.getExpression())
+        .append(" [reads=").append(c.readCount)
+        .append(", recomputes=").append(c.recomputeCount);
+      if (c.readsOtherPieces) {
+        sb.append(", reads other pieces");
+      }
+      if (c.random) {
+        sb.append(", random");
+      }
+      sb.append("]\n");
+      for (String in : c.inputs) {
+        sb.append("  ").append(c.name).append(" -> ").append(in);
+        if (names.contains(in)) {
+          sb.append(" (calculated)");
+        }
+        sb.append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
   /**
    * Return Property names exposed by this trait
    */
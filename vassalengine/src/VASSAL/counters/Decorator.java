@@ -343,6 +343,20 @@ public abstract class Decorator implements GamePiece, StateMergeable, PropertyNa
     return p;
   }
 
+  /**
+   * Records that the state of this trait has changed other than through
+   * {@link #setState} or {@link #keyEvent}, so that anything cached
+   * from the piece is recomputed.
+   *
+   * @see BasicPiece#stateChanged
+   */
+  protected void stateChanged() {
+    final GamePiece inner = getInnermost(this);
+    if (inner instanceof BasicPiece) {
+      ((BasicPiece) inner).stateChanged();
+    }
+  }
+
   /**
    *
    * @param p
@@ -185,6 +185,7 @@ public class DynamicProperty extends Decorator implements TranslatablePiece, Pro
   }
 
   public void setValue(String value) {
+    stateChanged();
     Stack parent = getParent();
     IMap map = getMap();
 
@@ -165,6 +165,7 @@ public class Embellishment extends Decorator implements TranslatablePiece {
   }
 
   public void setActive(boolean val) {
+    stateChanged();
     value = val ? Math.abs(value) : -Math.abs(value);
   }
 
@@ -181,6 +182,7 @@ public class Embellishment extends Decorator implements TranslatablePiece {
     if (val >= nValues) {
       throw new IllegalArgumentException();
     }
+    stateChanged();
     value = value > 0 ? val + 1 : -val - 1;
   }
 
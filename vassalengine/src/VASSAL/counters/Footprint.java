@@ -241,6 +241,7 @@ public class Footprint extends MovementMarkable {
    * The argument is false when the unit is marked as not moved.
    */
   public void setMoved(boolean justMoved) {
+    stateChanged();
     if (justMoved) {
       recordCurrentPosition();
       final IMap map = getMap();
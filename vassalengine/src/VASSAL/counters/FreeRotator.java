@@ -206,6 +206,7 @@ public class FreeRotator extends Decorator
   }
 
   public void setAngle(double angle) {
+    stateChanged();
     if (validAngles.length == 1) {
       validAngles[angleIndex] = angle;
     }
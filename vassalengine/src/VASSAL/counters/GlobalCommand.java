@@ -99,6 +99,7 @@ public class GlobalCommand {
    */
   public Command apply(Map[] m, PieceFilter filter) {
     Command c = new NullCommand();
+    PropertyResolutionCache.begin();
     try {
       if (reportSingle) {
         Map.setChangeReportingEnabled(false);
@@ -125,6 +126,7 @@ public class GlobalCommand {
       RecursionLimiter.infiniteLoop(e);
     }
     finally {
+      PropertyResolutionCache.end();
       RecursionLimiter.endExecution();
       if (reportSingle) {
         Map.setChangeReportingEnabled(true);
@@ -68,6 +68,7 @@ public class Hideable extends Decorator implements TranslatablePiece {
 
   public void setProperty(Object key, Object val) {
     if (HIDDEN_BY.equals(key)) {
+      stateChanged();
       hiddenBy = (String) val;
     }
     else {
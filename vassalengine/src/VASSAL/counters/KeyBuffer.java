@@ -24,7 +24,9 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import VASSAL.command.Command;
 import VASSAL.command.NullCommand;
@@ -32,7 +34,10 @@ import VASSAL.command.NullCommand;
 
 public class KeyBuffer {
   private static KeyBuffer theBuffer;
-  private List<GamePiece> pieces;
+  // The selected pieces, in order. Pieces are compared by identity, so
+  // that membership tests and removal take constant time.
+  private final Map<PieceKey,GamePiece> pieces =
+    new LinkedHashMap<PieceKey,GamePiece>();
   private final IBoundsTracker bounds;
   private final PieceClonerRetriever pieceClonerRetriever;
   private final PieceSorterRetriever pieceSorterRetriever;
@@ -42,7 +47,6 @@ public class KeyBuffer {
    * within the class KeyBuffer, or by testing.
    */
   KeyBuffer() {
-    pieces = new ArrayList<GamePiece>();
     bounds = new BoundsTracker();
     pieceClonerRetriever = new PieceClonerRetrieverSingleton();
     pieceSorterRetriever = new PieceSorterRetriever() {
@@ -65,7 +69,6 @@ public class KeyBuffer {
 		  PieceClonerRetriever pieceClonerRetriever,
 		  PieceSorterRetriever pieceSorterRetriever) 
   {
-    this.pieces = new ArrayList<GamePiece>();
     this.bounds = boundsTracker;
     this.pieceClonerRetriever = pieceClonerRetriever;
     this.pieceSorterRetriever = pieceSorterRetriever;
@@ -84,16 +87,13 @@ public class KeyBuffer {
   }
 
   public void add(GamePiece p) {
-// FIXME: should we use a HashSet or LinkedHashSet instead to make contains()
-// checks faster? Is insertion order important?
-    if (p != null && !pieces.contains(p)) {
-      pieces.add(p);
+    if (p != null && pieces.put(new PieceKey(p), p) == null) {
       p.setProperty(Properties.SELECTED, Boolean.TRUE);
     }
   }
 
   public void clear() {
-    for (GamePiece p : pieces) {
+    for (GamePiece p : pieces.values()) {
       p.setProperty(Properties.SELECTED, null);
     }
     pieces.clear();
@@ -102,7 +102,7 @@ public class KeyBuffer {
   public void remove(GamePiece p) {
     if (p != null) {
       p.setProperty(Properties.SELECTED, null);
-      pieces.remove(p);
+      pieces.remove(new PieceKey(p));
     }
   }
 
@@ -110,14 +110,14 @@ public class KeyBuffer {
     if (p instanceof Stack) {
       for (Iterator<GamePiece> i = ((Stack) p).getPiecesIterator();
            i.hasNext();) {
-        if (!pieces.contains(i.next())) {
+        if (!pieces.containsKey(new PieceKey(i.next()))) {
           return false;
         }
       }
       return true;
     }
     else {
-      return pieces.contains(p);
+      return pieces.containsKey(new PieceKey(p));
     }
   }
 
@@ -177,7 +177,7 @@ public class KeyBuffer {
     sort(pieceSorterRetriever.getPieceSorter());
     // Copy contents into new list, because contents may change
     // as a result of key commands
-    ArrayList<GamePiece> targets = new ArrayList<GamePiece>(pieces);
+    ArrayList<GamePiece> targets = new ArrayList<GamePiece>(pieces.values());
     // Reverse the order if this is a "Move Up" or "Move to Bottom" keystroke
     if (targets.size() > 0) {
       GamePiece top = targets.get(0);
@@ -206,17 +206,22 @@ public class KeyBuffer {
 
 
   public Iterator<GamePiece> getPiecesIterator() {
-    return pieces.iterator();
+    return Collections.unmodifiableCollection(pieces.values()).iterator();
   }
 
   /** @deprecated Use {@link #getPiecesIterator()} instead. */
   @Deprecated
   public Enumeration<GamePiece> getPieces() {
-    return Collections.enumeration(pieces);
+    return Collections.enumeration(pieces.values());
   }
 
   public void sort(Comparator<GamePiece> comp) {
-    Collections.sort(pieces, comp);
+    final List<GamePiece> l = new ArrayList<GamePiece>(pieces.values());
+    Collections.sort(l, comp);
+    pieces.clear();
+    for (GamePiece p : l) {
+      pieces.put(new PieceKey(p), p);
+    }
   }
 
   /**
@@ -226,10 +231,31 @@ public class KeyBuffer {
    */
   public boolean containsChild(Stack stack) {
     for (Iterator<GamePiece> i = stack.getPiecesIterator(); i.hasNext();) {
-      if (contains(i.next())) {
+      if (pieces.containsKey(new PieceKey(i.next()))) {
         return true;
       }
     }
     return false;
   }
+
+  /**
+   * Wraps a piece so that it is compared by identity.
+   */
+  private static class PieceKey {
+    private final GamePiece piece;
+
+    PieceKey(GamePiece piece) {
+      this.piece = piece;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof PieceKey && ((PieceKey) o).piece == piece;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(piece);
+    }
+  }
 }
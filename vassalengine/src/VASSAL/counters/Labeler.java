@@ -29,12 +29,16 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -69,6 +73,8 @@ import VASSAL.tools.RecursionLimiter.Loopable;
 import VASSAL.tools.SequenceEncoder;
 import VASSAL.tools.image.ImageUtils;
 import VASSAL.tools.imageop.AbstractTileOpImpl;
+import VASSAL.tools.imageop.ScalableOp;
+import VASSAL.tools.imageop.ScaleOp;
 import VASSAL.tools.imageop.ScaledImagePainter;
 
 /**
@@ -296,7 +302,6 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
     updateCachedImage();
     piece.draw(g, x, y, obs, zoom);
 
-// FIXME: We should be drawing the text at the right size, not scaling it!
     final Point p = getLabelPosition();
     final int labelX = x + (int) (zoom * p.x);
     final int labelY = y + (int) (zoom * p.y);
@@ -393,6 +398,7 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
   }
 
   public void setLabel(String s) {
+    stateChanged();
     if (s == null) s = "";
 
     position = null;  // clear position cache
@@ -426,22 +432,38 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
     this.textFg = textFg;
   }
 
-  protected static class LabelOp extends AbstractTileOpImpl {
+  /**
+   * Renders the text of a label. The text is drawn directly at the scale
+   * at which the label is shown, rather than being drawn at 1:1 and then
+   * scaled. Labels at every scale share one {@link Layout}.
+   */
+  protected static class LabelOp extends AbstractTileOpImpl
+                                 implements ScalableOp, ScaleOp {
     private final String txt;
     private final Font font;
     private final Color fg;
     private final Color bg;
+    private final double scale;
+    private final LabelOp base;
     private final int hash;
 
     public LabelOp(String txt, Font font, Color fg, Color bg) {
+      this(txt, font, fg, bg, 1.0);
+    }
+
+    protected LabelOp(String txt, Font font, Color fg, Color bg,
+                      double scale) {
       this.txt = txt;
       this.font = font;
       this.fg = fg;
       this.bg = bg;
+      this.scale = scale;
+      base = scale == 1.0 ? this : new LabelOp(txt, font, fg, bg);
       hash = new HashCodeBuilder().append(txt)
                                   .append(font)
                                   .append(fg)
                                   .append(bg)
+                                  .append(scale)
                                   .toHashCode();
     }
 
@@ -449,9 +471,21 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
       return Collections.emptyList();
     }
 
+    public ScaleOp getScaleOp(double scale) {
+      return new LabelOp(txt, font, fg, bg, this.scale * scale);
+    }
+
+    public double getScale() {
+      return scale;
+    }
+
+    public RenderingHints getHints() {
+      return ImageUtils.getDefaultHints();
+    }
+
     public BufferedImage eval() throws Exception {
-      // determine whether we are HTML and fix our size
-      final JLabel label = buildDimensions();
+      final Layout layout = getLayout(base);
+      size = getScaledSize(layout);
 
       // draw nothing if our size is zero
       if (size.width <= 0 || size.height <= 0) return ImageUtils.NULL_IMAGE;
@@ -475,49 +509,22 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
 
       // paint the foreground
       if (fg != null) {
-        if (label != null) {
-          label.paint(g);
-        }
-        else {
-          g.setColor(fg);
-          g.setFont(font);
-
-          final FontMetrics fm = g.getFontMetrics(font);
-          g.drawString(txt, 0, size.height - fm.getDescent());
-        }
+        g.scale(scale, scale);
+        layout.paint(g, fg);
       }
 
       g.dispose();
       return im;
     }
 
-    private JLabel buildDimensions() {
-      // Build and return a JLabel if we need to render HTML,
-      // then determine the dimensions of the label.
-      final JLabel label;
-
-      if (BasicHTML.isHTMLString(txt)) {
-        label = new JLabel(txt);
-        label.setForeground(fg);
-        label.setFont(font);
-        size = label.getPreferredSize();
-        label.setSize(size);
-      }
-      else {
-        label = null;
-
-        final Graphics2D g = ImageUtils.NULL_IMAGE.createGraphics();
-        final FontMetrics fm = g.getFontMetrics(font);
-        size = new Dimension(fm.stringWidth(txt), fm.getHeight());
-        g.dispose();
-      }
-
-      return label;
+    private Dimension getScaledSize(Layout layout) {
+      return scale == 1.0 ? new Dimension(layout.size) :
+        ImageUtils.transform(new Rectangle(layout.size), scale, 0.0).getSize();
     }
 
     protected void fixSize() {
       if ((size = getSizeFromCache()) == null) {
-        buildDimensions();
+        size = getScaledSize(getLayout(base));
 
         // ensure that our area is nonempty
         if (size.width <= 0 || size.height <= 0) {
@@ -532,7 +539,8 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
       if (!(o instanceof LabelOp)) return false;
 
       final LabelOp lop = (LabelOp) o;
-      return (txt == null ? lop.txt == null : txt.equals(lop.txt)) &&
+      return scale == lop.scale &&
+             (txt == null ? lop.txt == null : txt.equals(lop.txt)) &&
              (font == null ? lop.font == null : font.equals(lop.font)) &&
              (fg == null ? lop.fg == null : fg.equals(lop.fg)) &&
              (bg == null ? lop.bg == null : bg.equals(lop.bg));
@@ -542,6 +550,80 @@ public class Labeler extends Decorator implements TranslatablePiece, Loopable {
     public int hashCode() {
       return hash;
     }
+
+    private static final int MAX_LAYOUTS = 1024;
+
+    // The most recently used layouts, keyed by the label at 1:1
+    private static final Map<LabelOp,Layout> layouts =
+      new LinkedHashMap<LabelOp,Layout>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LabelOp,Layout> e) {
+          return size() > MAX_LAYOUTS;
+        }
+      };
+
+    private static Layout getLayout(LabelOp lop) {
+      synchronized (layouts) {
+        Layout layout = layouts.get(lop);
+        if (layout == null) {
+          layout = new Layout(lop.txt, lop.font, lop.fg);
+          layouts.put(lop, layout);
+        }
+        return layout;
+      }
+    }
+  }
+
+  /**
+   * The size of a label at 1:1, together with what is needed to draw it:
+   * a <code>JLabel</code> for HTML, with its view already built, or the
+   * glyph layout of plain text.
+   */
+  private static class Layout {
+    private final Dimension size;
+    private final JLabel label;
+    private final TextLayout text;
+    private final int descent;
+
+    public Layout(String txt, Font font, Color fg) {
+      if (BasicHTML.isHTMLString(txt)) {
+        label = new JLabel(txt);
+        label.setForeground(fg);
+        label.setFont(font);
+        size = label.getPreferredSize();
+        label.setSize(size);
+        text = null;
+        descent = 0;
+      }
+      else {
+        label = null;
+
+        final Graphics2D g = ImageUtils.NULL_IMAGE.createGraphics();
+        final FontMetrics fm = g.getFontMetrics(font);
+        size = new Dimension(fm.stringWidth(txt), fm.getHeight());
+        descent = fm.getDescent();
+        g.dispose();
+
+        // lay out the glyphs as they are drawn, antialiased
+        text = txt.length() == 0 ? null :
+          new TextLayout(txt, font, new FontRenderContext(null, true, false));
+      }
+    }
+
+    public void paint(Graphics2D g, Color fg) {
+      if (label != null) {
+        // the label may be painted for several ops at once
+        synchronized (label) {
+          label.paint(g);
+        }
+      }
+      else if (text != null) {
+        g.setColor(fg);
+        text.draw(g, 0, size.height - descent);
+      }
+    }
   }
 
   public String getLabel() {
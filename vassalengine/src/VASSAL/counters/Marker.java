@@ -109,6 +109,7 @@ public class Marker extends Decorator implements EditablePiece {
   public void setProperty(Object key, Object value) {
     for (int i = 0; i < keys.length; ++i) {
       if (keys[i].equals(key)) {
+        stateChanged();
         values[i] = (String) value;
         return;
       }
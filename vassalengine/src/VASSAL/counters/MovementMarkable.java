@@ -85,6 +85,7 @@ public class MovementMarkable extends Decorator implements TranslatablePiece {
   }
 
   public void setMoved(boolean b) {
+    stateChanged();
     hasMoved = b;
   }
 
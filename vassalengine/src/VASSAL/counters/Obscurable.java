@@ -229,6 +229,7 @@ public class Obscurable extends Decorator implements TranslatablePiece {
 
   public void setProperty(Object key, Object val) {
     if (ID.equals(key)) {
+      stateChanged();
       if (val instanceof String
           || val == null) {
         obscuredBy = (String) val;
@@ -249,6 +250,7 @@ public class Obscurable extends Decorator implements TranslatablePiece {
       if (Boolean.TRUE.equals(val)) {
         owner = access.getCurrentPlayerId();
       }
+      stateChanged();
       obscuredBy = owner;
       obscuredOptions = new ObscurableOptions(ObscurableOptions.getInstance().encodeOptions());
     }
@@ -0,0 +1,121 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.counters;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import VASSAL.tools.imageop.Op;
+import VASSAL.tools.imageop.PieceSpriteOp;
+
+/**
+ * Draws {@link GamePiece}s from cached images of their fully decorated
+ * appearance, so that a piece which has not changed since it was last
+ * drawn costs a single <code>drawImage</code> instead of a pass through
+ * every trait.
+ *
+ * <p>A cached image is identified by the piece, the zoom factor, the
+ * {@link BasicPiece#getStateVersion state version} of the piece and the
+ * epoch of the cache. The state version changes whenever the piece is
+ * changed, while the epoch changes whenever something outside the piece
+ * which might change its appearance, such as a global property or the
+ * side of the player, is changed. Nothing is compared on drawing, so
+ * checking for changes is free. The images themselves are kept in the
+ * memory-sensitive cache shared by all {@link VASSAL.tools.imageop.ImageOp}s.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class PieceSpriteCache {
+  private static final Map<GamePiece,PieceSpriteOp> sprites =
+    new WeakHashMap<GamePiece,PieceSpriteOp>();
+
+  private static final AtomicInteger epoch = new AtomicInteger();
+
+  private PieceSpriteCache() {}
+
+  /**
+   * @return the current epoch
+   */
+  public static int getEpoch() {
+    return epoch.get();
+  }
+
+  /**
+   * Invalidates every cached image. This should be called whenever
+   * something not belonging to any one piece, but on which the appearance
+   * of pieces may depend, is changed.
+   */
+  public static void invalidateAll() {
+    epoch.incrementAndGet();
+  }
+
+  /**
+   * Discards all cached images.
+   */
+  public static void clear() {
+    synchronized (sprites) {
+      sprites.clear();
+    }
+    invalidateAll();
+  }
+
+  /**
+   * Draws a piece from its cached image, creating the image first if the
+   * piece has changed since it was last drawn. Pieces which are not built
+   * upon a {@link BasicPiece} are drawn directly.
+   *
+   * @see GamePiece#draw
+   */
+  public static void draw(GamePiece p, Graphics g, int x, int y,
+                          Component obs, double zoom) {
+    final GamePiece inner = Decorator.getInnermost(p);
+    if (!(inner instanceof BasicPiece)) {
+      p.draw(g, x, y, obs, zoom);
+      return;
+    }
+
+    final int version = ((BasicPiece) inner).getStateVersion();
+    final int e = epoch.get();
+
+    PieceSpriteOp op;
+    synchronized (sprites) {
+      op = sprites.get(p);
+      if (op == null || op.getVersion() != version ||
+          op.getEpoch() != e || op.getZoom() != zoom) {
+        op = Op.sprite(p, version, e, zoom);
+        sprites.put(p, op);
+      }
+    }
+
+    final BufferedImage im = op.getImage();
+    if (im == null) {
+      p.draw(g, x, y, obs, zoom);
+      return;
+    }
+
+    final Point off = op.getOffset();
+    g.drawImage(im, x + off.x, y + off.y, obs);
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.counters;
+
+import java.awt.Point;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import VASSAL.build.module.IMap;
+import VASSAL.build.module.map.boardPicker.Board;
+import VASSAL.build.module.map.boardPicker.board.mapgrid.Zone;
+import VASSAL.build.module.properties.PropertySource;
+
+/**
+ * Memoises the expensive parts of resolving a property of a
+ * {@link BasicPiece} over one evaluation pass, such as one
+ * Global Key Command, one paint of a map or one refresh of an inventory.
+ *
+ * <p>Two things are memoised. The first is the {@link Zone},
+ * {@link Board} and location name found at each position on a map, so
+ * that pieces sharing a position, or one piece read many times, cost a
+ * single polygon scan. Since these are keyed by position, moving a piece
+ * needs no invalidation. The second is the value of each property read
+ * from a zone, map or the module when a piece does not define it itself.
+ * These are discarded whenever a {@link
+ * VASSAL.build.module.properties.MutableProperty} changes value, or the
+ * side or id of the player changes.</p>
+ *
+ * <p>A pass is bracketed by {@link #begin} and {@link #end}, which may
+ * nest. Only the thread which began the outermost pass uses the cache;
+ * reads on other threads, or outside a pass, go straight through.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class PropertyResolutionCache {
+  private static volatile Thread owner;
+  private static int depth = 0;
+
+  private static final Map<IMap,Map<Point,Zone>> zones =
+    new IdentityHashMap<IMap,Map<Point,Zone>>();
+  private static final Map<IMap,Map<Point,Board>> boards =
+    new IdentityHashMap<IMap,Map<Point,Board>>();
+  private static final Map<IMap,Map<Point,String>> locations =
+    new IdentityHashMap<IMap,Map<Point,String>>();
+  private static final Map<PropertySource,Map<Object,Object>> values =
+    new IdentityHashMap<PropertySource,Map<Object,Object>>();
+
+  private static volatile int generation = 0;
+
+  private static long lookups = 0;
+  private static long hits = 0;
+
+  private PropertyResolutionCache() {}
+
+  /**
+   * Begins an evaluation pass.
+   */
+  public static synchronized void begin() {
+    final Thread t = Thread.currentThread();
+    if (owner == null) {
+      owner = t;
+      depth = 1;
+    }
+    else if (owner == t) {
+      ++depth;
+    }
+  }
+
+  /**
+   * Ends an evaluation pass. When the outermost pass ends, everything
+   * memoised is discarded.
+   */
+  public static synchronized void end() {
+    if (owner == Thread.currentThread() && --depth == 0) {
+      owner = null;
+      zones.clear();
+      boards.clear();
+      locations.clear();
+      values.clear();
+    }
+  }
+
+  /**
+   * @return true if the current thread is in an evaluation pass
+   */
+  public static boolean isActive() {
+    return owner == Thread.currentThread();
+  }
+
+  /**
+   * Discards memoised property values. This should be called whenever the
+   * value of a property belonging to a zone, map or the module changes.
+   */
+  public static void invalidate() {
+    ++generation;
+    if (isActive()) values.clear();
+  }
+
+  /**
+   * @return a number which changes whenever {@link #invalidate} is
+   * called, whether or not a pass is active
+   */
+  public static int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * @return the number of lookups made through the cache during passes
+   */
+  public static long getLookupCount() {
+    return lookups;
+  }
+
+  /**
+   * @return the number of lookups answered from the cache
+   */
+  public static long getHitCount() {
+    return hits;
+  }
+
+  public static void resetCounts() {
+    lookups = hits = 0;
+  }
+
+  private static <T> Map<Point,T> positions(Map<IMap,Map<Point,T>> m,
+                                            IMap map) {
+    Map<Point,T> pm = m.get(map);
+    if (pm == null) {
+      pm = new HashMap<Point,T>();
+      m.put(map, pm);
+    }
+    return pm;
+  }
+
+  /**
+   * @see IMap#findZone(Point)
+   */
+  public static Zone findZone(IMap map, Point p) {
+    if (!isActive()) return map.findZone(p);
+
+    ++lookups;
+    final Map<Point,Zone> pm = positions(zones, map);
+    Zone z = pm.get(p);
+    if (z != null || pm.containsKey(p)) {
+      ++hits;
+    }
+    else {
+      z = map.findZone(p);
+      pm.put(new Point(p), z);
+    }
+    return z;
+  }
+
+  /**
+   * @see IMap#findBoard(Point)
+   */
+  public static Board findBoard(IMap map, Point p) {
+    if (!isActive()) return map.findBoard(p);
+
+    ++lookups;
+    final Map<Point,Board> pm = positions(boards, map);
+    Board b = pm.get(p);
+    if (b != null || pm.containsKey(p)) {
+      ++hits;
+    }
+    else {
+      b = map.findBoard(p);
+      pm.put(new Point(p), b);
+    }
+    return b;
+  }
+
+  /**
+   * @see IMap#locationName(Point)
+   */
+  public static String locationName(IMap map, Point p) {
+    if (!isActive()) return map.locationName(p);
+
+    ++lookups;
+    final Map<Point,String> pm = positions(locations, map);
+    String s = pm.get(p);
+    if (s != null || pm.containsKey(p)) {
+      ++hits;
+    }
+    else {
+      s = map.locationName(p);
+      pm.put(new Point(p), s);
+    }
+    return s;
+  }
+
+  /**
+   * @see PropertySource#getProperty(Object)
+   */
+  public static Object getProperty(PropertySource source, Object key) {
+    if (!isActive()) return source.getProperty(key);
+
+    ++lookups;
+    Map<Object,Object> km = values.get(source);
+    if (km == null) {
+      km = new HashMap<Object,Object>();
+      values.put(source, km);
+    }
+
+    Object v = km.get(key);
+    if (v != null || km.containsKey(key)) {
+      ++hits;
+    }
+    else {
+      v = source.getProperty(key);
+      km.put(key, v);
+    }
+    return v;
+  }
+}
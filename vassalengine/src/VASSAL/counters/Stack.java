@@ -131,6 +131,7 @@ public class Stack implements GamePiece, StateMergeable {
 
   protected void removePieceAt(int index) {
     if (index >= 0 && index < pieceCount) {
+      stateChanged(contents[index]);
       pieceCount--;
       for (int i = index; i < pieceCount; ++i) {
         contents[i] = contents[i + 1];
@@ -168,6 +169,16 @@ public class Stack implements GamePiece, StateMergeable {
 
     contents[index] = p;
     pieceCount++;
+    stateChanged(p);
+  }
+
+  // Changing the membership or order of a stack may change properties
+  // of the pieces in it, such as DeckPosition.
+  private static void stateChanged(GamePiece p) {
+    final GamePiece inner = Decorator.getInnermost(p);
+    if (inner instanceof BasicPiece) {
+      ((BasicPiece) inner).stateChanged();
+    }
   }
 
   public void removeAll() {
@@ -468,6 +479,9 @@ public class Stack implements GamePiece, StateMergeable {
 
   public void setExpanded(boolean b) {
     expanded = b && getPieceCount() > 1;
+    if (map instanceof Map) {
+      ((Map) map).getPieceIndex().update(this);
+    }
   }
 
   public String getState() {
@@ -597,6 +611,9 @@ public class Stack implements GamePiece, StateMergeable {
 
   public void setPosition(Point p) {
     pos = p;
+    if (map instanceof Map) {
+      ((Map) map).getPieceIndex().update(this);
+    }
   }
 
   public Stack getParent() {
@@ -546,7 +546,7 @@ e.printStackTrace();
       }
 
       clientSocket = serverSocket.accept();
-      ipc = new IPCMessenger(clientSocket);
+      ipc = new IPCMessenger(clientSocket, LaunchMessages.createRegistry());
 
       ipc.addEventListener(
         NotifyOpenModuleOk.class,
@@ -0,0 +1,225 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.launch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+
+import VASSAL.tools.ipc.IPCMessageCodec;
+import VASSAL.tools.ipc.IPCMessageRegistry;
+
+import static VASSAL.tools.ipc.IPCCodecUtils.readFile;
+import static VASSAL.tools.ipc.IPCCodecUtils.readString;
+import static VASSAL.tools.ipc.IPCCodecUtils.readStringList;
+import static VASSAL.tools.ipc.IPCCodecUtils.readThrowable;
+import static VASSAL.tools.ipc.IPCCodecUtils.writeFile;
+import static VASSAL.tools.ipc.IPCCodecUtils.writeString;
+import static VASSAL.tools.ipc.IPCCodecUtils.writeStringList;
+import static VASSAL.tools.ipc.IPCCodecUtils.writeThrowable;
+
+/**
+ * The codecs for the messages passed between the Module Manager and the
+ * Player and Editor over IPC.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class LaunchMessages {
+  private LaunchMessages() {}
+
+  private static final int BASE = IPCMessageRegistry.FIRST_USER_TAG;
+
+  /**
+   * @return a registry holding the messages used by the launchers
+   */
+  public static IPCMessageRegistry createRegistry() {
+    final IPCMessageRegistry r = IPCMessageRegistry.createDefault();
+
+    r.register(BASE, Launcher.CloseRequest.class,
+      new IPCMessageCodec<Launcher.CloseRequest>() {
+        public void encode(Launcher.CloseRequest msg, DataOutput out) { }
+
+        public Launcher.CloseRequest decode(DataInput in) {
+          return new Launcher.CloseRequest();
+        }
+      }
+    );
+
+    r.register(BASE+1, Launcher.CloseAccept.class,
+      new IPCMessageCodec<Launcher.CloseAccept>() {
+        public void encode(Launcher.CloseAccept msg, DataOutput out)
+                                                          throws IOException {
+          out.writeLong(msg.pid);
+        }
+
+        public Launcher.CloseAccept decode(DataInput in) throws IOException {
+          return new Launcher.CloseAccept(in.readLong());
+        }
+      }
+    );
+
+    r.register(BASE+2, Launcher.CloseReject.class,
+      new IPCMessageCodec<Launcher.CloseReject>() {
+        public void encode(Launcher.CloseReject msg, DataOutput out)
+                                                          throws IOException {
+          out.writeLong(msg.pid);
+        }
+
+        public Launcher.CloseReject decode(DataInput in) throws IOException {
+          return new Launcher.CloseReject(in.readLong());
+        }
+      }
+    );
+
+    r.register(BASE+3, Launcher.StartedNotice.class,
+      new IPCMessageCodec<Launcher.StartedNotice>() {
+        public void encode(Launcher.StartedNotice msg, DataOutput out)
+                                                          throws IOException {
+          out.writeLong(msg.pid);
+        }
+
+        public Launcher.StartedNotice decode(DataInput in) throws IOException {
+          return new Launcher.StartedNotice(in.readLong());
+        }
+      }
+    );
+
+    r.register(BASE+4, AbstractLaunchAction.NotifyOpenModuleOk.class,
+      new IPCMessageCodec<AbstractLaunchAction.NotifyOpenModuleOk>() {
+        public void encode(AbstractLaunchAction.NotifyOpenModuleOk msg,
+                           DataOutput out) throws IOException {
+          writeLaunchRequest(out, msg.lr);
+        }
+
+        public AbstractLaunchAction.NotifyOpenModuleOk decode(DataInput in)
+                                                          throws IOException {
+          return new AbstractLaunchAction.NotifyOpenModuleOk(
+            readLaunchRequest(in));
+        }
+      }
+    );
+
+    r.register(BASE+5, AbstractLaunchAction.NotifyNewModuleOk.class,
+      new IPCMessageCodec<AbstractLaunchAction.NotifyNewModuleOk>() {
+        public void encode(AbstractLaunchAction.NotifyNewModuleOk msg,
+                           DataOutput out) throws IOException {
+          writeLaunchRequest(out, msg.lr);
+        }
+
+        public AbstractLaunchAction.NotifyNewModuleOk decode(DataInput in)
+                                                          throws IOException {
+          return new AbstractLaunchAction.NotifyNewModuleOk(
+            readLaunchRequest(in));
+        }
+      }
+    );
+
+    r.register(BASE+6, AbstractLaunchAction.NotifyImportModuleOk.class,
+      new IPCMessageCodec<AbstractLaunchAction.NotifyImportModuleOk>() {
+        public void encode(AbstractLaunchAction.NotifyImportModuleOk msg,
+                           DataOutput out) throws IOException {
+          writeLaunchRequest(out, msg.lr);
+        }
+
+        public AbstractLaunchAction.NotifyImportModuleOk decode(DataInput in)
+                                                          throws IOException {
+          return new AbstractLaunchAction.NotifyImportModuleOk(
+            readLaunchRequest(in));
+        }
+      }
+    );
+
+    r.register(BASE+7, AbstractLaunchAction.NotifyOpenModuleFailed.class,
+      new IPCMessageCodec<AbstractLaunchAction.NotifyOpenModuleFailed>() {
+        public void encode(AbstractLaunchAction.NotifyOpenModuleFailed msg,
+                           DataOutput out) throws IOException {
+          writeLaunchRequest(out, msg.lr);
+          writeThrowable(out, msg.thrown);
+        }
+
+        public AbstractLaunchAction.NotifyOpenModuleFailed decode(DataInput in)
+                                                          throws IOException {
+          final LaunchRequest lr = readLaunchRequest(in);
+          return new AbstractLaunchAction.NotifyOpenModuleFailed(
+            lr, readThrowable(in));
+        }
+      }
+    );
+
+    r.register(BASE+8, AbstractLaunchAction.NotifySaveFileOk.class,
+      new IPCMessageCodec<AbstractLaunchAction.NotifySaveFileOk>() {
+        public void encode(AbstractLaunchAction.NotifySaveFileOk msg,
+                           DataOutput out) throws IOException {
+          writeFile(out, msg.file);
+        }
+
+        public AbstractLaunchAction.NotifySaveFileOk decode(DataInput in)
+                                                          throws IOException {
+          return new AbstractLaunchAction.NotifySaveFileOk(readFile(in));
+        }
+      }
+    );
+
+    return r;
+  }
+
+  static void writeLaunchRequest(DataOutput out, LaunchRequest lr)
+                                                          throws IOException {
+    out.writeBoolean(lr != null);
+    if (lr == null) return;
+
+    writeString(out, lr.mode == null ? null : lr.mode.name());
+    writeFile(out, lr.module);
+    writeFile(out, lr.game);
+    writeFile(out, lr.extension);
+    writeFile(out, lr.importFile);
+    out.writeBoolean(lr.standalone);
+    out.writeBoolean(lr.builtInModule);
+    writeStringList(out, lr.autoext);
+    out.writeInt(lr.port);
+    out.writeLong(lr.key);
+  }
+
+  static LaunchRequest readLaunchRequest(DataInput in) throws IOException {
+    if (!in.readBoolean()) return null;
+
+    final LaunchRequest lr = new LaunchRequest();
+
+    final String mode = readString(in);
+    try {
+      lr.mode = mode == null ? null : LaunchRequest.Mode.valueOf(mode);
+    }
+    catch (IllegalArgumentException e) {
+      throw new StreamCorruptedException("unknown mode " + mode);
+    }
+
+    lr.module = readFile(in);
+    lr.game = readFile(in);
+    lr.extension = readFile(in);
+    lr.importFile = readFile(in);
+    lr.standalone = in.readBoolean();
+    lr.builtInModule = in.readBoolean();
+    lr.autoext = readStringList(in);
+    lr.port = in.readInt();
+    lr.key = in.readLong();
+    return lr;
+  }
+}
@@ -122,7 +122,7 @@ public abstract class Launcher {
         final InetAddress lo = InetAddress.getByName(null);
         final Socket cs = new Socket(lo, port);
 
-        ipc = new IPCMessenger(cs);
+        ipc = new IPCMessenger(cs, LaunchMessages.createRegistry());
 
         ipc.addEventListener(CloseRequest.class, new CloseRequestListener());
 
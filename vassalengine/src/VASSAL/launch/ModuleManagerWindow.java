@@ -43,9 +43,11 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -86,6 +88,7 @@ import org.apache.commons.lang.SystemUtils;
 import org.jdesktop.swingx.JXTreeTable;
 import org.jdesktop.swingx.treetable.DefaultMutableTreeTableNode;
 import org.jdesktop.swingx.treetable.DefaultTreeTableModel;
+import org.jdesktop.swingx.treetable.TreeTableNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,7 +97,7 @@ import VASSAL.build.module.Documentation;
 import VASSAL.build.module.ExtensionsManager;
 import VASSAL.build.module.metadata.AbstractMetaData;
 import VASSAL.build.module.metadata.ExtensionMetaData;
-import VASSAL.build.module.metadata.MetaDataFactory;
+import VASSAL.build.module.metadata.MetaDataIndex;
 import VASSAL.build.module.metadata.ModuleMetaData;
 import VASSAL.build.module.metadata.SaveMetaData;
 import VASSAL.chat.CgiServerStatus;
@@ -113,6 +116,7 @@ import VASSAL.tools.ComponentSplitter;
 import VASSAL.tools.ErrorDialog;
 import VASSAL.tools.SequenceEncoder;
 import VASSAL.tools.WriteErrorDialog;
+import VASSAL.tools.concurrent.listener.EventListener;
 import VASSAL.tools.filechooser.FileChooser;
 import VASSAL.tools.filechooser.ModuleExtensionFileFilter;
 import VASSAL.tools.io.IOUtils;
@@ -148,6 +152,9 @@ public class ModuleManagerWindow extends JFrame {
   private StringArrayConfigurer recentModuleConfig;
   private File selectedModule;
 
+  // recent modules whose metadata has not yet been read
+  private final List<String> pendingModules = new ArrayList<String>();
+
   private CardLayout modulePanelLayout;
   private JPanel moduleView;
   private ComponentSplitter.SplitPane serverStatusView;
@@ -429,81 +436,40 @@ public class ModuleManagerWindow extends JFrame {
   protected void buildTree() {
     recentModuleConfig = new StringArrayConfigurer("RecentModules", null);
     Prefs.getGlobalPrefs().addOption(null, recentModuleConfig);
-    final List<String> missingModules = new ArrayList<String>();
-    final List<ModuleInfo> moduleList = new ArrayList<ModuleInfo>();
-    for (String s : recentModuleConfig.getStringArray()) {
-      final ModuleInfo module = new ModuleInfo(s);
-      if (module.getFile().exists() && module.isValid()) {
-        moduleList.add(module);
-      }
-      else {
-        missingModules.add(s);
-      }
-    }
-
-    for (String s : missingModules) {
-      logger.info(Resources.getString("ModuleManager.removing_module", s));
-      moduleList.remove(s);
-      recentModuleConfig.removeValue(s);
-    }
-
-    Collections.sort(moduleList, new Comparator<ModuleInfo>() {
-      public int compare(ModuleInfo f1, ModuleInfo f2) {
-        return f1.compareTo(f2);
-      }
-    });
 
     rootNode = new MyTreeNode (new RootInfo());
 
-    for (ModuleInfo moduleInfo : moduleList) {
-      final MyTreeNode moduleNode = new MyTreeNode(moduleInfo);
-      for (ExtensionInfo ext : moduleInfo.getExtensions()) {
-        final MyTreeNode extensionNode = new MyTreeNode(ext);
-        moduleNode.add(extensionNode);
-      }
+    // Modules are added as their metadata is read, so that reading any
+    // which have changed since they were last indexed does not hold up
+    // the EDT
+    final MetaDataIndex index = MetaDataIndex.getInstance();
+    index.prune();
 
-      final ArrayList<File> missingFolders = new ArrayList<File>();
-
-      for (File f : moduleInfo.getFolders()) {
-        if (f.exists() && f.isDirectory()) {
-          final GameFolderInfo folderInfo = new GameFolderInfo(f, moduleInfo);
-          final MyTreeNode folderNode = new MyTreeNode(folderInfo);
-          moduleNode.add(folderNode);
-          final ArrayList<File> l = new ArrayList<File>();
+    final Map<File,String> modules = new LinkedHashMap<File,String>();
+    for (String s : recentModuleConfig.getStringArray()) {
+      modules.put(new File(new SequenceEncoder.Decoder(s, ';').nextToken()), s);
+    }
+    pendingModules.addAll(modules.values());
 
-          final File[] files = f.listFiles();
-          if (files == null) continue;
+    index.update(modules.keySet(), new EventListener<File>() {
+      public void receive(Object src, File f) {
+        final String s = modules.get(f);
+        pendingModules.remove(s);
 
-          for (File f1 : files) {
-            if (f1.isFile()) {
-              l.add(f1);
-            }
-          }
-          Collections.sort(l);
-
-          for (File f2 : l) {
-            final SaveFileInfo fileInfo = new SaveFileInfo(f2, folderInfo);
-            if (fileInfo.isValid() && fileInfo.belongsToModule()) {
-              final MyTreeNode fileNode = new MyTreeNode(fileInfo);
-              folderNode.add(fileNode);
-            }
+        final ModuleInfo moduleInfo = new ModuleInfo(s);
+        if (moduleInfo.getFile().exists() && moduleInfo.isValid()) {
+          if (!rootNode.contains(moduleInfo.getFile())) {
+            insertModule(moduleInfo);
           }
         }
         else {
-          missingFolders.add(f);
+          logger.info(Resources.getString("ModuleManager.removing_module", s));
+          recentModuleConfig.removeValue(s);
         }
-      }
 
-      for (File mf : missingFolders) {
-        logger.info(
-          Resources.getString("ModuleManager.removing_folder", mf.getPath()));
-        moduleInfo.removeFolder(mf);
+        updateModuleList();
       }
-
-      rootNode.add(moduleNode);
-    }
-
-    updateModuleList();
+    });
 
     treeModel = new MyTreeTableModel(rootNode);
     tree = new MyTree(treeModel);
@@ -642,7 +608,10 @@ public class ModuleManagerWindow extends JFrame {
    * @param f The file
    */
   public void update(File f) {
-    final AbstractMetaData data = MetaDataFactory.buildMetaData(f);
+    // The file has just been written, so may have the same size and
+    // modification time as the indexed one
+    MetaDataIndex.getInstance().remove(f);
+    final AbstractMetaData data = MetaDataIndex.getInstance().getMetaData(f);
 
     // Module.
     // If we already have this module added, just refresh it, otherwise add it in.
@@ -691,12 +660,13 @@ public class ModuleManagerWindow extends JFrame {
   }
 
   /**
-   * Return the number of Modules added to the Module Manager
+   * Return the number of Modules added to the Module Manager, including
+   * those whose metadata is still being read
    *
    * @return Number of modules
    */
   private int getModuleCount() {
-    return rootNode.getChildCount();
+    return rootNode.getChildCount() + pendingModules.size();
   }
 
   public File getSelectedModule() {
@@ -724,6 +694,85 @@ public class ModuleManagerWindow extends JFrame {
     }
   }
 
+  /**
+   * Add a module to the tree, followed by its extensions and saved games
+   * as their metadata is read.
+   *
+   * @param moduleInfo the module
+   */
+  private void insertModule(final ModuleInfo moduleInfo) {
+    final MyTreeNode moduleNode = new MyTreeNode(moduleInfo);
+    treeModel.insertNodeInto(moduleNode, rootNode,
+                             rootNode.findInsertIndex(moduleInfo));
+
+    final List<File> toIndex = new ArrayList<File>();
+    toIndex.addAll(moduleInfo.getExtensionsManager().getActiveExtensions());
+    toIndex.addAll(moduleInfo.getExtensionsManager().getInactiveExtensions());
+
+    final ArrayList<File> missingFolders = new ArrayList<File>();
+
+    for (File f : moduleInfo.getFolders()) {
+      if (f.exists() && f.isDirectory()) {
+        final GameFolderInfo folderInfo = new GameFolderInfo(f, moduleInfo);
+        final MyTreeNode folderNode = new MyTreeNode(folderInfo);
+        treeModel.insertNodeInto(folderNode, moduleNode,
+                                 moduleNode.findInsertIndex(folderInfo));
+
+        final File[] files = f.listFiles();
+        if (files != null) {
+          toIndex.addAll(Arrays.asList(files));
+        }
+      }
+      else {
+        missingFolders.add(f);
+      }
+    }
+
+    for (File mf : missingFolders) {
+      logger.info(
+        Resources.getString("ModuleManager.removing_folder", mf.getPath()));
+      moduleInfo.removeFolder(mf);
+    }
+
+    MetaDataIndex.getInstance().update(toIndex, new EventListener<File>() {
+      public void receive(Object src, File f) {
+        if (!isInTree(moduleNode)) return;
+
+        final ExtensionsManager extMgr = moduleInfo.getExtensionsManager();
+
+        if (extMgr.getActiveExtensions().contains(f) ||
+            extMgr.getInactiveExtensions().contains(f)) {
+          if (!moduleNode.contains(f)) {
+            final ExtensionInfo ext = new ExtensionInfo(
+              f, extMgr.isExtensionActive(f), moduleInfo);
+            if (ext.isValid()) {
+              treeModel.insertNodeInto(new MyTreeNode(ext), moduleNode,
+                                       moduleNode.findInsertIndex(ext));
+            }
+          }
+        }
+        else if (f.isFile()) {
+          final MyTreeNode folderNode = moduleNode.findNode(f.getParentFile());
+          if (folderNode != null &&
+              folderNode.getNodeInfo() instanceof GameFolderInfo) {
+            ((GameFolderInfo) folderNode.getNodeInfo()).addFile(f);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * @return whether the node is still attached to the tree
+   */
+  private boolean isInTree(MyTreeNode node) {
+    TreeTableNode n = node;
+    while (n.getParent() != null) {
+      n = n.getParent();
+    }
+    return n == rootNode;
+  }
+
   public void removeModule(File f) {
     final MyTreeNode moduleNode = rootNode.findNode(f);
     treeModel.removeNodeFromParent(moduleNode);
@@ -750,6 +799,7 @@ public class ModuleManagerWindow extends JFrame {
         (ModuleInfo) (rootNode.getChild(i)).getNodeInfo();
       l.add(module.encode());
     }
+    l.addAll(pendingModules);
     recentModuleConfig.setValue(l.toArray(new String[l.size()]));
     modulePanelLayout.show(
       moduleView, getModuleCount() == 0 ? "quickStart" : "modules");
@@ -1182,7 +1232,7 @@ public class ModuleManagerWindow extends JFrame {
     }
 
     protected void loadMetaData() {
-      AbstractMetaData data = MetaDataFactory.buildMetaData(file);
+      AbstractMetaData data = MetaDataIndex.getInstance().getMetaData(file);
       if (data != null && data instanceof ModuleMetaData) {
         setValid(true);
         metadata = (ModuleMetaData) data;
@@ -1282,6 +1332,7 @@ public class ModuleManagerWindow extends JFrame {
       }
 
       gameFolders.add(f);
+
       final MyTreeNode moduleNode = rootNode.findNode(selectedModule);
       final GameFolderInfo folderInfo =
         new GameFolderInfo(f, (ModuleInfo) moduleNode.getNodeInfo());
@@ -1289,15 +1340,9 @@ public class ModuleManagerWindow extends JFrame {
       final int idx = moduleNode.findInsertIndex(folderInfo);
       treeModel.insertNodeInto(folderNode, moduleNode, idx);
 
-      for (File file : f.listFiles()) {
-        if (file.isFile()) {
-          final SaveFileInfo fileInfo = new SaveFileInfo(file, folderInfo);
-          if (fileInfo.isValid() && fileInfo.belongsToModule()) {
-            final MyTreeNode fileNode = new MyTreeNode(fileInfo);
-            treeModel.insertNodeInto(fileNode, folderNode,
-                                     folderNode.findInsertIndex(fileInfo));
-          }
-        }
+      final File[] files = f.listFiles();
+      if (files != null) {
+        folderInfo.addFiles(Arrays.asList(files));
       }
       updateModuleList();
     }
@@ -1427,7 +1472,7 @@ public class ModuleManagerWindow extends JFrame {
     }
 
     protected void loadMetaData() {
-      AbstractMetaData data = MetaDataFactory.buildMetaData(file);
+      AbstractMetaData data = MetaDataIndex.getInstance().getMetaData(file);
       if (data != null && data instanceof ExtensionMetaData) {
         setValid(true);
         metadata = (ExtensionMetaData) data;
@@ -1611,18 +1656,40 @@ public class ModuleManagerWindow extends JFrame {
       final File[] files = getFile().listFiles();
       if (files == null) return;
 
-      for (File f : files) {
-        final AbstractMetaData fdata = MetaDataFactory.buildMetaData(f);
-        if (fdata != null) {
-          if (fdata instanceof SaveMetaData) {
-            final String moduleName = ((SaveMetaData) fdata).getModuleName();
-            if (moduleName == null ||
-                moduleName.length() == 0 ||
-                moduleName.equals(getModuleInfo().getModuleName())) {
-              update(f);
-            }
+      addFiles(Arrays.asList(files));
+    }
+
+    /**
+     * Add or update the display for the specified files as their metadata
+     * is read, without waiting for those which have changed.
+     *
+     * @param files the files
+     */
+    public void addFiles(List<File> files) {
+      MetaDataIndex.getInstance().update(files, new EventListener<File>() {
+        public void receive(Object src, File f) {
+          if (isInTree(getTreeNode())) {
+            addFile(f);
           }
         }
+      });
+    }
+
+    /**
+     * Add or update the display for the specified file if it is a save
+     * file belonging to this module, or one that is pre vassal 3.1
+     *
+     * @param f the file
+     */
+    public void addFile(File f) {
+      final AbstractMetaData fdata = MetaDataIndex.getInstance().getMetaData(f);
+      if (fdata instanceof SaveMetaData) {
+        final String moduleName = ((SaveMetaData) fdata).getModuleName();
+        if (moduleName == null ||
+            moduleName.length() == 0 ||
+            moduleName.equals(getModuleInfo().getModuleName())) {
+          update(f);
+        }
       }
     }
 
@@ -1668,7 +1735,7 @@ public class ModuleManagerWindow extends JFrame {
     }
 
     protected void loadMetaData() {
-      AbstractMetaData data = MetaDataFactory.buildMetaData(file);
+      AbstractMetaData data = MetaDataIndex.getInstance().getMetaData(file);
       if (data != null && data instanceof SaveMetaData) {
         metadata = (SaveMetaData) data;
         setValid(true);
@@ -22,6 +22,7 @@ package VASSAL.launch;
 import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.STARTING_IMAGE;
 import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.TILE_WRITTEN;
 import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.TILING_FINISHED;
+import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.TILING_STATISTICS;
 
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
@@ -37,6 +38,7 @@ import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
@@ -48,8 +50,11 @@ import org.slf4j.LoggerFactory;
 import VASSAL.Info;
 import VASSAL.tools.DataArchive;
 import VASSAL.tools.image.ImageUtils;
+import VASSAL.tools.image.ScanlineImageReader;
 import VASSAL.tools.image.tilecache.ImageTileDiskCache;
+import VASSAL.tools.image.tilecache.StreamingTileSlicer;
 import VASSAL.tools.image.tilecache.TileUtils;
+import VASSAL.tools.image.tilecache.TilingStatistics;
 import VASSAL.tools.io.FileArchive;
 import VASSAL.tools.io.FileStore;
 import VASSAL.tools.io.IOUtils;
@@ -78,6 +83,8 @@ public class TilingHandler {
   protected final int maxheap_limit;
   protected final int pid;
 
+  protected volatile Map<String,String> statistics;
+
   /**
    * Creates a {@code TilingHandler}.
    *
@@ -95,6 +102,15 @@ public class TilingHandler {
     this.pid = pid;
   }
 
+  /**
+   * @return the statistics sent by the tiling process for the last run,
+   * or <code>null</code> if there are none
+   * @since 3.2.3
+   */
+  public Map<String,String> getStatistics() {
+    return statistics;
+  }
+
   protected boolean isFresh(FileArchive archive,
                             FileStore tcache, String ipath)
                                                            throws IOException {
@@ -122,6 +138,39 @@ public class TilingHandler {
     }
   }
 
+  /**
+   * Estimates the number of pixels the tiling process must hold in
+   * memory at once for an image.
+   *
+   * @param archive the archive containing the image
+   * @param ipath the path of the image
+   * @param idim the size of the image
+   * @return the number of pixels
+   * @since 3.2.3
+   */
+  protected int getFootprint(DataArchive archive, String ipath,
+                             Dimension idim) throws IOException {
+    final int whole = idim.width * idim.height;
+
+    ScanlineImageReader src = null;
+    InputStream in = null;
+    try {
+      in = archive.getInputStream(ipath);
+      src = ScanlineImageReader.open(ipath, in);
+      if (src == null) return whole;
+
+      // images which can be read by rows are never loaded whole, not even
+      // if streaming them fails, so the heap need not allow for that
+      return (int) Math.min(
+        whole, StreamingTileSlicer.getFootprint(src, tdim.height)
+      );
+    }
+    finally {
+      if (src != null) src.close();
+      IOUtils.closeQuietly(in);
+    }
+  }
+
   protected Pair<Integer,Integer> findImages(
     DataArchive archive,
     FileStore tcache,
@@ -131,7 +180,7 @@ public class TilingHandler {
     // build a list of all multi-tile images and count tiles
     final Set<String> images = archive.getImageNameSet();
 
-    int maxpix = 0; // number of pixels in the largest image
+    int maxpix = 0; // number of pixels held for the largest image
     int tcount = 0; // tile count
 
     final FileArchive fa = archive.getArchive();
@@ -161,9 +210,17 @@ public class TilingHandler {
       tcount += t;
       multi.add(ipath);
 
-      // check whether this image has the most pixels
-      if (idim.width * idim.height > maxpix) {
-        maxpix = idim.width * idim.height;
+      // check whether this image needs the most pixels in memory
+      int pix;
+      try {
+        pix = getFootprint(archive, ipath, idim);
+      }
+      catch (IOException e) {
+        pix = idim.width * idim.height;
+      }
+
+      if (pix > maxpix) {
+        maxpix = pix;
       }
     }
 
@@ -276,6 +333,24 @@ public class TilingHandler {
           }
           break;
 
+        case TILING_STATISTICS:
+          statistics = TilingStatistics.readSummary(in);
+          logger.info(
+            "Tiled {} tiles in {} ms; stage times (ms): decode {}, " +
+            "slice {}, scale {}, encode {}, write {}; peak heap {} bytes",
+            new Object[] {
+              statistics.get("tiles"),
+              statistics.get("elapsed.ms"),
+              statistics.get("stage.decode.ms"),
+              statistics.get("stage.slice.ms"),
+              statistics.get("stage.scale.ms"),
+              statistics.get("stage.encode.ms"),
+              statistics.get("stage.write.ms"),
+              statistics.get("heap.peak.bytes")
+            }
+          );
+          break;
+
         case TILING_FINISHED:
           done = true;
           break;
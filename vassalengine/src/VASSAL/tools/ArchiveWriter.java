@@ -103,6 +103,15 @@ public class ArchiveWriter extends DataArchive {
     }
   }
 
+  /**
+   * The contents of an archive being written may change, so are not
+   * cached.
+   */
+  @Override
+  protected boolean isCacheable() {
+    return false;
+  }
+
   /**
    * Add an image file to the archive. The file will be copied into an
    * "images" directory in the archive. Storing another image with the
@@ -30,6 +30,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.FilteredImageSource;
 import java.awt.image.ImageFilter;
 import java.awt.image.ImageProducer;
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
@@ -61,6 +62,7 @@ import VASSAL.tools.imageop.ImageOp;
 import VASSAL.tools.imageop.Op;
 import VASSAL.tools.imageop.RotateScaleOp;
 import VASSAL.tools.imageop.ScaleOp;
+import VASSAL.tools.io.ByteArrayCache;
 import VASSAL.tools.io.FileArchive;
 import VASSAL.tools.io.IOUtils;
 import VASSAL.tools.io.ZipArchive;
@@ -88,6 +90,26 @@ public class DataArchive extends SecureClassLoader implements Closeable {
 
   public static final String ICON_DIR = "icons/";
 
+  /** The total size of the files kept in the resource cache, in bytes. */
+  public static final long CACHE_CAPACITY = 16L << 20;
+
+  /** The size of the largest file kept in the resource cache, in bytes. */
+  public static final int CACHE_MAX_ENTRY = 2 << 20;
+
+  /**
+   * The inflated contents of recently read files, shared with the
+   * extensions of this archive.
+   */
+  protected ByteArrayCache cache =
+    new ByteArrayCache(CACHE_CAPACITY, CACHE_MAX_ENTRY);
+
+  /**
+   * Maps each file name to the archive, this one or an extension, which
+   * supplies it. Built on first use and discarded when extensions are
+   * added.
+   */
+  private volatile Map<String,DataArchive> index = null;
+
   protected DataArchive() {
     super(DataArchive.class.getClassLoader());
   }
@@ -242,9 +264,15 @@ public class DataArchive extends SecureClassLoader implements Closeable {
 
   private InputStream getInputStreamImpl(String fileName)
                                     throws IOException, FileNotFoundException {
+    // the contents of archives being edited may change under the index
+    if (getWriter() == null) {
+      final DataArchive owner = getIndex().get(fileName);
+      return owner == null ? null : owner.getLocalInputStream(fileName);
+    }
+
     // requested file is in this archive
     if (archive != null && archive.contains(fileName)) {
-      return archive.getInputStream(fileName);
+      return getLocalInputStream(fileName);
     }
 
     // we don't have it, try our extensions
@@ -260,6 +288,103 @@ public class DataArchive extends SecureClassLoader implements Closeable {
     return null;
   }
 
+  /**
+   * Get an {@link InputStream} for the given file in this archive,
+   * without searching the extensions. Files which are small enough
+   * are read whole into the cache, so that reading them again does not
+   * inflate them again.
+   *
+   * @param fileName the name of the file
+   * @return an <code>InputStream</code> which contains the file
+   * @throws IOException if there is a problem reading the file
+   * @throws FileNotFoundException if the file doesn't exist
+   */
+  protected InputStream getLocalInputStream(String fileName)
+                                    throws IOException, FileNotFoundException {
+    if (!isCacheable()) {
+      return archive.getInputStream(fileName);
+    }
+
+    final String key = getCacheKey(fileName);
+    byte[] bytes = cache.get(key);
+    if (bytes == null) {
+      if (!cache.isCacheable(archive.getSize(fileName))) {
+        return archive.getInputStream(fileName);
+      }
+
+      InputStream in = null;
+      try {
+        in = archive.getInputStream(fileName);
+        bytes = IOUtils.toByteArray(in);
+        in.close();
+      }
+      finally {
+        IOUtils.closeQuietly(in);
+      }
+
+      cache.put(key, bytes);
+    }
+
+    return new ByteArrayInputStream(bytes);
+  }
+
+  /**
+   * @return <code>true</code> if the files of this archive may be kept
+   * in the resource cache; archives which can be modified should not be
+   */
+  protected boolean isCacheable() {
+    return true;
+  }
+
+  private String getCacheKey(String fileName) {
+    return archive.getName() + "!/" + fileName;
+  }
+
+  /**
+   * @return the cache holding the contents of recently read files
+   */
+  public ByteArrayCache getCache() {
+    return cache;
+  }
+
+  /**
+   * Sets the cache for this archive and its extensions.
+   *
+   * @param cache the cache
+   */
+  protected void setCache(ByteArrayCache cache) {
+    this.cache = cache;
+    for (DataArchive ext : extensions) {
+      ext.setCache(cache);
+    }
+  }
+
+  private Map<String,DataArchive> getIndex() throws IOException {
+    Map<String,DataArchive> idx = index;
+    if (idx == null) {
+      idx = new HashMap<String,DataArchive>();
+      addToIndex(idx);
+      index = idx;
+    }
+    return idx;
+  }
+
+  /**
+   * Adds the files of this archive and then those of its extensions to
+   * the index, unless an earlier archive already supplies them.
+   */
+  private void addToIndex(Map<String,DataArchive> idx) throws IOException {
+    if (archive != null) {
+      for (String fileName : archive.getFiles()) {
+        if (!idx.containsKey(fileName)) idx.put(fileName, this);
+      }
+    }
+
+    for (DataArchive ext : extensions) {
+      ext.addToIndex(idx);
+    }
+  }
+
   /**
    * Returns a URL pointing to the archive.
    *
@@ -331,6 +456,7 @@ public class DataArchive extends SecureClassLoader implements Closeable {
 
   public void close() throws IOException {
     if (archive != null) {
+      cache.removeAll(getCacheKey(""));
       archive.revert(); // ensure that we don't modify the archive
       archive.close();
     }
@@ -382,7 +508,9 @@ public class DataArchive extends SecureClassLoader implements Closeable {
    * @param ext the extension
    */
   public void addExtension(DataArchive ext) {
+    ext.setCache(cache);
     extensions.add(ext);
+    index = null;
   }
 
   /**
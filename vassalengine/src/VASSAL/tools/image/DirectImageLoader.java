@@ -0,0 +1,202 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.io.RereadableInputStream;
+
+/**
+ * An image loader which decodes PNGs, JPEGs and GIFs directly into an
+ * image of the requested type, a band of rows at a time.
+ *
+ * <p>Loading an image with an {@link ImageIOImageLoader} decodes it
+ * into whatever type ImageIO chooses, and then converts it with an
+ * {@link ImageTypeConverter}, which may write the whole decoded image to
+ * a temporary file to free memory for the conversion. Here the rows
+ * read by a {@link ScanlineImageReader} are written straight into the
+ * destination image, so the only pixels held besides the destination
+ * are those of one band. JPEGs and GIFs, which ImageIO decodes well only
+ * whole, are decoded straight into the destination type where ImageIO
+ * supports that, and converted in memory otherwise.</p>
+ *
+ * <p>Images which cannot be read by rows, or which fail to decode that
+ * way, are loaded by the fallback loader instead. To allow for this, the
+ * encoded image is kept in memory until it has been decoded.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class DirectImageLoader implements ImageLoader {
+  private static final Logger logger =
+    LoggerFactory.getLogger(DirectImageLoader.class);
+
+  /** The number of pixels to convert at once, at least. */
+  protected static final int BAND_PIXELS = 1 << 16;
+
+  protected final ImageLoader fallback;
+
+  /**
+   * Create an image loader.
+   *
+   * @param fallback the loader for images which cannot be read by rows
+   */
+  public DirectImageLoader(ImageLoader fallback) {
+    this.fallback = fallback;
+  }
+
+  /**
+   * Loads an image.
+   *
+   * @param name the image name
+   * @param in the input stream
+   * @param typeIfOpaque the requested image type for opaque images
+   * @param typeIfTransparent the requested image type for transparent images
+   * @param managed <code>true</code> if a managed image should be returned
+   * @return the image
+   *
+   * @throws BrokenImageException if the image is faulty
+   * @throws UnrecognizedImageTypeException if the image type is not recognized
+   * @throws ImageIOException if reading the image goes wrong
+   */
+  public BufferedImage load(
+    String name,
+    InputStream in,
+    int typeIfOpaque,
+    int typeIfTransparent,
+    boolean managed
+  ) throws ImageIOException
+  {
+    final RereadableInputStream rin = new RereadableInputStream(in);
+    rin.mark(8192);
+
+    ScanlineImageReader r = null;
+    try {
+      r = ScanlineImageReader.open(name, new CloseShieldInputStream(rin));
+      if (r != null) {
+        final BufferedImage img = read(r, typeIfOpaque, typeIfTransparent);
+        rin.close();
+        return img;
+      }
+    }
+    catch (IOException e) {
+      logger.debug("Falling back to ImageIO for " + name, e); //$NON-NLS-1$
+    }
+    catch (RuntimeException e) {
+      // the row readers may choke on broken images which ImageIO accepts
+      logger.debug("Falling back to ImageIO for " + name, e); //$NON-NLS-1$
+    }
+    catch (OutOfMemoryError e) {
+      // the fallback converter can free memory by using a temporary file
+      logger.debug("Falling back to ImageIO for " + name, e); //$NON-NLS-1$
+    }
+    finally {
+      if (r != null) r.close();
+    }
+
+    try {
+      rin.reset();
+    }
+    catch (IOException e) {
+      IOUtils.closeQuietly(rin);
+      throw new ImageIOException(name, e);
+    }
+
+    return fallback.load(name, rin, typeIfOpaque, typeIfTransparent, managed);
+  }
+
+  /**
+   * Reads all the rows of an image into a new image.
+   *
+   * @param r the reader
+   * @param typeIfOpaque the requested image type for opaque images
+   * @param typeIfTransparent the requested image type for transparent images
+   * @return the image
+   * @throws IOException if the image is truncated or reading it goes wrong
+   */
+  protected BufferedImage read(ScanlineImageReader r, int typeIfOpaque,
+                               int typeIfTransparent) throws IOException {
+    final int w = r.getWidth();
+    final int h = r.getHeight();
+    final boolean opaque = r.isOpaque();
+    final int type = opaque ? typeIfOpaque : typeIfTransparent;
+
+    BufferedImage img = r.readImage(type);
+    if (img != null) return img;
+
+    img = new BufferedImage(w, h, type);
+    final WritableRaster raster = img.getRaster();
+
+    // Integer RGB types take the pixels as they are, so long as they are
+    // premultiplied where necessary. Writing through the raster rather
+    // than the data buffer keeps the image managed.
+    final boolean direct = type == BufferedImage.TYPE_INT_RGB ||
+                           type == BufferedImage.TYPE_INT_ARGB ||
+                           type == BufferedImage.TYPE_INT_ARGB_PRE;
+    final boolean premultiply = !opaque && direct &&
+                                type != BufferedImage.TYPE_INT_ARGB;
+
+    final int rows = Math.min(h,
+      Math.max(r.getBandHeight(), Math.max(1, BAND_PIXELS / w)));
+    final int[] buf = new int[rows*w];
+
+    int y = 0;
+    int n;
+    while (y < h && (n = r.read(buf, rows)) > 0) {
+      if (direct) {
+        if (premultiply) ScanlineImageReader.premultiply(buf, n*w);
+        raster.setDataElements(0, y, w, n, buf);
+      }
+      else {
+        img.setRGB(0, y, w, n, buf, 0, w);
+      }
+      y += n;
+    }
+
+    if (y < h) {
+      throw new IOException(r.getName() + ": only " + y + " of " + h + " rows"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    return img;
+  }
+
+  /**
+   * Gets the size of an image.
+   *
+   * @param name the image name
+   * @param in the input stream
+   * @return the size of the image
+   *
+   * @throws BrokenImageException if the image is faulty
+   * @throws UnrecognizedImageTypeException if the image type is not recognized
+   * @throws ImageIOException if reading the image goes wrong
+   */
+  public Dimension size(String name, InputStream in) throws ImageIOException {
+    return fallback.size(name, in);
+  }
+}
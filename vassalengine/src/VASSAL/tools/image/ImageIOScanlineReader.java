@@ -0,0 +1,183 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * Reads images in bands using ImageIO source-region reads. This is used
+ * for JPEGs, which ImageIO can decode down to the bottom of a region
+ * without keeping the rows above it, and for GIFs, which are rarely
+ * larger than one band.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+class ImageIOScanlineReader extends ScanlineImageReader {
+  /**
+   * The number of pixels to decode per region read. Each read decodes
+   * the image from the top, so bands should be as tall as memory allows.
+   */
+  protected static final int BAND_PIXELS = 1 << 23;
+
+  protected final InputStream in;
+  protected final ImageInputStream stream;
+  protected final ImageReader reader;
+  protected final boolean opaque;
+
+  protected ImageIOScanlineReader(String name, InputStream in,
+                                  ImageInputStream stream,
+                                  ImageReader reader, boolean opaque)
+                                                           throws IOException {
+    super(name, reader.getWidth(0), reader.getHeight(0));
+    this.in = in;
+    this.stream = stream;
+    this.reader = reader;
+    this.opaque = opaque;
+  }
+
+  /**
+   * @param name the image name
+   * @param in the input stream
+   * @return a reader for the image, or <code>null</code> if ImageIO
+   * does not recognize it
+   * @throws IOException if the image header cannot be read
+   */
+  static ImageIOScanlineReader create(String name, InputStream in)
+                                                           throws IOException {
+    final ImageInputStream stream = new MemoryCacheImageInputStream(in);
+
+    final Iterator<ImageReader> i = ImageIO.getImageReaders(stream);
+    if (!i.hasNext()) return null;
+
+    final ImageReader reader = i.next();
+    try {
+      reader.setInput(stream);
+
+      final Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+      if (!types.hasNext()) {
+        reader.dispose();
+        return null;
+      }
+
+      final boolean opaque = types.next().getColorModel().getTransparency()
+                                                      == Transparency.OPAQUE;
+      return new ImageIOScanlineReader(name, in, stream, reader, opaque);
+    }
+    catch (IOException e) {
+      reader.dispose();
+      throw e;
+    }
+    catch (RuntimeException e) {
+      // ImageIO throws all manner of things on broken images
+      reader.dispose();
+      throw (IOException) new IOException(name).initCause(e);
+    }
+  }
+
+  @Override
+  public int getBandHeight() {
+    return Math.max(1, BAND_PIXELS / width);
+  }
+
+  @Override
+  public boolean isOpaque() {
+    return opaque;
+  }
+
+  @Override
+  public int read(int[] dst, int rows) throws IOException {
+    final int n = Math.min(rows, height - row);
+    if (n <= 0) return 0;
+
+    final ImageReadParam param = reader.getDefaultReadParam();
+    param.setSourceRegion(new Rectangle(0, row, width, n));
+
+    final BufferedImage band;
+    try {
+      band = reader.read(0, param);
+    }
+    catch (RuntimeException e) {
+      throw (IOException) new IOException(name).initCause(e);
+    }
+
+    band.getRGB(0, 0, width, n, dst, 0, width);
+    row += n;
+    return n;
+  }
+
+  /**
+   * Decodes straight into the requested type if ImageIO can; otherwise
+   * decodes the whole image and converts it in one go. Either is much
+   * faster than reading by rows, since ImageIO has to decode a JPEG from
+   * the top again for every band.
+   */
+  @Override
+  public BufferedImage readImage(int type) throws IOException {
+    if (row != 0) return null;
+
+    try {
+      final Iterator<ImageTypeSpecifier> i = reader.getImageTypes(0);
+      while (i.hasNext()) {
+        final ImageTypeSpecifier spec = i.next();
+        if (spec.getBufferedImageType() == type) {
+          final ImageReadParam param = reader.getDefaultReadParam();
+          param.setDestinationType(spec);
+          final BufferedImage img = reader.read(0, param);
+          row = height;
+          return img;
+        }
+      }
+
+      final BufferedImage src = reader.read(0);
+      final BufferedImage dst = new BufferedImage(width, height, type);
+      final Graphics2D g = dst.createGraphics();
+      g.drawImage(src, 0, 0, null);
+      g.dispose();
+
+      row = height;
+      return dst;
+    }
+    catch (RuntimeException e) {
+      throw (IOException) new IOException(name).initCause(e);
+    }
+  }
+
+  @Override
+  public void close() {
+    reader.dispose();
+    IOUtils.closeQuietly(stream);
+    IOUtils.closeQuietly(in);
+  }
+}
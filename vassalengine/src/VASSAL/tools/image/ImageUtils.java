@@ -242,8 +242,8 @@ public class ImageUtils {
     }
   };
 
-  private static final ImageLoader loader =
-    new ImageIOImageLoader(new FallbackImageTypeConverter(tfac));
+  private static final ImageLoader loader = new DirectImageLoader(
+    new ImageIOImageLoader(new FallbackImageTypeConverter(tfac)));
 
   public static Dimension getImageSize(String name, InputStream in)
                                                       throws ImageIOException {
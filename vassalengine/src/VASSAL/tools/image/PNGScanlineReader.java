@@ -0,0 +1,430 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * Reads non-interlaced PNGs one scanline at a time. Only the current and
+ * previous scanlines are held in memory.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+class PNGScanlineReader extends ScanlineImageReader {
+  protected final InputStream in;
+  protected final DataInputStream zin;
+  protected final Inflater inflater;
+
+  protected final int depth;
+  protected final int ctype;
+  protected final int[] palette;
+  protected final long tRNS;
+
+  protected final int bpp;
+  protected byte[] cur;
+  protected byte[] prev;
+
+  protected PNGScanlineReader(String name, InputStream in,
+                              DataInputStream din, byte[] idat,
+                              int width, int height, int depth, int ctype,
+                              int[] palette, long tRNS) {
+    super(name, width, height);
+
+    this.in = in;
+    this.depth = depth;
+    this.ctype = ctype;
+    this.palette = palette;
+    this.tRNS = tRNS;
+
+    final int channels = channels(ctype);
+    bpp = Math.max(1, channels*depth/8);
+
+    final int rowBytes = (int) (((long) width*channels*depth + 7)/8);
+    cur = new byte[rowBytes];
+    prev = new byte[rowBytes];
+
+    inflater = new Inflater();
+    zin = new DataInputStream(
+      new InflaterInputStream(new IDATInputStream(din, idat), inflater, 8192)
+    );
+  }
+
+  static boolean isPNG(byte[] magic) {
+    long sig = 0;
+    for (int i = 0; i < 8; ++i) sig = (sig << 8) | (magic[i] & 0xff);
+    return sig == PNGDecoder.sig;
+  }
+
+  private static int channels(int ctype) {
+    switch (ctype) {
+    case 2:  return 3;
+    case 4:  return 2;
+    case 6:  return 4;
+    default: return 1;
+    }
+  }
+
+  /**
+   * Reads the PNG header and all chunks up to the first IDAT chunk.
+   *
+   * @param name the image name
+   * @param in the input stream
+   * @return a reader for the image, or <code>null</code> if the image
+   * is interlaced or has an embedded color profile
+   * @throws IOException if the header cannot be read
+   */
+  static PNGScanlineReader create(String name, InputStream in)
+                                                           throws IOException {
+    final DataInputStream din = new DataInputStream(in);
+    if (!PNGDecoder.decodeSignature(din)) return null;
+
+    PNGDecoder.Chunk ch = PNGDecoder.decodeChunk(din);
+    if (ch.type != PNGDecoder.IHDR || ch.data.length < 13) return null;
+
+    // IHDR chunk: PNG Standard, 11.2.2
+    final DataInputStream hin =
+      new DataInputStream(new ByteArrayInputStream(ch.data));
+    final int width = hin.readInt();
+    final int height = hin.readInt();
+    final int depth = hin.readUnsignedByte();
+    final int ctype = hin.readUnsignedByte();
+    hin.skipBytes(2); // compression and filter methods are always 0
+    final int interlace = hin.readUnsignedByte();
+
+    if (width < 1 || height < 1 || interlace != 0) return null;
+
+    switch (ctype) {
+    case 0:
+      if (depth != 1 && depth != 2 && depth != 4 &&
+          depth != 8 && depth != 16) return null;
+      break;
+    case 3:
+      if (depth != 1 && depth != 2 && depth != 4 && depth != 8) return null;
+      break;
+    case 2:
+    case 4:
+    case 6:
+      if (depth != 8 && depth != 16) return null;
+      break;
+    default:
+      return null;
+    }
+
+    int[] palette = null;
+    byte[] trns = null;
+
+    while (true) {
+      ch = PNGDecoder.decodeChunk(din);
+
+      switch (ch.type) {
+      case PNGDecoder.PLTE:
+        palette = new int[ch.data.length/3];
+        for (int i = 0; i < palette.length; ++i) {
+          palette[i] = 0xff000000 |
+                       ((ch.data[3*i]   & 0xff) << 16) |
+                       ((ch.data[3*i+1] & 0xff) <<  8) |
+                        (ch.data[3*i+2] & 0xff);
+        }
+        break;
+      case PNGDecoder.tRNS:
+        trns = ch.data;
+        break;
+      case PNGDecoder.iCCP:
+        // leave color management to ImageIO
+        return null;
+      case PNGDecoder.IEND:
+        throw new EOFException("no IDAT chunk in " + name);
+      case PNGDecoder.IDAT:
+        if (ctype == 3 && palette == null) return null;
+
+        // tRNS chunk: PNG Standard, 11.3.2.1
+        long key = -1;
+        if (trns != null) {
+          switch (ctype) {
+          case 0:
+            if (trns.length >= 2) key = sample(trns, 0, depth);
+            break;
+          case 2:
+            if (trns.length >= 6) {
+              key = ((long) sample(trns, 0, depth) << 32) |
+                    ((long) sample(trns, 2, depth) << 16) |
+                     sample(trns, 4, depth);
+            }
+            break;
+          case 3:
+            for (int i = 0; i < trns.length && i < palette.length; ++i) {
+              palette[i] = (palette[i] & 0x00ffffff) | ((trns[i] & 0xff) << 24);
+            }
+            break;
+          }
+        }
+
+        return new PNGScanlineReader(name, in, din, ch.data,
+                                     width, height, depth, ctype,
+                                     palette, key);
+      default:
+        // ancillary chunks do not affect decoding
+      }
+    }
+  }
+
+  /**
+   * Reads a two-byte tRNS sample, keeping only the bits used at the
+   * given depth.
+   */
+  private static int sample(byte[] b, int off, int depth) {
+    final int s = ((b[off] & 0xff) << 8) | (b[off+1] & 0xff);
+    return depth == 16 ? s : s & ((1 << depth) - 1);
+  }
+
+  @Override
+  public boolean isOpaque() {
+    switch (ctype) {
+    case 0:
+    case 2:
+      return tRNS == -1;
+    case 3:
+      for (int argb : palette) {
+        if ((argb >>> 24) != 0xff) return false;
+      }
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  @Override
+  public int read(int[] dst, int rows) throws IOException {
+    final int n = Math.min(rows, height - row);
+    for (int r = 0; r < n; ++r) {
+      readRow();
+      convertRow(dst, r*width);
+    }
+    row += n;
+    return n;
+  }
+
+  protected void readRow() throws IOException {
+    final byte[] tmp = prev;
+    prev = cur;
+    cur = tmp;
+
+    final int filter = zin.readUnsignedByte();
+    zin.readFully(cur);
+    unfilter(filter, cur, prev, bpp);
+  }
+
+  /**
+   * Reverses the filtering of a scanline. Filtering: PNG Standard, 9.
+   *
+   * @param filter the filter type
+   * @param cur the filtered scanline, which is unfiltered in place
+   * @param prev the previous unfiltered scanline, all zeros for the first
+   * @param bpp the number of bytes per complete pixel, at least 1
+   * @throws IOException if the filter type is unknown
+   */
+  static void unfilter(int filter, byte[] cur, byte[] prev, int bpp)
+                                                           throws IOException {
+    final int len = cur.length;
+    switch (filter) {
+    case 0: // None
+      break;
+    case 1: // Sub
+      for (int i = bpp; i < len; ++i) {
+        cur[i] += cur[i-bpp];
+      }
+      break;
+    case 2: // Up
+      for (int i = 0; i < len; ++i) {
+        cur[i] += prev[i];
+      }
+      break;
+    case 3: // Average
+      for (int i = 0; i < bpp; ++i) {
+        cur[i] += (prev[i] & 0xff) >>> 1;
+      }
+      for (int i = bpp; i < len; ++i) {
+        cur[i] += ((cur[i-bpp] & 0xff) + (prev[i] & 0xff)) >>> 1;
+      }
+      break;
+    case 4: // Paeth
+      for (int i = 0; i < bpp; ++i) {
+        cur[i] += prev[i];
+      }
+      for (int i = bpp; i < len; ++i) {
+        final int a = cur[i-bpp] & 0xff;
+        final int b = prev[i] & 0xff;
+        final int c = prev[i-bpp] & 0xff;
+        final int p = a + b - c;
+        final int pa = Math.abs(p - a);
+        final int pb = Math.abs(p - b);
+        final int pc = Math.abs(p - c);
+        cur[i] += pa <= pb && pa <= pc ? a : (pb <= pc ? b : c);
+      }
+      break;
+    default:
+      throw new IOException("bad filter type " + filter);
+    }
+  }
+
+  protected void convertRow(int[] dst, int off) {
+    final byte[] s = cur;
+
+    switch (ctype) {
+    case 0:
+      if (depth == 16) {
+        for (int x = 0; x < width; ++x) {
+          final int v = s[2*x] & 0xff;
+          final int k = (v << 8) | (s[2*x+1] & 0xff);
+          dst[off+x] = k == tRNS ? 0 : 0xff000000 | (v << 16) | (v << 8) | v;
+        }
+      }
+      else {
+        final int mask = (1 << depth) - 1;
+        for (int x = 0; x < width; ++x) {
+          final int k = packed(s, x);
+          final int v = k*255/mask;
+          dst[off+x] = k == tRNS ? 0 : 0xff000000 | (v << 16) | (v << 8) | v;
+        }
+      }
+      break;
+    case 2:
+      if (depth == 16) {
+        for (int x = 0; x < width; ++x) {
+          final int i = 6*x;
+          final int r = ((s[i]   & 0xff) << 8) | (s[i+1] & 0xff);
+          final int g = ((s[i+2] & 0xff) << 8) | (s[i+3] & 0xff);
+          final int b = ((s[i+4] & 0xff) << 8) | (s[i+5] & 0xff);
+          final long k = ((long) r << 32) | ((long) g << 16) | b;
+          dst[off+x] = k == tRNS ? 0 :
+            0xff000000 | ((r >> 8) << 16) | (g & 0xff00) | (b >> 8);
+        }
+      }
+      else {
+        for (int x = 0; x < width; ++x) {
+          final int i = 3*x;
+          final int r = s[i]   & 0xff;
+          final int g = s[i+1] & 0xff;
+          final int b = s[i+2] & 0xff;
+          final long k = ((long) r << 32) | ((long) g << 16) | b;
+          dst[off+x] = k == tRNS ? 0 : 0xff000000 | (r << 16) | (g << 8) | b;
+        }
+      }
+      break;
+    case 3:
+      for (int x = 0; x < width; ++x) {
+        final int k = depth == 8 ? s[x] & 0xff : packed(s, x);
+        dst[off+x] = k < palette.length ? palette[k] : 0xff000000;
+      }
+      break;
+    case 4:
+      {
+        final int step = depth/4;
+        for (int x = 0; x < width; ++x) {
+          final int i = step*x;
+          final int v = s[i] & 0xff;
+          final int a = s[i+step/2] & 0xff;
+          dst[off+x] = (a << 24) | (v << 16) | (v << 8) | v;
+        }
+      }
+      break;
+    case 6:
+      {
+        final int step = depth/2;
+        final int c = step/4;
+        for (int x = 0; x < width; ++x) {
+          final int i = step*x;
+          dst[off+x] = ((s[i+3*c] & 0xff) << 24) |
+                       ((s[i]     & 0xff) << 16) |
+                       ((s[i+c]   & 0xff) <<  8) |
+                        (s[i+2*c] & 0xff);
+        }
+      }
+      break;
+    }
+  }
+
+  /**
+   * Extracts a sample of fewer than 8 bits from a packed scanline.
+   */
+  private int packed(byte[] s, int x) {
+    final int bit = x*depth;
+    return (s[bit >> 3] >> (8 - depth - (bit & 7))) & ((1 << depth) - 1);
+  }
+
+  @Override
+  public void close() {
+    inflater.end();
+    IOUtils.closeQuietly(in);
+  }
+
+  /**
+   * Presents the data of consecutive IDAT chunks as a single stream.
+   */
+  private static class IDATInputStream extends InputStream {
+    private final DataInputStream in;
+    private byte[] data;
+    private int pos = 0;
+
+    public IDATInputStream(DataInputStream in, byte[] first) {
+      this.in = in;
+      this.data = first;
+    }
+
+    private boolean fill() throws IOException {
+      while (data != null && pos == data.length) {
+        final PNGDecoder.Chunk ch = PNGDecoder.decodeChunk(in);
+        if (ch.type == PNGDecoder.IDAT) {
+          data = ch.data;
+        }
+        else {
+          // IDAT chunks must be consecutive, so the image data is over
+          data = null;
+        }
+        pos = 0;
+      }
+      return data != null;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return fill() ? data[pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (!fill()) return -1;
+
+      final int n = Math.min(len, data.length - pos);
+      System.arraycopy(data, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+  }
+}
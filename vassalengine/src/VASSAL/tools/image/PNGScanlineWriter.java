@@ -0,0 +1,388 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a PNG image one row at a time, so that images too large to
+ * hold in memory may be written from a sequence of smaller bands.
+ *
+ * <p>The image is written as 8-bit RGBA, with each row filtered by the
+ * Paeth predictor, and the compressed data split into IDAT chunks as it
+ * is produced.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class PNGScanlineWriter implements Closeable {
+  private static final int IDAT_SIZE = 1 << 16;
+
+  private final DataOutputStream out;
+  private final int width;
+  private final int height;
+
+  private final DeflaterOutputStream zout;
+  private final Deflater deflater;
+
+  private final int[] argb;
+  private byte[] prev;
+  private byte[] cur;
+  private final byte[] filtered;
+
+  private int rows = 0;
+  private boolean prefiltered = false;
+  private boolean closed = false;
+
+  /**
+   * Writes the PNG header for an image of the given size.
+   *
+   * @param out the stream to write to, which is closed by {@link #close}
+   * @param width the width of the image
+   * @param height the height of the image
+   * @throws IOException if the header cannot be written
+   */
+  public PNGScanlineWriter(OutputStream out, int width, int height)
+                                                          throws IOException {
+    if (width < 1 || height < 1) {
+      throw new IllegalArgumentException(
+        "Bad image size " + width + "x" + height);
+    }
+
+    // each row is preceded by its filter type byte
+    if ((long) width * 4 + 1 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image too wide: " + width);
+    }
+
+    this.out = new DataOutputStream(out);
+    this.width = width;
+    this.height = height;
+
+    argb = new int[width];
+    prev = new byte[width*4];
+    cur = new byte[width*4];
+    filtered = new byte[width*4 + 1];
+
+    // 5.2
+    this.out.writeLong(PNGDecoder.sig);
+
+    // 11.2.2
+    final byte[] ihdr = new byte[13];
+    putInt(ihdr, 0, width);
+    putInt(ihdr, 4, height);
+    ihdr[8] = 8;    // bit depth
+    ihdr[9] = 6;    // color type: truecolor with alpha
+    ihdr[10] = 0;   // compression method: deflate
+    ihdr[11] = 0;   // filter method: adaptive
+    ihdr[12] = 0;   // interlace method: none
+    writeChunk(PNGDecoder.IHDR, ihdr, ihdr.length);
+
+    deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    zout = new DeflaterOutputStream(new IDATOutputStream(), deflater,
+                                    IDAT_SIZE);
+  }
+
+  private static void putInt(byte[] b, int off, int v) {
+    b[off]   = (byte) (v >>> 24);
+    b[off+1] = (byte) (v >>> 16);
+    b[off+2] = (byte) (v >>> 8);
+    b[off+3] = (byte) v;
+  }
+
+  private void writeChunk(int type, byte[] data, int len) throws IOException {
+    final CRC32 crc = new CRC32();
+    final byte[] tb = new byte[4];
+    putInt(tb, 0, type);
+    crc.update(tb);
+    crc.update(data, 0, len);
+
+    out.writeInt(len);
+    out.writeInt(type);
+    out.write(data, 0, len);
+    out.writeInt((int) crc.getValue());
+  }
+
+  /**
+   * Collects the compressed image data into IDAT chunks.
+   */
+  private class IDATOutputStream extends OutputStream {
+    private final byte[] buf = new byte[IDAT_SIZE];
+    private int count = 0;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buf.length) flushChunk();
+      buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      while (len > 0) {
+        if (count == buf.length) flushChunk();
+        final int n = Math.min(len, buf.length - count);
+        System.arraycopy(b, off, buf, count, n);
+        count += n;
+        off += n;
+        len -= n;
+      }
+    }
+
+    private void flushChunk() throws IOException {
+      if (count > 0) {
+        writeChunk(PNGDecoder.IDAT, buf, count);
+        count = 0;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      flushChunk();
+    }
+  }
+
+  /**
+   * @return the width of the image
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * @return the height of the image
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the number of rows written so far
+   */
+  public int getRowsWritten() {
+    return rows;
+  }
+
+  /**
+   * Writes the next rows of the image.
+   *
+   * @param img the image holding the rows, which must be as wide as the
+   * image being written
+   * @param y the first row of <code>img</code> to write
+   * @param h the number of rows to write
+   * @throws IOException if the rows cannot be written
+   */
+  public void writeRows(BufferedImage img, int y, int h) throws IOException {
+    if (closed) throw new IOException("Writer is closed");
+
+    if (img.getWidth() != width) {
+      throw new IllegalArgumentException(
+        "Image width " + img.getWidth() + " != " + width);
+    }
+
+    if (y < 0 || h < 0 || y + h > img.getHeight()) {
+      throw new IllegalArgumentException("Bad rows " + y + "+" + h);
+    }
+
+    if (rows + h > height) {
+      throw new IllegalArgumentException("Too many rows");
+    }
+
+    if (prefiltered) {
+      throw new IllegalStateException(
+        "Cannot write unfiltered rows after filtered ones");
+    }
+
+    for (int row = y; row < y + h; ++row) {
+      readRow(img, row, argb, cur);
+      filterRow(cur, prev, filtered, 0);
+      zout.write(filtered);
+
+      final byte[] tmp = prev;
+      prev = cur;
+      cur = tmp;
+
+      ++rows;
+    }
+  }
+
+  /**
+   * Writes the next rows of the image, already filtered by
+   * {@link #filterRows}. Once this has been called, {@link #writeRows}
+   * may no longer be used.
+   *
+   * @param data the filtered rows
+   * @throws IOException if the rows cannot be written
+   */
+  public void writeFilteredRows(byte[] data) throws IOException {
+    if (closed) throw new IOException("Writer is closed");
+
+    final int len = width*4 + 1;
+    if (data.length % len != 0) {
+      throw new IllegalArgumentException(
+        "Bad filtered data length " + data.length);
+    }
+
+    final int h = data.length / len;
+    if (rows + h > height) {
+      throw new IllegalArgumentException("Too many rows");
+    }
+
+    prefiltered = true;
+    zout.write(data);
+    rows += h;
+  }
+
+  /**
+   * Gets one row of an image as RGBA bytes, for use as the row above
+   * the band passed to {@link #filterRows}.
+   *
+   * @param img the image
+   * @param y the row
+   * @return the row
+   */
+  public static byte[] getRow(BufferedImage img, int y) {
+    final int w = img.getWidth();
+    final byte[] row = new byte[w*4];
+    readRow(img, y, new int[w], row);
+    return row;
+  }
+
+  /**
+   * Filters rows of an image for {@link #writeFilteredRows}. This does
+   * not depend on any writer, so several bands of an image may be
+   * filtered at once on different threads.
+   *
+   * @param img the image holding the rows
+   * @param y the first row of <code>img</code> to filter
+   * @param h the number of rows to filter
+   * @param above the row above the first one, from {@link #getRow}, or
+   * <code>null</code> if the first row is the top of the image
+   * @return the filtered rows
+   */
+  public static byte[] filterRows(BufferedImage img, int y, int h,
+                                  byte[] above) {
+    if (y < 0 || h < 0 || y + h > img.getHeight()) {
+      throw new IllegalArgumentException("Bad rows " + y + "+" + h);
+    }
+
+    final int w = img.getWidth();
+    if (above != null && above.length != w*4) {
+      throw new IllegalArgumentException(
+        "Row length " + above.length + " != " + w*4);
+    }
+
+    final int len = w*4 + 1;
+    final byte[] out = new byte[h*len];
+
+    final int[] argb = new int[w];
+    final byte[] spare = new byte[w*4];
+    byte[] p = above;
+    byte[] c = new byte[w*4];
+
+    for (int row = 0; row < h; ++row) {
+      readRow(img, y + row, argb, c);
+      filterRow(c, p, out, row*len);
+
+      // never overwrite the caller's row
+      final byte[] t = p == null || p == above ? spare : p;
+      p = c;
+      c = t;
+    }
+
+    return out;
+  }
+
+  /**
+   * Reads one row of an image as RGBA bytes.
+   */
+  private static void readRow(BufferedImage img, int y,
+                              int[] argb, byte[] row) {
+    final int w = argb.length;
+
+    if (img.getType() == BufferedImage.TYPE_INT_ARGB) {
+      // copies the row directly from the raster
+      img.getRaster().getDataElements(0, y, w, 1, argb);
+    }
+    else {
+      img.getRGB(0, y, w, 1, argb, 0, w);
+    }
+
+    for (int i = 0, j = 0; i < w; ++i, j += 4) {
+      final int p = argb[i];
+      row[j]   = (byte) (p >>> 16);
+      row[j+1] = (byte) (p >>> 8);
+      row[j+2] = (byte) p;
+      row[j+3] = (byte) (p >>> 24);
+    }
+  }
+
+  /**
+   * Filters one row, preceded by its filter type byte, into
+   * <code>out</code> at <code>off</code>.
+   */
+  private static void filterRow(byte[] cur, byte[] prev,
+                                byte[] out, int off) {
+    // 9.4: Paeth filter
+    out[off] = 4;
+    for (int i = 0; i < cur.length; ++i) {
+      final int a = i < 4 ? 0 : cur[i-4] & 0xff;
+      final int b = prev == null ? 0 : prev[i] & 0xff;
+      final int c = i < 4 || prev == null ? 0 : prev[i-4] & 0xff;
+
+      final int p = a + b - c;
+      final int pa = Math.abs(p - a);
+      final int pb = Math.abs(p - b);
+      final int pc = Math.abs(p - c);
+
+      final int pred = pa <= pb && pa <= pc ? a : (pb <= pc ? b : c);
+      out[off+i+1] = (byte) (cur[i] - pred);
+    }
+  }
+
+  /**
+   * Finishes the image and closes the stream.
+   *
+   * @throws IOException if fewer rows than the height of the image were
+   * written, or if the image cannot be finished
+   */
+  public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+
+    try {
+      if (rows != height) {
+        throw new IOException("Wrote " + rows + " of " + height + " rows");
+      }
+
+      zout.close();
+      writeChunk(PNGDecoder.IEND, new byte[0], 0);
+      out.flush();
+    }
+    finally {
+      deflater.end();
+      out.close();
+    }
+  }
+}
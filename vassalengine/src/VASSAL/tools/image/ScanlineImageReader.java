@@ -0,0 +1,179 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * Reads an image a few rows at a time, so that the whole image never
+ * needs to be held in memory at once.
+ *
+ * <p>Only images which can be decoded sequentially are supported:
+ * non-interlaced PNGs, JPEGs and GIFs. {@link #open} returns <code>null</code>
+ * for anything else, in which case the caller should fall back to
+ * loading the whole image with an {@link ImageLoader}.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public abstract class ScanlineImageReader {
+  protected final String name;
+  protected final int width;
+  protected final int height;
+
+  protected int row = 0;
+
+  protected ScanlineImageReader(String name, int width, int height) {
+    this.name = name;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Opens an image for reading by rows.
+   *
+   * @param name the image name
+   * @param in the input stream, which will be closed by {@link #close}
+   * @return a reader for the image, or <code>null</code> if the image
+   * cannot be read by rows
+   * @throws IOException if reading the image header goes wrong
+   */
+  public static ScanlineImageReader open(String name, InputStream in)
+                                                           throws IOException {
+    in = new BufferedInputStream(in);
+    in.mark(8);
+
+    final byte[] magic = new byte[8];
+    final int n = IOUtils.read(in, magic);
+    in.reset();
+
+    if (n == 8 && PNGScanlineReader.isPNG(magic)) {
+      return PNGScanlineReader.create(name, in);
+    }
+    else if (n >= 2 && (magic[0] & 0xff) == 0xff && (magic[1] & 0xff) == 0xd8) {
+      return ImageIOScanlineReader.create(name, in);
+    }
+    else if (n >= 4 && magic[0] == 'G' && magic[1] == 'I' &&
+                       magic[2] == 'F' && magic[3] == '8') {
+      return ImageIOScanlineReader.create(name, in);
+    }
+    else {
+      return null;
+    }
+  }
+
+  /**
+   * @return the image name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the image width
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * @return the image height
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * @return the number of rows read so far
+   */
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * @return the number of rows which it is most efficient to read at once
+   */
+  public int getBandHeight() {
+    return 1;
+  }
+
+  /**
+   * @return <code>true</code> if the image has no alpha channel and no
+   * transparent color
+   */
+  public abstract boolean isOpaque();
+
+  /**
+   * Reads the next rows of the image as non-premultiplied ARGB pixels.
+   *
+   * @param dst the destination array, which must hold at least
+   * <code>rows*getWidth()</code> pixels
+   * @param rows the maximum number of rows to read
+   * @return the number of rows read, which is 0 only at the end of
+   * the image
+   * @throws IOException if reading the image goes wrong
+   */
+  public abstract int read(int[] dst, int rows) throws IOException;
+
+  /**
+   * Reads the whole image directly into an image of the given type, for
+   * readers which can do that more efficiently than by rows.
+   *
+   * @param type the image type
+   * @return the image, or <code>null</code> if the image should be read
+   * by rows instead, in which case no rows will have been read
+   * @throws IOException if reading the image goes wrong
+   */
+  public BufferedImage readImage(int type) throws IOException {
+    return null;
+  }
+
+  /**
+   * Releases the input stream.
+   */
+  public abstract void close();
+
+  /**
+   * Converts ARGB pixels to premultiplied ARGB in place.
+   *
+   * @param p the pixels
+   * @param len the number of pixels to convert
+   */
+  public static void premultiply(int[] p, int len) {
+    for (int i = 0; i < len; ++i) {
+      final int argb = p[i];
+      final int a = argb >>> 24;
+      if (a == 0xff) continue;
+      if (a == 0) {
+        p[i] = 0;
+        continue;
+      }
+
+      final int r = (((argb >> 16) & 0xff)*a + 127)/255;
+      final int g = (((argb >>  8) & 0xff)*a + 127)/255;
+      final int b = (( argb        & 0xff)*a + 127)/255;
+      p[i] = (a << 24) | (r << 16) | (g << 8) | b;
+    }
+  }
+}
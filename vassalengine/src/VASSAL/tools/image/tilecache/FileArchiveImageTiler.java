@@ -21,14 +21,17 @@
 package VASSAL.tools.image.tilecache;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import VASSAL.tools.image.ImageLoader;
+import VASSAL.tools.image.ScanlineImageReader;
 import VASSAL.tools.io.FileArchive;
 import VASSAL.tools.io.IOUtils;
 import VASSAL.tools.lang.Callback;
@@ -43,6 +46,21 @@ public class FileArchiveImageTiler {
   private static final Logger logger =
     LoggerFactory.getLogger(FileArchiveImageTiler.class);
 
+  protected final TilingStatistics stats;
+
+  public FileArchiveImageTiler() {
+    this(null);
+  }
+
+  /**
+   * @param stats the statistics to which image timings are reported,
+   * or <code>null</code> for none
+   * @since 3.2.3
+   */
+  public FileArchiveImageTiler(TilingStatistics stats) {
+    this.stats = stats;
+  }
+
   /**
    * Tile image contained in an archive.
    *
@@ -65,20 +83,67 @@ public class FileArchiveImageTiler {
     Callback<Void> tileListener,
     Callback<Void> doneListener
   ) throws IOException
+  {
+    run(fa, tpath, tw, th, ipaths, exec, loader, slicer, null,
+        imageListener, tileListener, doneListener);
+  }
+
+  /**
+   * Tile image contained in an archive. Images which can be read by rows
+   * are sliced by the streaming slicer; the rest are loaded whole.
+   *
+   * @param fa the file archive
+   * @param tpath path to the output directory
+   * @param tw tile width, in pixels
+   * @param th tile height, in pixels
+   * @param ipaths paths within the archive to images to be tiled
+   * @param streamer the streaming slicer, or <code>null</code> to load
+   * all images whole
+   *
+   * @since 3.2.3
+   */
+  public void run(
+    FileArchive fa,
+    final String tpath,
+    int tw,
+    int th,
+    String[] ipaths,
+    ExecutorService exec,
+    ImageLoader loader,
+    TileSlicer slicer,
+    StreamingTileSlicer streamer,
+    Callback<String> imageListener,
+    Callback<Void> tileListener,
+    Callback<Void> doneListener
+  ) throws IOException
   {
     for (String ipath : ipaths) {
       logger.info("Tiling {}", ipath);
       imageListener.receive(ipath);
 
+      if (streamer != null &&
+          stream(fa, tpath, tw, th, ipath, exec, streamer, tileListener)) {
+        continue;
+      }
+
+      if (stats != null) stats.imageStarted(ipath, false);
+
       BufferedImage src = null;
       InputStream in = null;
       try {
+        final long t0 = System.nanoTime();
+
         in = fa.getInputStream(ipath);
         src = loader.load(
           ipath, in, BufferedImage.TYPE_INT_RGB,
           BufferedImage.TYPE_INT_ARGB_PRE, false
         );
         in.close();
+
+        if (stats != null) {
+          stats.addTime(TilingStatistics.Stage.DECODE, System.nanoTime() - t0);
+          stats.setImageSize(src.getWidth(), src.getHeight());
+        }
       }
       catch (IOException e) {
         logger.error("", e);
@@ -92,6 +157,78 @@ public class FileArchiveImageTiler {
     }
 
     exec.shutdown();
+    if (stats != null) stats.finish();
     doneListener.receive(null);
   }
+
+  /**
+   * Tiles an image without loading it whole.
+   *
+   * <p>An image which fails part way through is skipped rather than
+   * loaded whole, since the tiling process has only enough heap to stream
+   * it. The tiles it would have had are reported as done, so that
+   * progress still reaches the total, and its first tile is removed, so
+   * that it is tiled again next time.</p>
+   *
+   * @return <code>true</code> if the image was tiled or skipped,
+   * <code>false</code> if it cannot be streamed and must be loaded whole
+   */
+  protected boolean stream(
+    FileArchive fa,
+    String tpath,
+    int tw,
+    int th,
+    String ipath,
+    ExecutorService exec,
+    StreamingTileSlicer streamer,
+    final Callback<Void> tileListener
+  )
+  {
+    final AtomicInteger written = new AtomicInteger();
+    final Callback<Void> counter = new Callback<Void>() {
+      public void receive(Void obj) throws IOException {
+        written.incrementAndGet();
+        tileListener.receive(obj);
+      }
+    };
+
+    ScanlineImageReader src = null;
+    InputStream in = null;
+    try {
+      in = fa.getInputStream(ipath);
+      src = ScanlineImageReader.open(ipath, in);
+      if (src == null) return false;
+
+      if (stats != null) {
+        stats.imageStarted(ipath, true);
+        stats.setImageSize(src.getWidth(), src.getHeight());
+      }
+
+      streamer.slice(src, ipath, tpath, tw, th, exec, counter);
+      return true;
+    }
+    catch (IOException e) {
+      logger.error("Streaming " + ipath + " failed, skipping it", e);
+
+      if (src != null) {
+        new File(tpath, TileUtils.tileName(ipath, 0, 0, 1)).delete();
+
+        final int rest = TileUtils.tileCount(
+          src.getWidth(), src.getHeight(), tw, th) - written.get();
+        try {
+          for (int i = 0; i < rest; ++i) {
+            tileListener.receive(null);
+          }
+        }
+        catch (IOException ex) {
+          logger.error("", ex);
+        }
+      }
+      return src != null;
+    }
+    finally {
+      if (src != null) src.close();
+      IOUtils.closeQuietly(in);
+    }
+  }
 }
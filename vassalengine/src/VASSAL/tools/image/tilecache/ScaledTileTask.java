@@ -52,6 +52,11 @@ class ScaledTileTask extends TileTask {
     this.filter = filter;
   }
 
+  @Override
+  protected TilingStatistics.Stage getStage() {
+    return TilingStatistics.Stage.SCALE;
+  }
+
   @Override
   protected BufferedImage sliceTile() {
     // get actual tile width, height (edge tiles can be less than full size)
@@ -0,0 +1,316 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image.tilecache;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import VASSAL.tools.image.ScanlineImageReader;
+import VASSAL.tools.lang.Callback;
+
+/**
+ * Slices an image into tiles as it is read, without ever holding the
+ * whole image in memory.
+ *
+ * <p>Rows arrive from a {@link ScanlineImageReader} and are collected
+ * into a strip one tile high at each scale. Whenever a strip fills, it
+ * is cut into tiles. Each pair of rows at one scale is averaged down
+ * into a single row for the next, so all the scales are built in the
+ * same pass. The memory needed is proportional to the tile height times
+ * the image width, rather than to the area of the image.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class StreamingTileSlicer {
+  protected final TilingStatistics stats;
+
+  public StreamingTileSlicer() {
+    this(null);
+  }
+
+  /**
+   * @param stats the statistics to which timings are reported, or
+   * <code>null</code> for none
+   */
+  public StreamingTileSlicer(TilingStatistics stats) {
+    this.stats = stats;
+  }
+
+  /**
+   * Slices an image into tiles.
+   *
+   * @param src the source image reader
+   * @param iname the basename for the tiles
+   * @param tpath the path for the tiles
+   * @param tw the tile width
+   * @param th the tile height
+   * @param exec the executor in which to write tiles
+   * @param progress a callback for indicating progress
+   * @throws IOException if reading the image or writing a tile fails
+   */
+  public void slice(
+    ScanlineImageReader src,
+    String iname,
+    String tpath,
+    int tw,
+    int th,
+    ExecutorService exec,
+    Callback<Void> progress
+  ) throws IOException
+  {
+    final int sw = src.getWidth();
+    final int sh = src.getHeight();
+
+    final int type = src.isOpaque() ?
+      BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE;
+
+    final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+    // set up the scales, from 1:1 to the vanishing point
+    Level top = null;
+    Level prev = null;
+    for (int div = 1; sw/div > 0 && sh/div > 0; div <<= 1) {
+      final Level l = new Level(
+        iname, tpath, div, sw/div, sh/div, tw, th, type, exec, futures, stats
+      );
+
+      if (prev == null) top = l;
+      else prev.next = l;
+      prev = l;
+    }
+
+    final int bh = Math.max(th, src.getBandHeight());
+    final int[] band = new int[bh*sw];
+    final boolean premultiply = type == BufferedImage.TYPE_INT_ARGB_PRE;
+
+    try {
+      int n;
+      long t0 = System.nanoTime();
+      while ((n = src.read(band, bh)) > 0) {
+        if (premultiply) ScanlineImageReader.premultiply(band, n*sw);
+
+        if (stats != null) {
+          stats.addTime(TilingStatistics.Stage.DECODE, System.nanoTime() - t0);
+        }
+
+        for (int r = 0; r < n; ++r) {
+          top.addRow(band, r*sw);
+        }
+
+        // wait for the tiles cut from this band, to bound memory use
+        await(futures, progress);
+        t0 = System.nanoTime();
+      }
+
+      if (src.getRow() < sh) {
+        throw new IOException(
+          "image ended at row " + src.getRow() + " of " + sh
+        );
+      }
+    }
+    finally {
+      // cancel everything if anything fails
+      for (Future<Void> f : futures) {
+        if (!f.isDone()) f.cancel(true);
+      }
+    }
+  }
+
+  private static void await(List<Future<Void>> futures,
+                            Callback<Void> progress) throws IOException {
+    try {
+      for (Future<Void> f : futures) {
+        f.get();
+        progress.receive(null);
+      }
+      futures.clear();
+    }
+    catch (CancellationException e) {
+      // should never happen
+      throw new IllegalStateException(e);
+    }
+    catch (ExecutionException e) {
+      throw (IOException) new IOException().initCause(e);
+    }
+    catch (InterruptedException e) {
+      // should never happen
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Estimates the number of pixels held in memory while slicing an image.
+   *
+   * @param src the source image reader
+   * @param th the tile height
+   * @return the estimated number of pixels in memory at once
+   */
+  public static long getFootprint(ScanlineImageReader src, int th) {
+    final long w = src.getWidth();
+    final int bh = Math.max(th, src.getBandHeight());
+
+    // the band, the strips at all scales, and the tiles cut from one band
+    return (2L*bh + 3L*th)*w;
+  }
+
+  /**
+   * Averages two rows of pixels into a row half as wide, each pixel of
+   * which is the mean of a 2x2 block of source pixels.
+   */
+  static void downsample(int[] a, int aoff, int[] b, int boff,
+                         int[] dst, int w) {
+    for (int x = 0; x < w; ++x) {
+      final int p0 = a[aoff+2*x];
+      final int p1 = a[aoff+2*x+1];
+      final int p2 = b[boff+2*x];
+      final int p3 = b[boff+2*x+1];
+
+      int out = 0;
+      for (int s = 0; s < 32; s += 8) {
+        final int sum = ((p0 >>> s) & 0xff) + ((p1 >>> s) & 0xff) +
+                        ((p2 >>> s) & 0xff) + ((p3 >>> s) & 0xff);
+        out |= ((sum + 2) >> 2) << s;
+      }
+      dst[x] = out;
+    }
+  }
+
+  /**
+   * The tiles at one scale.
+   */
+  private static class Level {
+    private final String iname;
+    private final String tpath;
+    private final int div;
+    private final int w;
+    private final int h;
+    private final int tw;
+    private final int th;
+    private final int type;
+    private final ExecutorService exec;
+    private final List<Future<Void>> futures;
+    private final TilingStatistics stats;
+
+    private final int[] strip;
+    private int stripRows = 0;
+    private int ty = 0;
+    private int y = 0;
+
+    private Level next;
+    private int[] pending;
+    private boolean hasPending = false;
+    private int[] half;
+
+    public Level(String iname, String tpath, int div, int w, int h,
+                 int tw, int th, int type, ExecutorService exec,
+                 List<Future<Void>> futures, TilingStatistics stats) {
+      this.iname = iname;
+      this.tpath = tpath;
+      this.div = div;
+      this.w = w;
+      this.h = h;
+      this.tw = tw;
+      this.th = th;
+      this.type = type;
+      this.exec = exec;
+      this.futures = futures;
+      this.stats = stats;
+
+      strip = new int[Math.min(th, h)*w];
+    }
+
+    public void addRow(int[] src, int off) {
+      System.arraycopy(src, off, strip, stripRows*w, w);
+      ++stripRows;
+      ++y;
+
+      if (stripRows == th || y == h) cutStrip();
+
+      if (next != null) {
+        if (hasPending) {
+          if (half == null) half = new int[next.w];
+
+          final long t0 = System.nanoTime();
+          downsample(pending, 0, src, off, half, next.w);
+          if (stats != null) {
+            stats.addTime(TilingStatistics.Stage.SCALE, System.nanoTime() - t0);
+          }
+
+          hasPending = false;
+          next.addRow(half, 0);
+        }
+        else {
+          if (pending == null) pending = new int[w];
+          System.arraycopy(src, off, pending, 0, w);
+          hasPending = true;
+        }
+      }
+    }
+
+    private void cutStrip() {
+      final long t0 = System.nanoTime();
+
+      final int tcols = (tw + w - 1)/tw;
+      final int mask = type == BufferedImage.TYPE_INT_RGB ? 0x00ffffff : ~0;
+
+      for (int tx = 0; tx < tcols; ++tx) {
+        // edge tiles can be less than full size
+        final int atw = Math.min(tw, w - tx*tw);
+
+        final BufferedImage tile = new BufferedImage(atw, stripRows, type);
+        final int[] data =
+          ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+
+        for (int r = 0; r < stripRows; ++r) {
+          final int s = r*w + tx*tw;
+          for (int x = 0; x < atw; ++x) {
+            data[r*atw + x] = strip[s + x] & mask;
+          }
+        }
+
+        final File f = new File(tpath, TileUtils.tileName(iname, tx, ty, div));
+
+        futures.add(exec.submit(new Callable<Void>() {
+          public Void call() throws IOException {
+            if (stats == null) TileUtils.write(tile, f);
+            else TileTask.write(tile, f, stats);
+            return null;
+          }
+        }));
+      }
+
+      if (stats != null) {
+        stats.addTime(TilingStatistics.Stage.SLICE, System.nanoTime() - t0);
+      }
+
+      ++ty;
+      stripRows = 0;
+    }
+  }
+}
@@ -39,6 +39,21 @@ import VASSAL.tools.lang.Callback;
  * @author Joel Uckelman
  */
 public class TileSlicerImpl implements TileSlicer {
+  protected final TilingStatistics stats;
+
+  public TileSlicerImpl() {
+    this(null);
+  }
+
+  /**
+   * @param stats the statistics to which tile timings are reported,
+   * or <code>null</code> for none
+   * @since 3.2.3
+   */
+  public TileSlicerImpl(TilingStatistics stats) {
+    this.stats = stats;
+  }
+
   /**
    * Slices an image into tiles.
    *
@@ -128,7 +143,7 @@ public class TileSlicerImpl implements TileSlicer {
                          int tx, int ty, int tw, int th, int dw, int dh);
   }
 
-  protected static void queueTileTasks(
+  protected void queueTileTasks(
     BufferedImage src,
     String iname,
     String tpath,
@@ -151,6 +166,7 @@ public class TileSlicerImpl implements TileSlicer {
         final File f = new File(tpath, tn);
 
         final TileTask tt = tm.make(src, f, tx, ty, tw, th, dw, dh);
+        tt.setStatistics(stats);
         futures.add(exec.submit(tt));
       }
     }
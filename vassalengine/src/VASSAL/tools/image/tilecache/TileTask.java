@@ -21,10 +21,16 @@ package VASSAL.tools.image.tilecache;
 
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.concurrent.Callable;
 
+import VASSAL.tools.image.ImageIOException;
+import VASSAL.tools.io.IOUtils;
+
 /**
  * Slices one tile from an image and writes it to disk.
  *
@@ -41,6 +47,8 @@ class TileTask implements Callable<Void> {
   protected final int dw;
   protected final int dh;
 
+  protected TilingStatistics stats;
+
   /**
    * @param src the source image
    * @param dst the destination file
@@ -63,13 +71,75 @@ class TileTask implements Callable<Void> {
     this.dh = dh;
   }
 
+  /**
+   * Sets the statistics to which this task reports its timings.
+   *
+   * @param stats the statistics, or <code>null</code> for none
+   * @since 3.2.3
+   */
+  public void setStatistics(TilingStatistics stats) {
+    this.stats = stats;
+  }
+
   /** {@inheritDoc} */
   public Void call() throws IOException {
+    if (stats == null) {
+      TileUtils.write(sliceTile(), dst);
+      return null;
+    }
+
+    final long t0 = System.nanoTime();
     final BufferedImage tile = sliceTile();
-    TileUtils.write(tile, dst);
+    stats.addTime(getStage(), System.nanoTime() - t0);
+
+    write(tile, dst, stats);
     return null;
   }
 
+  /**
+   * @return the stage to which the time spent in {@link #sliceTile}
+   * is attributed
+   */
+  protected TilingStatistics.Stage getStage() {
+    return TilingStatistics.Stage.SLICE;
+  }
+
+  /**
+   * Writes a tile file, timing compression and writing separately.
+   *
+   * @param tile the tile image
+   * @param dst the tile file
+   * @param stats the statistics to which to report
+   * @throws ImageIOException if the write fails
+   */
+  static void write(BufferedImage tile, File dst, TilingStatistics stats)
+                                                      throws ImageIOException {
+    final long t0 = System.nanoTime();
+
+    final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    OutputStream out = null;
+    try {
+      TileUtils.write(tile, buf);
+
+      final long t1 = System.nanoTime();
+      stats.addTime(TilingStatistics.Stage.ENCODE, t1 - t0);
+
+      out = new FileOutputStream(dst);
+      buf.writeTo(out);
+      out.close();
+
+      stats.addTime(TilingStatistics.Stage.WRITE, System.nanoTime() - t1);
+    }
+    catch (IOException e) {
+      throw new ImageIOException(dst, e);
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+
+    stats.tileWritten(buf.size());
+  }
+
   protected BufferedImage sliceTile() {
     // get actual tile width, height (edge tiles can be less than full size)
     final int atw = Math.min(tw, dw - tx*tw);
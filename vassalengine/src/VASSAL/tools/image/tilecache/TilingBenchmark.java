@@ -0,0 +1,189 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image.tilecache;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+
+import VASSAL.tools.concurrent.DaemonThreadFactory;
+import VASSAL.tools.image.FallbackImageTypeConverter;
+import VASSAL.tools.image.ImageIOImageLoader;
+import VASSAL.tools.image.ImageLoader;
+import VASSAL.tools.image.ImageTypeConverter;
+import VASSAL.tools.io.FileArchive;
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.io.TemporaryFileFactory;
+import VASSAL.tools.io.ZipArchive;
+import VASSAL.tools.lang.Callback;
+
+/**
+ * Tiles all the large images in a module without a GUI, and prints the
+ * {@link TilingStatistics} for the run.
+ *
+ * <p>Usage: <code>TilingBenchmark [-whole] [-size n] module [tiledir]</code>
+ * where <code>-whole</code> loads every image whole instead of streaming
+ * it, <code>-size</code> sets the tile size (default 256), and
+ * <code>tiledir</code> is where tiles are written. If no tile directory
+ * is given, a temporary one is used and deleted afterwards. The summary
+ * is printed to standard output and written to the tile directory.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class TilingBenchmark {
+  public static void main(String[] args) throws IOException {
+    // Oh we have no heads, we have no HEADS!
+    System.setProperty("java.awt.headless", "true");
+
+    boolean whole = false;
+    int size = 256;
+    final List<String> pos = new ArrayList<String>();
+
+    for (int i = 0; i < args.length; ++i) {
+      if ("-whole".equals(args[i])) {
+        whole = true;
+      }
+      else if ("-size".equals(args[i]) && i+1 < args.length) {
+        size = Integer.parseInt(args[++i]);
+      }
+      else {
+        pos.add(args[i]);
+      }
+    }
+
+    if (pos.isEmpty()) {
+      System.err.println(
+        "Usage: TilingBenchmark [-whole] [-size n] module [tiledir]"
+      );
+      System.exit(1);
+    }
+
+    final String zpath = pos.get(0);
+    final boolean temporary = pos.size() < 2;
+
+    final File tdir;
+    if (temporary) {
+      tdir = File.createTempFile("tiles", null);
+      tdir.delete();
+    }
+    else {
+      tdir = new File(pos.get(1));
+    }
+
+    // make the hashed tile directories
+    for (int i = 0; i < 16; ++i) {
+      for (int j = 0; j < 16; ++j) {
+        FileUtils.forceMkdir(
+          new File(String.format("%s/%1x/%1x%1x", tdir, i, i, j))
+        );
+      }
+    }
+
+    final String tpath = tdir.getAbsolutePath();
+
+    final Runtime runtime = Runtime.getRuntime();
+    final ExecutorService exec = new ThreadPoolExecutor(
+      runtime.availableProcessors(),
+      runtime.availableProcessors()+1,
+      60, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<Runnable>(),
+      new DaemonThreadFactory(TilingBenchmark.class.getSimpleName())
+    );
+
+    final TemporaryFileFactory tfac = new TemporaryFileFactory() {
+      public File create() throws IOException {
+        return File.createTempFile("img", null, new File(tpath));
+      }
+    };
+
+    final ImageTypeConverter itc = new FallbackImageTypeConverter(tfac);
+    final ImageLoader loader = new ImageIOImageLoader(itc);
+
+    final TilingStatistics stats = new TilingStatistics();
+    stats.setExecutor(exec);
+
+    final Callback<String> imageL = new Callback<String>() {
+      public void receive(String ipath) {
+        System.err.println(ipath);
+      }
+    };
+
+    final Callback<Void> nullL = new Callback<Void>() {
+      public void receive(Void obj) {}
+    };
+
+    FileArchive fa = null;
+    try {
+      fa = new ZipArchive(zpath);
+
+      // tile the same images TilingHandler would: those with many tiles
+      final List<String> multi = new ArrayList<String>();
+      for (String ipath : fa.getFiles("images")) {
+        InputStream in = null;
+        try {
+          in = fa.getInputStream(ipath);
+          final Dimension d = loader.size(ipath, in);
+          in.close();
+
+          if (TileUtils.tileCountAtScale(d.width, d.height, size, size, 1) > 1) {
+            multi.add(ipath);
+          }
+        }
+        catch (IOException e) {
+          System.err.println(ipath + ": " + e.getMessage());
+        }
+        finally {
+          IOUtils.closeQuietly(in);
+        }
+      }
+
+      new FileArchiveImageTiler(stats).run(
+        fa, tpath, size, size, multi.toArray(new String[multi.size()]), exec,
+        loader, new TileSlicerImpl(stats),
+        whole ? null : new StreamingTileSlicer(stats),
+        imageL, nullL, nullL
+      );
+
+      fa.close();
+    }
+    finally {
+      IOUtils.closeQuietly(fa);
+    }
+
+    stats.write(new OutputStreamWriter(System.out));
+
+    if (temporary) {
+      FileUtils.deleteDirectory(tdir);
+    }
+    else {
+      stats.write(TilingStatistics.getSummaryFile(tdir, zpath));
+    }
+  }
+}
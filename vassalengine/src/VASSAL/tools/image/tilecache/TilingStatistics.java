@@ -0,0 +1,400 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.image.tilecache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import VASSAL.tools.io.IOUtils;
+
+/**
+ * Timing and throughput statistics for tiling images.
+ *
+ * <p>Time is accumulated per {@link Stage} across all threads, so the
+ * stage totals may exceed the wall-clock time when tiles are written in
+ * parallel. The queue depth and active thread count of the executor and
+ * the heap in use are sampled each time a tile is written.</p>
+ *
+ * <p>The summary is a list of <code>key=value</code> lines, in a fixed
+ * order, which can be sent over the tiling progress channel and written
+ * to a file.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class TilingStatistics {
+  /** The stages of tiling an image. */
+  public static enum Stage {
+    /** Decoding the source image. */
+    DECODE,
+    /** Copying 1:1 tiles out of the source image. */
+    SLICE,
+    /** Resampling the source image for reduced tiles. */
+    SCALE,
+    /** Compressing tile data. */
+    ENCODE,
+    /** Writing tile files. */
+    WRITE
+  }
+
+  private final AtomicLong[] nanos = new AtomicLong[Stage.values().length];
+
+  private final AtomicLong tiles = new AtomicLong();
+  private final AtomicLong tileBytes = new AtomicLong();
+
+  private final AtomicLong queueSamples = new AtomicLong();
+  private final AtomicLong queueTotal = new AtomicLong();
+  private final AtomicLong queueMax = new AtomicLong();
+  private final AtomicLong activeTotal = new AtomicLong();
+  private final AtomicLong heapMax = new AtomicLong();
+
+  private final List<ImageRecord> images = new ArrayList<ImageRecord>();
+  private ImageRecord current;
+
+  private volatile ThreadPoolExecutor exec;
+
+  private final long start = System.nanoTime();
+  private long end = -1;
+
+  public TilingStatistics() {
+    for (int i = 0; i < nanos.length; ++i) nanos[i] = new AtomicLong();
+  }
+
+  /** The statistics for one image. */
+  public static class ImageRecord {
+    public final String name;
+    public final boolean streamed;
+
+    private volatile int width;
+    private volatile int height;
+
+    private final long start = System.nanoTime();
+    private long nanos = -1;
+    private final AtomicLong tiles = new AtomicLong();
+
+    public ImageRecord(String name, boolean streamed) {
+      this.name = name;
+      this.streamed = streamed;
+    }
+
+    /** @return the image width, or 0 if not yet known */
+    public int getWidth() {
+      return width;
+    }
+
+    /** @return the image height, or 0 if not yet known */
+    public int getHeight() {
+      return height;
+    }
+
+    /** @return the time spent on this image, in milliseconds */
+    public long getMillis() {
+      return (nanos < 0 ? System.nanoTime() - start : nanos) / 1000000;
+    }
+
+    /** @return the number of tiles written for this image */
+    public long getTiles() {
+      return tiles.get();
+    }
+  }
+
+  /**
+   * Sets the executor whose queue is sampled as tiles are written.
+   *
+   * @param exec the executor
+   */
+  public void setExecutor(ExecutorService exec) {
+    this.exec = exec instanceof ThreadPoolExecutor ?
+      (ThreadPoolExecutor) exec : null;
+  }
+
+  /**
+   * Adds time spent in a stage.
+   *
+   * @param stage the stage
+   * @param ns the time, in nanoseconds
+   */
+  public void addTime(Stage stage, long ns) {
+    nanos[stage.ordinal()].addAndGet(ns);
+  }
+
+  /**
+   * @param stage the stage
+   * @return the total time spent in the stage, in milliseconds
+   */
+  public long getMillis(Stage stage) {
+    return nanos[stage.ordinal()].get() / 1000000;
+  }
+
+  /**
+   * Marks the start of tiling an image. This ends the previous image,
+   * if any.
+   *
+   * @param name the image name
+   * @param streamed whether the image is read by rows instead of whole
+   */
+  public synchronized void imageStarted(String name, boolean streamed) {
+    imageFinished();
+    current = new ImageRecord(name, streamed);
+    images.add(current);
+  }
+
+  /**
+   * Sets the size of the current image, once it is known.
+   *
+   * @param width the image width
+   * @param height the image height
+   */
+  public synchronized void setImageSize(int width, int height) {
+    if (current != null) {
+      current.width = width;
+      current.height = height;
+    }
+  }
+
+  /**
+   * Marks the end of tiling the current image.
+   *
+   * @return the record for the image, or <code>null</code> if there is none
+   */
+  public synchronized ImageRecord imageFinished() {
+    final ImageRecord r = current;
+    if (r != null) {
+      r.nanos = System.nanoTime() - r.start;
+      current = null;
+    }
+    return r;
+  }
+
+  /**
+   * @return the records of all images tiled so far
+   */
+  public synchronized List<ImageRecord> getImages() {
+    return Collections.unmodifiableList(new ArrayList<ImageRecord>(images));
+  }
+
+  /**
+   * Records that a tile was written, and samples the executor queue and
+   * the heap.
+   *
+   * @param bytes the size of the tile file
+   */
+  public void tileWritten(long bytes) {
+    tiles.incrementAndGet();
+    tileBytes.addAndGet(bytes);
+
+    final ImageRecord r;
+    synchronized (this) {
+      r = current;
+    }
+    if (r != null) r.tiles.incrementAndGet();
+
+    final ThreadPoolExecutor e = exec;
+    if (e != null) {
+      final int q = e.getQueue().size();
+      queueSamples.incrementAndGet();
+      queueTotal.addAndGet(q);
+      activeTotal.addAndGet(e.getActiveCount());
+      max(queueMax, q);
+    }
+
+    final Runtime rt = Runtime.getRuntime();
+    max(heapMax, rt.totalMemory() - rt.freeMemory());
+  }
+
+  private static void max(AtomicLong a, long v) {
+    long m;
+    while (v > (m = a.get())) {
+      if (a.compareAndSet(m, v)) break;
+    }
+  }
+
+  /**
+   * @return the number of tiles written
+   */
+  public long getTiles() {
+    return tiles.get();
+  }
+
+  /**
+   * @return the largest heap in use when a tile was written, in bytes
+   */
+  public long getPeakHeap() {
+    return heapMax.get();
+  }
+
+  /**
+   * Marks the end of tiling.
+   */
+  public synchronized void finish() {
+    imageFinished();
+    if (end < 0) end = System.nanoTime();
+  }
+
+  /**
+   * @return the summary, as an ordered map of keys to values
+   */
+  public synchronized Map<String,String> getSummary() {
+    final Map<String,String> m = new LinkedHashMap<String,String>();
+
+    final long ms = ((end < 0 ? System.nanoTime() : end) - start) / 1000000;
+    final long t = tiles.get();
+    final long qs = queueSamples.get();
+
+    m.put("elapsed.ms", String.valueOf(ms));
+    m.put("images", String.valueOf(images.size()));
+    m.put("tiles", String.valueOf(t));
+    m.put("tiles.bytes", String.valueOf(tileBytes.get()));
+    m.put("tiles.per.sec", rate(t, ms));
+
+    for (Stage s : Stage.values()) {
+      m.put("stage." + s.name().toLowerCase() + ".ms",
+            String.valueOf(getMillis(s)));
+    }
+
+    m.put("queue.max", String.valueOf(queueMax.get()));
+    m.put("queue.mean", qs == 0 ? "0" : mean(queueTotal.get(), qs));
+    m.put("threads.active.mean", qs == 0 ? "0" : mean(activeTotal.get(), qs));
+    if (exec != null) {
+      m.put("threads.pool", String.valueOf(exec.getMaximumPoolSize()));
+    }
+    m.put("heap.peak.bytes", String.valueOf(heapMax.get()));
+    m.put("heap.max.bytes", String.valueOf(Runtime.getRuntime().maxMemory()));
+
+    for (int i = 0; i < images.size(); ++i) {
+      final ImageRecord r = images.get(i);
+      final String p = "image." + i + ".";
+      final long ims = r.getMillis();
+
+      m.put(p + "name", r.name);
+      m.put(p + "width", String.valueOf(r.getWidth()));
+      m.put(p + "height", String.valueOf(r.getHeight()));
+      m.put(p + "streamed", String.valueOf(r.streamed));
+      m.put(p + "ms", String.valueOf(ims));
+      m.put(p + "tiles", String.valueOf(r.getTiles()));
+      m.put(p + "tiles.per.sec", rate(r.getTiles(), ims));
+      m.put(p + "mpix.per.sec",
+            rate((double) r.getWidth() * r.getHeight() / 1000000.0, ims));
+    }
+
+    return m;
+  }
+
+  private static String rate(double n, long ms) {
+    return ms == 0 ? "0" : String.format(Locale.US, "%.1f", 1000.0*n/ms);
+  }
+
+  private static String mean(long total, long n) {
+    return String.format(Locale.US, "%.2f", (double) total / n);
+  }
+
+  /**
+   * Writes the summary as <code>key=value</code> lines.
+   *
+   * @param w the writer, which is flushed but not closed
+   */
+  public void write(Writer w) {
+    final PrintWriter out = new PrintWriter(w);
+    for (Map.Entry<String,String> e : getSummary().entrySet()) {
+      out.print(e.getKey());
+      out.print('=');
+      out.println(e.getValue());
+    }
+    out.flush();
+  }
+
+  /**
+   * Writes the summary as <code>key=value</code> lines to a file.
+   *
+   * @param file the file
+   * @throws IOException if the write fails
+   */
+  public void write(File file) throws IOException {
+    Writer out = null;
+    try {
+      out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+      write(out);
+      out.close();
+    }
+    finally {
+      IOUtils.closeQuietly(out);
+    }
+  }
+
+  /**
+   * Gets the file to which the summary for tiling an archive is written.
+   *
+   * @param tdir the tile cache directory
+   * @param aname the path of the archive being tiled
+   * @return the summary file
+   */
+  public static File getSummaryFile(File tdir, String aname) {
+    return new File(tdir, "tiling-" + new File(aname).getName() + ".stats");
+  }
+
+  /**
+   * Sends a summary over a tiling progress channel.
+   *
+   * @param summary the summary
+   * @param out the stream
+   * @throws IOException if the write fails
+   */
+  public static void writeSummary(Map<String,String> summary,
+                                  DataOutputStream out) throws IOException {
+    out.writeInt(summary.size());
+    for (Map.Entry<String,String> e : summary.entrySet()) {
+      out.writeUTF(e.getKey());
+      out.writeUTF(e.getValue());
+    }
+  }
+
+  /**
+   * Receives a summary sent by {@link #writeSummary}.
+   *
+   * @param in the stream
+   * @return the summary
+   * @throws IOException if the read fails
+   */
+  public static Map<String,String> readSummary(DataInputStream in)
+                                                           throws IOException {
+    final int n = in.readInt();
+    if (n < 0) throw new IOException("bad summary size: " + n);
+
+    final Map<String,String> m = new LinkedHashMap<String,String>();
+    for (int i = 0; i < n; ++i) {
+      m.put(in.readUTF(), in.readUTF());
+    }
+    return m;
+  }
+}
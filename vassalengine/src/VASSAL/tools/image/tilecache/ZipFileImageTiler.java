@@ -23,6 +23,7 @@ package VASSAL.tools.image.tilecache;
 import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.STARTING_IMAGE;
 import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.TILE_WRITTEN;
 import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.TILING_FINISHED;
+import static VASSAL.tools.image.tilecache.ZipFileImageTilerState.TILING_STATISTICS;
 
 import java.io.BufferedReader;
 import java.io.DataOutputStream;
@@ -121,8 +122,12 @@ public class ZipFileImageTiler {
       final ImageTypeConverter itc = new FallbackImageTypeConverter(tfac);
       final ImageLoader loader = new ImageIOImageLoader(itc);
 
-      final TileSlicer slicer = new TileSlicerImpl();
-      final FileArchiveImageTiler tiler = new FileArchiveImageTiler();
+      final TilingStatistics stats = new TilingStatistics();
+      stats.setExecutor(exec);
+
+      final TileSlicer slicer = new TileSlicerImpl(stats);
+      final StreamingTileSlicer streamer = new StreamingTileSlicer(stats);
+      final FileArchiveImageTiler tiler = new FileArchiveImageTiler(stats);
 
       final int port = Integer.parseInt(System.getProperty("VASSAL.port"));
 
@@ -154,6 +159,19 @@ public class ZipFileImageTiler {
 
         final Callback<Void> doneL = new Callback<Void>() {
           public void receive(Void obj) throws IOException {
+            final File sfile =
+              TilingStatistics.getSummaryFile(new File(tpath), zpath);
+            try {
+              stats.write(sfile);
+            }
+            catch (IOException e) {
+              // the summary is informational, so carry on without it
+              logger.error("", e);
+            }
+
+            out.writeByte(TILING_STATISTICS);
+            TilingStatistics.writeSummary(stats.getSummary(), out);
+
             out.writeByte(TILING_FINISHED);
             out.flush();
           }
@@ -166,7 +184,7 @@ public class ZipFileImageTiler {
           // Tile the images
           tiler.run(
             fa, tpath, tw, th, ipaths, exec,
-            loader, slicer, imageL, tileL, doneL
+            loader, slicer, streamer, imageL, tileL, doneL
           );
 
           fa.close();
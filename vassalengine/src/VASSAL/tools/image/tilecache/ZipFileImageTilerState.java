@@ -6,4 +6,12 @@ public class ZipFileImageTilerState {
   public static final byte STARTING_IMAGE  = 1;
   public static final byte TILE_WRITTEN    = 2;
   public static final byte TILING_FINISHED = 3;
+
+  /**
+   * Followed by a summary written by
+   * {@link TilingStatistics#writeSummary}.
+   *
+   * @since 3.2.3
+   */
+  public static final byte TILING_STATISTICS = 4;
 }
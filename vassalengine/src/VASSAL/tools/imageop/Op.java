@@ -66,6 +66,9 @@ public class Op {
     if (sop instanceof SVGOp) {
       return new RotateScaleOpSVGImpl((SVGOp) sop, 0.0, scale);
     }
+    else if (sop instanceof ScalableOp) {
+      return ((ScalableOp) sop).getScaleOp(scale);
+    }
     else {
 // FIXME: Using ScaleOpTiledBitmapImpl for all scaling is wrong, because
 // non-map images aren't in the disk cache!
@@ -104,6 +107,11 @@ public class Op {
     return new GamePieceOpImpl(gp);
   }
 
+  public static PieceSpriteOp sprite(GamePiece gp, int version,
+                                     int epoch, double zoom) {
+    return new PieceSpriteOpImpl(gp, version, epoch, zoom);
+  }
+
   public static void clearCache() {
     AbstractOpImpl.clearCache();
   }
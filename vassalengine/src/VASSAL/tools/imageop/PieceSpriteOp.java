@@ -0,0 +1,56 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.imageop;
+
+import java.awt.Point;
+
+import VASSAL.counters.GamePiece;
+
+/**
+ * An {@link ImageOp} which renders a fully decorated {@link GamePiece}
+ * at a given zoom factor.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public interface PieceSpriteOp extends ImageOp {
+  /**
+   * @return the source, or <code>null</code> if it has been discarded
+   */
+  public GamePiece getPiece();
+
+  /**
+   * @return the state version of the source when this op was created
+   */
+  public int getVersion();
+
+  /**
+   * @return the {@link VASSAL.counters.PieceSpriteCache#getEpoch epoch}
+   * when this op was created
+   */
+  public int getEpoch();
+
+  public double getZoom();
+
+  /**
+   * @return the offset from the position of the piece at which the
+   * resulting image is to be drawn
+   */
+  public Point getOffset();
+}
@@ -0,0 +1,174 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.imageop;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import VASSAL.counters.GamePiece;
+import VASSAL.tools.image.ImageUtils;
+import VASSAL.tools.opcache.Op;
+import VASSAL.tools.opcache.OpObserver;
+
+/**
+ * An {@link ImageOp} which renders a fully decorated {@link GamePiece}
+ * at a given zoom factor.
+ *
+ * <p>Unlike {@link GamePieceOpImpl}, this op does not read the state of
+ * its source in order to tell whether it has changed. Instead, it is
+ * identified by the source together with the state version and epoch
+ * supplied when it was created; whoever creates it is responsible for
+ * creating a new op when either of those changes. The source is held
+ * weakly, so that cached images do not keep discarded pieces alive.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class PieceSpriteOpImpl extends AbstractTileOpImpl
+                               implements PieceSpriteOp {
+  private final WeakReference<GamePiece> piece;
+  private final int version;
+  private final int epoch;
+  private final double zoom;
+  private final Rectangle bounds;
+  private final int hash;
+
+  /**
+   * Constructs an <code>ImageOp</code> which will render the given
+   * <code>GamePiece</code>.
+   *
+   * @param gp the source
+   * @param version the state version of the source
+   * @param epoch the epoch of the sprite cache
+   * @param zoom the zoom factor
+   * @throws IllegalArgumentException if <code>gp == null</code> or
+   * <code>zoom <= 0</code>
+   */
+  public PieceSpriteOpImpl(GamePiece gp, int version, int epoch, double zoom) {
+    if (gp == null) throw new IllegalArgumentException();
+    if (zoom <= 0) throw new IllegalArgumentException();
+
+    piece = new WeakReference<GamePiece>(gp);
+    this.version = version;
+    this.epoch = epoch;
+    this.zoom = zoom;
+
+    // Pad by a pixel on each side, as traits round their own offsets.
+    final Rectangle b = gp.boundingBox();
+    final int x0 = (int) Math.floor(b.x * zoom) - 1;
+    final int y0 = (int) Math.floor(b.y * zoom) - 1;
+    final int x1 = (int) Math.ceil((b.x + b.width) * zoom) + 1;
+    final int y1 = (int) Math.ceil((b.y + b.height) * zoom) + 1;
+    bounds = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+
+    hash = System.identityHashCode(gp) ^ (version * 31 + epoch) ^
+           Double.valueOf(zoom).hashCode();
+  }
+
+  @Override
+  public BufferedImage get(OpObserver<BufferedImage> obs)
+    throws CancellationException, InterruptedException, ExecutionException
+  {
+    // Pieces may be drawn only on the EDT, so this op cannot be
+    // called asynchronously.
+    if (obs != null) throw new UnsupportedOperationException();
+    return super.get(obs);
+  }
+
+  @Override
+  public Future<BufferedImage> getFuture(OpObserver<BufferedImage> obs)
+                                                  throws ExecutionException {
+    // Pieces may be drawn only on the EDT, so this op cannot be
+    // called asynchronously.
+    if (obs != null) throw new UnsupportedOperationException();
+    return super.getFuture(obs);
+  }
+
+  public List<Op<?>> getSources() {
+    return Collections.emptyList();
+  }
+
+  /** {@inheritDoc} */
+  public BufferedImage eval() {
+    final GamePiece gp = piece.get();
+    if (gp == null) throw new IllegalStateException("Piece discarded");
+
+    final BufferedImage im = ImageUtils.createCompatibleTranslucentImage(
+      bounds.width, bounds.height
+    );
+    final Graphics2D g = im.createGraphics();
+    gp.draw(g, -bounds.x, -bounds.y, null, zoom);
+    g.dispose();
+    return im;
+  }
+
+  /** {@inheritDoc} */
+  protected void fixSize() {
+    size = bounds.getSize();
+  }
+
+  public GamePiece getPiece() {
+    return piece.get();
+  }
+
+  public int getVersion() {
+    return version;
+  }
+
+  public int getEpoch() {
+    return epoch;
+  }
+
+  public double getZoom() {
+    return zoom;
+  }
+
+  public Point getOffset() {
+    return bounds.getLocation();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || o.getClass() != this.getClass()) return false;
+
+    final PieceSpriteOpImpl op = (PieceSpriteOpImpl) o;
+    final GamePiece gp = piece.get();
+    return gp != null &&
+           gp == op.piece.get() &&
+           version == op.version &&
+           epoch == op.epoch &&
+           zoom == op.zoom;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
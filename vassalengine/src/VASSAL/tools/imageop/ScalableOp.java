@@ -0,0 +1,35 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.imageop;
+
+/**
+ * An {@link ImageOp} which can render itself at any scale, such as text
+ * drawn from font outlines. {@link Op#scale} asks such an op for its
+ * scaled image, instead of scaling the image it renders at 1:1.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public interface ScalableOp extends ImageOp {
+  /**
+   * @param scale the scale factor, relative to this op
+   * @return an op which renders this op at the given scale
+   */
+  public ScaleOp getScaleOp(double scale);
+}
@@ -49,10 +49,13 @@ public class ScaledImagePainter {
       img = srcOp.getImage();
     }
     else {
-      if (scaleOp == null || scaleOp.getScale() != scale) {
-        scaleOp = Op.scale(srcOp, scale);
+      // pieces may be drawn off the EDT, so read the shared op only once
+      ScaleOp sop = scaleOp;
+      if (sop == null || sop.getScale() != scale) {
+        sop = Op.scale(srcOp, scale);
+        scaleOp = sop;
       }
-      img = scaleOp.getImage();
+      img = sop.getImage();
     }
 
     if (img == null) return;
@@ -0,0 +1,225 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.imports;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import VASSAL.tools.ArchiveWriter;
+import VASSAL.tools.io.TempFileManager;
+
+/**
+ * Writes images into an archive as PNGs on a pool of background threads.
+ *
+ * <p>Each image is encoded to a temporary file, which is then copied into
+ * the archive and deleted, so that neither the encoded image nor the
+ * archive entry is held in memory. The number of images waiting to be
+ * encoded is bounded, so that an importer producing images faster than
+ * they can be encoded waits rather than accumulating them.</p>
+ *
+ * <p>The name of each image is reserved as soon as it is submitted, so
+ * {@link Importer#getUniqueImageFileName} does not hand it out again
+ * while the image is still being encoded.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ImageArchiver {
+  private static final int THREADS =
+    Math.max(1, Runtime.getRuntime().availableProcessors());
+
+  private static final Map<ArchiveWriter,ImageArchiver> instances =
+    new WeakHashMap<ArchiveWriter,ImageArchiver>();
+
+  /**
+   * @param writer the archive
+   * @return the <code>ImageArchiver</code> for the given archive
+   */
+  public static synchronized ImageArchiver getInstance(ArchiveWriter writer) {
+    ImageArchiver ia = instances.get(writer);
+    if (ia == null) {
+      ia = new ImageArchiver(writer);
+      instances.put(writer, ia);
+    }
+    return ia;
+  }
+
+  private final ArchiveWriter writer;
+  private final Semaphore slots = new Semaphore(2*THREADS);
+  private final Set<String> pending =
+    Collections.synchronizedSet(new HashSet<String>());
+  private final Map<String,Future<Void>> futures =
+    new LinkedHashMap<String,Future<Void>>();
+  private ExecutorService executor;
+
+  protected ImageArchiver(ArchiveWriter writer) {
+    this.writer = writer;
+  }
+
+  private synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = new ThreadPoolExecutor(
+        THREADS, THREADS, 0, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r, "image-archiver"); //$NON-NLS-1$
+            t.setDaemon(true);
+            return t;
+          }
+        }
+      );
+    }
+    return executor;
+  }
+
+  /**
+   * @param name the name of an image
+   * @return true if the image has been submitted but not yet written
+   */
+  public boolean isPending(String name) {
+    return pending.contains(name);
+  }
+
+  /**
+   * Queues an image to be written to the archive as a PNG. Blocks if too
+   * many images are already waiting to be encoded.
+   *
+   * @param image the image, which must not be modified afterwards
+   * @param name the name under which to store the image in the archive
+   * @throws IOException if interrupted while waiting
+   */
+  public void write(final BufferedImage image, final String name)
+                                                        throws IOException {
+    try {
+      slots.acquire();
+    }
+    catch (InterruptedException e) {
+      throw (IOException) new IOException().initCause(e);
+    }
+
+    pending.add(writer.getImagePrefix() + name);
+
+    final Future<Void> f = getExecutor().submit(new Callable<Void>() {
+      public Void call() throws IOException {
+        File tmp = null;
+        try {
+          tmp = TempFileManager.getInstance().createTempFile("img", ".png"); //$NON-NLS-1$ //$NON-NLS-2$
+          ImageIO.write(image, "png", tmp); //$NON-NLS-1$
+          writer.addImage(tmp.getPath(), name);
+          return null;
+        }
+        finally {
+          if (tmp != null) tmp.delete();
+          pending.remove(writer.getImagePrefix() + name);
+          slots.release();
+        }
+      }
+    });
+
+    synchronized (futures) {
+      futures.put(name, f);
+    }
+  }
+
+  /**
+   * Waits for an image to be written. Needed before anything, such as a
+   * {@link VASSAL.build.module.map.boardPicker.Board}, reads the image
+   * back from the archive.
+   *
+   * @param name the name of the image
+   * @throws IOException if the image could not be written
+   */
+  public void waitFor(String name) throws IOException {
+    final Future<Void> f;
+    synchronized (futures) {
+      f = futures.remove(name);
+    }
+    if (f != null) {
+      get(f);
+    }
+  }
+
+  private static void get(Future<Void> f) throws IOException {
+    try {
+      f.get();
+    }
+    catch (InterruptedException e) {
+      throw (IOException) new IOException().initCause(e);
+    }
+    catch (ExecutionException e) {
+      throw e.getCause() instanceof IOException ?
+        (IOException) e.getCause() :
+        (IOException) new IOException().initCause(e.getCause());
+    }
+  }
+
+  /**
+   * Waits for all submitted images to be written.
+   *
+   * @throws IOException if any image could not be written
+   */
+  public void finish() throws IOException {
+    final List<Future<Void>> l;
+    synchronized (futures) {
+      l = new ArrayList<Future<Void>>(futures.values());
+      futures.clear();
+    }
+
+    // wait for all of them, even if some fail
+    IOException ex = null;
+    for (Future<Void> f : l) {
+      try {
+        get(f);
+      }
+      catch (IOException e) {
+        if (ex == null) ex = e;
+      }
+    }
+
+    synchronized (this) {
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
+    }
+
+    if (ex != null) throw ex;
+  }
+}
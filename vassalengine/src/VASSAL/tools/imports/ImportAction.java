@@ -176,6 +176,7 @@ public final class ImportAction extends EditModuleAction {
       imp = (Importer) (impClass.newInstance());
       imp.importFile(this, f);
       imp.writeToArchive();
+      ImageArchiver.getInstance(module.getArchiveWriter()).finish();
     }
     // these should never happen
     catch (IllegalAccessException e) {
@@ -185,8 +185,10 @@ public abstract class Importer {
     String t = s;
     int index = 0;
     final ArchiveWriter writer = GameModule.getGameModule().getArchiveWriter();
+    final ImageArchiver images = ImageArchiver.getInstance(writer);
     try {
-      while (writer.contains(writer.getImagePrefix() + t + ext))
+      while (writer.contains(writer.getImagePrefix() + t + ext) ||
+             images.isPending(writer.getImagePrefix() + t + ext))
         t = s + '(' + (++index) + ')';
     }
     catch (IOException e) {
@@ -36,7 +36,6 @@ import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
@@ -53,7 +52,6 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.TreeSet;
 
-import javax.imageio.ImageIO;
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -118,6 +116,7 @@ import VASSAL.tools.NamedKeyStroke;
 import VASSAL.tools.SequenceEncoder;
 import VASSAL.tools.filechooser.ExtensionFileFilter;
 import VASSAL.tools.imports.FileFormatException;
+import VASSAL.tools.imports.ImageArchiver;
 import VASSAL.tools.imports.Importer;
 import VASSAL.tools.imports.adc2.SymbolSet.SymbolData;
 import VASSAL.tools.io.IOUtils;
@@ -1530,10 +1529,8 @@ private PieceWindow pieceWin;
         drawFlagImage(g);
         imageName = getUniqueImageFileName(name, ".png");
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ImageIO.write(icon, "png", out);
-        byte[] imageDataArray = out.toByteArray();
-        GameModule.getGameModule().getArchiveWriter().addImage(imageName, imageDataArray);
+        ImageArchiver.getInstance(GameModule.getGameModule().getArchiveWriter())
+                     .write(icon, imageName);
       }
       return imageName;
     }
@@ -1584,10 +1581,8 @@ private PieceWindow pieceWin;
       imageName = getUniqueImageFileName(flag.name + 0 + "x" + height);
       map.put(d, imageName);
 
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      ImageIO.write(icon, "png", out);
-      byte[] imageDataArray = out.toByteArray();
-      GameModule.getGameModule().getArchiveWriter().addImage(imageName, imageDataArray);
+      ImageArchiver.getInstance(GameModule.getGameModule().getArchiveWriter())
+                   .write(icon, imageName);
     }
 
     return imageName;
@@ -1617,10 +1612,8 @@ private PieceWindow pieceWin;
       imageName = getUniqueImageFileName(flag.name + d.width + "x" + d.height);
       map.put(d, imageName);
 
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      ImageIO.write(icon, "png", out);
-      byte[] imageDataArray = out.toByteArray();
-      GameModule.getGameModule().getArchiveWriter().addImage(imageName, imageDataArray);
+      ImageArchiver.getInstance(GameModule.getGameModule().getArchiveWriter())
+                   .write(icon, imageName);
     }
 
     return imageName;
@@ -2651,11 +2644,11 @@ private void configureMainMap(GameModule gameModule) throws IOException {
     panel.printAll(g);
 
     // write the map image
-    final ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ImageIO.write(poolImage, "png", out);
-    final byte[] imageDataArray = out.toByteArray();
     final String deckImageName = "decks.png";
-    gameModule.getArchiveWriter().addImage(deckImageName, imageDataArray);
+    final ImageArchiver images =
+      ImageArchiver.getInstance(gameModule.getArchiveWriter());
+    images.write(poolImage, deckImageName);
+    images.waitFor(deckImageName);
 
     final Board board = new Board();
     insertComponent(board, boardPicker);
@@ -2795,10 +2788,10 @@ private void configureMainMap(GameModule gameModule) throws IOException {
     panel.printAll(g);
 
     // write the map image
-    final ByteArrayOutputStream out = new ByteArrayOutputStream();
-    ImageIO.write(forcePool, "png", out);
-    final byte[] imageDataArray = out.toByteArray();
-    module.getArchiveWriter().addImage(FORCE_POOL_PNG, imageDataArray);
+    final ImageArchiver images =
+      ImageArchiver.getInstance(module.getArchiveWriter());
+    images.write(forcePool, FORCE_POOL_PNG);
+    images.waitFor(FORCE_POOL_PNG);
 
     final Board board = new Board();
     insertComponent(board, boardPicker);
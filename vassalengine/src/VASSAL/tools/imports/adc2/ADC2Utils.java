@@ -18,6 +18,7 @@
 package VASSAL.tools.imports.adc2;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
@@ -186,4 +187,27 @@ public class ADC2Utils {
     assert (index >= 0 && index < defaultColorPallet.length);
     return defaultColorPallet[index];
   }
+
+  /**
+   * Returns true if every pixel in the given region of an image is
+   * transparent black, i.e., has an RGB value of zero. The region is read
+   * in one call, rather than pixel by pixel.
+   */
+  static boolean isBlank(BufferedImage img, int x, int y, int w, int h) {
+    final int[] px;
+    if (img.getType() == BufferedImage.TYPE_INT_ARGB) {
+      // the raster holds the RGB values, so needs no conversion
+      px = (int[]) img.getRaster().getDataElements(x, y, w, h, null);
+    }
+    else {
+      px = img.getRGB(x, y, w, h, null, 0, w);
+    }
+
+    for (int p : px) {
+      if (p != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
 }
@@ -83,9 +83,9 @@ import VASSAL.counters.UsePrototype;
 import VASSAL.tools.SequenceEncoder;
 import VASSAL.tools.filechooser.ExtensionFileFilter;
 import VASSAL.tools.imports.FileFormatException;
+import VASSAL.tools.imports.ImageArchiver;
 import VASSAL.tools.imports.Importer;
 import VASSAL.tools.io.IOUtils;
-import VASSAL.tools.io.TempFileManager;
 
 /**
  * The map board itself.
@@ -183,14 +183,10 @@ public class MapBoard extends Importer {
         if (r.width == 0 || r.height == 0) {
           return null;
         }
-        final File f =
-          TempFileManager.getInstance().createTempFile("map", ".png");
-        ImageIO.write(image.getSubimage(r.x, r.y, r.width, r.height), "png", f);
-
         imageName = getUniqueImageFileName(getName(), ".png");
-        GameModule.getGameModule()
-                  .getArchiveWriter()
-                  .addImage(f.getPath(), imageName);
+        ImageArchiver.getInstance(GameModule.getGameModule().getArchiveWriter())
+                     .write(image.getSubimage(r.x, r.y, r.width, r.height),
+                            imageName);
         return r;
       }
       else {
@@ -200,48 +196,28 @@ public class MapBoard extends Importer {
 
     protected Rectangle getCropRectangle(BufferedImage image) {
       Rectangle r = new Rectangle(getLayout().getBoardSize());
-      leftside:
-        while (true) {
-          for (int i = r.y; i < r.y + r.height; ++i) {
-            if (image.getRGB(r.x, i) != 0) {
-              break leftside;
-            }
-          }
-          ++r.x;
-          --r.width;
-          if (r.width == 0) {
-            r.height = 0;
-            return r;
-          }
-        }
-      topside:
-        while (true) {
-          for (int i = r.x; i < r.x + r.width; ++i) {
-            if (image.getRGB(i, r.y) != 0) {
-              break topside;
-            }
-          }
-          ++r.y;
-          --r.height;
-        }
-      rightside:
-        while (true) {
-          for (int i = r.y; i < r.y + r.height; ++i) {
-            if (image.getRGB(r.x + r.width - 1, i) != 0) {
-              break rightside;
-            }
-          }
-          --r.width;
-        }
-      bottomside:
-        while (true) {
-          for (int i = r.x; i < r.x + r.width; ++i) {
-            if (image.getRGB(i, r.y + r.height - 1) != 0) {
-              break bottomside;
-            }
-          }
-          --r.height;
+      // leftside
+      while (ADC2Utils.isBlank(image, r.x, r.y, 1, r.height)) {
+        ++r.x;
+        --r.width;
+        if (r.width == 0) {
+          r.height = 0;
+          return r;
         }
+      }
+      // topside
+      while (ADC2Utils.isBlank(image, r.x, r.y, r.width, 1)) {
+        ++r.y;
+        --r.height;
+      }
+      // rightside
+      while (ADC2Utils.isBlank(image, r.x + r.width - 1, r.y, 1, r.height)) {
+        --r.width;
+      }
+      // bottomside
+      while (ADC2Utils.isBlank(image, r.x, r.y + r.height - 1, r.width, 1)) {
+        --r.height;
+      }
       return r;
     }
 
@@ -346,6 +322,9 @@ public class MapBoard extends Importer {
       // write the underlay map image
       writeImageToArchive();
       assert(imageName != null);
+      // the board reads its image back from the archive
+      ImageArchiver.getInstance(GameModule.getGameModule().getArchiveWriter())
+                   .waitFor(imageName);
       Board board = getBoard();
       board.setAttribute(Board.IMAGE, imageName);
       board.setConfigureName(baseName);
@@ -27,7 +27,6 @@ import java.awt.image.BandCombineOp;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
@@ -35,8 +34,15 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.imageio.ImageIO;
 
@@ -44,6 +50,7 @@ import VASSAL.build.GameModule;
 import VASSAL.tools.ArrayUtils;
 import VASSAL.tools.filechooser.BMPFileFilter;
 import VASSAL.tools.imports.FileFormatException;
+import VASSAL.tools.imports.ImageArchiver;
 import VASSAL.tools.imports.ImportAction;
 import VASSAL.tools.imports.Importer;
 import VASSAL.tools.io.IOUtils;
@@ -191,16 +198,8 @@ public class SymbolSet extends Importer{
     boolean isTransparent() {
       if (transparent == null) {
         BufferedImage image = getImage();
-        transparent  = Boolean.TRUE;
-        search:
-          for (int i = 0; i < image.getWidth(); ++i) {
-            for (int j = 0; j < image.getHeight(); ++j) {
-              if (image.getRGB(i, j) != 0) {
-                transparent = Boolean.FALSE;
-                break search;
-              }
-            }
-          }
+        transparent = Boolean.valueOf(ADC2Utils.isBlank(
+          image, 0, 0, image.getWidth(), image.getHeight()));
 
       }
       return transparent.booleanValue();
@@ -211,7 +210,7 @@ public class SymbolSet extends Importer{
      * optional mask if not already done so.
      * @param rect2 width and height are taken from this for otherwise invalid masks
      */
-    private BufferedImage getImage(Rectangle rect2) {
+    private synchronized BufferedImage getImage(Rectangle rect2) {
       if (img == null) {
         if ( isMask && (rect.width <= 0 || rect.height <= 0
             || rect.width+rect.x > bitmap.getWidth()
@@ -249,9 +248,8 @@ public class SymbolSet extends Importer{
       // already been written
       if (fileName == null) { // this condition is really just a failsafe check
         fileName = getUniqueImageFileName(name);
-        final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ImageIO.write(getImage(), "png", out);
-        GameModule.getGameModule().getArchiveWriter().addImage(fileName, out.toByteArray());
+        ImageArchiver.getInstance(GameModule.getGameModule().getArchiveWriter())
+                     .write(getImage(), fileName);
       }
     }
   }
@@ -580,6 +578,47 @@ public class SymbolSet extends Importer{
     }
 
     readPermutationFile(f);
+    prepareImages();
+  }
+
+  /**
+   * Cuts each symbol out of its bitmap and applies its mask, spreading
+   * the symbols over all available processors.
+   */
+  protected void prepareImages() throws IOException {
+    final List<SymbolData> symbols = new ArrayList<SymbolData>();
+    if (gamePieceData != null) symbols.addAll(Arrays.asList(gamePieceData));
+    if (mapBoardData != null) symbols.addAll(Arrays.asList(mapBoardData));
+
+    final int n = Runtime.getRuntime().availableProcessors();
+    if (n < 2 || symbols.size() < 2) return;
+
+    final ExecutorService ex = Executors.newFixedThreadPool(n);
+    try {
+      final List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (final SymbolData s : symbols) {
+        futures.add(ex.submit(new Runnable() {
+          public void run() {
+            s.getImage();
+          }
+        }));
+      }
+
+      for (Future<?> f : futures) {
+        try {
+          f.get();
+        }
+        catch (InterruptedException e) {
+          throw (IOException) new IOException().initCause(e);
+        }
+        catch (ExecutionException e) {
+          // leave the symbol to be generated, and fail, when it is used
+        }
+      }
+    }
+    finally {
+      ex.shutdown();
+    }
   }
 
   private BufferedImage loadSymbolImage(String string) throws IOException {
@@ -0,0 +1,172 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.io;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A size-bounded cache of byte arrays. The least recently used arrays
+ * are evicted once the total size of the cached arrays exceeds the
+ * capacity. Arrays larger than the maximum entry size are not cached,
+ * so that one huge file cannot flush everything else.
+ *
+ * <p>The arrays are shared, not copied, so callers must not modify
+ * arrays which they put into or get from the cache.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class ByteArrayCache {
+  private final Map<String,byte[]> map =
+    new LinkedHashMap<String,byte[]>(16, 0.75f, true);
+
+  private final long capacity;
+  private final int maxEntrySize;
+
+  private long size = 0;
+  private long hits = 0;
+  private long misses = 0;
+
+  /**
+   * @param capacity the maximum total size of the cached arrays, in bytes
+   * @param maxEntrySize the size of the largest array to cache, in bytes
+   */
+  public ByteArrayCache(long capacity, int maxEntrySize) {
+    if (capacity < 0) throw new IllegalArgumentException();
+    if (maxEntrySize < 0) throw new IllegalArgumentException();
+
+    this.capacity = capacity;
+    this.maxEntrySize = (int) Math.min(maxEntrySize, capacity);
+  }
+
+  /**
+   * @param key the key
+   * @return the array cached under the key, or <code>null</code> if
+   * there is none
+   */
+  public synchronized byte[] get(String key) {
+    final byte[] bytes = map.get(key);
+    if (bytes == null) ++misses;
+    else ++hits;
+    return bytes;
+  }
+
+  /**
+   * Caches an array, if it is small enough.
+   *
+   * @param key the key
+   * @param bytes the array
+   * @return <code>true</code> if the array was cached
+   */
+  public synchronized boolean put(String key, byte[] bytes) {
+    if (!isCacheable(bytes.length)) return false;
+
+    final byte[] old = map.put(key, bytes);
+    if (old != null) size -= old.length;
+    size += bytes.length;
+
+    final Iterator<byte[]> i = map.values().iterator();
+    while (size > capacity) {
+      size -= i.next().length;
+      i.remove();
+    }
+
+    return true;
+  }
+
+  /**
+   * @param length the length of an array, or -1 if it is unknown
+   * @return <code>true</code> if an array of the given length would be
+   * cached
+   */
+  public boolean isCacheable(long length) {
+    return length >= 0 && length <= maxEntrySize;
+  }
+
+  /**
+   * Removes the array cached under the given key, if any.
+   *
+   * @param key the key
+   */
+  public synchronized void remove(String key) {
+    final byte[] old = map.remove(key);
+    if (old != null) size -= old.length;
+  }
+
+  /**
+   * Removes all arrays whose keys start with the given prefix.
+   *
+   * @param prefix the prefix
+   */
+  public synchronized void removeAll(String prefix) {
+    final Iterator<Map.Entry<String,byte[]>> i = map.entrySet().iterator();
+    while (i.hasNext()) {
+      final Map.Entry<String,byte[]> e = i.next();
+      if (e.getKey().startsWith(prefix)) {
+        size -= e.getValue().length;
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all arrays from the cache. The counters are not reset.
+   */
+  public synchronized void clear() {
+    map.clear();
+    size = 0;
+  }
+
+  /**
+   * @return the total size of the cached arrays, in bytes
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the maximum total size of the cached arrays, in bytes
+   */
+  public long getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of cached arrays
+   */
+  public synchronized int getCount() {
+    return map.size();
+  }
+
+  /**
+   * @return the number of calls to {@link #get} which found an array
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of calls to {@link #get} which found nothing
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+}
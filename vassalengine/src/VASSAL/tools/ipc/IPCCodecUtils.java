@@ -0,0 +1,160 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.ipc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the values commonly found in {@link IPCMessage}s, for
+ * use by {@link IPCMessageCodec}s. Every value may be <code>null</code>.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class IPCCodecUtils {
+  private IPCCodecUtils() {}
+
+  private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+  /** The greatest number of causes of a {@link Throwable} written */
+  private static final int MAX_CAUSES = 16;
+
+  public static void writeString(DataOutput out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    }
+    else {
+      // unlike writeUTF, this is not limited to 64k
+      final byte[] b = s.getBytes(ENCODING);
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  public static String readString(DataInput in) throws IOException {
+    final int len = in.readInt();
+    if (len == -1) return null;
+    if (len < 0) throw new StreamCorruptedException("bad length " + len);
+
+    final byte[] b = new byte[len];
+    in.readFully(b);
+    return new String(b, ENCODING);
+  }
+
+  public static void writeFile(DataOutput out, File f) throws IOException {
+    writeString(out, f == null ? null : f.getPath());
+  }
+
+  public static File readFile(DataInput in) throws IOException {
+    final String path = readString(in);
+    return path == null ? null : new File(path);
+  }
+
+  public static void writeStringList(DataOutput out, List<String> l)
+                                                          throws IOException {
+    if (l == null) {
+      out.writeInt(-1);
+    }
+    else {
+      out.writeInt(l.size());
+      for (String s : l) writeString(out, s);
+    }
+  }
+
+  public static List<String> readStringList(DataInput in) throws IOException {
+    final int len = in.readInt();
+    if (len == -1) return null;
+    if (len < 0) throw new StreamCorruptedException("bad length " + len);
+
+    final List<String> l = new ArrayList<String>(len);
+    for (int i = 0; i < len; ++i) l.add(readString(in));
+    return l;
+  }
+
+  /**
+   * Writes the class name, message and stack trace of a {@link Throwable}
+   * and of its causes.
+   */
+  public static void writeThrowable(DataOutput out, Throwable t)
+                                                          throws IOException {
+    int depth = 0;
+    for (Throwable c = t; c != null && depth < MAX_CAUSES; c = c.getCause()) {
+      ++depth;
+    }
+
+    out.writeInt(depth);
+
+    for (Throwable c = t; depth-- > 0; c = c.getCause()) {
+      writeString(out, c instanceof IPCRemoteException ?
+        ((IPCRemoteException) c).getRemoteClassName() : c.getClass().getName());
+      writeString(out, c.getMessage());
+
+      final StackTraceElement[] st = c.getStackTrace();
+      out.writeInt(st.length);
+      for (StackTraceElement e : st) {
+        writeString(out, e.getClassName());
+        writeString(out, e.getMethodName());
+        writeString(out, e.getFileName());
+        out.writeInt(e.getLineNumber());
+      }
+    }
+  }
+
+  /**
+   * Reads a {@link Throwable} written by {@link #writeThrowable}.
+   *
+   * @return an {@link IPCRemoteException} standing in for the original
+   */
+  public static Throwable readThrowable(DataInput in) throws IOException {
+    final int depth = in.readInt();
+    if (depth < 0 || depth > MAX_CAUSES) {
+      throw new StreamCorruptedException("bad depth " + depth);
+    }
+
+    IPCRemoteException first = null;
+    IPCRemoteException last = null;
+    for (int i = 0; i < depth; ++i) {
+      final IPCRemoteException e =
+        new IPCRemoteException(readString(in), readString(in));
+
+      final int len = in.readInt();
+      if (len < 0) throw new StreamCorruptedException("bad length " + len);
+
+      final StackTraceElement[] st = new StackTraceElement[len];
+      for (int j = 0; j < len; ++j) {
+        st[j] = new StackTraceElement(
+          readString(in), readString(in), readString(in), in.readInt()
+        );
+      }
+      e.setStackTrace(st);
+
+      if (first == null) first = e;
+      else last.initCause(e);
+      last = e;
+    }
+
+    return first;
+  }
+}
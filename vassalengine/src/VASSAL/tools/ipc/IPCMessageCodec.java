@@ -0,0 +1,52 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.ipc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the contents of one type of {@link IPCMessage}.
+ * The id and reply id of the message are written by the framing, so a
+ * codec handles only the fields particular to its message type.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ * @see IPCMessageRegistry
+ */
+public interface IPCMessageCodec<T extends IPCMessage> {
+  /**
+   * Writes the fields of a message.
+   *
+   * @param msg the message
+   * @param out the output
+   * @throws IOException if the message cannot be written
+   */
+  public void encode(T msg, DataOutput out) throws IOException;
+
+  /**
+   * Reads the fields of a message and creates it.
+   *
+   * @param in the input
+   * @return the message
+   * @throws IOException if the message cannot be read
+   */
+  public T decode(DataInput in) throws IOException;
+}
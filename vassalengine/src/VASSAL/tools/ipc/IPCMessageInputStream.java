@@ -0,0 +1,120 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.ipc;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.io.StreamCorruptedException;
+
+/**
+ * Reads {@link IPCMessage}s written by an {@link IPCMessageOutputStream},
+ * in place of an {@link java.io.ObjectInputStream}.
+ *
+ * <p>The header is read before the first message, rather than on
+ * construction, so that creating the stream does not block.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class IPCMessageInputStream extends DataInputStream
+                                   implements ObjectInput {
+  /** The largest frame accepted, to guard against corrupt lengths */
+  public static final int MAX_FRAME_SIZE = 1 << 24;
+
+  protected final IPCMessageRegistry registry;
+
+  private boolean headerRead = false;
+  private byte[] buf = new byte[256];
+
+  /**
+   * @param in the stream to read from
+   * @param registry the message types which may be read
+   */
+  public IPCMessageInputStream(InputStream in, IPCMessageRegistry registry) {
+    super(new BufferedInputStream(in));
+    this.registry = registry;
+  }
+
+  private void readHeader() throws IOException {
+    if (readInt() != IPCMessageOutputStream.MAGIC) {
+      throw new StreamCorruptedException("not an IPC stream");
+    }
+
+    final short version = readShort();
+    if (version != IPCMessageOutputStream.VERSION) {
+      throw new StreamCorruptedException(
+        "unsupported IPC version " + version);
+    }
+
+    headerRead = true;
+  }
+
+  /**
+   * Reads a message.
+   *
+   * @return the message
+   * @throws ClassNotFoundException if the message type is not registered
+   * @throws StreamCorruptedException if the frame is malformed
+   * @throws IOException if the message cannot be read
+   */
+  public Object readObject() throws ClassNotFoundException, IOException {
+    if (!headerRead) readHeader();
+
+    final int len = readInt();
+    if (len < 18 || len > MAX_FRAME_SIZE) {
+      throw new StreamCorruptedException("bad frame length " + len);
+    }
+
+    if (buf.length < len) buf = new byte[Math.max(len, 2*buf.length)];
+    readFully(buf, 0, len);
+
+    final ByteArrayInputStream bin = new ByteArrayInputStream(buf, 0, len);
+    final DataInputStream din = new DataInputStream(bin);
+
+    final int tag = din.readShort();
+    final IPCMessageCodec<?> codec = registry.getCodec(tag);
+    if (codec == null) {
+      throw new ClassNotFoundException("unknown IPC message tag " + tag);
+    }
+
+    final long id = din.readLong();
+    final long inReplyTo = din.readLong();
+
+    final IPCMessage msg;
+    try {
+      msg = codec.decode(din);
+    }
+    catch (EOFException e) {
+      throw new StreamCorruptedException("truncated message, tag " + tag);
+    }
+
+    if (bin.available() != 0) {
+      throw new StreamCorruptedException("overlong message, tag " + tag);
+    }
+
+    msg.setId(id);
+    msg.setInReplyTo(inReplyTo);
+    return msg;
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.ipc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutput;
+import java.io.OutputStream;
+
+import VASSAL.tools.io.FastByteArrayOutputStream;
+
+/**
+ * Writes {@link IPCMessage}s in the binary IPC framing, in place of an
+ * {@link java.io.ObjectOutputStream}.
+ *
+ * <p>The stream starts with {@link #MAGIC} and {@link #VERSION}. Each
+ * message is then written as a frame: the length of the rest of the
+ * frame, the tag of the message type, the id and reply id of the
+ * message, and the fields written by the codec for the message type.
+ * All values are big-endian. The stream is buffered, so must be flushed
+ * after each message which is to be sent at once.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ * @see IPCMessageInputStream
+ */
+public class IPCMessageOutputStream extends DataOutputStream
+                                    implements ObjectOutput {
+  /** The first bytes of the stream, "VIPC" */
+  public static final int MAGIC = 0x56495043;
+  /** The version of the framing */
+  public static final short VERSION = 1;
+
+  protected final IPCMessageRegistry registry;
+
+  private final FastByteArrayOutputStream buf =
+    new FastByteArrayOutputStream();
+  private final DataOutputStream bout = new DataOutputStream(buf);
+
+  /**
+   * @param out the stream to write to
+   * @param registry the message types which may be written
+   * @throws IOException if the header cannot be written
+   */
+  public IPCMessageOutputStream(OutputStream out, IPCMessageRegistry registry)
+                                                          throws IOException {
+    super(new BufferedOutputStream(out));
+    this.registry = registry;
+
+    writeInt(MAGIC);
+    writeShort(VERSION);
+  }
+
+  /**
+   * Writes a message.
+   *
+   * @param obj the message
+   * @throws NotSerializableException if the object is not an
+   * {@link IPCMessage} of a registered type
+   * @throws IOException if the message cannot be written
+   */
+  @SuppressWarnings("unchecked")
+  public void writeObject(Object obj) throws IOException {
+    if (!(obj instanceof IPCMessage)) {
+      throw new NotSerializableException(
+        obj == null ? "null" : obj.getClass().getName());
+    }
+
+    final IPCMessage msg = (IPCMessage) obj;
+    final int tag = registry.getTag(msg.getClass());
+    if (tag < 0) {
+      throw new NotSerializableException(msg.getClass().getName());
+    }
+
+    final IPCMessageCodec<IPCMessage> codec =
+      (IPCMessageCodec<IPCMessage>) registry.getCodec(tag);
+
+    buf.reset();
+    bout.writeShort(tag);
+    bout.writeLong(msg.getId());
+    bout.writeLong(msg.getInReplyTo());
+    codec.encode(msg, bout);
+    bout.flush();
+
+    writeInt(buf.size());
+    buf.writeTo(this);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.ipc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The message types which may be sent over an {@link IPCMessenger}, each
+ * with the tag identifying it on the wire and the codec which writes it.
+ * Both ends of a connection must register the same types under the same
+ * tags.
+ *
+ * <p>Tags below {@link #FIRST_USER_TAG} are reserved for the messages
+ * which {@link #createDefault} registers.</p>
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class IPCMessageRegistry {
+  public static final int FIRST_USER_TAG = 16;
+
+  private final Map<Integer,IPCMessageCodec<?>> codecs =
+    new HashMap<Integer,IPCMessageCodec<?>>();
+  private final Map<Class<?>,Integer> tags = new HashMap<Class<?>,Integer>();
+
+  /**
+   * Registers a message type.
+   *
+   * @param tag the tag identifying the type on the wire
+   * @param c the class of the message, which must match exactly
+   * @param codec the codec for the message
+   * @throws IllegalArgumentException if the tag or class is already
+   * registered
+   */
+  public synchronized <T extends IPCMessage> void register(
+    int tag, Class<T> c, IPCMessageCodec<T> codec)
+  {
+    if (tag < 0 || tag > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("bad tag " + tag);
+    }
+
+    if (codecs.containsKey(tag)) {
+      throw new IllegalArgumentException("tag " + tag + " in use");
+    }
+
+    if (tags.containsKey(c)) {
+      throw new IllegalArgumentException(c.getName() + " already registered");
+    }
+
+    codecs.put(tag, codec);
+    tags.put(c, tag);
+  }
+
+  /**
+   * @param c the class of a message
+   * @return the tag for the class, or -1 if it is not registered
+   */
+  public synchronized int getTag(Class<?> c) {
+    final Integer tag = tags.get(c);
+    return tag == null ? -1 : tag.intValue();
+  }
+
+  /**
+   * @param tag the tag of a message type
+   * @return the codec for the type, or <code>null</code> if the tag is not
+   * registered
+   */
+  public synchronized IPCMessageCodec<?> getCodec(int tag) {
+    return codecs.get(tag);
+  }
+
+  /**
+   * A codec for messages which have no fields of their own.
+   */
+  protected abstract static class EmptyCodec<T extends IPCMessage>
+                                                implements IPCMessageCodec<T> {
+    public void encode(T msg, DataOutput out) { }
+
+    public T decode(DataInput in) {
+      return create();
+    }
+
+    protected abstract T create();
+  }
+
+  /**
+   * @return a new registry holding the messages used by
+   * {@link IPCMessenger} itself
+   */
+  public static IPCMessageRegistry createDefault() {
+    final IPCMessageRegistry r = new IPCMessageRegistry();
+
+    r.register(0, SimpleIPCMessage.class, new EmptyCodec<SimpleIPCMessage>() {
+      protected SimpleIPCMessage create() { return new SimpleIPCMessage(); }
+    });
+
+    r.register(1, Ack.class, new EmptyCodec<Ack>() {
+      protected Ack create() { return new Ack(); }
+    });
+
+    r.register(2, Halt.class, new EmptyCodec<Halt>() {
+      protected Halt create() { return new Halt(); }
+    });
+
+    r.register(3, Fin.class, new EmptyCodec<Fin>() {
+      protected Fin create() { return new Fin(); }
+    });
+
+    return r;
+  }
+}
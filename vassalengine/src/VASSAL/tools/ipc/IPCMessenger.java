@@ -2,8 +2,8 @@ package VASSAL.tools.ipc;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.util.List;
@@ -32,19 +32,34 @@ public class IPCMessenger {
   protected final BlockingQueue<IPCMessage> outqueue =
     new LinkedBlockingQueue<IPCMessage>();
 
-  protected final ObjectInputStream in;
-  protected final ObjectOutputStream out;
+  protected final ObjectInput in;
+  protected final ObjectOutput out;
 
   protected final MultiEventListenerSupport lsup;
 
   public IPCMessenger(InputStream in, OutputStream out,
                       MultiEventListenerSupport lsup) throws IOException {
+    this(in, out, IPCMessageRegistry.createDefault(), lsup);
+  }
+
+  /**
+   * @param in the stream to read messages from
+   * @param out the stream to write messages to
+   * @param registry the message types which may be sent and received
+   * @param lsup the listeners for received messages
+   * @throws IOException if the stream header cannot be written
+   * @since 3.2.3
+   */
+  public IPCMessenger(InputStream in, OutputStream out,
+                      IPCMessageRegistry registry,
+                      MultiEventListenerSupport lsup) throws IOException {
     if (in == null) throw new IllegalArgumentException("in == null");
     if (out == null) throw new IllegalArgumentException("out == null");
+    if (registry == null) throw new IllegalArgumentException("registry == null");
     if (lsup == null) throw new IllegalArgumentException("lsup == null");
 
-    this.out = new ObjectOutputStream(out);
-    this.in = new ObjectInputStream(in);
+    this.out = new IPCMessageOutputStream(out, registry);
+    this.in = new IPCMessageInputStream(in, registry);
     this.lsup = lsup;
   }
 
@@ -52,12 +67,36 @@ public class IPCMessenger {
     this(sock.getInputStream(), sock.getOutputStream());
   }
 
+  /**
+   * @param sock the socket to communicate over
+   * @param registry the message types which may be sent and received
+   * @throws IOException if the stream header cannot be written
+   * @since 3.2.3
+   */
+  public IPCMessenger(Socket sock, IPCMessageRegistry registry)
+                                                          throws IOException {
+    this(sock.getInputStream(), sock.getOutputStream(), registry);
+  }
+
   public IPCMessenger(InputStream in, OutputStream out) throws IOException {
+    this(in, out, IPCMessageRegistry.createDefault());
+  }
+
+  /**
+   * @param in the stream to read messages from
+   * @param out the stream to write messages to
+   * @param registry the message types which may be sent and received
+   * @throws IOException if the stream header cannot be written
+   * @since 3.2.3
+   */
+  public IPCMessenger(InputStream in, OutputStream out,
+                      IPCMessageRegistry registry) throws IOException {
     if (in == null) throw new IllegalArgumentException("in == null");
     if (out == null) throw new IllegalArgumentException("out == null");
+    if (registry == null) throw new IllegalArgumentException("registry == null");
 
-    this.out = new ObjectOutputStream(out);
-    this.in = new ObjectInputStream(in);
+    this.out = new IPCMessageOutputStream(out, registry);
+    this.in = new IPCMessageInputStream(in, registry);
     this.lsup = new DefaultMultiEventListenerSupport(this);
 
     lsup.addEventListener(IPCMessage.class, new EventListener<IPCMessage>() {
@@ -0,0 +1,51 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.tools.ipc;
+
+/**
+ * Stands in for a {@link Throwable} received over IPC. It carries the
+ * class name, message and stack trace of the original, and prints as
+ * the original would have.
+ *
+ * @author Marc Pawlowsky
+ * @since 3.2.3
+ */
+public class IPCRemoteException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  private final String remoteClassName;
+
+  public IPCRemoteException(String remoteClassName, String message) {
+    super(message);
+    this.remoteClassName = remoteClassName;
+  }
+
+  /**
+   * @return the name of the class of the original {@link Throwable}
+   */
+  public String getRemoteClassName() {
+    return remoteClassName;
+  }
+
+  @Override
+  public String toString() {
+    final String msg = getLocalizedMessage();
+    return msg == null ? remoteClassName : remoteClassName + ": " + msg;
+  }
+}
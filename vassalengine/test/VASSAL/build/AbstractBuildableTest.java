@@ -0,0 +1,93 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build;
+
+import org.junit.Test;
+
+import VASSAL.build.module.documentation.HelpFile;
+
+import static org.junit.Assert.*;
+
+public class AbstractBuildableTest {
+
+  private static class Node extends AbstractConfigurable {
+    Node(String name) {
+      setConfigureName(name);
+    }
+
+    public String[] getAttributeDescriptions() { return new String[0]; }
+    public Class<?>[] getAttributeTypes() { return new Class<?>[0]; }
+    public String[] getAttributeNames() { return new String[0]; }
+    public void setAttribute(String key, Object value) { }
+    public String getAttributeValueString(String key) { return null; }
+    public Class<?>[] getAllowableConfigureComponents() { return new Class<?>[0]; }
+    public HelpFile getHelpFile() { return null; }
+    public void addTo(Buildable parent) { }
+    public void removeFrom(Buildable parent) { }
+  }
+
+  private static class Leaf extends Node {
+    Leaf(String name) {
+      super(name);
+    }
+  }
+
+  @Test
+  public void testLookupsFollowAddAndRemove() {
+    final Node root = new Node("root");
+    final Node child = new Node("child");
+    final Leaf a = new Leaf("a");
+    root.add(child);
+    child.add(a);
+
+    assertEquals(0, root.getComponentsOf(Leaf.class).size());
+    assertEquals(1, root.getAllDescendantComponentsOf(Leaf.class).size());
+
+    final Leaf b = new Leaf("b");
+    root.add(b);
+    assertEquals(1, root.getComponentsOf(Leaf.class).size());
+    assertEquals(2, root.getAllDescendantComponentsOf(Leaf.class).size());
+
+    child.remove(a);
+    assertEquals(1, root.getAllDescendantComponentsOf(Leaf.class).size());
+    assertSame(b, root.getAllDescendantComponentsOf(Leaf.class).get(0));
+  }
+
+  @Test
+  public void testNameLookupFollowsRename() {
+    final Node root = new Node("root");
+    final Leaf a = new Leaf("a");
+    root.add(a);
+
+    assertSame(a, root.getComponentsOf(Leaf.class, "a").get(0));
+    assertTrue(root.getComponentsOf(Leaf.class, "b").isEmpty());
+
+    a.setConfigureName("b");
+    assertTrue(root.getComponentsOf(Leaf.class, "a").isEmpty());
+    assertSame(a, root.getAllDescendantComponentsOf(Leaf.class, "b").get(0));
+  }
+
+  @Test(expected=UnsupportedOperationException.class)
+  public void testSnapshotsAreImmutable() {
+    final Node root = new Node("root");
+    root.add(new Leaf("a"));
+    root.getComponentsOf(Leaf.class).clear();
+  }
+}
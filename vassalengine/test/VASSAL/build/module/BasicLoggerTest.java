@@ -0,0 +1,166 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import VASSAL.build.GameModule;
+import VASSAL.command.Command;
+import VASSAL.command.CommandEncoder;
+import VASSAL.launch.BasicModule;
+import VASSAL.tools.io.DeobfuscatingInputStream;
+import VASSAL.tools.io.IOUtils;
+
+public class BasicLoggerTest {
+  /** A command which encodes as its text. */
+  protected static class Text extends Command {
+    protected final String text;
+
+    public Text(String text) {
+      this.text = text;
+    }
+
+    protected void executeCommand() { }
+
+    protected Command myUndoCommand() {
+      return null;
+    }
+  }
+
+  protected static class TextEncoder implements CommandEncoder {
+    public String encode(Command c) {
+      return c instanceof Text ? ((Text) c).text : null;
+    }
+
+    public Command decode(String s) {
+      return null;
+    }
+  }
+
+  protected BasicLogger logger;
+  protected GameModule oldModule;
+
+  protected Field moduleField() throws Exception {
+    final Field f = GameModule.class.getDeclaredField("theModule");
+    f.setAccessible(true);
+    return f;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    logger = new BasicLogger() {
+      @Override
+      protected int getKeyframeInterval() {
+        return 0;
+      }
+    };
+
+    // a module which encodes compound commands for real
+    final GameModule module = mock(BasicModule.class);
+    when(module.encode(any(Command.class))).thenCallRealMethod();
+    final Field e = GameModule.class.getDeclaredField("commandEncoders");
+    e.setAccessible(true);
+    e.set(module, new CommandEncoder[] {
+      new BasicCommandEncoder(), logger, new TextEncoder()
+    });
+
+    final Field f = moduleField();
+    oldModule = (GameModule) f.get(null);
+    f.set(null, module);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    logger.discardSpool();
+    moduleField().set(null, oldModule);
+  }
+
+  protected Command compound(String name) {
+    final Command c = new Text(name);
+    final Command b = new Text(name + "\u001b'b'");
+    b.append(new Text(name + "c\\"));
+    c.append(b);
+    c.append(new Text(name + "d"));
+    return c;
+  }
+
+  protected void assertSpoolMatchesLog(Command beginningState,
+                                       boolean toMemory) throws IOException {
+    logger.beginningState = beginningState;
+    logger.beginSpool();
+
+    for (int i = 0; i < 5; ++i) {
+      // as when the disk fills part way through the log
+      if (toMemory && i == 2) logger.spoolToMemory();
+      logger.log(compound("cmd" + i));
+    }
+    logger.spool.close();
+
+    final byte[] spooled;
+    InputStream in = null;
+    try {
+      in = new DeobfuscatingInputStream(toMemory ?
+        logger.spoolBuffer.toInputStream() :
+        new FileInputStream(logger.spoolFile));
+      spooled = IOUtils.toByteArray(in);
+      in.close();
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+
+    // the log as it was encoded before it was spooled
+    final Command log = beginningState;
+    for (Command c : logger.logOutput) {
+      log.append(new BasicLogger.LogCommand(c, logger.logInput, null));
+    }
+    final String expected = GameModule.getGameModule().encode(log);
+
+    assertArrayEquals(expected.getBytes("UTF-8"), spooled);
+  }
+
+  @Test
+  public void testSpoolMatchesLog() throws IOException {
+    assertSpoolMatchesLog(compound("begin"), false);
+  }
+
+  @Test
+  public void testSpoolMatchesLogWithoutSubCommands() throws IOException {
+    // text which is escaped only when the command has subcommands
+    assertSpoolMatchesLog(new Text("'begin\u001bstate\\'"), false);
+  }
+
+  @Test
+  public void testSpoolToMemoryMatchesLog() throws IOException {
+    assertSpoolMatchesLog(compound("begin"), true);
+  }
+}
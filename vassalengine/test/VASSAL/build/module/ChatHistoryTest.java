@@ -0,0 +1,81 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ChatHistoryTest {
+
+  @Test
+  public void testRetention() {
+    final ChatHistory h = new ChatHistory(3);
+    for (int i = 0; i < 5; ++i) h.add("line " + i);
+
+    assertEquals(3, h.size());
+    assertEquals(2, h.getSpilledCount());
+    assertEquals("line 2", h.get(0));
+    assertEquals("line 4", h.get(2));
+    h.clear();
+  }
+
+  @Test
+  public void testShrinkRetention() {
+    final ChatHistory h = new ChatHistory(4);
+    for (int i = 0; i < 4; ++i) h.add("line " + i);
+    h.setRetention(2);
+
+    assertEquals(2, h.size());
+    assertEquals(2, h.getSpilledCount());
+    assertEquals("line 2", h.get(0));
+    assertEquals("line 3", h.get(1));
+    h.clear();
+  }
+
+  @Test
+  public void testSearchIncludesSpilled() throws IOException {
+    final ChatHistory h = new ChatHistory(2);
+    h.add("* Alice moves");
+    h.add("<Bob> - hello");
+    h.add("* alice attacks");
+    h.add("<Bob> - ouch");
+
+    assertEquals(Arrays.asList("* Alice moves", "* alice attacks"),
+                 h.search("ALICE"));
+    h.clear();
+  }
+
+  @Test
+  public void testExport() throws IOException {
+    final ChatHistory h = new ChatHistory(2);
+    h.add("a");
+    h.add("b");
+    h.add("c");
+
+    final StringWriter out = new StringWriter();
+    h.export(out);
+    assertEquals("a\nb\nc\n", out.toString());
+    h.clear();
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExtensionsLoaderTest {
+
+  private static class TestLoader extends ExtensionsLoader {
+    final List<String> created =
+      Collections.synchronizedList(new ArrayList<String>());
+    final List<String> built = new ArrayList<String>();
+    final List<String> warnings = new ArrayList<String>();
+
+    long delay = 0;
+    CountDownLatch started;
+
+    @Override
+    protected ModuleExtension createExtension(String extname)
+                                              throws ZipException, IOException {
+      created.add(extname);
+      if (extname.startsWith("bad")) throw new IOException(extname);
+      if (extname.startsWith("notzip")) throw new ZipException(extname);
+      return new TestExtension(this, extname);
+    }
+
+    @Override
+    protected void warn(String msg) {
+      warnings.add(msg);
+    }
+
+    boolean[] load(String... names) {
+      final List<File> files = new ArrayList<File>();
+      for (String name : names) files.add(new File(name));
+      return addExtensions(files);
+    }
+  }
+
+  private static class TestExtension extends ModuleExtension {
+    private final TestLoader loader;
+    private final String name;
+
+    public TestExtension(TestLoader loader, String name) {
+      super(null);
+      this.loader = loader;
+      this.name = name;
+    }
+
+    @Override
+    public void readBuildFile() throws IOException {
+      if (name.startsWith("unparsable")) throw new IOException(name);
+
+      try {
+        if (loader.started != null) {
+          // wait until every extension is being read at once
+          loader.started.countDown();
+          if (!loader.started.await(10, TimeUnit.SECONDS)) {
+            throw new IOException("read one at a time");
+          }
+        }
+
+        // the earlier extensions take longer to read
+        Thread.sleep(loader.delay * (10 - name.charAt(0) + 'a'));
+      }
+      catch (InterruptedException e) {
+        throw (IOException) new IOException().initCause(e);
+      }
+    }
+
+    @Override
+    public void build() {
+      loader.built.add(name);
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
+  @Test
+  public void testBuildsInOrder() {
+    final TestLoader loader = new TestLoader();
+    loader.delay = 20;
+
+    final boolean[] added = loader.load("a", "b", "c", "d");
+    assertTrue(Arrays.equals(new boolean[]{ true, true, true, true }, added));
+    assertEquals(Arrays.asList("a", "b", "c", "d"), loader.built);
+  }
+
+  @Test
+  public void testReadsInParallel() {
+    final TestLoader loader = new TestLoader();
+    loader.started = new CountDownLatch(3);
+
+    final boolean[] added = loader.load("a", "b", "c");
+    assertTrue(Arrays.equals(new boolean[]{ true, true, true }, added));
+    assertEquals(Arrays.asList("a", "b", "c"), loader.built);
+  }
+
+  @Test
+  public void testFailuresKeepOrder() {
+    final TestLoader loader = new TestLoader();
+    loader.delay = 5;
+
+    final boolean[] added =
+      loader.load("a", "bad", "notzip", "unparsable", "b");
+    assertTrue(Arrays.equals(
+      new boolean[]{ true, false, false, false, true }, added));
+    assertEquals(Arrays.asList("a", "b"), loader.built);
+
+    // a file which is not an archive is skipped silently
+    int errors = 0;
+    for (String w : loader.warnings) {
+      if (w.contains("bad") || w.contains("unparsable")) ++errors;
+      assertFalse(w.contains("notzip"));
+    }
+    assertEquals(2, errors);
+  }
+
+  @Test
+  public void testOpensEachExtensionOnce() {
+    final TestLoader loader = new TestLoader();
+
+    final boolean[] added = loader.load("a", "a");
+    assertTrue(Arrays.equals(new boolean[]{ true, true }, added));
+    assertTrue(Arrays.equals(new boolean[]{ true }, loader.load("a")));
+
+    assertEquals(Arrays.asList("a"), loader.created);
+    assertEquals(Arrays.asList("a"), loader.built);
+  }
+}
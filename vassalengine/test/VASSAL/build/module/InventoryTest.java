@@ -0,0 +1,183 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import VASSAL.build.GameModule;
+import VASSAL.build.module.Inventory.CounterNode;
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.GamePiece;
+import VASSAL.counters.Marker;
+import VASSAL.tools.DataArchive;
+
+public class InventoryTest {
+  protected GameModule oldModule;
+  protected final List<GamePiece> pieces = new ArrayList<GamePiece>();
+  protected Inventory inventory;
+
+  protected Field moduleField() throws Exception {
+    final Field f = GameModule.class.getDeclaredField("theModule");
+    f.setAccessible(true);
+    return f;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    final GameState state = mock(GameState.class);
+    when(state.getAllPieces()).thenAnswer(new Answer<Collection<GamePiece>>() {
+      public Collection<GamePiece> answer(InvocationOnMock invocation) {
+        return new ArrayList<GamePiece>(pieces);
+      }
+    });
+
+    final GameModule module = mock(GameModule.class);
+    when(module.getGameState()).thenReturn(state);
+    // for the launch button's icon
+    final DataArchive archive = new DataArchive() { };
+    when(module.getDataArchive()).thenReturn(archive);
+
+    oldModule = (GameModule) moduleField().get(null);
+    moduleField().set(null, module);
+
+    inventory = new Inventory();
+    inventory.setAttribute(Inventory.GROUP_BY, "side,type");
+    inventory.setAttribute(Inventory.NON_LEAF_FORMAT, "$PropertyValue$ $sum_count$");
+    inventory.setAttribute(Inventory.LEAF_FORMAT, "$PieceName$ $count$");
+    inventory.setAttribute(Inventory.SORT_FORMAT, "$PieceName$");
+
+    pieces.add(piece("a", "red", "tank", "3"));
+    pieces.add(piece("b", "red", "tank", "2"));
+    pieces.add(piece("c", "red", "foot", "1"));
+    pieces.add(piece("d", "blue", "foot", "4"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    moduleField().set(null, oldModule);
+  }
+
+  protected GamePiece piece(String name, String side, String type,
+                            String count) {
+    final Marker m = new Marker(Marker.ID + "side,type,count",
+      new BasicPiece(BasicPiece.ID + ";;;" + name));
+    m.setProperty("side", side);
+    m.setProperty("type", type);
+    m.setProperty("count", count);
+    return m;
+  }
+
+  protected void dump(Object node, String indent, StringBuilder sb) {
+    final Inventory.CounterInventory results = inventory.results;
+    sb.append(indent).append(node).append(" [")
+      .append(((CounterNode) node).getCounter().getValue()).append("]\n");
+    for (int i = 0; i < results.getChildCount(node); ++i) {
+      dump(results.getChild(node, i), indent + "  ", sb);
+    }
+  }
+
+  protected String dump() {
+    final StringBuilder sb = new StringBuilder();
+    dump(inventory.results.getRoot(), "", sb);
+    return sb.toString();
+  }
+
+  /**
+   * Updates the inventory and checks that the tree is the same as the
+   * one built from scratch.
+   */
+  protected void assertUpdateMatchesRebuild() {
+    assertTrue(inventory.updateTreeModel());
+    final String updated = dump();
+
+    inventory.buildTreeModel();
+    assertEquals(dump(), updated);
+  }
+
+  protected void checkUpdates() {
+    inventory.buildTreeModel();
+    assertFalse(inventory.updateTreeModel());
+
+    // add
+    pieces.add(piece("e", "blue", "tank", "5"));
+    assertUpdateMatchesRebuild();
+
+    pieces.add(piece("f", "green", "foot", "6"));
+    assertUpdateMatchesRebuild();
+
+    // remove, leaving a group empty
+    pieces.remove(pieces.size() - 1);
+    assertUpdateMatchesRebuild();
+
+    // remove the piece from which its groups take their properties
+    pieces.remove(0);
+    assertUpdateMatchesRebuild();
+
+    // move to another group
+    pieces.get(0).setProperty("side", "blue");
+    assertUpdateMatchesRebuild();
+
+    pieces.get(1).setProperty("type", "tank");
+    assertUpdateMatchesRebuild();
+
+    // change a property shown in the tree
+    pieces.get(2).setProperty("count", "7");
+    assertUpdateMatchesRebuild();
+  }
+
+  @Test
+  public void testUpdateMatchesRebuild() {
+    checkUpdates();
+  }
+
+  @Test
+  public void testUpdateMatchesRebuildCutBelowRoot() {
+    inventory.setAttribute(Inventory.CUTBELOWROOT, 1);
+    checkUpdates();
+  }
+
+  @Test
+  public void testUpdateMatchesRebuildCutAboveLeaves() {
+    inventory.setAttribute(Inventory.CUTABOVELEAVES, 1);
+    checkUpdates();
+  }
+
+  @Test
+  public void testUpdateMatchesRebuildCutBoth() {
+    inventory.setAttribute(Inventory.CUTBELOWROOT, 2);
+    inventory.setAttribute(Inventory.CUTABOVELEAVES, 1);
+    checkUpdates();
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+package VASSAL.build.module;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplayIndexTest {
+
+  @Test
+  public void testEncodeDecode() throws IOException {
+    final String s = ReplayIndex.encodeIndex(Arrays.asList(0, 100, 200));
+    assertArrayEquals(new int[]{ 0, 100, 200 }, ReplayIndex.decodeIndex(s));
+  }
+
+  @Test
+  public void testDecodeEmpty() throws IOException {
+    assertEquals(0, ReplayIndex.decodeIndex("").length);
+  }
+
+  @Test(expected=IOException.class)
+  public void testDecodeMalformed() throws IOException {
+    ReplayIndex.decodeIndex("0,x");
+  }
+
+  @Test
+  public void testGetKeyframeBefore() {
+    final ReplayIndex index = new ReplayIndex(null, new int[]{ 0, 100, 200 });
+    assertEquals(0, index.getKeyframeBefore(0));
+    assertEquals(0, index.getKeyframeBefore(99));
+    assertEquals(100, index.getKeyframeBefore(100));
+    assertEquals(200, index.getKeyframeBefore(5000));
+  }
+
+  @Test
+  public void testGetKeyframeBeforeFirst() {
+    final ReplayIndex index = new ReplayIndex(null, new int[]{ 50 });
+    assertEquals(-1, index.getKeyframeBefore(10));
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module.map;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.List;
+
+import org.junit.Test;
+
+import VASSAL.counters.BasicPiece;
+import VASSAL.counters.GamePiece;
+
+import static org.junit.Assert.*;
+
+public class PieceIndexTest {
+
+  private static GamePiece pieceAt(int x, int y) {
+    final GamePiece p = new BasicPiece(BasicPiece.ID + ";;;");
+    p.setPosition(new Point(x, y));
+    return p;
+  }
+
+  @Test
+  public void testQueryFindsPiecesInRegion() {
+    final PieceIndex index = new PieceIndex(10);
+    final GamePiece in1 = pieceAt(5, 5);
+    final GamePiece in2 = pieceAt(-15, 25);
+    final GamePiece out = pieceAt(500, 500);
+    index.add(in1);
+    index.add(in2);
+    index.add(out);
+
+    final List<GamePiece> found =
+      index.getPiecesIn(new Rectangle(-20, 0, 30, 30));
+    assertTrue(found.contains(in1));
+    assertTrue(found.contains(in2));
+    assertFalse(found.contains(out));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  public void testQueryLargerThanIndex() {
+    final PieceIndex index = new PieceIndex(10);
+    final GamePiece p = pieceAt(5, 5);
+    index.add(p);
+
+    final List<GamePiece> found =
+      index.getPiecesIn(new Rectangle(-10000, -10000, 20000, 20000));
+    assertEquals(1, found.size());
+    assertSame(p, found.get(0));
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    final PieceIndex index = new PieceIndex(10);
+    final GamePiece p = pieceAt(5, 5);
+    index.add(p);
+
+    p.setPosition(new Point(205, 205));
+    index.update(p);
+    assertTrue(index.getPiecesIn(new Rectangle(0, 0, 10, 10)).isEmpty());
+    assertEquals(1, index.getPiecesIn(new Rectangle(200, 200, 10, 10)).size());
+
+    index.remove(p);
+    assertEquals(0, index.size());
+    assertTrue(index.getPiecesIn(new Rectangle(200, 200, 10, 10)).isEmpty());
+
+    // pieces not in the index are not added by updates
+    index.update(p);
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void testModCountIgnoresMoves() {
+    final PieceIndex index = new PieceIndex(10);
+    final GamePiece p = pieceAt(5, 5);
+
+    final int mc0 = index.getModCount();
+    index.add(p);
+    final int mc1 = index.getModCount();
+    assertTrue(mc1 != mc0);
+
+    p.setPosition(new Point(205, 205));
+    index.update(p);
+    assertEquals(mc1, index.getModCount());
+
+    index.remove(p);
+    assertTrue(index.getModCount() != mc1);
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.build.module.metadata;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import VASSAL.build.module.GameState;
+import VASSAL.tools.concurrent.listener.EventListener;
+
+import static org.junit.Assert.*;
+
+public class MetaDataIndexTest {
+
+  private static File writeSave(String description) throws IOException {
+    final File f = File.createTempFile("save", ".vsav");
+    f.deleteOnExit();
+
+    final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(f));
+    out.putNextEntry(new ZipEntry(GameState.SAVEFILE_ZIP_ENTRY));
+    out.write(new byte[] { 0 });
+    out.putNextEntry(new ZipEntry(SaveMetaData.ZIP_ENTRY_NAME));
+    out.write(("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+               "<data version=\"1\"><version>1</version>" +
+               "<description>" + description + "</description></data>")
+      .getBytes("UTF-8"));
+    out.close();
+    return f;
+  }
+
+  private static File tempIndex() throws IOException {
+    final File f = File.createTempFile("metadata", ".idx");
+    f.delete();
+    f.deleteOnExit();
+    return f;
+  }
+
+  @Test
+  public void testUnchangedFileIsNotReread() throws IOException {
+    final File save = writeSave("Turn 1");
+    final MetaDataIndex index = new MetaDataIndex(tempIndex());
+
+    final AbstractMetaData md = index.getMetaData(save);
+    assertTrue(md instanceof SaveMetaData);
+    assertEquals("Turn 1", md.getDescription());
+    assertSame(md, index.getMetaData(save));
+    assertEquals(1, index.getReadCount());
+
+    assertTrue(save.setLastModified(save.lastModified() - 10000));
+    index.getMetaData(save);
+    assertEquals(2, index.getReadCount());
+  }
+
+  @Test
+  public void testIndexIsPersistent() throws IOException {
+    final File save = writeSave("Turn 2");
+    final File idx = tempIndex();
+
+    final MetaDataIndex index = new MetaDataIndex(idx);
+    index.getMetaData(save);
+    index.save();
+    assertTrue(idx.exists());
+
+    final MetaDataIndex loaded = new MetaDataIndex(idx);
+    loaded.load();
+    assertEquals(1, loaded.size());
+    assertEquals("Turn 2", loaded.getMetaData(save).getDescription());
+    assertEquals(0, loaded.getReadCount());
+  }
+
+  @Test
+  public void testUpdateReadsOnlyChangedFiles() throws IOException {
+    final File a = writeSave("A");
+    final File b = writeSave("B");
+    final MetaDataIndex index = new MetaDataIndex(tempIndex());
+
+    index.getMetaData(a);
+    assertEquals(Arrays.asList(b), index.update(Arrays.asList(a, b)));
+    assertEquals(2, index.getReadCount());
+    assertEquals("B", index.getMetaData(b).getDescription());
+    assertEquals(2, index.getReadCount());
+  }
+
+  @Test
+  public void testUpdateNotifiesOnEDT() throws Exception {
+    final File a = writeSave("A");
+    final File b = writeSave("B");
+    final File idx = tempIndex();
+    final MetaDataIndex index = new MetaDataIndex(idx);
+    index.getMetaData(a);
+
+    final List<File> notified =
+      Collections.synchronizedList(new ArrayList<File>());
+    final CountDownLatch latch = new CountDownLatch(2);
+
+    index.update(Arrays.asList(a, b), new EventListener<File>() {
+      public void receive(Object src, File f) {
+        assertTrue(SwingUtilities.isEventDispatchThread());
+        notified.add(f);
+        latch.countDown();
+      }
+    });
+
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals(2, notified.size());
+    assertTrue(notified.containsAll(Arrays.asList(a, b)));
+    assertEquals(2, index.getReadCount());
+    assertEquals("B", index.getMetaData(b).getDescription());
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import VASSAL.build.module.ServerConnection;
+import VASSAL.command.Command;
+import VASSAL.command.CommandEncoder;
+
+public class ChunkedSynchTest {
+  protected static class Named extends Command {
+    protected final String name;
+
+    public Named(String name) {
+      this.name = name;
+    }
+
+    protected void executeCommand() {
+    }
+
+    protected Command myUndoCommand() {
+      return null;
+    }
+  }
+
+  protected static class NameEncoder implements CommandEncoder {
+    public Command decode(String s) {
+      return new Named(s);
+    }
+
+    public String encode(Command c) {
+      final StringBuilder sb = new StringBuilder(((Named) c).name);
+      for (Command sub : c.getSubCommands()) {
+        sb.append('(').append(encode(sub)).append(')');
+      }
+      return sb.toString();
+    }
+  }
+
+  protected List<String> commands(int n) {
+    final List<String> commands = new ArrayList<String>();
+    for (int i = 0; i < n; ++i) {
+      commands.add("piece\u001b" + i + "\té\\" + (i % 7));
+    }
+    return commands;
+  }
+
+  @Test
+  public void testFlatten() {
+    final Command a = new Named("a");
+    final Command b = new Named("b");
+    b.append(new Named("c"));
+    b.append(new Named("d"));
+    a.append(b);
+    a.append(new Named("e"));
+
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e"),
+                 ChunkedSynch.flatten(a, new NameEncoder()));
+
+    // the tree is left as it was
+    assertEquals("a(b(c)(d))(e)", new NameEncoder().encode(a));
+  }
+
+  @Test
+  public void testPackUnpack() throws DataFormatException {
+    final List<String> commands = commands(2000);
+    final List<byte[]> chunks = ChunkedSynch.pack(commands, 1000);
+    assertTrue(chunks.size() > 1);
+
+    final List<String> out = new ArrayList<String>();
+    byte[] dict = null;
+    for (byte[] chunk : chunks) {
+      final byte[] text = ChunkedSynch.inflate(chunk, dict);
+      dict = text;
+      out.addAll(ChunkedSynch.unpack(text));
+    }
+
+    assertEquals(commands, out);
+  }
+
+  @Test(expected=DataFormatException.class)
+  public void testMissingDictionary() throws DataFormatException {
+    final List<byte[]> chunks = ChunkedSynch.pack(commands(2000), 1000);
+    ChunkedSynch.inflate(chunks.get(1), null);
+  }
+
+  @Test
+  public void testReceiveInOrder() {
+    final ChunkedSynch cs =
+      new ChunkedSynch(mock(ChatServerConnection.class), 1000, 4);
+    final Player sender = new SimplePlayer("host");
+
+    final List<String> commands = commands(500);
+    final List<byte[]> chunks = ChunkedSynch.pack(commands, 1000);
+    final int total = chunks.size();
+    assertTrue(total > 2);
+
+    // a transfer cannot begin in the middle
+    assertNull(cs.receive(sender, "t", 1, total, chunks.get(1)));
+
+    final List<String> out = new ArrayList<String>();
+    out.addAll(cs.receive(sender, "t", 0, total, chunks.get(0)));
+    assertEquals(1, cs.getNext("t"));
+
+    // duplicates and chunks from the future are ignored
+    assertNull(cs.receive(sender, "t", 0, total, chunks.get(0)));
+    assertNull(cs.receive(sender, "t", 2, total, chunks.get(2)));
+    assertEquals(1, cs.getNext("t"));
+
+    for (int i = 1; i < total; ++i) {
+      out.addAll(cs.receive(sender, "t", i, total, chunks.get(i)));
+    }
+
+    assertEquals(commands, out);
+    assertEquals(Integer.MAX_VALUE, cs.getNext("t"));
+  }
+
+  @Test
+  public void testCorruptChunkRetried() {
+    final ChunkedSynch cs =
+      new ChunkedSynch(mock(ChatServerConnection.class), 1000, 4);
+    final Player sender = new SimplePlayer("host");
+
+    final List<byte[]> chunks = ChunkedSynch.pack(commands(500), 1000);
+    final int total = chunks.size();
+    final byte[] bad = chunks.get(1).clone();
+    for (int i = 0; i < bad.length; ++i) bad[i] ^= 0x55;
+
+    cs.receive(sender, "t", 0, total, chunks.get(0));
+
+    // a corrupt chunk is asked for again
+    for (int i = 0; i < ChunkedSynch.MAX_RETRIES; ++i) {
+      assertNull(cs.receive(sender, "t", 1, total, bad));
+      assertFalse(cs.hasFailed("t"));
+      assertEquals(1, cs.getNext("t"));
+    }
+
+    assertNotNull(cs.receive(sender, "t", 1, total, chunks.get(1)));
+    assertEquals(2, cs.getNext("t"));
+  }
+
+  @Test
+  public void testCorruptChunkFailsTransfer() {
+    final ChunkedSynch cs =
+      new ChunkedSynch(mock(ChatServerConnection.class), 1000, 4);
+    final Player sender = new SimplePlayer("host");
+
+    final List<byte[]> chunks = ChunkedSynch.pack(commands(500), 1000);
+    final int total = chunks.size();
+    final byte[] bad = chunks.get(1).clone();
+    for (int i = 0; i < bad.length; ++i) bad[i] ^= 0x55;
+
+    cs.receive(sender, "t", 0, total, chunks.get(0));
+    for (int i = 0; i <= ChunkedSynch.MAX_RETRIES; ++i) {
+      assertNull(cs.receive(sender, "t", 1, total, bad));
+    }
+
+    assertTrue(cs.hasFailed("t"));
+    assertEquals(Integer.MAX_VALUE, cs.getNext("t"));
+
+    // the failure is answered only once
+    assertNotNull(cs.createResponse(sender, "t"));
+    assertFalse(cs.hasFailed("t"));
+  }
+
+  protected List<Command> sentTo(ChatServerConnection client, Player p) {
+    final ArgumentCaptor<Command> sent = ArgumentCaptor.forClass(Command.class);
+    verify(client, atLeastOnce()).sendTo(eq(p), sent.capture());
+    return sent.getAllValues();
+  }
+
+  protected void receive(ChunkedSynch cs, Player sender,
+                         List<Command> chunks, List<String> out) {
+    for (Command c : chunks) {
+      final SynchChunkCommand chunk = (SynchChunkCommand) c;
+      final List<String> commands = cs.receive(sender, chunk.getId(),
+        chunk.getIndex(), chunk.getTotal(), chunk.getData());
+      if (commands != null) out.addAll(commands);
+    }
+  }
+
+  @Test
+  public void testResumeAfterReconnect() {
+    final Player host = new SimplePlayer("host");
+    final Player joiner = new SimplePlayer("joiner");
+
+    final ChatServerConnection hc = mock(ChatServerConnection.class);
+    when(hc.getUserInfo()).thenReturn(host);
+    final ChatServerConnection jc = mock(ChatServerConnection.class);
+    when(jc.getUserInfo()).thenReturn(joiner);
+
+    final ChunkedSynch hs = new ChunkedSynch(hc, 1000, 4);
+    final ChunkedSynch js = ChunkedSynch.getInstance(jc);
+
+    final ArgumentCaptor<PropertyChangeListener> listener =
+      ArgumentCaptor.forClass(PropertyChangeListener.class);
+    verify(jc).addPropertyChangeListener(
+      eq(ServerConnection.CONNECTED), listener.capture());
+
+    final List<String> commands = commands(500);
+    final ChunkedSynch.Outgoing o = new ChunkedSynch.Outgoing("t", joiner);
+    o.chunks = ChunkedSynch.pack(commands, 1000);
+    final int total = o.chunks.size();
+    assertTrue(total > 6);
+    hs.outgoing.put("t", o);
+
+    hs.sendWindow(o);
+    List<Command> sent = sentTo(hc, joiner);
+    assertEquals(4, sent.size());
+
+    // the connection drops after the first two chunks arrive
+    final List<String> out = new ArrayList<String>();
+    receive(js, host, sent.subList(0, 2), out);
+
+    listener.getValue().propertyChange(new PropertyChangeEvent(
+      jc, ServerConnection.CONNECTED, Boolean.TRUE, Boolean.FALSE));
+    listener.getValue().propertyChange(new PropertyChangeEvent(
+      jc, ServerConnection.CONNECTED, Boolean.FALSE, Boolean.TRUE));
+
+    // the joiner asks to resume from the first chunk it has not applied
+    final SynchCommand request = (SynchCommand) sentTo(jc, host).get(0);
+    assertEquals("t", request.getResumeId());
+    assertEquals(2, request.getNext());
+
+    assertFalse(hs.resume(joiner, "unknown", 0));
+    assertTrue(hs.resume(joiner, request.getResumeId(), request.getNext()));
+
+    int seen = sent.size();
+    sent = sentTo(hc, joiner);
+    assertEquals(2, ((SynchChunkCommand) sent.get(seen)).getIndex());
+
+    while (js.getNext("t") != Integer.MAX_VALUE) {
+      sent = sentTo(hc, joiner);
+      assertTrue(sent.size() > seen);
+      receive(js, host, sent.subList(seen, sent.size()), out);
+      seen = sent.size();
+      hs.acknowledged("t", Math.min(js.getNext("t"), total), false);
+    }
+
+    assertEquals(commands, out);
+    assertTrue(hs.outgoing.isEmpty());
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import VASSAL.command.Command;
+import VASSAL.command.CommandEncoder;
+import VASSAL.tools.concurrent.listener.EventListener;
+
+public class CommandPipelineTest {
+  protected static class Record extends Command {
+    protected final String name;
+    protected final List<String> out;
+
+    public Record(String name, List<String> out) {
+      this.name = name;
+      this.out = out;
+    }
+
+    protected void executeCommand() {
+      out.add(name);
+    }
+
+    protected Command myUndoCommand() {
+      return null;
+    }
+  }
+
+  /** Decodes "a,b,c" as a with subcommands b and c. */
+  protected static class Decoder implements CommandEncoder {
+    protected final List<String> out;
+
+    public Decoder(List<String> out) {
+      this.out = out;
+    }
+
+    public Command decode(String s) {
+      final String[] names = s.split(",");
+      final Command c = new Record(names[0], out);
+      for (int i = 1; i < names.length; ++i) {
+        c.append(new Record(names[i], out));
+      }
+      return c;
+    }
+
+    public String encode(Command c) {
+      return null;
+    }
+  }
+
+  protected Command tree(List<String> out) {
+    final Command b = new Record("b", out);
+    b.append(new Record("c", out));
+    b.append(new Record("d", out));
+
+    final Command e = new Record("e", out);
+    e.append(new Record("f", out));
+
+    final Command a = new Record("a", out);
+    a.append(b);
+    a.append(e);
+    return a;
+  }
+
+  @Test
+  public void testStepperMatchesExecute() {
+    final List<String> expected = new ArrayList<String>();
+    tree(expected).execute();
+
+    final List<String> actual = new ArrayList<String>();
+    final Command.Stepper s = new Command.Stepper(tree(actual));
+    while (s.hasNext()) s.step();
+
+    assertEquals(expected, actual);
+    assertEquals(6, s.getSteps());
+  }
+
+  @Test
+  public void testStepperAllowsAppendWhileStepping() {
+    final List<String> out = new ArrayList<String>();
+    final Command a = new Record("a", out);
+    a.append(new Record("b", out));
+
+    final Command.Stepper s = new Command.Stepper(a);
+    s.step();
+    s.step();
+    a.append(new Record("c", out));
+    while (s.hasNext()) s.step();
+
+    assertEquals(Arrays.asList("a", "b"), out);
+  }
+
+  @Test
+  public void testFinishCurrent() throws InterruptedException {
+    final List<String> out =
+      Collections.synchronizedList(new ArrayList<String>());
+    final List<CommandPipeline.Timing> timings =
+      Collections.synchronizedList(new ArrayList<CommandPipeline.Timing>());
+
+    final CommandPipeline[] pipeline = new CommandPipeline[1];
+
+    // "x" asks for the rest of its command to be finished at once, as
+    // local input arriving between its steps would
+    final Decoder records = new Decoder(out);
+    final CommandEncoder decoder = new CommandEncoder() {
+      public Command decode(String s) {
+        final Command c = records.decode(s);
+        c.append(new Record("x", out) {
+          @Override
+          protected void executeCommand() {
+            super.executeCommand();
+            SwingUtilities.invokeLater(new Runnable() {
+              public void run() {
+                pipeline[0].finishCurrent();
+                out.add("local");
+              }
+            });
+          }
+        });
+        c.append(new Record("y", out));
+        c.append(new Record("z", out));
+        return c;
+      }
+
+      public String encode(Command c) {
+        return null;
+      }
+    };
+
+    final CommandPipeline p = new CommandPipeline(decoder, 0) {
+      @Override
+      protected void log(Command c) {}
+    };
+    pipeline[0] = p;
+
+    p.addTimingListener(new EventListener<CommandPipeline.Timing>() {
+      public void receive(Object src, CommandPipeline.Timing t) {
+        timings.add(t);
+      }
+    });
+
+    p.submit("w");
+
+    for (int i = 0; i < 500 && !p.isIdle(); ++i) Thread.sleep(10);
+    p.shutdown();
+
+    assertEquals(Arrays.asList("w", "x", "y", "z", "local"), out);
+    assertEquals(1, timings.size());
+    assertEquals(4, timings.get(0).steps);
+    assertEquals(3, timings.get(0).batches);
+  }
+
+  @Test
+  public void testOrderPreserved() throws InterruptedException {
+    final List<String> out =
+      Collections.synchronizedList(new ArrayList<String>());
+    final List<CommandPipeline.Timing> timings =
+      Collections.synchronizedList(new ArrayList<CommandPipeline.Timing>());
+
+    // a zero budget yields to the EDT after every step
+    final CommandPipeline p = new CommandPipeline(new Decoder(out), 0) {
+      @Override
+      protected void log(Command c) {}
+    };
+
+    p.addTimingListener(new EventListener<CommandPipeline.Timing>() {
+      public void receive(Object src, CommandPipeline.Timing t) {
+        timings.add(t);
+      }
+    });
+
+    final List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 50; ++i) {
+      p.submit(i + "," + i + "a," + i + "b");
+      expected.add(String.valueOf(i));
+      expected.add(i + "a");
+      expected.add(i + "b");
+    }
+
+    for (int i = 0; i < 500 && !p.isIdle(); ++i) Thread.sleep(10);
+    p.shutdown();
+
+    assertTrue(p.isIdle());
+    assertEquals(expected, out);
+
+    assertEquals(50, timings.size());
+    for (CommandPipeline.Timing t : timings) {
+      assertEquals(3, t.steps);
+      assertEquals(3, t.batches);
+      assertTrue(t.decodeNanos >= 0);
+      assertTrue(t.executeNanos >= 0);
+    }
+  }
+
+  @Test
+  public void testHeldDuringChunkedSynch() throws InterruptedException {
+    final List<String> out =
+      Collections.synchronizedList(new ArrayList<String>());
+
+    // "chunk i/n" is chunk i of n, holding the command "chunk i"
+    final Decoder records = new Decoder(out);
+    final CommandEncoder decoder = new CommandEncoder() {
+      public Command decode(String s) {
+        if (!s.startsWith("chunk")) return records.decode(s);
+
+        final String[] f = s.substring(6).split("/");
+        final Command c = new SynchChunkCommand(null, "t",
+          Integer.parseInt(f[0]), Integer.parseInt(f[1]), null);
+        c.append(new Record("chunk " + f[0], out));
+        return c;
+      }
+
+      public String encode(Command c) {
+        return null;
+      }
+    };
+
+    final CommandPipeline p = new CommandPipeline(decoder, 0) {
+      @Override
+      protected void log(Command c) {}
+    };
+
+    p.submit("before");
+    p.submit("chunk 0/3");
+    p.submit("move");
+    p.submit("chunk 1/3");
+    p.submit("chat");
+    p.submit("chunk 2/3");
+    p.submit("after");
+
+    for (int i = 0; i < 500 && !p.isIdle(); ++i) Thread.sleep(10);
+    p.shutdown();
+
+    assertEquals(Arrays.asList("before", "chunk 0", "chunk 1", "chunk 2",
+                               "move", "chat", "after"), out);
+  }
+}
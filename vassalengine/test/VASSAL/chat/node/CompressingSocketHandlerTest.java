@@ -0,0 +1,163 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CompressingSocketHandlerTest {
+  protected static class Watcher implements SocketWatcher {
+    protected final BlockingQueue<String> lines =
+      new LinkedBlockingQueue<String>();
+    protected SocketHandler handler;
+
+    public void handleMessage(String msg) {
+      lines.add(msg);
+    }
+
+    public void socketClosed(SocketHandler handler) {
+    }
+
+    public String next() throws InterruptedException {
+      return lines.poll(5, TimeUnit.SECONDS);
+    }
+  }
+
+  /** Answers requests to compress as {@link PlayerNode} does. */
+  protected static class ServerWatcher extends Watcher {
+    @Override
+    public void handleMessage(String msg) {
+      final String[] info = Protocol.decodeCompressRequest(msg);
+      if (info != null && Arrays.asList(info).contains(Protocol.DEFLATE)) {
+        handler.writeLine(Protocol.DEFLATE);
+      }
+      super.handleMessage(msg);
+    }
+  }
+
+  protected void exchange(boolean serverCompresses) throws Exception {
+    final ServerSocket ss = new ServerSocket(0);
+    final Socket cs = new Socket("localhost", ss.getLocalPort());
+    final Socket as = ss.accept();
+
+    final Watcher sw = serverCompresses ? new ServerWatcher() : new Watcher();
+    final CompressingSocketHandler server =
+      new CompressingSocketHandler(as, sw);
+    sw.handler = server;
+
+    final Watcher cw = new Watcher();
+    final CompressingSocketHandler client =
+      new CompressingSocketHandler(cs, cw);
+
+    try {
+      server.start();
+      client.start();
+
+      client.writeLine(Protocol.encodeCompressRequest());
+      assertEquals(Protocol.encodeCompressRequest(), sw.next());
+
+      if (serverCompresses) {
+        // the client answers the server's switch, as SocketNodeClient does
+        assertEquals(Protocol.DEFLATE, cw.next());
+        assertTrue(client.isInflating());
+        client.writeLine(Protocol.DEFLATE);
+        assertEquals(Protocol.DEFLATE, sw.next());
+      }
+
+      final List<String> lines = Arrays.asList(
+        "REG\tplayer\tmodule/Main Room\tname=Player",
+        "FWD\tmodule/Main Room\tCHAT<Player> - hello, hello, hello, hello",
+        "x",
+        "FWD\tmodule/Main Room\tCHAT<Player> - hello, hello, hello, hello"
+      );
+
+      for (String l : lines) client.writeLine(l);
+      for (String l : lines) assertEquals(l, sw.next());
+
+      for (String l : lines) server.writeLine(l);
+      for (String l : lines) assertEquals(l, cw.next());
+
+      assertEquals(serverCompresses, client.isDeflating());
+      assertEquals(serverCompresses, server.isDeflating());
+      assertEquals(serverCompresses, server.isInflating());
+      if (serverCompresses) {
+        assertTrue(client.getFrameBytes() < client.getLineBytes());
+      }
+    }
+    finally {
+      client.close();
+      server.close();
+      ss.close();
+    }
+  }
+
+  @Test
+  public void testCompressed() throws Exception {
+    exchange(true);
+  }
+
+  @Test
+  public void testServerWithoutCompression() throws Exception {
+    exchange(false);
+  }
+
+  @Test
+  public void testForwardedSwitchIgnored() throws Exception {
+    final ServerSocket ss = new ServerSocket(0);
+    final Socket cs = new Socket("localhost", ss.getLocalPort());
+    final Socket as = ss.accept();
+
+    final Watcher sw = new Watcher();
+    final CompressingSocketHandler server =
+      new CompressingSocketHandler(as, sw);
+    final Watcher cw = new Watcher();
+    final CompressingSocketHandler client =
+      new CompressingSocketHandler(cs, cw);
+
+    try {
+      server.start();
+      client.start();
+
+      // a message which happens to look like the switch, unrequested
+      server.writeLine("LIST\t");
+      assertEquals("LIST\t", cw.next());
+      server.writeLine(Protocol.DEFLATE);
+      assertEquals(Protocol.DEFLATE, cw.next());
+      assertFalse(client.isInflating());
+    }
+    finally {
+      client.close();
+      server.close();
+      ss.close();
+    }
+  }
+}
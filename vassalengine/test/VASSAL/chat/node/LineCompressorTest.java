@@ -0,0 +1,142 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.chat.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+public class LineCompressorTest {
+  protected List<String> lines() {
+    final List<String> lines = new ArrayList<String>();
+    lines.add("");
+    lines.add("short");
+    lines.add("ünïcödé ☃");
+    for (int i = 0; i < 200; ++i) {
+      lines.add("FWD\tmodule/Main Room\tM/piece" + i + "/Main Map/" +
+                (i * 37 % 500) + "/" + (i * 91 % 700) + "/Stack" + i);
+    }
+    // longer than the dictionary
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 50000; ++i) sb.append((char) ('a' + i * 7 % 26));
+    lines.add(sb.toString());
+    lines.add("after");
+    return lines;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final List<String> lines = lines();
+
+    final LineCompressor.Encoder enc = new LineCompressor.Encoder();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (String l : lines) enc.write(l, out);
+    enc.end();
+
+    assertEquals(out.size(), enc.getFrameBytes());
+
+    final LineCompressor.Decoder dec = new LineCompressor.Decoder();
+    final InputStream in = new ByteArrayInputStream(out.toByteArray());
+    for (String l : lines) assertEquals(l, dec.read(in));
+    assertNull(dec.read(in));
+    dec.end();
+  }
+
+  @Test
+  public void testDictionaryCarriesAcross() throws IOException {
+    final String line =
+      "FWD\tmodule/Main Room\tM/piece/Main Map/100/200/Stack/Main Map";
+
+    final LineCompressor.Encoder enc = new LineCompressor.Encoder();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    enc.write(line, out);
+    final int first = out.size();
+    enc.write(line, out);
+    final int second = out.size() - first;
+
+    // the repeated line is found in the dictionary
+    assertTrue(second < first / 3);
+  }
+
+  @Test(expected=IOException.class)
+  public void testCorrupt() throws IOException {
+    final LineCompressor.Encoder enc = new LineCompressor.Encoder();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (String l : lines()) enc.write(l, out);
+
+    final byte[] b = out.toByteArray();
+    for (int i = b.length / 2; i < b.length; ++i) b[i] ^= 0x55;
+
+    final LineCompressor.Decoder dec = new LineCompressor.Decoder();
+    final InputStream in = new ByteArrayInputStream(b);
+    while (dec.read(in) != null);
+  }
+
+  @Test(expected=IOException.class)
+  public void testInflatedLineTooLong() throws IOException {
+    // a small frame holding a line of zeros one byte too long
+    final Deflater def = new Deflater(Deflater.BEST_COMPRESSION);
+    def.setInput(new byte[LineCompressor.MAX_LINE + 1]);
+    def.finish();
+
+    final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    final byte[] buf = new byte[8192];
+    while (!def.finished()) data.write(buf, 0, def.deflate(buf));
+    def.end();
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(LineCompressor.DEFLATED);
+    for (int len = data.size(); ; len >>>= 7) {
+      if (len < 0x80) {
+        out.write(len);
+        break;
+      }
+      out.write((len & 0x7f) | 0x80);
+    }
+    data.writeTo(out);
+
+    final LineCompressor.Decoder dec = new LineCompressor.Decoder();
+    try {
+      dec.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+    finally {
+      dec.end();
+    }
+  }
+
+  @Test(expected=IOException.class)
+  public void testReadAfterEnd() throws IOException {
+    final LineCompressor.Decoder dec = new LineCompressor.Decoder();
+    dec.end();
+    dec.end();
+    dec.read(new ByteArrayInputStream(new byte[0]));
+  }
+}
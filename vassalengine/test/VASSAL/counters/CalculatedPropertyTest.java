@@ -0,0 +1,116 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.counters;
+
+import java.awt.Point;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CalculatedPropertyTest {
+
+  private CalculatedProperty createPiece(BasicPiece piece) {
+    final DynamicProperty dp =
+      new DynamicProperty(DynamicProperty.ID + "Strength", piece);
+    dp.mySetState("3");
+    return new CalculatedProperty(
+      CalculatedProperty.ID + "Double;{Strength * 2}", dp);
+  }
+
+  @Test
+  public void testValueIsCached() {
+    final CalculatedProperty cp = createPiece(new BasicPiece(BasicPiece.ID + ";;;"));
+
+    assertEquals("6", cp.getProperty("Double"));
+    assertEquals("6", cp.getProperty("Double"));
+    assertEquals("6", cp.getProperty("Double"));
+
+    assertEquals(3, cp.getReadCount());
+    assertEquals(1, cp.getRecomputeCount());
+  }
+
+  @Test
+  public void testChangedInputIsRecomputed() {
+    final BasicPiece piece = new BasicPiece(BasicPiece.ID + ";;;");
+    final CalculatedProperty cp = createPiece(piece);
+
+    assertEquals("6", cp.getProperty("Double"));
+    cp.setProperty("Strength", "5");
+    assertEquals("10", cp.getProperty("Double"));
+    assertEquals(2, cp.getRecomputeCount());
+
+    piece.setPosition(new Point(10, 10));
+    assertEquals("10", cp.getProperty("Double"));
+    assertEquals(3, cp.getRecomputeCount());
+  }
+
+  @Test
+  public void testDependencyReport() {
+    final CalculatedProperty cp = createPiece(new BasicPiece(BasicPiece.ID + ";;;"));
+
+    assertEquals(1, cp.getInputs().size());
+    assertEquals("Strength", cp.getInputs().get(0));
+    assertFalse(cp.readsOtherPieces());
+    assertTrue(CalculatedProperty.getDependencyReport(cp)
+                                 .contains("Double -> Strength"));
+  }
+
+  @Test
+  public void testRandomIsNotCached() {
+    final CalculatedProperty cp = new CalculatedProperty(
+      CalculatedProperty.ID + "Roll;{Math.random()}",
+      new BasicPiece(BasicPiece.ID + ";;;"));
+    assertTrue(cp.isRandom());
+
+    cp.getProperty("Roll");
+    cp.getProperty("Roll");
+    assertEquals(2, cp.getRecomputeCount());
+  }
+
+  @Test
+  public void testNestedRandomIsNotCached() {
+    final CalculatedProperty roll = new CalculatedProperty(
+      CalculatedProperty.ID + "Roll;{Math.random()}",
+      new BasicPiece(BasicPiece.ID + ";;;"));
+    final CalculatedProperty cp = new CalculatedProperty(
+      CalculatedProperty.ID + "Double;{Roll * 2}", roll);
+    assertFalse(cp.isRandom());
+
+    cp.getProperty("Double");
+    cp.getProperty("Double");
+    assertEquals(2, cp.getRecomputeCount());
+    assertTrue(cp.isRandom());
+  }
+
+  @Test
+  public void testTraitPropertyIsRecomputed() {
+    final Marker marker =
+      new Marker(Marker.ID + "Side", new BasicPiece(BasicPiece.ID + ";;;"));
+    marker.mySetState("Allied");
+    final CalculatedProperty cp = new CalculatedProperty(
+      CalculatedProperty.ID + "Enemy;{Side == \"Axis\"}", marker);
+
+    assertEquals("false", cp.getProperty("Enemy"));
+    marker.setProperty("Side", "Axis");
+    assertEquals("true", cp.getProperty("Enemy"));
+    assertEquals(2, cp.getRecomputeCount());
+  }
+}
@@ -20,6 +20,7 @@
 package VASSAL.counters;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -31,6 +32,7 @@ import java.awt.Rectangle;
 import java.awt.Shape;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
@@ -617,4 +619,40 @@ public class KeyBufferTest
 		assertSame(groupResult, actual);
 	}
 
+	@Test
+	public void testRemoveKeepsSelectionOrder()
+	{
+		// Setup
+		KeyBuffer sut = new KeyBuffer(new MockBoundsTracker(),
+			new MockPieceClonerRetriever(), new MockPieceSorterRetriever());
+		GamePiece p1 = new BasicPiece(BasicPiece.ID + ";;;1");
+		GamePiece p2 = new BasicPiece(BasicPiece.ID + ";;;2");
+		GamePiece p3 = new BasicPiece(BasicPiece.ID + ";;;3");
+		sut.add(p1);
+		sut.add(p2);
+		sut.add(p3);
+		sut.add(p1);
+
+		// Exercise
+		sut.remove(p2);
+
+		// Verify
+		Iterator<GamePiece> i = sut.getPiecesIterator();
+		assertSame(p1, i.next());
+		assertSame(p3, i.next());
+		assertFalse(i.hasNext());
+		assertFalse(sut.contains(p2));
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void testPiecesIteratorIsUnmodifiable()
+	{
+		KeyBuffer sut = new KeyBuffer(new MockBoundsTracker(),
+			new MockPieceClonerRetriever(), new MockPieceSorterRetriever());
+		sut.add(new BasicPiece(BasicPiece.ID + ";;;1"));
+
+		Iterator<GamePiece> i = sut.getPiecesIterator();
+		i.next();
+		i.remove();
+	}
 }
@@ -0,0 +1,203 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.counters;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+
+import javax.swing.KeyStroke;
+
+import org.junit.Test;
+
+import VASSAL.command.Command;
+import VASSAL.tools.image.ImageUtils;
+
+import static org.junit.Assert.*;
+
+public class PieceSpriteCacheTest {
+
+  /** A trait which fills its bounds with a colour and counts its draws. */
+  private static class Swatch extends Decorator {
+    private int draws = 0;
+
+    public Swatch(GamePiece inner) {
+      setInner(inner);
+    }
+
+    public void mySetState(String newState) { }
+
+    public String myGetState() {
+      return "";
+    }
+
+    public String myGetType() {
+      return "swatch;";
+    }
+
+    protected KeyCommand[] myGetKeyCommands() {
+      return new KeyCommand[0];
+    }
+
+    public Command myKeyEvent(KeyStroke stroke) {
+      return null;
+    }
+
+    public void draw(Graphics g, int x, int y, Component obs, double zoom) {
+      ++draws;
+      // simulate the work done by a deep stack of traits
+      final Graphics2D g2d = (Graphics2D) g;
+      g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                           RenderingHints.VALUE_ANTIALIAS_ON);
+      g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                           RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      final int s = (int) (40 * zoom);
+      for (int i = 0; i < 5; ++i) {
+        g2d.setColor(new Color(i * 50, 0, 255 - i * 50, 128));
+        g2d.fillOval(x - s/2 + i, y - s/2 + i, s - 2*i, s - 2*i);
+      }
+      g2d.setColor(Color.BLACK);
+      g2d.setFont(g2d.getFont().deriveFont((float) (10 * zoom)));
+      g2d.drawString("4-4-6", x - s/2 + 2, y + s/4);
+    }
+
+    public Rectangle boundingBox() {
+      return new Rectangle(-20, -20, 40, 40);
+    }
+
+    public Shape getShape() {
+      return boundingBox();
+    }
+
+    public String getName() {
+      return "swatch";
+    }
+
+    public String getDescription() {
+      return "Swatch";
+    }
+
+    public VASSAL.build.module.documentation.HelpFile getHelpFile() {
+      return null;
+    }
+  }
+
+  private static Graphics2D newGraphics() {
+    return ImageUtils.createCompatibleTranslucentImage(100, 100)
+                     .createGraphics();
+  }
+
+  @Test
+  public void testUnchangedPieceIsNotRedrawn() {
+    final Swatch p = new Swatch(new BasicPiece(BasicPiece.ID + ";;;"));
+    final Graphics2D g = newGraphics();
+
+    PieceSpriteCache.draw(p, g, 50, 50, null, 1.0);
+    PieceSpriteCache.draw(p, g, 50, 50, null, 1.0);
+    PieceSpriteCache.draw(p, g, 30, 60, null, 1.0);
+    g.dispose();
+
+    assertEquals(1, p.draws);
+  }
+
+  @Test
+  public void testChangedPieceIsRedrawn() {
+    final Swatch p = new Swatch(new BasicPiece(BasicPiece.ID + ";;;"));
+    final Graphics2D g = newGraphics();
+
+    PieceSpriteCache.draw(p, g, 50, 50, null, 1.0);
+    p.setProperty("foo", "bar");
+    PieceSpriteCache.draw(p, g, 50, 50, null, 1.0);
+    PieceSpriteCache.draw(p, g, 50, 50, null, 0.5);
+    PieceSpriteCache.invalidateAll();
+    PieceSpriteCache.draw(p, g, 50, 50, null, 0.5);
+    g.dispose();
+
+    assertEquals(4, p.draws);
+  }
+
+  @Test
+  public void testTraitPropertiesChangeStateVersion() {
+    final BasicPiece bp = new BasicPiece(BasicPiece.ID + ";;;");
+    final Marker m = new Marker(Marker.ID + "side", bp);
+    final Hideable h = new Hideable(Hideable.ID + "H", m);
+
+    int v = bp.getStateVersion();
+    h.setProperty("side", "red");
+    assertTrue(bp.getStateVersion() != v);
+
+    v = bp.getStateVersion();
+    h.setProperty(Hideable.HIDDEN_BY, "me");
+    assertTrue(bp.getStateVersion() != v);
+  }
+
+  @Test
+  public void testSettersChangeStateVersion() {
+    final BasicPiece bp = new BasicPiece(BasicPiece.ID + ";;;");
+    final Embellishment e = new Embellishment(Embellishment.ID + "Activate", bp);
+    e.nValues = 2;
+    final Labeler l = new Labeler(Labeler.ID, e);
+    final FreeRotator r = new FreeRotator(FreeRotator.ID + "6;];[;Rotate CW;Rotate CCW;;;;", l);
+
+    int v = bp.getStateVersion();
+    r.setAngle(60);
+    assertTrue(bp.getStateVersion() != v);
+
+    v = bp.getStateVersion();
+    l.setLabel("label");
+    assertTrue(bp.getStateVersion() != v);
+
+    v = bp.getStateVersion();
+    e.setActive(true);
+    assertTrue(bp.getStateVersion() != v);
+
+    v = bp.getStateVersion();
+    e.setValue(1);
+    assertTrue(bp.getStateVersion() != v);
+  }
+
+  @Test
+  public void testCachedImageMatchesDirectDrawing() {
+    final Swatch p = new Swatch(new BasicPiece(BasicPiece.ID + ";;;"));
+
+    final BufferedImage direct =
+      ImageUtils.createCompatibleTranslucentImage(100, 100);
+    Graphics2D g = direct.createGraphics();
+    p.draw(g, 50, 40, null, 1.5);
+    g.dispose();
+
+    final BufferedImage cached =
+      ImageUtils.createCompatibleTranslucentImage(100, 100);
+    g = cached.createGraphics();
+    PieceSpriteCache.draw(p, g, 50, 40, null, 1.5);
+    g.dispose();
+
+    for (int y = 0; y < 100; ++y) {
+      for (int x = 0; x < 100; ++x) {
+        assertEquals(direct.getRGB(x, y), cached.getRGB(x, y));
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.counters;
+
+import java.awt.Point;
+
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.junit.Test;
+
+import VASSAL.build.module.IMap;
+import VASSAL.build.module.properties.PropertySource;
+
+import static org.junit.Assert.*;
+
+public class PropertyResolutionCacheTest {
+
+  @Test
+  public void testZoneIsFoundOncePerPositionInPass() {
+    final Mockery context = new Mockery();
+    final IMap map = context.mock(IMap.class);
+    context.checking(new Expectations() {{
+      one(map).findZone(new Point(1, 2));
+      will(returnValue(null));
+      one(map).findZone(new Point(3, 4));
+      will(returnValue(null));
+    }});
+
+    PropertyResolutionCache.resetCounts();
+    PropertyResolutionCache.begin();
+    try {
+      assertNull(PropertyResolutionCache.findZone(map, new Point(1, 2)));
+      assertNull(PropertyResolutionCache.findZone(map, new Point(1, 2)));
+      assertNull(PropertyResolutionCache.findZone(map, new Point(3, 4)));
+    }
+    finally {
+      PropertyResolutionCache.end();
+    }
+
+    context.assertIsSatisfied();
+    assertEquals(3, PropertyResolutionCache.getLookupCount());
+    assertEquals(1, PropertyResolutionCache.getHitCount());
+  }
+
+  @Test
+  public void testNothingIsCachedOutsidePass() {
+    final Mockery context = new Mockery();
+    final PropertySource source = context.mock(PropertySource.class);
+    context.checking(new Expectations() {{
+      exactly(2).of(source).getProperty("foo");
+      will(returnValue("bar"));
+    }});
+
+    assertFalse(PropertyResolutionCache.isActive());
+    assertEquals("bar", PropertyResolutionCache.getProperty(source, "foo"));
+    assertEquals("bar", PropertyResolutionCache.getProperty(source, "foo"));
+    context.assertIsSatisfied();
+  }
+
+  @Test
+  public void testInvalidateDiscardsValues() {
+    final Mockery context = new Mockery();
+    final PropertySource source = context.mock(PropertySource.class);
+    context.checking(new Expectations() {{
+      exactly(2).of(source).getProperty("foo");
+      will(returnValue("bar"));
+    }});
+
+    PropertyResolutionCache.begin();
+    try {
+      PropertyResolutionCache.getProperty(source, "foo");
+      PropertyResolutionCache.getProperty(source, "foo");
+      PropertyResolutionCache.invalidate();
+      PropertyResolutionCache.getProperty(source, "foo");
+    }
+    finally {
+      PropertyResolutionCache.end();
+    }
+
+    context.assertIsSatisfied();
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.launch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import VASSAL.tools.ipc.IPCMessage;
+import VASSAL.tools.ipc.IPCMessageInputStream;
+import VASSAL.tools.ipc.IPCMessageOutputStream;
+import VASSAL.tools.ipc.IPCMessageRegistry;
+
+public class LaunchMessagesTest {
+  private static final IPCMessageRegistry registry =
+    LaunchMessages.createRegistry();
+
+  private static IPCMessage roundTrip(IPCMessage msg)
+                                   throws IOException, ClassNotFoundException {
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final IPCMessageOutputStream out =
+      new IPCMessageOutputStream(bout, registry);
+    out.writeObject(msg);
+    out.close();
+
+    return (IPCMessage) new IPCMessageInputStream(
+      new ByteArrayInputStream(bout.toByteArray()), registry).readObject();
+  }
+
+  @Test
+  public void testLaunchRequest() throws IOException, ClassNotFoundException {
+    final LaunchRequest lr = new LaunchRequest(
+      LaunchRequest.Mode.LOAD, new File("/tmp/a.vmod"), new File("b.vsav"));
+    lr.builtInModule = true;
+    lr.autoext = Arrays.asList("x", "y z");
+    lr.port = 1234;
+    lr.key = -5L;
+
+    final AbstractLaunchAction.NotifyOpenModuleOk m =
+      (AbstractLaunchAction.NotifyOpenModuleOk)
+        roundTrip(new AbstractLaunchAction.NotifyOpenModuleOk(lr));
+
+    assertEquals(Arrays.asList(lr.toArgs()), Arrays.asList(m.lr.toArgs()));
+    assertEquals(lr.key, m.lr.key);
+    assertNull(m.lr.extension);
+  }
+
+  @Test
+  public void testOpenModuleFailed()
+                                   throws IOException, ClassNotFoundException {
+    final AbstractLaunchAction.NotifyOpenModuleFailed m =
+      (AbstractLaunchAction.NotifyOpenModuleFailed) roundTrip(
+        new AbstractLaunchAction.NotifyOpenModuleFailed(
+          new LaunchRequest(LaunchRequest.Mode.EDIT),
+          new IOException("no such module")));
+
+    assertEquals(LaunchRequest.Mode.EDIT, m.lr.mode);
+    assertEquals("no such module", m.thrown.getMessage());
+  }
+
+  @Test
+  public void testCloseMessages() throws IOException, ClassNotFoundException {
+    assertTrue(roundTrip(new Launcher.CloseRequest())
+      instanceof Launcher.CloseRequest);
+    assertEquals(7L,
+      ((Launcher.CloseAccept) roundTrip(new Launcher.CloseAccept(7L))).pid);
+    assertEquals(8L,
+      ((Launcher.CloseReject) roundTrip(new Launcher.CloseReject(8L))).pid);
+    assertEquals(9L,
+      ((Launcher.StartedNotice) roundTrip(new Launcher.StartedNotice(9L))).pid);
+
+    final File f = new File("game.vsav");
+    assertEquals(f, ((AbstractLaunchAction.NotifySaveFileOk)
+      roundTrip(new AbstractLaunchAction.NotifySaveFileOk(f))).file);
+  }
+}
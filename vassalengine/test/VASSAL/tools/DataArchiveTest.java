@@ -0,0 +1,108 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import VASSAL.tools.io.IOUtils;
+
+import static org.junit.Assert.*;
+
+public class DataArchiveTest {
+  private static File createZip(String... entries) throws IOException {
+    final File f = File.createTempFile("DataArchiveTest", ".zip");
+    f.deleteOnExit();
+
+    final ZipOutputStream out = new ZipOutputStream(new FileOutputStream(f));
+    for (int i = 0; i < entries.length; i += 2) {
+      out.putNextEntry(new ZipEntry(entries[i]));
+      out.write(entries[i+1].getBytes("UTF-8"));
+      out.closeEntry();
+    }
+    out.close();
+
+    return f;
+  }
+
+  private static String read(DataArchive da, String name) throws IOException {
+    InputStream in = null;
+    try {
+      in = da.getInputStream(name);
+      final String s = IOUtils.toString(in, "UTF-8");
+      in.close();
+      return s;
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  @Test
+  public void testExtensionsShareCache() throws IOException {
+    final DataArchive module = new DataArchive(
+      createZip("a", "module a", "b", "module b").getPath());
+    final DataArchive ext = new DataArchive(
+      createZip("b", "ext b", "c", "ext c").getPath());
+    module.addExtension(ext);
+
+    assertSame(module.getCache(), ext.getCache());
+
+    assertEquals("module a", read(module, "a"));
+    assertEquals("module b", read(module, "b"));
+    assertEquals("ext c", read(module, "c"));
+    assertEquals("ext c", read(module, "c"));
+    assertEquals("ext c", read(ext, "c"));
+
+    assertEquals(3, module.getCache().getMisses());
+    assertEquals(2, module.getCache().getHits());
+    assertEquals(3, module.getCache().getCount());
+
+    ext.close();
+    module.close();
+    assertEquals(0, module.getCache().getCount());
+  }
+
+  @Test
+  public void testIndexRebuiltForNewExtension() throws IOException {
+    final DataArchive module =
+      new DataArchive(createZip("a", "module a").getPath());
+
+    assertEquals("module a", read(module, "a"));
+
+    try {
+      module.getInputStream("c");
+      fail();
+    }
+    catch (FileNotFoundException e) {
+    }
+
+    module.addExtension(
+      new DataArchive(createZip("c", "ext c").getPath()));
+    assertEquals("ext c", read(module, "c"));
+  }
+}
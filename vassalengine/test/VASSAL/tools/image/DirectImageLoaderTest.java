@@ -0,0 +1,106 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class DirectImageLoaderTest {
+  protected static final String dir = ScanlineImageReaderTest.dir;
+
+  protected static final ImageLoader imageio =
+    new ImageIOImageLoader(new MemoryImageTypeConverter());
+
+  protected static final ImageLoader direct = new DirectImageLoader(imageio);
+
+  protected static void assertLoadsSame(String name, byte[] bytes,
+                                        int typeIfOpaque,
+                                        int typeIfTransparent)
+                                                           throws IOException {
+    final BufferedImage exp = imageio.load(
+      name, new ByteArrayInputStream(bytes),
+      typeIfOpaque, typeIfTransparent, false
+    );
+
+    final BufferedImage act = direct.load(
+      name, new ByteArrayInputStream(bytes),
+      typeIfOpaque, typeIfTransparent, false
+    );
+
+    assertEquals(name, exp.getType(), act.getType());
+    assertEquals(name, exp.getWidth(), act.getWidth());
+    assertEquals(name, exp.getHeight(), act.getHeight());
+
+    for (int y = 0; y < exp.getHeight(); ++y) {
+      for (int x = 0; x < exp.getWidth(); ++x) {
+        ScanlineImageReaderTest.assertPixelEquals(
+          name + " (" + x + "," + y + ")", exp.getRGB(x, y), act.getRGB(x, y)
+        );
+      }
+    }
+  }
+
+  protected static void assertLoadsSame(String name, byte[] bytes)
+                                                           throws IOException {
+    assertLoadsSame(name, bytes,
+      BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB_PRE);
+    assertLoadsSame(name, bytes,
+      BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB);
+    assertLoadsSame(name, bytes,
+      BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR);
+  }
+
+  @Test
+  public void testFiles() throws IOException {
+    for (String f : new String[] {
+      "cc.png", "type2-tRNS.png", "non-type2-tRNS.png", "rainbow.jpg",
+      // interlaced, so loaded by the fallback
+      "iTXt.png"
+    }) {
+      assertLoadsSame(f, ScanlineImageReaderTest.readFile(dir + f));
+    }
+  }
+
+  @Test
+  public void testGIF() throws IOException {
+    for (int type : new int[] {
+      BufferedImage.TYPE_INT_RGB,
+      BufferedImage.TYPE_BYTE_INDEXED
+    }) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      ImageIO.write(ScanlineImageReaderTest.pattern(type), "gif", out);
+      assertLoadsSame("gif " + type, out.toByteArray());
+    }
+  }
+
+  @Test(expected=UnrecognizedImageTypeException.class)
+  public void testNotAnImage() throws IOException {
+    direct.load("junk", new ByteArrayInputStream("not an image".getBytes()),
+      BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB_PRE, false);
+  }
+}
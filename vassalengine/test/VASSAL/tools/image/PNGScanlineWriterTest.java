@@ -0,0 +1,106 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image;
+
+import static org.junit.Assert.assertEquals;
+import static VASSAL.tools.image.AssertImage.assertImageContentEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class PNGScanlineWriterTest {
+  private static BufferedImage randomImage(int w, int h, int type) {
+    final BufferedImage img = new BufferedImage(w, h, type);
+    final Random rng = new Random(42);
+    for (int y = 0; y < h; ++y) {
+      for (int x = 0; x < w; ++x) {
+        img.setRGB(x, y, rng.nextInt());
+      }
+    }
+    return img;
+  }
+
+  private static BufferedImage writeInBands(BufferedImage src, int bh)
+                                                          throws IOException {
+    final int w = src.getWidth();
+    final int h = src.getHeight();
+
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final PNGScanlineWriter out = new PNGScanlineWriter(bout, w, h);
+    for (int y = 0; y < h; y += bh) {
+      final int rows = Math.min(bh, h - y);
+      out.writeRows(src.getSubimage(0, y, w, rows), 0, rows);
+    }
+    assertEquals(h, out.getRowsWritten());
+    out.close();
+
+    return ImageIO.read(new ByteArrayInputStream(bout.toByteArray()));
+  }
+
+  @Test
+  public void testWriteARGBInBands() throws IOException {
+    final BufferedImage src =
+      randomImage(37, 50, BufferedImage.TYPE_INT_ARGB);
+    assertImageContentEquals(src, writeInBands(src, 7));
+  }
+
+  @Test
+  public void testWriteRGB() throws IOException {
+    final BufferedImage src =
+      randomImage(20, 11, BufferedImage.TYPE_INT_RGB);
+    assertImageContentEquals(src, writeInBands(src, 11));
+  }
+
+  @Test
+  public void testWriteFilteredBands() throws IOException {
+    final BufferedImage src =
+      randomImage(23, 40, BufferedImage.TYPE_INT_ARGB);
+
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final PNGScanlineWriter out = new PNGScanlineWriter(bout, 23, 40);
+    byte[] above = null;
+    for (int y = 0; y < 40; y += 9) {
+      final int rows = Math.min(9, 40 - y);
+      final BufferedImage band = src.getSubimage(0, y, 23, rows);
+      out.writeFilteredRows(
+        PNGScanlineWriter.filterRows(band, 0, rows, above));
+      above = PNGScanlineWriter.getRow(band, rows-1);
+    }
+    out.close();
+
+    assertImageContentEquals(src,
+      ImageIO.read(new ByteArrayInputStream(bout.toByteArray())));
+  }
+
+  @Test(expected=IOException.class)
+  public void testCloseBeforeAllRowsWritten() throws IOException {
+    final PNGScanlineWriter out =
+      new PNGScanlineWriter(new ByteArrayOutputStream(), 10, 10);
+    out.writeRows(new BufferedImage(10, 5, BufferedImage.TYPE_INT_ARGB), 0, 5);
+    out.close();
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+import VASSAL.tools.io.IOUtils;
+
+public class ScanlineImageReaderTest {
+  protected static final String dir = "test/VASSAL/tools/image/";
+
+  protected static BufferedImage load(String name, InputStream in)
+                                                           throws IOException {
+    final ImageLoader loader =
+      new ImageIOImageLoader(new MemoryImageTypeConverter());
+    return loader.load(
+      name, in, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, false
+    );
+  }
+
+  protected static void assertRowsMatch(String name, byte[] bytes, int rows)
+                                                           throws IOException {
+    final BufferedImage expected =
+      load(name, new ByteArrayInputStream(bytes));
+
+    final ScanlineImageReader src =
+      ScanlineImageReader.open(name, new ByteArrayInputStream(bytes));
+    assertNotNull(src);
+
+    try {
+      final int w = src.getWidth();
+      final int h = src.getHeight();
+      assertEquals(expected.getWidth(), w);
+      assertEquals(expected.getHeight(), h);
+      assertEquals(
+        expected.getType() == BufferedImage.TYPE_INT_RGB, src.isOpaque()
+      );
+
+      final int[] band = new int[rows*w];
+      int y = 0;
+      int n;
+      while ((n = src.read(band, rows)) > 0) {
+        for (int i = 0; i < n*w; ++i) {
+          final int x = i % w;
+          final int ey = y + i / w;
+          assertPixelEquals(
+            name + " (" + x + "," + ey + ")", expected.getRGB(x, ey), band[i]
+          );
+        }
+        y += n;
+      }
+
+      assertEquals(h, y);
+      assertEquals(h, src.getRow());
+    }
+    finally {
+      src.close();
+    }
+  }
+
+  protected static void assertPixelEquals(String msg, int exp, int act) {
+    // Compare premultiplied, as that is how tiles are stored, and allow
+    // for rounding by ImageIO when it converts translucent images.
+    final int a = exp >>> 24;
+    assertEquals(msg, a, act >>> 24);
+
+    for (int s = 0; s < 24; s += 8) {
+      final int e = (((exp >>> s) & 0xff)*a + 127)/255;
+      final int c = (((act >>> s) & 0xff)*a + 127)/255;
+      if (Math.abs(e - c) > 1) assertEquals(msg, exp, act);
+    }
+  }
+
+  protected static byte[] readFile(String file) throws IOException {
+    FileInputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      final byte[] bytes = IOUtils.toByteArray(in);
+      in.close();
+      return bytes;
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  protected static byte[] writePNG(BufferedImage img) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ImageIO.write(img, "png", out);
+    return out.toByteArray();
+  }
+
+  protected static BufferedImage pattern(int type) {
+    final BufferedImage img = new BufferedImage(37, 29, type);
+    for (int y = 0; y < img.getHeight(); ++y) {
+      for (int x = 0; x < img.getWidth(); ++x) {
+        img.setRGB(x, y, ((x*y*7) << 24) | ((x*13) << 16) | ((y*17) << 8) | (x+y));
+      }
+    }
+    return img;
+  }
+
+  @Test
+  public void testPNGFiles() throws IOException {
+    for (String f : new String[] {
+      "cc.png", "type2-tRNS.png", "non-type2-tRNS.png", "tilecache/in.png"
+    }) {
+      assertRowsMatch(f, readFile(dir + f), 64);
+    }
+  }
+
+  @Test
+  public void testPNGColorTypes() throws IOException {
+    for (int type : new int[] {
+      BufferedImage.TYPE_INT_RGB,
+      BufferedImage.TYPE_INT_ARGB,
+      BufferedImage.TYPE_BYTE_INDEXED,
+      BufferedImage.TYPE_BYTE_BINARY,
+      BufferedImage.TYPE_BYTE_GRAY
+    }) {
+      assertRowsMatch("type " + type, writePNG(pattern(type)), 5);
+    }
+  }
+
+  protected static void writeChunk(DataOutputStream out, String type,
+                                   byte[] data) throws IOException {
+    final byte[] t = type.getBytes("US-ASCII");
+    final CRC32 crc = new CRC32();
+    crc.update(t);
+    crc.update(data);
+
+    out.writeInt(data.length);
+    out.write(t);
+    out.write(data);
+    out.writeInt((int) crc.getValue());
+  }
+
+  @Test
+  public void testPNG16BitTruecolorTRNS() throws IOException {
+    // the key has a green sample with its high bit set; the second pixel
+    // differs from it only in red
+    final byte[] key = { 0x12, 0x34, (byte) 0x80, 0x00, 0x00, 0x00 };
+    final byte[] row = {
+      0,
+      0x12, 0x34, (byte) 0x80, 0x00, 0x00, 0x00,
+      0x56, 0x78, (byte) 0x80, 0x00, 0x00, 0x00
+    };
+
+    final ByteArrayOutputStream idat = new ByteArrayOutputStream();
+    final DeflaterOutputStream zout = new DeflaterOutputStream(idat);
+    zout.write(row);
+    zout.close();
+
+    final ByteArrayOutputStream ihdr = new ByteArrayOutputStream();
+    final DataOutputStream hout = new DataOutputStream(ihdr);
+    hout.writeInt(2);
+    hout.writeInt(1);
+    hout.write(new byte[] { 16, 2, 0, 0, 0 });
+
+    final ByteArrayOutputStream png = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(png);
+    out.write(new byte[] {
+      (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+    });
+    writeChunk(out, "IHDR", ihdr.toByteArray());
+    writeChunk(out, "tRNS", key);
+    writeChunk(out, "IDAT", idat.toByteArray());
+    writeChunk(out, "IEND", new byte[0]);
+
+    final ScanlineImageReader src = ScanlineImageReader.open(
+      "16-bit tRNS", new ByteArrayInputStream(png.toByteArray()));
+    assertNotNull(src);
+
+    try {
+      assertFalse(src.isOpaque());
+
+      final int[] band = new int[2];
+      assertEquals(1, src.read(band, 1));
+      assertEquals(0, band[0]);
+      assertEquals(0xff568000, band[1]);
+    }
+    finally {
+      src.close();
+    }
+  }
+
+  @Test
+  public void testJPEG() throws IOException {
+    assertRowsMatch("rainbow.jpg", readFile(dir + "rainbow.jpg"), 7);
+  }
+
+  @Test
+  public void testInterlacedPNG() throws IOException {
+    assertNull(ScanlineImageReader.open(
+      "iTXt.png", new ByteArrayInputStream(readFile(dir + "iTXt.png"))
+    ));
+  }
+
+  @Test
+  public void testNotAnImage() throws IOException {
+    assertNull(ScanlineImageReader.open(
+      "junk", new ByteArrayInputStream("not an image".getBytes())
+    ));
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image.tilecache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.io.ZipArchive;
+import VASSAL.tools.lang.Callback;
+
+public class FileArchiveImageTilerTest {
+  protected static final String png = "test/VASSAL/tools/image/cc.png";
+  protected static final String ipath = "images/cc.png";
+
+  protected File tdir;
+  protected File zfile;
+  protected ExecutorService exec;
+
+  @Before
+  public void setup() throws IOException {
+    tdir = File.createTempFile("tiles", null);
+    tdir.delete();
+
+    for (int i = 0; i < 16; ++i) {
+      for (int j = 0; j < 16; ++j) {
+        final File d = new File(String.format("%s/%1x/%1x%1x", tdir, i, i, j));
+        FileUtils.forceMkdir(d);
+      }
+    }
+
+    zfile = File.createTempFile("archive", ".zip");
+    exec = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void teardown() throws IOException {
+    exec.shutdown();
+    FileUtils.forceDelete(tdir);
+    FileUtils.forceDelete(zfile);
+  }
+
+  @Test
+  public void testTruncatedImageIsSkipped() throws IOException {
+    final byte[] whole = FileUtils.readFileToByteArray(new File(png));
+    final byte[] half = new byte[whole.length/2];
+    System.arraycopy(whole, 0, half, 0, half.length);
+
+    final int[] count = new int[1];
+    final Callback<Void> progress = new Callback<Void>() {
+      public void receive(Void obj) {
+        ++count[0];
+      }
+    };
+
+    ZipArchive za = null;
+    try {
+      za = new ZipArchive(zfile, true);
+      za.add(ipath, half);
+
+      assertTrue(new FileArchiveImageTiler().stream(
+        za, tdir.getPath(), 256, 256, ipath,
+        exec, new StreamingTileSlicer(), progress
+      ));
+
+      za.close();
+    }
+    finally {
+      IOUtils.closeQuietly(za);
+    }
+
+    // every tile is accounted for once, and none is left to look fresh
+    assertEquals(TileUtils.tileCount(3100, 2500, 256, 256), count[0]);
+    assertFalse(new File(tdir, TileUtils.tileName(ipath, 0, 0, 1)).exists());
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image.tilecache;
+
+import static VASSAL.tools.image.AssertImage.assertImageEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import VASSAL.tools.image.ImageIOImageLoader;
+import VASSAL.tools.image.MemoryImageTypeConverter;
+import VASSAL.tools.image.ScanlineImageReader;
+import VASSAL.tools.io.IOUtils;
+import VASSAL.tools.lang.Callback;
+
+public class StreamingTileSlicerTest {
+  protected static final String png = "test/VASSAL/tools/image/cc.png";
+
+  protected File tdir;
+  protected ExecutorService exec;
+
+  @Before
+  public void setup() throws IOException {
+    tdir = File.createTempFile("tiles", null);
+    tdir.delete();
+
+    for (int i = 0; i < 16; ++i) {
+      for (int j = 0; j < 16; ++j) {
+        final File d = new File(String.format("%s/%1x/%1x%1x", tdir, i, i, j));
+        FileUtils.forceMkdir(d);
+      }
+    }
+
+    exec = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void teardown() throws IOException {
+    exec.shutdown();
+    FileUtils.forceDelete(tdir);
+  }
+
+  protected int stream(String file, int tw, int th) throws IOException {
+    final int[] count = new int[1];
+    final Callback<Void> progress = new Callback<Void>() {
+      public void receive(Void obj) {
+        ++count[0];
+      }
+    };
+
+    ScanlineImageReader src = null;
+    try {
+      src = ScanlineImageReader.open(file, new FileInputStream(file));
+      new StreamingTileSlicer().slice(
+        src, file, tdir.getPath(), tw, th, exec, progress
+      );
+    }
+    finally {
+      if (src != null) src.close();
+    }
+
+    return count[0];
+  }
+
+  protected BufferedImage load(String file) throws IOException {
+    FileInputStream in = null;
+    try {
+      in = new FileInputStream(file);
+      final BufferedImage img =
+        new ImageIOImageLoader(new MemoryImageTypeConverter()).load(
+          file, in, BufferedImage.TYPE_INT_RGB,
+          BufferedImage.TYPE_INT_ARGB_PRE, false
+        );
+      in.close();
+      return img;
+    }
+    finally {
+      IOUtils.closeQuietly(in);
+    }
+  }
+
+  @Test
+  public void testTileCount() throws IOException {
+    assertEquals(TileUtils.tileCount(3100, 2500, 256, 256),
+                 stream(png, 256, 256));
+  }
+
+  @Test
+  public void testUnscaledTilesMatch() throws IOException {
+    final int tw = 300;
+    final int th = 200;
+
+    stream(png, tw, th);
+
+    final BufferedImage src = load(png);
+
+    // 11 columns, 13 rows, including partial tiles at the edges
+    for (int tx = 0; tx < 11; ++tx) {
+      for (int ty = 0; ty < 13; ++ty) {
+        final BufferedImage expected =
+          new TileTask(src, null, tx, ty, tw, th, 3100, 2500).sliceTile();
+        final BufferedImage actual = TileUtils.read(
+          new File(tdir, TileUtils.tileName(png, tx, ty, 1))
+        );
+
+        assertImageEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testDownsample() {
+    final int[] a = { 0xff000000, 0xff040404, 0x80ff0000, 0x00000000 };
+    final int[] b = { 0xff080808, 0xff0c0c0c, 0x80ff0000, 0x00000000 };
+    final int[] dst = new int[2];
+
+    StreamingTileSlicer.downsample(a, 0, b, 0, dst, 2);
+
+    assertArrayEquals(new int[] { 0xff060606, 0x40800000 }, dst);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.image.tilecache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TilingStatisticsTest {
+  @Test
+  public void testSummary() {
+    final TilingStatistics stats = new TilingStatistics();
+
+    stats.imageStarted("a.png", true);
+    stats.setImageSize(300, 200);
+    stats.addTime(TilingStatistics.Stage.ENCODE, 5000000);
+    stats.addTime(TilingStatistics.Stage.ENCODE, 3000000);
+    stats.tileWritten(100);
+    stats.tileWritten(50);
+
+    stats.imageStarted("b.png", false);
+    stats.tileWritten(25);
+    stats.finish();
+
+    assertEquals(8, stats.getMillis(TilingStatistics.Stage.ENCODE));
+    assertEquals(3, stats.getTiles());
+    assertTrue(stats.getPeakHeap() > 0);
+
+    final Map<String,String> m = stats.getSummary();
+    assertEquals("2", m.get("images"));
+    assertEquals("3", m.get("tiles"));
+    assertEquals("175", m.get("tiles.bytes"));
+    assertEquals("8", m.get("stage.encode.ms"));
+    assertEquals("a.png", m.get("image.0.name"));
+    assertEquals("300", m.get("image.0.width"));
+    assertEquals("true", m.get("image.0.streamed"));
+    assertEquals("2", m.get("image.0.tiles"));
+    assertEquals("1", m.get("image.1.tiles"));
+    assertEquals("false", m.get("image.1.streamed"));
+  }
+
+  @Test
+  public void testWrite() {
+    final TilingStatistics stats = new TilingStatistics();
+    stats.tileWritten(10);
+
+    final StringWriter w = new StringWriter();
+    stats.write(w);
+
+    final String[] lines = w.toString().split("\\r?\\n");
+    assertEquals(stats.getSummary().size(), lines.length);
+    assertTrue(w.toString().contains("tiles=1"));
+  }
+
+  @Test
+  public void testSummaryRoundTrip() throws IOException {
+    final TilingStatistics stats = new TilingStatistics();
+    stats.imageStarted("c.png", true);
+    stats.tileWritten(10);
+    stats.finish();
+
+    final Map<String,String> expected = stats.getSummary();
+
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    TilingStatistics.writeSummary(expected, new DataOutputStream(bout));
+
+    final Map<String,String> actual = TilingStatistics.readSummary(
+      new DataInputStream(new ByteArrayInputStream(bout.toByteArray()))
+    );
+
+    assertEquals(expected, actual);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.imports.adc2;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ADC2UtilsTest {
+
+  @Test
+  public void testIsBlankARGB() {
+    final BufferedImage img =
+      new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    assertTrue(ADC2Utils.isBlank(img, 0, 0, 10, 10));
+
+    img.setRGB(7, 3, 0x01000000);
+    assertFalse(ADC2Utils.isBlank(img, 0, 0, 10, 10));
+    assertFalse(ADC2Utils.isBlank(img, 7, 0, 1, 10));
+    assertTrue(ADC2Utils.isBlank(img, 0, 0, 7, 10));
+    assertTrue(ADC2Utils.isBlank(img, 0, 4, 10, 6));
+  }
+
+  @Test
+  public void testIsBlankSubimage() {
+    final BufferedImage img =
+      new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+    img.setRGB(1, 1, 0xffffffff);
+    final BufferedImage sub = img.getSubimage(2, 2, 8, 8);
+    assertTrue(ADC2Utils.isBlank(sub, 0, 0, 8, 8));
+    assertFalse(ADC2Utils.isBlank(img.getSubimage(1, 1, 2, 2), 0, 0, 2, 2));
+  }
+
+  @Test
+  public void testIsBlankOpaque() {
+    // opaque images have a nonzero alpha, so are never blank
+    final BufferedImage img =
+      new BufferedImage(4, 4, BufferedImage.TYPE_3BYTE_BGR);
+    assertFalse(ADC2Utils.isBlank(img, 0, 0, 4, 4));
+  }
+}
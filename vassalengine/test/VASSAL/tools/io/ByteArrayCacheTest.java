@@ -0,0 +1,78 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.io;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ByteArrayCacheTest {
+  @Test
+  public void testHitsAndMisses() {
+    final ByteArrayCache cache = new ByteArrayCache(100, 50);
+    final byte[] a = new byte[10];
+
+    assertNull(cache.get("a"));
+    assertTrue(cache.put("a", a));
+    assertSame(a, cache.get("a"));
+    assertSame(a, cache.get("a"));
+
+    assertEquals(2, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(10, cache.getSize());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsed() {
+    final ByteArrayCache cache = new ByteArrayCache(100, 50);
+    cache.put("a", new byte[40]);
+    cache.put("b", new byte[40]);
+    cache.get("a");
+    cache.put("c", new byte[40]);
+
+    assertNotNull(cache.get("a"));
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("c"));
+    assertEquals(80, cache.getSize());
+  }
+
+  @Test
+  public void testTooLarge() {
+    final ByteArrayCache cache = new ByteArrayCache(100, 50);
+    assertFalse(cache.isCacheable(-1));
+    assertFalse(cache.put("a", new byte[51]));
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testReplaceAndRemoveAll() {
+    final ByteArrayCache cache = new ByteArrayCache(100, 50);
+    cache.put("x!/a", new byte[10]);
+    cache.put("x!/a", new byte[20]);
+    cache.put("x!/b", new byte[5]);
+    cache.put("y!/a", new byte[7]);
+    assertEquals(32, cache.getSize());
+
+    cache.removeAll("x!/");
+    assertEquals(1, cache.getCount());
+    assertEquals(7, cache.getSize());
+  }
+}
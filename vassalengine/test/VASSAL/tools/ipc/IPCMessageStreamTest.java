@@ -0,0 +1,263 @@
+/*
+ * $Id$
+ *
+ * Copyright (c) 2013 by Marc Pawlowsky
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Library General Public
+ * License (LGPL) as published by the Free Software Foundation.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this library; if not, copies are available
+ * at http://www.opensource.org.
+ */
+
+package VASSAL.tools.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.StreamCorruptedException;
+
+import org.junit.Test;
+
+public class IPCMessageStreamTest {
+  private static final IPCMessageRegistry registry =
+    IPCMessageRegistry.createDefault();
+
+  private static IPCMessage roundTrip(IPCMessage msg)
+                                   throws IOException, ClassNotFoundException {
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final IPCMessageOutputStream out =
+      new IPCMessageOutputStream(bout, registry);
+    out.writeObject(msg);
+    out.close();
+
+    final IPCMessageInputStream in = new IPCMessageInputStream(
+      new ByteArrayInputStream(bout.toByteArray()), registry);
+    final IPCMessage m = (IPCMessage) in.readObject();
+    assertEquals(-1, in.read());
+    return m;
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException, ClassNotFoundException {
+    final Halt halt = new Halt();
+    halt.setId(42);
+
+    final Fin fin = new Fin(halt);
+    fin.setId(Long.MAX_VALUE);
+
+    final IPCMessage m = roundTrip(fin);
+    assertTrue(m instanceof Fin);
+    assertEquals(Long.MAX_VALUE, m.getId());
+    assertEquals(42, m.getInReplyTo());
+
+    assertTrue(roundTrip(halt) instanceof Halt);
+    assertTrue(roundTrip(new SimpleIPCMessage()) instanceof SimpleIPCMessage);
+  }
+
+  @Test(expected=NotSerializableException.class)
+  public void testUnregisteredType() throws IOException {
+    final IPCMessageOutputStream out =
+      new IPCMessageOutputStream(new ByteArrayOutputStream(), registry);
+    out.writeObject(new SimpleIPCMessage() {
+      private static final long serialVersionUID = 1L;
+    });
+  }
+
+  @Test(expected=ClassNotFoundException.class)
+  public void testUnknownTag() throws IOException, ClassNotFoundException {
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bout);
+    out.writeInt(IPCMessageOutputStream.MAGIC);
+    out.writeShort(IPCMessageOutputStream.VERSION);
+    out.writeInt(18);
+    out.writeShort(1000);
+    out.writeLong(0);
+    out.writeLong(0);
+    out.close();
+
+    new IPCMessageInputStream(
+      new ByteArrayInputStream(bout.toByteArray()), registry).readObject();
+  }
+
+  @Test(expected=StreamCorruptedException.class)
+  public void testWrongVersion() throws IOException, ClassNotFoundException {
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bout);
+    out.writeInt(IPCMessageOutputStream.MAGIC);
+    out.writeShort(IPCMessageOutputStream.VERSION + 1);
+    out.close();
+
+    new IPCMessageInputStream(
+      new ByteArrayInputStream(bout.toByteArray()), registry).readObject();
+  }
+
+  @Test
+  public void testThrowable() throws IOException {
+    final Exception e = (IOException)
+      new IOException("outer").initCause(new IllegalStateException("inner"));
+
+    final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bout);
+    IPCCodecUtils.writeThrowable(out, e);
+    IPCCodecUtils.writeThrowable(out, null);
+    out.close();
+
+    final DataInputStream in = new DataInputStream(
+      new ByteArrayInputStream(bout.toByteArray()));
+    final Throwable t = IPCCodecUtils.readThrowable(in);
+    assertEquals("java.io.IOException: outer", t.toString());
+    assertEquals(e.getStackTrace().length, t.getStackTrace().length);
+    assertEquals(e.getStackTrace()[0].toString(),
+                 t.getStackTrace()[0].toString());
+    assertEquals("java.lang.IllegalStateException: inner",
+                 t.getCause().toString());
+    assertNull(IPCCodecUtils.readThrowable(in));
+  }
+
+  //
+  // Compares the binary framing with Java serialization over piped
+  // streams, as used by the launchers before 3.2.3.
+  //
+
+  private static class Echo implements Runnable {
+    private final ObjectInput in;
+    private final ObjectOutput out;
+
+    public Echo(ObjectInput in, ObjectOutput out) {
+      this.in = in;
+      this.out = out;
+    }
+
+    public void run() {
+      try {
+        Object o;
+        while (!((o = in.readObject()) instanceof Fin)) {
+          final IPCMessage m = (IPCMessage) o;
+          if (m.expectsReply()) {
+            out.writeObject(new Ack(m));
+            out.flush();
+          }
+        }
+      }
+      catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private static class Ping extends SimpleIPCMessage {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public boolean expectsReply() { return true; }
+  }
+
+  private interface StreamFactory {
+    ObjectOutput createOutput(OutputStream out) throws IOException;
+    ObjectInput createInput(InputStream in) throws IOException;
+  }
+
+  private static void time(String name, StreamFactory sf, int n)
+                                   throws IOException, ClassNotFoundException,
+                                          InterruptedException {
+    final PipedOutputStream po1 = new PipedOutputStream();
+    final PipedInputStream pi1 = new PipedInputStream(po1, 1 << 16);
+    final PipedOutputStream po2 = new PipedOutputStream();
+    final PipedInputStream pi2 = new PipedInputStream(po2, 1 << 16);
+
+    final ObjectOutput out = sf.createOutput(po1);
+    out.flush();
+    final ObjectOutput eout = sf.createOutput(po2);
+    eout.flush();
+    final ObjectInput ein = sf.createInput(pi1);
+    final ObjectInput in = sf.createInput(pi2);
+
+    final Thread echo = new Thread(new Echo(ein, eout));
+    echo.start();
+
+    // round trips
+    long t0 = System.nanoTime();
+    for (int i = 0; i < n; ++i) {
+      final Ping p = new Ping();
+      p.setId(i);
+      out.writeObject(p);
+      out.flush();
+      in.readObject();
+    }
+    final long rt = System.nanoTime() - t0;
+
+    // one-way burst
+    t0 = System.nanoTime();
+    for (int i = 0; i < n; ++i) {
+      final SimpleIPCMessage m = new SimpleIPCMessage();
+      m.setId(i);
+      out.writeObject(m);
+    }
+    out.writeObject(new Fin());
+    out.flush();
+    echo.join();
+    final long burst = System.nanoTime() - t0;
+
+    System.out.println(name + ": " + (rt / n / 1000) + " us/round trip, " +
+      (n * 1000000000L / burst) + " msg/s one way");
+  }
+
+  public static void main(String[] args) throws Exception {
+    final int n = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+    final IPCMessageRegistry r = IPCMessageRegistry.createDefault();
+    r.register(IPCMessageRegistry.FIRST_USER_TAG, Ping.class,
+      new IPCMessageRegistry.EmptyCodec<Ping>() {
+        protected Ping create() { return new Ping(); }
+      }
+    );
+
+    final StreamFactory serial = new StreamFactory() {
+      public ObjectOutput createOutput(OutputStream out) throws IOException {
+        return new ObjectOutputStream(out);
+      }
+
+      public ObjectInput createInput(InputStream in) throws IOException {
+        return new ObjectInputStream(in);
+      }
+    };
+
+    final StreamFactory binary = new StreamFactory() {
+      public ObjectOutput createOutput(OutputStream out) throws IOException {
+        return new IPCMessageOutputStream(out, r);
+      }
+
+      public ObjectInput createInput(InputStream in) {
+        return new IPCMessageInputStream(in, r);
+      }
+    };
+
+    for (int i = 0; i < 3; ++i) {
+      time("ObjectStream", serial, n);
+      time("binary", binary, n);
+    }
+  }
+}
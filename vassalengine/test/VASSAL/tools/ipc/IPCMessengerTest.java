@@ -24,10 +24,10 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
@@ -66,8 +66,10 @@ public class IPCMessengerTest {
       }
     }).start();
 
-    final ObjectOutputStream out = new ObjectOutputStream(out2);
-    final ObjectInputStream in = new ObjectInputStream(in2);
+    final IPCMessageRegistry registry = IPCMessageRegistry.createDefault();
+    final IPCMessageOutputStream out =
+      new IPCMessageOutputStream(out2, registry);
+    final IPCMessageInputStream in = new IPCMessageInputStream(in2, registry);
 
     Object o;
 
@@ -127,8 +129,10 @@ public class IPCMessengerTest {
       }
     }).start();
 
-    final ObjectOutputStream out = new ObjectOutputStream(out2);
-    final ObjectInputStream in = new ObjectInputStream(in2);
+    final IPCMessageRegistry registry = IPCMessageRegistry.createDefault();
+    final IPCMessageOutputStream out =
+      new IPCMessageOutputStream(out2, registry);
+    final IPCMessageInputStream in = new IPCMessageInputStream(in2, registry);
 
     Object o;
 
@@ -139,6 +143,7 @@ public class IPCMessengerTest {
       final SimpleIPCMessage m = (SimpleIPCMessage) o;
       assertEquals(i, m.getId());
       out.writeObject(new Ack(m));
+      out.flush();
     }
 
     // test shutdown
@@ -163,6 +168,20 @@ public class IPCMessengerTest {
     public boolean expectsReply() { return true; }
   }
 
+  protected static IPCMessageRegistry createRegistry() {
+    final IPCMessageRegistry r = IPCMessageRegistry.createDefault();
+    r.register(IPCMessageRegistry.FIRST_USER_TAG, Msg.class,
+      new IPCMessageCodec<Msg>() {
+        public void encode(Msg msg, DataOutput out) { }
+
+        public Msg decode(DataInput in) {
+          return new Msg();
+        }
+      }
+    );
+    return r;
+  }
+
   protected Future<?> runIPCMessenger(String threadName,
                                       final InputStream in,
                                       final OutputStream out,
@@ -172,7 +191,8 @@ public class IPCMessengerTest {
     new Thread(new Runnable() {
       public void run() {
         try {
-          final IPCMessenger ipc = new IPCMessenger(in, out);
+          final IPCMessenger ipc =
+            new IPCMessenger(in, out, createRegistry());
 
           ipc.addEventListener(Msg.class, new EventListener<Msg>() {
             public void receive(Object src, Msg msg) {